@@ -2,13 +2,16 @@ package com.appointment.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Application entry point.
  * Boots Spring Boot and starts the embedded Tomcat server on port 8080 by
  * default.
+ * Scheduling is enabled for background maintenance (e.g. tombstone purging).
  */
 @SpringBootApplication
+@EnableScheduling
 public class BackendApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(BackendApplication.class, args);
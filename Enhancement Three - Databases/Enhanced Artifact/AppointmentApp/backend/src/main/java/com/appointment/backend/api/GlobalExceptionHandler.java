@@ -1,5 +1,12 @@
 package com.appointment.backend.api;
 
+import com.appointment.backend.breaker.CircuitOpenException;
+import com.appointment.backend.exportjob.TooManyExportJobsException;
+import com.appointment.backend.index.IndexNotReadyException;
+import com.appointment.backend.security.RateLimitedException;
+import com.appointment.backend.sync.ResyncRequiredException;
+import com.appointment.backend.writebehind.QueueFullException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -54,6 +61,62 @@ public class GlobalExceptionHandler {
         return json(status, msg == null ? "Invalid request." : msg);
     }
 
+    /** Handles sync cursors that fell outside the tombstone retention window. */
+    @ExceptionHandler(ResyncRequiredException.class)
+    public ResponseEntity<Map<String, String>> handleResync(ResyncRequiredException ex) {
+        return json(HttpStatus.GONE, ex.getMessage());
+    }
+
+    /** Handles query paths refused while their index is still being built (enforce mode). */
+    @ExceptionHandler(IndexNotReadyException.class)
+    public ResponseEntity<Map<String, String>> handleIndexNotReady(IndexNotReadyException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /** Handles callers over their rate limit. */
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<Map<String, String>> handleRateLimited(RateLimitedException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /** Handles writes refused because the write-behind queue is full. */
+    @ExceptionHandler(QueueFullException.class)
+    public ResponseEntity<Map<String, String>> handleQueueFull(QueueFullException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /** Handles background exports refused because every worker is busy and the queue is full. */
+    @ExceptionHandler(TooManyExportJobsException.class)
+    public ResponseEntity<Map<String, String>> handleTooManyExportJobs(TooManyExportJobsException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /** Handles store calls refused while the circuit breaker is open. */
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<Map<String, String>> handleCircuitOpen(CircuitOpenException ex) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
     /** Handles malformed JSON or invalid date format in request bodies. */
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<Map<String, String>> handleParseError(HttpMessageNotReadableException ex) {
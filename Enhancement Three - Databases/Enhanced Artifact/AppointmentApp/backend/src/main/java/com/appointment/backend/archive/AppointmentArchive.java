@@ -0,0 +1,164 @@
+package com.appointment.backend.archive;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold tier: old "previous" appointments moved out of the hot collection.
+ * Documents keep exactly the same shape as in "appointments".
+ *
+ * {@link #maxDate()} is the newest date held here; a query whose window ends
+ * before or on it needs no archive read at all. This instance's own archiving
+ * raises it at once; it is re-read from the collection every
+ * {@code app.archive.max-date-refresh-ms}, so archiving done by another
+ * instance shows up within that interval.
+ */
+@Component
+public class AppointmentArchive {
+
+    public static final String COLLECTION = "appointments_archive";
+
+    private final MongoTemplate mongo;
+    private final AppointmentQueries queries;
+    private final long refreshNanos;
+    private volatile LocalDate maxDate;
+    private volatile long maxDateLoadedAt;
+    private volatile boolean maxDateLoaded;
+    private long raises; // guarded by this
+
+    @Autowired
+    public AppointmentArchive(
+            MongoTemplate mongo,
+            AppointmentQueries queries,
+            @Value("${app.archive.max-date-refresh-ms:10000}") long refreshMs) {
+        this.mongo = mongo;
+        this.queries = queries;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMs);
+    }
+
+    /** Default refresh interval (tools and tests). */
+    public AppointmentArchive(MongoTemplate mongo, AppointmentQueries queries) {
+        this(mongo, queries, 10_000);
+    }
+
+    /** Newest archived date, or null if the archive is empty. */
+    public LocalDate maxDate() {
+        if (!maxDateLoaded || System.nanoTime() - maxDateLoadedAt > refreshNanos) {
+            long raisesBefore;
+            synchronized (this) {
+                raisesBefore = raises;
+            }
+            LocalDate stored = queries.newestDate(COLLECTION);
+            synchronized (this) {
+                // A date raised during the query may be newer than what the query saw
+                boolean keepRaised = raises != raisesBefore && maxDate != null
+                        && (stored == null || maxDate.isAfter(stored));
+                maxDate = keepRaised ? maxDate : stored;
+                maxDateLoadedAt = System.nanoTime();
+                maxDateLoaded = true;
+            }
+        }
+        return maxDate;
+    }
+
+    /** Oldest archived date, or null if the archive is empty. */
+    public LocalDate minDate() {
+        return isEmpty() ? null : queries.oldestDate(COLLECTION);
+    }
+
+    /** True if anything dated on or after {@code date} might live in the archive. */
+    public boolean holdsOnOrAfter(LocalDate date) {
+        LocalDate max = maxDate();
+        return max != null && !max.isBefore(date);
+    }
+
+    /** True if the archive holds anything at all. */
+    public boolean isEmpty() {
+        return maxDate() == null;
+    }
+
+    /**
+     * No query while the archive is empty, like {@link #findById}: a first
+     * archiving run on another instance is seen within the max-date refresh
+     * interval.
+     */
+    public boolean existsById(String appointmentId) {
+        return !isEmpty() && mongo.exists(byId(appointmentId), COLLECTION);
+    }
+
+    public Appointment findById(String appointmentId) {
+        return isEmpty() ? null : mongo.findOne(byId(appointmentId), Appointment.class, COLLECTION);
+    }
+
+    /** Delete by ID; returns true if something was removed. */
+    public boolean deleteById(String appointmentId) {
+        return !isEmpty() && mongo.remove(byId(appointmentId), COLLECTION).getDeletedCount() > 0;
+    }
+
+    public List<Appointment> findAll() {
+        return queries.all(COLLECTION);
+    }
+
+    /** All archived appointments, ascending by date. */
+    public List<Appointment> findAllSorted() {
+        return queries.byDate(COLLECTION, null, null, false);
+    }
+
+    /** date < before, newest first. */
+    public List<Appointment> findBefore(LocalDate before) {
+        return queries.byDate(COLLECTION, null, before, true);
+    }
+
+    /** Exclusive range (start, end), ascending (same semantics as the hot collection). */
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        return queries.byDate(COLLECTION, start.plusDays(1), end, false);
+    }
+
+    /** Change feed: since < changeSeq <= upTo, ordered by sequence. */
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        if (isEmpty()) {
+            return List.of();
+        }
+        return queries.bySeq(COLLECTION, since, upTo, limit);
+    }
+
+    /**
+     * Copy raw documents into the archive.
+     * Upserts by _id, so re-running a partially finished batch is harmless.
+     */
+    void store(List<Document> docs) {
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        for (Document d : docs) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(d.get("_id"))), d,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    /** Record the newest date just archived. */
+    void raiseMaxDate(LocalDate date) {
+        synchronized (this) {
+            raises++;
+            if (date != null && (maxDate == null || date.isAfter(maxDate))) {
+                maxDate = date;
+            }
+        }
+    }
+
+    private static Query byId(String appointmentId) {
+        return Query.query(Criteria.where("_id").is(appointmentId));
+    }
+}
@@ -0,0 +1,141 @@
+package com.appointment.backend.archive;
+
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.sync.AppointmentTombstone;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background job that moves old appointments from the hot "appointments"
+ * collection into the archive, in batches.
+ * - Each batch is copied first and deleted from the hot tier second, so a
+ *   crash in between leaves a duplicate (hidden by {@link TierMerge}) rather
+ *   than a loss; the next run finishes the move.
+ * - An appointment deleted while its batch is being moved would otherwise be
+ *   copied back into the archive. Deletes write their tombstone first, so
+ *   once the hot copies are gone, any copy whose tombstone is newer than the
+ *   copied version is removed from the archive again.
+ * - Only appointments older than the configured horizon are moved.
+ * - Only runs with the Mongo storage engine.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "mongo", matchIfMissing = true)
+public class ArchivalJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivalJob.class);
+    private static final String HOT = "appointments";
+
+    private final MongoTemplate mongo;
+    private final AppointmentArchive archive;
+    private final AppointmentSchema schema;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final int batchSize;
+    private final ZoneId zone;
+
+    public ArchivalJob(
+            MongoTemplate mongo,
+            AppointmentArchive archive,
+            AppointmentSchema schema,
+            @Value("${app.archive.enabled:true}") boolean enabled,
+            @Value("${app.archive.horizon-days:180}") int horizonDays,
+            @Value("${app.archive.batch-size:1000}") int batchSize,
+            @Value("${app.schedule.zone:}") String zone) {
+        this.mongo = mongo;
+        this.archive = archive;
+        this.schema = schema;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.zone = zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+
+    /** Scheduled entry point (nightly by default). */
+    @Scheduled(cron = "${app.archive.cron:0 30 2 * * *}", zone = "${app.schedule.zone:}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now(zone).minusDays(horizonDays);
+        long moved = archiveBefore(cutoff);
+        if (moved > 0) {
+            log.info("Archived {} appointments dated before {}", moved, cutoff);
+        }
+    }
+
+    /** Move everything dated before {@code cutoff}; returns the number moved. */
+    public long archiveBefore(LocalDate cutoff) {
+        long moved = 0;
+        List<Document> batch;
+        do {
+            batch = mongo.execute(HOT, coll -> coll
+                    .find(schema.dateBefore(cutoff))
+                    .limit(batchSize)
+                    .into(new ArrayList<>()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            archive.store(batch);
+
+            // Advance the watermark before the hot copies disappear
+            List<Object> ids = new ArrayList<>(batch.size());
+            for (Document d : batch) {
+                archive.raiseMaxDate(AppointmentSchema.read(d).getAppointmentDate());
+                ids.add(d.get("_id"));
+            }
+            mongo.remove(Query.query(Criteria.where("_id").in(ids)), HOT);
+            moved += batch.size() - dropDeletedDuringMove(batch, ids);
+        } while (batch.size() == batchSize);
+        return moved;
+    }
+
+    /**
+     * Remove archive copies of appointments deleted after the batch was read.
+     * A tombstone only counts if it is newer than the copied version, so a
+     * re-created ID that was deleted once before stays archived.
+     */
+    private int dropDeletedDuringMove(List<Document> batch, List<Object> ids) {
+        Query deleted = Query.query(Criteria.where("_id").in(ids));
+        Map<Object, Long> tombstoned = new HashMap<>();
+        for (AppointmentTombstone t : mongo.find(deleted, AppointmentTombstone.class)) {
+            tombstoned.put(t.getAppointmentId(), t.getChangeSeq());
+        }
+        if (tombstoned.isEmpty()) {
+            return 0;
+        }
+        int dropped = 0;
+        for (Document d : batch) {
+            Long deletedAt = tombstoned.get(d.get("_id"));
+            long version = AppointmentSchema.read(d).getChangeSeq();
+            if (deletedAt != null && deletedAt > version) {
+                // Only the copied version: never a newer one written since
+                Criteria sameVersion = version == 0
+                        ? new Criteria().andOperator( // not stamped by the change feed yet
+                                Criteria.where(AppointmentSchema.SEQ).exists(false),
+                                Criteria.where(AppointmentSchema.COMPACT_SEQ).exists(false))
+                        : new Criteria().orOperator(
+                                Criteria.where(AppointmentSchema.SEQ).is(version),
+                                Criteria.where(AppointmentSchema.COMPACT_SEQ).is(version));
+                mongo.remove(Query.query(Criteria.where("_id").is(d.get("_id")).andOperator(sameVersion)),
+                        AppointmentArchive.COLLECTION);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+}
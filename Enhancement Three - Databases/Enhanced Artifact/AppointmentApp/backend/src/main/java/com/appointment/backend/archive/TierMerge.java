@@ -0,0 +1,54 @@
+package com.appointment.backend.archive;
+
+import com.appointment.backend.model.Appointment;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges hot and archive results that are each already ordered.
+ * - Linear merge, no re-sort.
+ * - An ID present in both tiers (mid-move) is returned once, from the hot tier.
+ */
+public final class TierMerge {
+    private TierMerge() {
+    }
+
+    public static final Comparator<Appointment> ASCENDING = Comparator.comparing(Appointment::getAppointmentDate);
+    public static final Comparator<Appointment> DESCENDING = ASCENDING.reversed();
+
+    public static List<Appointment> merge(List<Appointment> hot, List<Appointment> archive, Comparator<Appointment> order) {
+        if (archive.isEmpty()) {
+            return hot;
+        }
+        Set<String> hotIds = new HashSet<>();
+        for (Appointment a : hot) {
+            hotIds.add(a.getAppointmentId());
+        }
+
+        List<Appointment> out = new ArrayList<>(hot.size() + archive.size());
+        int i = 0, j = 0;
+        while (i < hot.size() || j < archive.size()) {
+            // Ties go to the hot tier first; archive rows within a date follow
+            boolean takeHot = j >= archive.size()
+                    || (i < hot.size() && order.compare(hot.get(i), archive.get(j)) <= 0);
+            if (takeHot) {
+                out.add(hot.get(i++));
+            } else {
+                Appointment a = archive.get(j++);
+                if (!hotIds.contains(a.getAppointmentId())) {
+                    out.add(a);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Unordered concatenation with the same de-duplication. */
+    public static List<Appointment> concat(List<Appointment> hot, List<Appointment> archive) {
+        return merge(hot, archive, (a, b) -> -1);
+    }
+}
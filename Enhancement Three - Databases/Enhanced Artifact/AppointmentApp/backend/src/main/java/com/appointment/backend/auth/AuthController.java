@@ -3,11 +3,15 @@ package com.appointment.backend.auth;
 import com.appointment.backend.auth.dto.AuthResponse;
 import com.appointment.backend.auth.dto.LoginRequest;
 import com.appointment.backend.auth.dto.RegisterRequest;
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.security.RateLimitedException;
+import com.appointment.backend.security.RateLimiter;
 import jakarta.validation.Valid;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -21,22 +25,40 @@ public class AuthController {
 
     private final UserRepository userRepo;
     private final JwtService jwtService;
+    private final IndexManager indexes;
+    private final RateLimiter rateLimiter;
+    private final PasswordHasher passwordHasher;
+    private final KnownEmails knownEmails;
 
-    public AuthController(UserRepository userRepo, JwtService jwtService) {
+    public AuthController(UserRepository userRepo, JwtService jwtService, IndexManager indexes,
+            RateLimiter rateLimiter, PasswordHasher passwordHasher, KnownEmails knownEmails) {
         this.userRepo = userRepo;
         this.jwtService = jwtService;
+        this.indexes = indexes;
+        this.rateLimiter = rateLimiter;
+        this.passwordHasher = passwordHasher;
+        this.knownEmails = knownEmails;
     }
 
     /** Registers a new user if email is not taken. */
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest req) {
-        if (userRepo.existsByEmail(req.getEmail())) {
+        // Without the unique index two concurrent registrations could both succeed
+        indexes.require(IndexManager.USERS_BY_EMAIL);
+        limitPerEmail(req.getEmail());
+        if (knownEmails.isTaken(req.getEmail())) {
             // Duplicate email -> 409 Conflict
-            return ResponseEntity.status(409).body(Map.of("error", "Email already registered."));
+            return emailTaken();
+        }
+        // Store hashed password (cost calibrated at startup)
+        String hash = passwordHasher.hash(req.getPassword());
+        knownEmails.add(req.getEmail());
+        try {
+            userRepo.insert(new User(req.getEmail(), hash));
+        } catch (DuplicateKeyException ex) {
+            // Unique index safety net (a concurrent or filtered-out duplicate)
+            return emailTaken();
         }
-        // Store hashed password
-        String hash = BCrypt.hashpw(req.getPassword(), BCrypt.gensalt());
-        userRepo.save(new User(req.getEmail(), hash));
         // Success -> return confirmation message
         return ResponseEntity.ok(Map.of("message", "Registration successful."));
     }
@@ -44,13 +66,31 @@ public class AuthController {
     /** Logs user in and returns JWT if credentials are valid. */
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req) {
+        indexes.require(IndexManager.USERS_BY_EMAIL);
+        limitPerEmail(req.getEmail());
         User user = userRepo.findByEmail(req.getEmail()).orElse(null);
-        if (user == null || !BCrypt.checkpw(req.getPassword(), user.getPasswordHash())) {
+        if (user == null || !passwordHasher.verify(req.getPassword(), user.getPasswordHash())) {
             // Wrong credentials -> 401 Unauthorized
             return ResponseEntity.status(401).body(Map.of("error", "Invalid email or password."));
         }
+        // Bring hashes made with an older cost up to date, without delaying this response
+        String verified = user.getPasswordHash();
+        passwordHasher.rehashIfNeeded(req.getPassword(), verified,
+                newHash -> userRepo.replacePasswordHash(user.getEmail(), verified, newHash));
         // Return signed JWT
         String token = jwtService.generateToken(user.getEmail());
         return ResponseEntity.ok(new AuthResponse(token));
     }
+
+    private static ResponseEntity<?> emailTaken() {
+        return ResponseEntity.status(409).body(Map.of("error", "Email already registered."));
+    }
+
+    /** Per-account limit on top of the per-IP one, against guessing spread over many IPs. */
+    private void limitPerEmail(String email) {
+        long waitNanos = rateLimiter.acquire(rateLimiter.auth(), "email:" + email.toLowerCase(Locale.ROOT));
+        if (waitNanos > 0) {
+            throw new RateLimitedException(waitNanos);
+        }
+    }
 }
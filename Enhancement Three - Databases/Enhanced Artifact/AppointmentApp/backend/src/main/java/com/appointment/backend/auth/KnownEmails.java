@@ -0,0 +1,81 @@
+package com.appointment.backend.auth;
+
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.util.ExistenceFilter;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Registration's "is this email taken?" check, with a Bloom filter of every
+ * registered email in front of the query (see {@link ExistenceFilter}).
+ *
+ * A definite miss is only trusted once the unique email index exists, since
+ * that index is what rejects an email registered by another process.
+ */
+@Component
+public class KnownEmails implements MetricsSource {
+
+    private static final Logger log = LoggerFactory.getLogger(KnownEmails.class);
+
+    private final MongoTemplate mongo;
+    private final UserRepository userRepo;
+    private final IndexManager indexes;
+    private final ExistenceFilter emails = new ExistenceFilter(1 << 14, 0.01);
+
+    public KnownEmails(MongoTemplate mongo, UserRepository userRepo, IndexManager indexes) {
+        this.mongo = mongo;
+        this.userRepo = userRepo;
+        this.indexes = indexes;
+    }
+
+    public boolean isTaken(String email) {
+        if (!indexes.isReady(IndexManager.USERS_BY_EMAIL)) {
+            return userRepo.existsByEmail(email);
+        }
+        return emails.exists(email, userRepo::existsByEmail);
+    }
+
+    /** Record a newly registered email. */
+    public void add(String email) {
+        emails.add(email);
+    }
+
+    /** Load every registered email into the filter. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            mongo.execute("users", coll -> {
+                for (Document d : coll.find().projection(Projections.include("email"))) {
+                    String email = d.getString("email");
+                    if (email != null) {
+                        emails.add(email);
+                    }
+                }
+                return null;
+            });
+            emails.markLoaded();
+        } catch (DataAccessException ex) {
+            log.warn("Email filter load skipped: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "emailFilter";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        return emails.metrics();
+    }
+}
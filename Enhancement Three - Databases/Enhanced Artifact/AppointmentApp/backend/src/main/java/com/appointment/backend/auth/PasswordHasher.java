@@ -0,0 +1,188 @@
+package com.appointment.backend.auth;
+
+import com.appointment.backend.metrics.LatencyStats;
+import com.appointment.backend.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * BCrypt hashing with a cost picked for this machine.
+ *
+ * At startup the cost is calibrated: starting at the minimum, it goes up one
+ * step (each step doubles the work) while a measured hash stays within
+ * app.auth.bcrypt.target-ms. A fixed app.auth.bcrypt.cost skips this.
+ *
+ * Hashes made with another cost still verify. After a successful login,
+ * {@link #rehashIfNeeded} recomputes a hash below the current cost on a
+ * background thread, so the login itself does not pay for a second hash.
+ * Hashes above it are left alone: the cost is calibrated per node and per
+ * start, and a slower or busier node must not lower what a faster one stored
+ * (nor two nodes keep flipping a user's hash back and forth).
+ */
+@Component
+public class PasswordHasher implements MetricsSource {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final int cost;
+    private final long calibrationNanos;
+    private final long targetMs;
+    private final LatencyStats hashes = new LatencyStats();
+    private final LatencyStats verifies = new LatencyStats();
+    private final LongAdder rehashed = new LongAdder();
+    private final LongAdder rehashDropped = new LongAdder();
+    private final LongAdder rehashFailed = new LongAdder();
+    private final ThreadPoolExecutor rehashPool;
+
+    @Autowired
+    public PasswordHasher(
+            @Value("${app.auth.bcrypt.cost:0}") int fixedCost,
+            @Value("${app.auth.bcrypt.target-ms:250}") long targetMs,
+            @Value("${app.auth.bcrypt.min-cost:10}") int minCost,
+            @Value("${app.auth.bcrypt.max-cost:16}") int maxCost) {
+        this.targetMs = targetMs;
+        timeHash(6); // load and start compiling BCrypt before anything is measured
+        if (fixedCost > 0) {
+            this.cost = fixedCost;
+            this.calibrationNanos = timeHash(fixedCost);
+        } else {
+            long[] picked = calibrate(TimeUnit.MILLISECONDS.toNanos(targetMs), minCost, maxCost);
+            this.cost = (int) picked[0];
+            this.calibrationNanos = picked[1];
+        }
+        log.info("BCrypt cost {} ({} ms per hash, target {} ms)", cost,
+                TimeUnit.NANOSECONDS.toMillis(calibrationNanos), targetMs);
+
+        // One thread and a short queue: rehashing is best effort, a dropped one happens at the next login
+        this.rehashPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-rehash");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, pool) -> rehashDropped.increment());
+    }
+
+    /** Highest cost in [min, max] whose measured hash time fits the target: {cost, nanos}. */
+    private static long[] calibrate(long targetNanos, int minCost, int maxCost) {
+        int c = minCost;
+        // The first full-size hash still runs partly interpreted; keep the faster of two
+        long nanos = Math.min(timeHash(c), timeHash(c));
+        if (nanos > targetNanos) {
+            log.warn("BCrypt cost {} already takes {} ms, over the target; using it anyway", c,
+                    TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+        // The next step costs about twice as much, so only try it if that could still fit
+        while (c < maxCost && nanos * 2 <= targetNanos) {
+            long next = timeHash(c + 1);
+            if (next > targetNanos) {
+                break;
+            }
+            c++;
+            nanos = next;
+        }
+        return new long[] { c, nanos };
+    }
+
+    private static long timeHash(int cost) {
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", BCrypt.gensalt(cost));
+        return System.nanoTime() - start;
+    }
+
+    /** Hash a new password at the current cost. */
+    public String hash(String password) {
+        long start = System.nanoTime();
+        String hash = BCrypt.hashpw(password, BCrypt.gensalt(cost));
+        hashes.record(System.nanoTime() - start);
+        return hash;
+    }
+
+    /** Check a password against a stored hash of any cost. */
+    public boolean verify(String password, String hash) {
+        long start = System.nanoTime();
+        boolean ok = BCrypt.checkpw(password, hash);
+        verifies.record(System.nanoTime() - start);
+        return ok;
+    }
+
+    /** Cost used for new hashes. */
+    public int cost() {
+        return cost;
+    }
+
+    /** True if {@code hash} was made with a lower cost than the current one (never downgrades). */
+    public boolean needsRehash(String hash) {
+        return costOf(hash) < cost;
+    }
+
+    /**
+     * After a successful verify: if the stored hash has a lower cost, compute
+     * a new one in the background and hand it to {@code store}.
+     */
+    public void rehashIfNeeded(String password, String storedHash, Consumer<String> store) {
+        if (!needsRehash(storedHash)) {
+            return;
+        }
+        rehashPool.execute(() -> {
+            try {
+                store.accept(hash(password));
+                rehashed.increment();
+            } catch (RuntimeException ex) {
+                rehashFailed.increment();
+                log.warn("Password rehash skipped: {}", ex.getMessage());
+            }
+        });
+    }
+
+    /** Cost field of a "$2a$10$..." hash, or -1 if it cannot be read. */
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char ones = hash.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    @PreDestroy
+    public void stop() {
+        rehashPool.shutdown();
+    }
+
+    @Override
+    public String metricsName() {
+        return "bcrypt";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("cost", cost);
+        out.put("targetMs", targetMs);
+        out.put("calibrationMs", TimeUnit.NANOSECONDS.toMillis(calibrationNanos));
+        out.put("hash", hashes.snapshot());
+        out.put("verify", verifies.snapshot());
+        out.put("rehashed", rehashed.sum());
+        out.put("rehashDropped", rehashDropped.sum());
+        out.put("rehashFailed", rehashFailed.sum());
+        out.put("rehashQueued", rehashPool.getQueue().size());
+        return out;
+    }
+}
@@ -1,7 +1,6 @@
 package com.appointment.backend.auth;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 /**
@@ -12,7 +11,7 @@ public class User {
     @Id
     private String id;
 
-    @Indexed(unique = true) // Ensure each email is unique
+    // Unique index on email is declared in IndexManager
     private String email;
 
     // Hashed password (never store plain text!)
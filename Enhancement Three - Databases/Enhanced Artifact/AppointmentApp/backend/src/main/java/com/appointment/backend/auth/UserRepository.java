@@ -1,15 +1,22 @@
 package com.appointment.backend.auth;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 import java.util.Optional;
 
 /**
  * Repository interface for User collection.
- * Provides lookup by email and existence check.
+ * Provides lookup by email, existence check, and conditional hash update.
  */
 public interface UserRepository extends MongoRepository<User, String> {
     boolean existsByEmail(String email);
 
     Optional<User> findByEmail(String email);
+
+    /** Replace the hash only if it is still the one that was verified (returns the match count). */
+    @Query("{ 'email': ?0, 'passwordHash': ?1 }")
+    @Update("{ '$set': { 'passwordHash': ?2 } }")
+    long replacePasswordHash(String email, String expectedHash, String newHash);
 }
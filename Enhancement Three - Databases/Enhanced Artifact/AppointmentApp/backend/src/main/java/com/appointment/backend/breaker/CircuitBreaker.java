@@ -0,0 +1,210 @@
+package com.appointment.backend.breaker;
+
+import com.appointment.backend.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker around the appointment store, so that a stalled database
+ * costs each request a fast 503 instead of a thread parked on driver
+ * timeouts.
+ *
+ * - CLOSED: calls go through. A call that fails, or that succeeds but takes
+ *   longer than {@code slow-call-ms}, counts as a failure; after
+ *   {@code failure-threshold} failures in a row the breaker opens.
+ * - OPEN: calls are refused with {@link CircuitOpenException} for
+ *   {@code open-ms}.
+ * - HALF_OPEN: after that, one trial call is let through. If it succeeds the
+ *   breaker closes; if not it opens again. Other calls are refused meanwhile.
+ *
+ * Duplicate keys and rejected arguments are answers, not failures, and do
+ * not count. Bulk calls ({@link #callBulk}: full scans, wide ranges, batch
+ * inserts) are expected to be slow, so only their errors count.
+ */
+@Component
+public class CircuitBreaker implements MetricsSource {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntil;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    @Autowired
+    public CircuitBreaker(
+            @Value("${app.breaker.enabled:true}") boolean enabled,
+            @Value("${app.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${app.breaker.slow-call-ms:3000}") long slowCallMs,
+            @Value("${app.breaker.open-ms:10000}") long openMs) {
+        this(enabled, failureThreshold, slowCallMs, openMs, System::nanoTime);
+    }
+
+    CircuitBreaker(boolean enabled, int failureThreshold, long slowCallMs, long openMs, LongSupplier clock) {
+        this.enabled = enabled;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.clock = clock;
+    }
+
+    /** Run {@code op} through the breaker; throws {@link CircuitOpenException} if it is open. */
+    public <T> T call(Supplier<T> op) {
+        return call(op, true);
+    }
+
+    /** Like {@link #call}, for an operation whose time grows with the data: slowness is not a failure. */
+    public <T> T callBulk(Supplier<T> op) {
+        return call(op, false);
+    }
+
+    private <T> T call(Supplier<T> op, boolean timed) {
+        if (!enabled) {
+            return op.get();
+        }
+        boolean trial = admit();
+        try {
+            long start = clock.getAsLong();
+            T result;
+            try {
+                result = op.get();
+            } catch (RuntimeException ex) {
+                record(trial, !isFailure(ex), false);
+                throw ex;
+            }
+            boolean slow = timed && clock.getAsLong() - start > slowCallNanos;
+            record(trial, !slow, slow);
+            return result;
+        } finally {
+            if (trial) {
+                // Also after an Error, which is not recorded: the next call becomes the trial
+                trialInFlight.set(false);
+            }
+        }
+    }
+
+    public void run(Runnable op) {
+        call(() -> {
+            op.run();
+            return null;
+        });
+    }
+
+    public State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openUntil >= 0) {
+            return State.HALF_OPEN; // due for a trial, which the next call makes
+        }
+        return state;
+    }
+
+    /** Whether an exception means the store is in trouble (as opposed to a normal refusal). */
+    public static boolean isFailure(Throwable ex) {
+        return !(ex instanceof DuplicateKeyException || ex instanceof IllegalArgumentException
+                || ex instanceof CircuitOpenException);
+    }
+
+    /** Returns true if this call is the half-open trial. */
+    private boolean admit() {
+        State s = state;
+        if (s == State.CLOSED) {
+            calls.increment();
+            return false;
+        }
+        if (s == State.OPEN && clock.getAsLong() - openUntil < 0) {
+            throw refuse();
+        }
+        if (trialInFlight.compareAndSet(false, true)) {
+            state = State.HALF_OPEN;
+            calls.increment();
+            return true;
+        }
+        throw refuse();
+    }
+
+    private CircuitOpenException refuse() {
+        refused.increment();
+        long waitNanos = Math.max(0, openUntil - clock.getAsLong());
+        return new CircuitOpenException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+    }
+
+    private void record(boolean trial, boolean ok, boolean slow) {
+        if (slow) {
+            slowCalls.increment();
+        }
+        if (!ok) {
+            failures.increment();
+        }
+        if (trial) {
+            if (ok) {
+                consecutiveFailures.set(0);
+                state = State.CLOSED;
+                log.info("Store circuit breaker closed after a successful trial call");
+            } else {
+                open();
+            }
+        } else if (ok) {
+            consecutiveFailures.set(0);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            synchronized (this) {
+                if (state == State.CLOSED) {
+                    open();
+                    log.warn("Store circuit breaker opened after {} failed or slow calls in a row",
+                            failureThreshold);
+                }
+            }
+        }
+    }
+
+    private void open() {
+        openUntil = clock.getAsLong() + openNanos;
+        state = State.OPEN;
+        consecutiveFailures.set(0);
+        opened.increment();
+    }
+
+    @Override
+    public String metricsName() {
+        return "circuitBreaker";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("state", getState().name());
+        out.put("consecutiveFailures", consecutiveFailures.get());
+        out.put("calls", calls.sum());
+        out.put("failures", failures.sum());
+        out.put("slowCalls", slowCalls.sum());
+        out.put("refused", refused.sum());
+        out.put("opened", opened.sum());
+        return out;
+    }
+}
@@ -0,0 +1,19 @@
+package com.appointment.backend.breaker;
+
+/**
+ * Thrown instead of calling the store while the circuit breaker is open.
+ * Mapped to 503 with a Retry-After header.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CircuitOpenException(long retryAfterSeconds) {
+        super("The database is unavailable. Try again in " + retryAfterSeconds + " s.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
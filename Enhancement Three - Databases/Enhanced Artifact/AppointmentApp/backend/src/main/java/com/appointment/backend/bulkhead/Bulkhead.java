@@ -0,0 +1,127 @@
+package com.appointment.backend.bulkhead;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One compartment of request threads: at most {@code maxConcurrent} requests
+ * of its class run at once, at most {@code maxQueued} more wait (each for at
+ * most {@code maxWaitMs}), and the rest are refused at once with
+ * {@code rejectionStatus}. A full compartment only turns away requests of its
+ * own class, so a burst of exports or logins cannot take the threads that
+ * dashboard reads need.
+ *
+ * Waiters are admitted in arrival order (fair semaphore).
+ */
+public final class Bulkhead {
+
+    /** Why a request was not admitted. */
+    public enum Rejection { QUEUE_FULL, TIMED_OUT }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final int rejectionStatus;
+    private final long retryAfterSeconds;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimedOut = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, long maxWaitMs, int rejectionStatus,
+            long retryAfterSeconds) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.rejectionStatus = rejectionStatus;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
+
+    /**
+     * Take a slot, waiting in the queue if there is room in it.
+     * Returns null when admitted (call {@link #release()} afterwards), else why not.
+     */
+    public Rejection enter() throws InterruptedException {
+        // Timed, even with no wait: the untimed tryAcquire would barge past queued waiters
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            admitted();
+            return null;
+        }
+        if (waiting.incrementAndGet() > maxQueued) {
+            waiting.decrementAndGet();
+            rejectedQueueFull.increment();
+            return Rejection.QUEUE_FULL;
+        }
+        long start = System.nanoTime();
+        boolean got;
+        try {
+            got = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        waited.increment();
+        waitNanos.add(System.nanoTime() - start);
+        if (!got) {
+            rejectedTimedOut.increment();
+            return Rejection.TIMED_OUT;
+        }
+        admitted();
+        return null;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    private void admitted() {
+        admitted.increment();
+        peakActive.accumulateAndGet(active(), Math::max);
+    }
+
+    private int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRejectionStatus() {
+        return rejectionStatus;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    Map<String, Object> metrics() {
+        int active = active();
+        long w = waited.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("maxConcurrent", maxConcurrent);
+        out.put("maxQueued", maxQueued);
+        out.put("active", active);
+        out.put("waiting", waiting.get());
+        // Share of the compartment in use now, and its high-water mark
+        out.put("saturation", (double) active / maxConcurrent);
+        out.put("peakActive", peakActive.get());
+        out.put("admitted", admitted.sum());
+        out.put("waited", w);
+        out.put("avgWaitMs", w == 0 ? 0.0 : waitNanos.sum() / 1e6 / w);
+        out.put("rejectedQueueFull", rejectedQueueFull.sum());
+        out.put("rejectedTimedOut", rejectedTimedOut.sum());
+        return out;
+    }
+}
@@ -0,0 +1,117 @@
+package com.appointment.backend.bulkhead;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Servlet filter that runs each request inside its {@link Bulkhead}. A
+ * request that finds its compartment and queue full, or waits too long, gets
+ * the compartment's rejection status with Retry-After.
+ *
+ * Streamed exports finish on an async thread after this filter returns, so
+ * their slot is held until the async request completes, not just until the
+ * servlet thread is handed back.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    public BulkheadFilter(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        Bulkhead bulkhead = bulkheads.forRequest(request.getMethod(), request.getRequestURI());
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Bulkhead.Rejection rejection;
+        try {
+            rejection = bulkhead.enter();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            rejection = Bulkhead.Rejection.TIMED_OUT;
+        }
+        if (rejection != null) {
+            reject(response, bulkhead, rejection);
+            return;
+        }
+        Release release = new Release(bulkhead);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /** Written here directly: exceptions thrown by filters never reach GlobalExceptionHandler. */
+    private static void reject(HttpServletResponse response, Bulkhead bulkhead, Bulkhead.Rejection rejection)
+            throws IOException {
+        String reason = rejection == Bulkhead.Rejection.QUEUE_FULL ? "busy" : "still busy after waiting";
+        response.setStatus(bulkhead.getRejectionStatus());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(bulkhead.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"The server is " + reason + " with " + bulkhead.getName()
+                + " requests. Try again in " + bulkhead.getRetryAfterSeconds() + " s.\"}");
+    }
+
+    /** Gives the slot back exactly once, whichever way the request ends. */
+    private static final class Release implements AsyncListener, Runnable {
+
+        private final Bulkhead bulkhead;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Release(Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // A re-dispatch starts a new async cycle; keep listening to it
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
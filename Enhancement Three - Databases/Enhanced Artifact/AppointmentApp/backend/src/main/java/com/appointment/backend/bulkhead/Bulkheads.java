@@ -0,0 +1,106 @@
+package com.appointment.backend.bulkhead;
+
+import com.appointment.backend.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The four request classes and their compartments:
+ * - read:   GET /appointments/** (interactive lists, lookups, sync, and
+ *           export job status polls, which are cheap)
+ * - write:  POST and DELETE /appointments/**
+ * - auth:   /auth/** (each login or registration costs a BCrypt hash)
+ * - export: GET /appointments/export, POST /appointments/exports and
+ *           GET /appointments/exports/{id}/file
+ * Anything else (docs, /ops) is not limited.
+ *
+ * The compartments share Tomcat's worker threads (server.tomcat.threads.max,
+ * 200 by default), so their max-concurrent values together should stay under
+ * it; otherwise one class can still fill the pool before its own limit is hit.
+ */
+@Component
+public class Bulkheads implements MetricsSource {
+
+    private final boolean enabled;
+    private final Bulkhead read;
+    private final Bulkhead write;
+    private final Bulkhead auth;
+    private final Bulkhead export;
+
+    @Autowired
+    public Bulkheads(
+            @Value("${app.bulkhead.enabled:true}") boolean enabled,
+            @Value("${app.bulkhead.retry-after-seconds:1}") long retryAfterSeconds,
+            @Value("${app.bulkhead.read.max-concurrent:80}") int readConcurrent,
+            @Value("${app.bulkhead.read.max-queued:40}") int readQueued,
+            @Value("${app.bulkhead.read.max-wait-ms:100}") long readWaitMs,
+            @Value("${app.bulkhead.read.rejection-status:503}") int readStatus,
+            @Value("${app.bulkhead.write.max-concurrent:20}") int writeConcurrent,
+            @Value("${app.bulkhead.write.max-queued:20}") int writeQueued,
+            @Value("${app.bulkhead.write.max-wait-ms:500}") long writeWaitMs,
+            @Value("${app.bulkhead.write.rejection-status:503}") int writeStatus,
+            @Value("${app.bulkhead.auth.max-concurrent:4}") int authConcurrent,
+            @Value("${app.bulkhead.auth.max-queued:8}") int authQueued,
+            @Value("${app.bulkhead.auth.max-wait-ms:2000}") long authWaitMs,
+            @Value("${app.bulkhead.auth.rejection-status:503}") int authStatus,
+            @Value("${app.bulkhead.export.max-concurrent:2}") int exportConcurrent,
+            @Value("${app.bulkhead.export.max-queued:0}") int exportQueued,
+            @Value("${app.bulkhead.export.max-wait-ms:0}") long exportWaitMs,
+            @Value("${app.bulkhead.export.rejection-status:503}") int exportStatus) {
+        this(enabled,
+                new Bulkhead("read", readConcurrent, readQueued, readWaitMs, readStatus, retryAfterSeconds),
+                new Bulkhead("write", writeConcurrent, writeQueued, writeWaitMs, writeStatus, retryAfterSeconds),
+                new Bulkhead("auth", authConcurrent, authQueued, authWaitMs, authStatus, retryAfterSeconds),
+                new Bulkhead("export", exportConcurrent, exportQueued, exportWaitMs, exportStatus,
+                        retryAfterSeconds));
+    }
+
+    Bulkheads(boolean enabled, Bulkhead read, Bulkhead write, Bulkhead auth, Bulkhead export) {
+        this.enabled = enabled;
+        this.read = read;
+        this.write = write;
+        this.auth = auth;
+        this.export = export;
+    }
+
+    /** The compartment for this request, or null if it is not limited. */
+    public Bulkhead forRequest(String method, String path) {
+        if (!enabled || "OPTIONS".equals(method)) {
+            return null;
+        }
+        if (path.startsWith("/auth/")) {
+            return auth;
+        }
+        if (!path.equals("/appointments") && !path.startsWith("/appointments/")) {
+            return null;
+        }
+        if (path.equals("/appointments/export") || path.equals("/appointments/exports")
+                || (path.startsWith("/appointments/exports/") && path.endsWith("/file"))) {
+            return export;
+        }
+        if ("POST".equals(method) || "DELETE".equals(method)) {
+            return write;
+        }
+        return "GET".equals(method) ? read : null;
+    }
+
+    @Override
+    public String metricsName() {
+        return "bulkheads";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        for (Bulkhead b : List.of(read, write, auth, export)) {
+            out.put(b.getName(), b.metrics());
+        }
+        return out;
+    }
+}
@@ -1,14 +1,33 @@
 package com.appointment.backend.controller;
 
+import com.appointment.backend.export.ArrowExporter;
+import com.appointment.backend.export.CsvExporter;
+import com.appointment.backend.exportjob.ExportJob;
+import com.appointment.backend.exportjob.ExportJobs;
+import com.appointment.backend.exportjob.RangeDownload;
 import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentCursor;
 import com.appointment.backend.service.AppointmentService;
-import com.appointment.backend.util.CsvUtil;
+import com.appointment.backend.service.Served;
+import com.appointment.backend.sync.ChangeFeedService;
+import com.appointment.backend.sync.dto.ChangeFeedResponse;
+import com.appointment.backend.writebehind.WriteBehindQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,10 +41,27 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class AppointmentController {
 
+    /** Set to "true" on a last-known-good list served while the database is unavailable (with Age). */
+    public static final String STALE_HEADER = "X-Stale";
+
     private final AppointmentService appointmentService;
+    private final ChangeFeedService changeFeedService;
+    private final WriteBehindQueue writeBehind;
+    private final CsvExporter csvExporter;
+    private final ArrowExporter arrowExporter;
+    private final ExportJobs exportJobs;
+    private final boolean gzipEnabled;
 
-    public AppointmentController(AppointmentService appointmentService) {
+    public AppointmentController(AppointmentService appointmentService, ChangeFeedService changeFeedService,
+            WriteBehindQueue writeBehind, CsvExporter csvExporter, ArrowExporter arrowExporter, ExportJobs exportJobs,
+            @Value("${app.export.gzip.enabled:true}") boolean gzipEnabled) {
         this.appointmentService = appointmentService;
+        this.changeFeedService = changeFeedService;
+        this.writeBehind = writeBehind;
+        this.csvExporter = csvExporter;
+        this.arrowExporter = arrowExporter;
+        this.exportJobs = exportJobs;
+        this.gzipEnabled = gzipEnabled;
     }
 
     /** Returns all appointments (unsorted at the service level's discretion). */
@@ -44,22 +80,54 @@ public class AppointmentController {
      * Creates a new appointment.
      * Returns a simple JSON status payload on success.
      * Validation and duplicate checks are handled in the domain/service layer.
+     * With write-behind enabled, responds 202 once the appointment is queued,
+     * pointing at its status URL.
      */
     @PostMapping
     public ResponseEntity<Map<String, String>> addAppointment(@RequestBody Appointment appointment) {
+        if (writeBehind.isEnabled()) {
+            writeBehind.submit(appointment);
+            String statusUrl = "/appointments/" + appointment.getAppointmentId() + "/status";
+            return ResponseEntity.accepted()
+                    .location(URI.create(statusUrl))
+                    .body(Map.of(
+                            "status", "accepted",
+                            "appointmentId", appointment.getAppointmentId(),
+                            "statusUrl", statusUrl));
+        }
         appointmentService.addAppointment(appointment);
         return ResponseEntity.ok(Map.of(
                 "status", "created",
                 "appointmentId", appointment.getAppointmentId()));
     }
 
+    /**
+     * Where a created appointment is: queued (accepted, not yet stored),
+     * written, or failed (with the reason). 404 if the ID is unknown.
+     */
+    @GetMapping("/{id}/status")
+    public ResponseEntity<Map<String, String>> getStatus(@PathVariable String id) {
+        WriteBehindQueue.Status status = writeBehind.status(id);
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("appointmentId", id);
+        body.put("status", status.name().toLowerCase());
+        if (status == WriteBehindQueue.Status.FAILED) {
+            body.put("reason", writeBehind.failureReason(id));
+        }
+        return ResponseEntity.status(status == WriteBehindQueue.Status.UNKNOWN ? HttpStatus.NOT_FOUND : HttpStatus.OK)
+                .body(body);
+    }
+
     /**
      * Deletes an appointment by ID.
      * Returns a simple JSON status payload on success.
+     * An appointment still in the write-behind queue is withdrawn from it.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Map<String, String>> deleteAppointment(@PathVariable String id) {
-        appointmentService.deleteAppointment(id);
+        if (!writeBehind.cancel(id)) {
+            appointmentService.deleteAppointment(id);
+        }
         return ResponseEntity.ok(Map.of(
                 "status", "deleted",
                 "appointmentId", id));
@@ -67,14 +135,36 @@ public class AppointmentController {
 
     /** Upcoming appointments: date >= today (ordering handled by the service). */
     @GetMapping("/upcoming")
-    public List<Appointment> getUpcomingAppointments() {
-        return appointmentService.getUpcomingAppointments();
+    public ResponseEntity<List<Appointment>> getUpcomingAppointments() {
+        return withStaleness(appointmentService.getUpcomingOrStale());
     }
 
     /** Previous appointments: date < today (ordering handled by the service). */
     @GetMapping("/previous")
-    public List<Appointment> getPreviousAppointments() {
-        return appointmentService.getPreviousAppointments();
+    public ResponseEntity<List<Appointment>> getPreviousAppointments() {
+        return withStaleness(appointmentService.getPreviousOrStale());
+    }
+
+    /** A stale result carries its age in seconds (Age) and X-Stale: true. */
+    private static <T> ResponseEntity<T> withStaleness(Served<T> served) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (served.stale()) {
+            long age = Math.max(0, Duration.between(served.asOf(), Instant.now()).toSeconds());
+            ok.header(HttpHeaders.AGE, String.valueOf(age)).header(STALE_HEADER, "true");
+        }
+        return ok.body(served.value());
+    }
+
+    /**
+     * Incremental sync: changes (upserts and deletions) with a sequence number
+     * above {@code since}, oldest first.
+     * Responds 410 if {@code since} is older than the tombstone retention window.
+     */
+    @GetMapping("/changes")
+    public ChangeFeedResponse getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Integer limit) {
+        return changeFeedService.changesSince(since, limit);
     }
 
     /**
@@ -101,48 +191,167 @@ public class AppointmentController {
     }
 
     /**
-     * Download appointments as CSV or JSON.
+     * Download appointments as CSV, JSON or Arrow.
      * - scope: all | upcoming | previous | range (range requires start & end)
-     * - format: csv | json
+     * - format: csv | json | arrow
      * Responds with Content-Disposition header to trigger file download.
+     * CSV (gzip-compressed when the client accepts it) and Arrow (an Arrow
+     * IPC stream, for analytics tools) are read from the store and written a
+     * window at a time, never loaded as a whole.
      */
     @GetMapping("/export")
     public ResponseEntity<?> export(
             @RequestParam(defaultValue = "csv") String format,
             @RequestParam(defaultValue = "all") String scope,
             @RequestParam(required = false) String start,
-            @RequestParam(required = false) String end) {
+            @RequestParam(required = false) String end,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
-        // Choose dataset by scope; the service enforces business rules
-        List<Appointment> data;
-        switch (scope.toLowerCase()) {
-            case "all" -> data = appointmentService.getAllSortedByDate();
-            case "upcoming" -> data = appointmentService.getUpcomingAppointments();
-            case "previous" -> data = appointmentService.getPreviousAppointments();
-            case "range" -> {
-                if (start == null || end == null) {
-                    throw new IllegalArgumentException("Range export requires start and end query parameters.");
-                }
-                data = appointmentService.getAppointmentsInRange(LocalDate.parse(start), LocalDate.parse(end));
-            }
-            default -> throw new IllegalArgumentException("Unsupported scope. Use all|upcoming|previous|range.");
+        LocalDate s = start == null ? null : LocalDate.parse(start);
+        LocalDate e = end == null ? null : LocalDate.parse(end);
+        if ("arrow".equalsIgnoreCase(format)) {
+            AppointmentCursor cursor = appointmentService.scanScope(scope, s, e);
+            StreamingResponseBody body = out -> arrowExporter.write(cursor, out);
+            return ResponseEntity.ok()
+                    .header("Content-Disposition",
+                            "attachment; filename=appointments-" + scope.toLowerCase() + ".arrows")
+                    .contentType(MediaType.valueOf(ArrowExporter.CONTENT_TYPE))
+                    .body(body);
         }
 
-        // Return requested format with a friendly filename
+        // Return requested format with a friendly filename; the service enforces business rules
         String fileTag = scope.toLowerCase();
         if ("csv".equalsIgnoreCase(format)) {
-            String csv = CsvUtil.toCsv(data);
-            return ResponseEntity.ok()
+            AppointmentCursor cursor = appointmentService.scanScope(scope, s, e);
+            boolean gzip = gzipEnabled && acceptsGzip(acceptEncoding);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                     .header("Content-Disposition", "attachment; filename=appointments-" + fileTag + ".csv")
-                    .contentType(MediaType.valueOf("text/csv"))
-                    .body(csv);
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .contentType(MediaType.valueOf("text/csv;charset=UTF-8"));
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            StreamingResponseBody body = out -> csvExporter.write(cursor, out, gzip);
+            return response.body(body);
         } else if ("json".equalsIgnoreCase(format)) {
+            List<Appointment> data = appointmentService.getScope(scope, s, e);
             return ResponseEntity.ok()
                     .header("Content-Disposition", "attachment; filename=appointments-" + fileTag + ".json")
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(data);
         } else {
-            throw new IllegalArgumentException("Unsupported export format. Use csv or json.");
+            throw new IllegalArgumentException("Unsupported export format. Use csv, json or arrow.");
+        }
+    }
+
+    /**
+     * Start a background export (same parameters as /export); poll the
+     * returned status URL, then download the file from its downloadUrl.
+     * An identical job that is still running, or finished with no writes
+     * since, is returned instead of starting another: 202 while it runs,
+     * 200 once it is done.
+     */
+    @PostMapping("/exports")
+    public ResponseEntity<Map<String, Object>> createExportJob(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "all") String scope,
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end) {
+        ExportJob job = exportJobs.submit(format, scope,
+                start == null ? null : LocalDate.parse(start),
+                end == null ? null : LocalDate.parse(end));
+        return ResponseEntity.status(job.getStatus() == ExportJob.Status.DONE ? HttpStatus.OK : HttpStatus.ACCEPTED)
+                .location(URI.create("/appointments/exports/" + job.getId()))
+                .body(exportJobBody(job));
+    }
+
+    /** Status of a background export: queued, running, done (with downloadUrl) or failed (with the reason). */
+    @GetMapping("/exports/{id}")
+    public ResponseEntity<Map<String, Object>> getExportJob(@PathVariable String id) {
+        ExportJob job = exportJobs.find(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Export job not found or expired"));
+        }
+        return ResponseEntity.ok(exportJobBody(job));
+    }
+
+    /**
+     * The file of a finished background export. Supports Range/If-Range, so
+     * an interrupted download can resume where it stopped.
+     * 409 while the job is still running (or if it failed).
+     */
+    @GetMapping("/exports/{id}/file")
+    public ResponseEntity<?> downloadExportJob(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        ExportJob job = exportJobs.find(id);
+        long length;
+        try {
+            length = job == null || job.getFile() == null ? -1 : Files.size(job.getFile());
+        } catch (IOException ex) {
+            length = -1; // expired between the lookup and now
+        }
+        if (job == null || (job.getStatus() == ExportJob.Status.DONE && length < 0)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Export job not found or expired"));
+        }
+        if (job.getStatus() != ExportJob.Status.DONE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Export job is " + job.getStatus().name().toLowerCase()));
+        }
+        // The file never changes, so the job ID is a strong validator
+        return RangeDownload.of(job.getFile(), length, job.getContentType(), job.getFileName(),
+                "\"" + job.getId() + "\"", range, ifRange);
+    }
+
+    private static Map<String, Object> exportJobBody(ExportJob job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getId());
+        body.put("status", job.getStatus().name().toLowerCase());
+        body.put("format", job.getFormat().name().toLowerCase());
+        body.put("scope", job.getScope());
+        if (job.getStart() != null) {
+            body.put("start", job.getStart().toString());
+        }
+        if (job.getEnd() != null) {
+            body.put("end", job.getEnd().toString());
+        }
+        body.put("createdAt", job.getCreatedAt().toString());
+        if (job.getFinishedAt() != null) {
+            body.put("finishedAt", job.getFinishedAt().toString());
+        }
+        body.put("statusUrl", "/appointments/exports/" + job.getId());
+        if (job.getStatus() == ExportJob.Status.DONE) {
+            body.put("bytes", job.getBytes());
+            body.put("downloadUrl", "/appointments/exports/" + job.getId() + "/file");
+        }
+        if (job.getStatus() == ExportJob.Status.FAILED) {
+            body.put("reason", job.getError());
+        }
+        return body;
+    }
+
+    /** True if Accept-Encoding lists gzip (or *) without q=0. */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim().replace(" ", "");
+                refused |= p.matches("q=0(\\.0*)?");
+            }
+            if (!refused) {
+                return true;
+            }
         }
+        return false;
     }
 }
@@ -0,0 +1,44 @@
+package com.appointment.backend.controller;
+
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.metrics.MetricsSource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operational status endpoints (read-only), for operators only
+ * (app.ops.emails, see SecurityConfig).
+ */
+@RestController
+@RequestMapping("/ops")
+public class OpsController {
+
+    private final IndexManager indexManager;
+    private final List<MetricsSource> metricsSources;
+
+    public OpsController(IndexManager indexManager, List<MetricsSource> metricsSources) {
+        this.indexManager = indexManager;
+        this.metricsSources = metricsSources;
+    }
+
+    /** Required indexes, their build state, and which query paths are ready. */
+    @GetMapping("/indexes")
+    public Map<String, Object> indexes() {
+        return indexManager.report();
+    }
+
+    /** Counters of every {@link MetricsSource}, one section each. */
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (MetricsSource source : metricsSources) {
+            out.put(source.metricsName(), source.metrics());
+        }
+        return out;
+    }
+}
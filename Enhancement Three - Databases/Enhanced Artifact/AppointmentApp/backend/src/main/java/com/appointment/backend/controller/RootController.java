@@ -143,6 +143,13 @@ public class RootController {
                                   <pre>curl "http://localhost:8080/appointments/range?start=2025-08-01&end=2025-08-31"</pre>
                                 </div>
                               </li>
+                              <li>
+                                <span class="get">GET</span>
+                                <code>/appointments/changes?since=0&amp;limit=500</code>
+                                <span class="pill open">open</span>
+                                — incremental sync: upserts and deletions after <code>since</code>;
+                                <strong>410</strong> means resync from <code>since=0</code>.
+                              </li>
                               <li style="margin-top:8px">
                                 <span class="post">POST</span>
                                 <code>/appointments</code>
@@ -157,7 +164,8 @@ public class RootController {
           "appointmentDate": "2025-08-10",   // yyyy-MM-dd, >= 2000-01-01
           "description": "Checkup"           // 1–50 chars
         }</pre>
-                                  <p><strong>201 Created</strong> on success.</p>
+                                  <p><strong>201 Created</strong> on success; <strong>202 Accepted</strong> with a status URL when write-behind is enabled.</p>
+                                  <p>Optional <code>Idempotency-Key: &lt;uuid&gt;</code> header (also on DELETE): a retry with the same key replays the first response.</p>
                                   <p><strong>curl</strong></p>
                                   <pre>curl -X POST http://localhost:8080/appointments \\
           -H "Authorization: Bearer &lt;token&gt;" \\
@@ -165,6 +173,12 @@ public class RootController {
           -d "{\\"appointmentId\\": \\"A12345\\", \\"appointmentDate\\": \\"2025-08-10\\", \\"description\\": \\"Checkup\\"}"</pre>
                                 </div>
                               </li>
+                              <li style="margin-top:8px">
+                                <span class="get">GET</span>
+                                <code>/appointments/{id}/status</code>
+                                <span class="pill open">open</span>
+                                — queued, written or failed (with a reason); 404 for an unknown ID.
+                              </li>
                               <li style="margin-top:8px">
                                 <span class="del">DELETE</span>
                                 <code>/appointments/{id}</code>
@@ -179,15 +193,44 @@ public class RootController {
                               </li>
                               <li style="margin-top:8px">
                                 <span class="get">GET</span>
-                                <code>/appointments/export?format=csv|json&amp;scope=all|upcoming|previous|range</code>
+                                <code>/appointments/export?format=csv|json|arrow&amp;scope=all|upcoming|previous|range</code>
                                 <span class="pill open">open</span>
                                 <span class="badge mono">range requires start &amp; end</span>
                                 <div class="mono">
                                   <p><strong>Examples</strong></p>
                                   <pre>curl -OJ "http://localhost:8080/appointments/export?format=csv&scope=all"
-        curl -OJ "http://localhost:8080/appointments/export?format=json&scope=range&start=2025-08-01&end=2025-08-31"</pre>
+        curl -OJ "http://localhost:8080/appointments/export?format=json&scope=range&start=2025-08-01&end=2025-08-31"
+        curl -OJ "http://localhost:8080/appointments/export?format=arrow&scope=all"</pre>
+                                  <p>CSV is streamed, gzip-compressed when the request accepts it (<code>curl --compressed</code>).</p>
+                                  <p>Arrow is an Arrow IPC stream (dictionary-encoded dates and descriptions), read and written in row groups.</p>
                                 </div>
                               </li>
+                              <li style="margin-top:8px">
+                                <span class="post">POST</span>
+                                <code>/appointments/exports?format=csv|json|arrow&amp;scope=...</code>
+                                <span class="pill auth">auth required</span>
+                                — background export to a file; <strong>202 Accepted</strong> with the job's status URL.
+                                An identical job still running (or done with no writes since) is returned instead of a new one.
+                              </li>
+                              <li style="margin-top:8px">
+                                <span class="get">GET</span>
+                                <code>/appointments/exports/{jobId}</code>, <code>/appointments/exports/{jobId}/file</code>
+                                <span class="pill open">open</span>
+                                — job status (queued, running, done, failed), then the file; the download supports
+                                <code>Range</code> so <code>curl -C - -o appointments.csv ...</code> resumes.
+                              </li>
+                              <li style="margin-top:8px">
+                                <span class="get">GET</span>
+                                <code>/ops/indexes</code>
+                                <span class="pill open">open</span>
+                                — required MongoDB indexes, their build state, and which query paths are ready.
+                              </li>
+                              <li>
+                                <span class="get">GET</span>
+                                <code>/ops/metrics</code>
+                                <span class="pill open">open</span>
+                                — internal counters, e.g. the calibrated BCrypt cost and hash/verify times.
+                              </li>
                             </ul>
 
                             <div class="hr"></div>
@@ -196,6 +239,9 @@ public class RootController {
                               <li><strong>400 Bad Request</strong> — malformed JSON, invalid dates, or field lengths.</li>
                               <li><strong>401 Unauthorized</strong> — missing/invalid token for protected endpoints.</li>
                               <li><strong>409 Conflict</strong> — duplicate <code>appointmentId</code> or already-registered email.</li>
+                              <li><strong>422 Unprocessable Entity</strong> — an <code>Idempotency-Key</code> reused for a different request.</li>
+                              <li><strong>429 Too Many Requests</strong> — over the rate limit for login/register, writes or exports; see <code>Retry-After</code>.</li>
+                              <li><strong>503 Service Unavailable</strong> — (with <code>app.indexes.mode=enforce</code>) the index for this query is still being built, or (with write-behind) too many writes are pending, or too many background exports are queued, or too many requests of the same kind (read, write, auth, export) are already running, or latency has risen and the adaptive limit is shedding load, or the database is unreachable and its circuit breaker is open (<code>/upcoming</code> and <code>/previous</code> then serve their last result with <code>X-Stale: true</code> and <code>Age</code>); see <code>Retry-After</code>.</li>
                               <li><strong>500 Internal Server Error</strong> — unexpected server-side issues.</li>
                             </ul>
 
@@ -205,7 +251,7 @@ public class RootController {
                               <li>Register: <code>POST /auth/register</code> → then <code>POST /auth/login</code> to get a token.</li>
                               <li>Create: <code>POST /appointments</code> with <code>Authorization: Bearer &lt;token&gt;</code>.</li>
                               <li>Browse: <code>GET /appointments</code>, <code>/upcoming</code>, <code>/previous</code>, <code>/range</code>.</li>
-                              <li>Export: <code>GET /appointments/export?format=csv&amp;scope=all</code> (or <code>json</code>).</li>
+                              <li>Export: <code>GET /appointments/export?format=csv&amp;scope=all</code> (or <code>json</code>, <code>arrow</code>).</li>
                             </ol>
 
                             <div class="hr"></div>
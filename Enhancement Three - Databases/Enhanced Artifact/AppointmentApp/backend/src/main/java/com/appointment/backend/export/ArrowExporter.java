@@ -0,0 +1,110 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams appointments as an Arrow IPC stream (format=arrow), for analytics
+ * tools that load columns directly instead of parsing CSV. See
+ * {@link ArrowIpcWriter} for the layout.
+ *
+ * Rows come from an {@link AppointmentCursor} one date window at a time and
+ * are written in record batches (row groups) of {@code row-group-rows}; only
+ * the current window, one row group and the dictionaries (at most
+ * {@code max-dictionary-entries} values each) are held in memory.
+ */
+@Component
+public class ArrowExporter implements MetricsSource {
+
+    public static final String CONTENT_TYPE = "application/vnd.apache.arrow.stream";
+
+    private final int rowGroupRows;
+    private final int maxDictionaryEntries;
+
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder recordBatches = new LongAdder();
+    private final LongAdder dictionaryBatches = new LongAdder();
+    private final LongAdder dictionaryResets = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    @Autowired
+    public ArrowExporter(
+            @Value("${app.export.arrow.row-group-rows:65536}") int rowGroupRows,
+            @Value("${app.export.arrow.max-dictionary-entries:100000}") int maxDictionaryEntries) {
+        this.rowGroupRows = Math.max(1, rowGroupRows);
+        this.maxDictionaryEntries = Math.max(this.rowGroupRows, maxDictionaryEntries);
+    }
+
+    /** Write the whole stream (schema, batches, end marker) to {@code out}. Does not close {@code out}. */
+    public void write(AppointmentCursor cursor, OutputStream out) throws IOException {
+        exports.increment();
+        ArrowIpcWriter writer = new ArrowIpcWriter(out, maxDictionaryEntries);
+        List<Appointment> pending = new ArrayList<>(rowGroupRows);
+        try {
+            writer.schema();
+            cursor.forEachWindow(rowGroupRows, window -> {
+                pending.addAll(window);
+                if (pending.size() < rowGroupRows) {
+                    return;
+                }
+                int from = 0;
+                for (; pending.size() - from >= rowGroupRows; from += rowGroupRows) {
+                    batch(writer, pending, from, from + rowGroupRows);
+                }
+                pending.subList(0, from).clear();
+            });
+            if (!pending.isEmpty()) {
+                batch(writer, pending, 0, pending.size());
+            }
+            writer.end();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            dictionaryBatches.add(writer.dictionaryBatches());
+            dictionaryResets.add(writer.dictionaryResets());
+            bytes.add(writer.bytes());
+        }
+    }
+
+    private void batch(ArrowIpcWriter writer, List<Appointment> items, int from, int to) {
+        try {
+            writer.batch(items, from, to);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // out of the cursor's callback
+        }
+        rows.add(to - from);
+        recordBatches.increment();
+    }
+
+    @Override
+    public String metricsName() {
+        return "arrowExport";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("rowGroupRows", rowGroupRows);
+        out.put("exports", exports.sum());
+        out.put("rows", rows.sum());
+        out.put("recordBatches", recordBatches.sum());
+        out.put("dictionaryBatches", dictionaryBatches.sum());
+        out.put("dictionaryResets", dictionaryResets.sum());
+        out.put("bytes", bytes.sum());
+        return out;
+    }
+}
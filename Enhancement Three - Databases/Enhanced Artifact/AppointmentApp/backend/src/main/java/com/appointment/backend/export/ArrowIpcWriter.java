@@ -0,0 +1,306 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.export.FlatBuilder.Table;
+import com.appointment.backend.model.Appointment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes appointments as an Arrow IPC stream (columnar format version 1.0,
+ * metadata V5, little-endian), one record batch per call to
+ * {@link #batch}:
+ * - appointmentId: utf8
+ * - appointmentDate: date32 (days), dictionary-encoded (id 1, int32 indexes)
+ * - description: utf8, dictionary-encoded (id 0, int32 indexes)
+ *
+ * Each record batch is preceded by delta dictionary batches holding only
+ * the values it is the first to use. A dictionary that would grow past
+ * {@code maxDictionaryEntries} is replaced instead (a non-delta batch, which
+ * the stream format allows), so memory stays bounded for any number of
+ * distinct values. No column has nulls, so validity buffers are empty.
+ *
+ * One instance per export; not thread-safe.
+ */
+final class ArrowIpcWriter {
+
+    static final String[] COLUMNS = { "appointmentId", "appointmentDate", "description" };
+    static final long DESCRIPTION_DICTIONARY = 0;
+    static final long DATE_DICTIONARY = 1;
+
+    // Schema.fbs / Message.fbs constants
+    private static final int METADATA_V5 = 4;
+    private static final int HEADER_SCHEMA = 1;
+    private static final int HEADER_DICTIONARY_BATCH = 2;
+    private static final int HEADER_RECORD_BATCH = 3;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_UTF8 = 5;
+    private static final int TYPE_DATE = 8;
+    private static final int DATE_UNIT_DAY = 0;
+    private static final int CONTINUATION = 0xFFFFFFFF;
+
+    private final OutputStream out;
+    private final int maxDictionaryEntries;
+    private final Map<String, Integer> descriptions = new HashMap<>();
+    private final Map<Integer, Integer> dates = new HashMap<>();
+    private boolean descriptionsSent;
+    private boolean datesSent;
+    private long bytes;
+    private int dictionaryBatches;
+    private int dictionaryResets;
+
+    ArrowIpcWriter(OutputStream out, int maxDictionaryEntries) {
+        this.out = out;
+        this.maxDictionaryEntries = maxDictionaryEntries;
+    }
+
+    /** The schema message; first in the stream. */
+    void schema() throws IOException {
+        Table schema = new Table()
+                .addShort(0, 0) // little-endian
+                .ref(1, FlatBuilder.tables(List.of(
+                        field(COLUMNS[0], TYPE_UTF8, new Table(), null),
+                        field(COLUMNS[1], TYPE_DATE, new Table().addShort(0, DATE_UNIT_DAY), DATE_DICTIONARY),
+                        field(COLUMNS[2], TYPE_UTF8, new Table(), DESCRIPTION_DICTIONARY))));
+        message(HEADER_SCHEMA, schema, null);
+    }
+
+    /** One record batch (row group) of rows [from, to), with the dictionary batches it needs. */
+    void batch(List<Appointment> rows, int from, int to) throws IOException {
+        int n = to - from;
+        if (dates.size() + n > maxDictionaryEntries) {
+            dates.clear();
+            datesSent = false;
+            dictionaryResets++;
+        }
+        if (descriptions.size() + n > maxDictionaryEntries) {
+            descriptions.clear();
+            descriptionsSent = false;
+            dictionaryResets++;
+        }
+
+        byte[][] ids = new byte[n][];
+        int idBytes = 0;
+        int[] dateIndex = new int[n];
+        int[] descIndex = new int[n];
+        List<Integer> newDates = new ArrayList<>();
+        List<String> newDescriptions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Appointment a = rows.get(from + i);
+            ids[i] = a.getAppointmentId().getBytes(StandardCharsets.UTF_8);
+            idBytes += ids[i].length;
+
+            int day = (int) a.getAppointmentDate().toEpochDay();
+            Integer d = dates.get(day);
+            if (d == null) {
+                d = dates.size();
+                dates.put(day, d);
+                newDates.add(day);
+            }
+            dateIndex[i] = d;
+
+            String desc = a.getDescription();
+            Integer s = descriptions.get(desc);
+            if (s == null) {
+                s = descriptions.size();
+                descriptions.put(desc, s);
+                newDescriptions.add(desc);
+            }
+            descIndex[i] = s;
+        }
+
+        if (!newDescriptions.isEmpty()) {
+            dictionary(DESCRIPTION_DICTIONARY, descriptionsSent, utf8Column(newDescriptions));
+            descriptionsSent = true;
+        }
+        if (!newDates.isEmpty()) {
+            Body dict = new Body(1);
+            dict.node(newDates.size());
+            dict.empty();
+            ByteBuffer values = dict.buffer(4 * newDates.size());
+            for (int day : newDates) {
+                values.putInt(day);
+            }
+            dictionary(DATE_DICTIONARY, datesSent, dict);
+            datesSent = true;
+        }
+
+        Body body = new Body(3);
+        body.node(n);
+        body.empty();
+        ByteBuffer offsets = body.buffer(4 * (n + 1));
+        ByteBuffer data = body.buffer(idBytes);
+        int offset = 0;
+        offsets.putInt(0);
+        for (byte[] id : ids) {
+            data.put(id);
+            offset += id.length;
+            offsets.putInt(offset);
+        }
+        body.node(n);
+        body.empty();
+        body.buffer(4 * n).asIntBuffer().put(dateIndex);
+        body.node(n);
+        body.empty();
+        body.buffer(4 * n).asIntBuffer().put(descIndex);
+        message(HEADER_RECORD_BATCH, body.recordBatch(n), body);
+    }
+
+    /** End-of-stream marker. */
+    void end() throws IOException {
+        ByteBuffer eos = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(CONTINUATION).putInt(0);
+        out.write(eos.array());
+        bytes += 8;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    int dictionaryBatches() {
+        return dictionaryBatches;
+    }
+
+    int dictionaryResets() {
+        return dictionaryResets;
+    }
+
+    private void dictionary(long id, boolean delta, Body column) throws IOException {
+        Table batch = new Table()
+                .addLong(0, id)
+                .ref(1, column.recordBatch(column.nodeLength(0)))
+                .addBool(2, delta);
+        message(HEADER_DICTIONARY_BATCH, batch, column);
+        dictionaryBatches++;
+    }
+
+    private static Body utf8Column(List<String> values) {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        int total = 0;
+        for (String v : values) {
+            byte[] b = v.getBytes(StandardCharsets.UTF_8);
+            encoded.add(b);
+            total += b.length;
+        }
+        Body body = new Body(1);
+        body.node(values.size());
+        body.empty();
+        ByteBuffer offsets = body.buffer(4 * (values.size() + 1));
+        ByteBuffer data = body.buffer(total);
+        int offset = 0;
+        offsets.putInt(0);
+        for (byte[] b : encoded) {
+            data.put(b);
+            offset += b.length;
+            offsets.putInt(offset);
+        }
+        return body;
+    }
+
+    private static Table field(String name, int type, Table typeTable, Long dictionary) {
+        Table f = new Table()
+                .ref(0, FlatBuilder.string(name))
+                .addBool(1, false) // not nullable
+                .addByte(2, type)
+                .ref(3, typeTable)
+                .ref(5, FlatBuilder.tables(List.of())); // children: required by some readers even when empty
+        if (dictionary != null) {
+            f.ref(4, new Table()
+                    .addLong(0, dictionary)
+                    .ref(1, new Table().addInt(0, 32).addBool(1, true)) // int32 indexes
+                    .addBool(2, false)
+                    .addShort(3, 0)); // dense
+        }
+        return f;
+    }
+
+    /**
+     * Encapsulated message: continuation marker, metadata length, Message
+     * flatbuffer padded to 8 bytes, then the body.
+     */
+    private void message(int headerType, Table header, Body body) throws IOException {
+        long bodyLength = body == null ? 0 : body.length();
+        byte[] meta = FlatBuilder.finish(new Table()
+                .addShort(0, METADATA_V5)
+                .addByte(1, headerType)
+                .ref(2, header)
+                .addLong(3, bodyLength));
+        int padded = FlatBuilder.align(meta.length, 8);
+        ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(CONTINUATION).putInt(padded);
+        out.write(prefix.array());
+        out.write(meta);
+        out.write(new byte[padded - meta.length]);
+        if (body != null) {
+            body.writeTo(out);
+        }
+        bytes += 8 + padded + bodyLength;
+    }
+
+    /** Message body: field nodes and 8-byte aligned buffers. */
+    private static final class Body {
+
+        private final long[] nodes;
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private int nodeCount;
+
+        Body(int columns) {
+            this.nodes = new long[2 * columns];
+        }
+
+        void node(int length) {
+            nodes[2 * nodeCount++] = length; // null count stays 0
+        }
+
+        int nodeLength(int i) {
+            return (int) nodes[2 * i];
+        }
+
+        /** A zero-length buffer (validity when there are no nulls). */
+        void empty() {
+            buffers.add(ByteBuffer.allocate(0));
+        }
+
+        ByteBuffer buffer(int size) {
+            ByteBuffer b = ByteBuffer.allocate(FlatBuilder.align(size, 8)).order(ByteOrder.LITTLE_ENDIAN);
+            b.limit(size);
+            buffers.add(b);
+            return b;
+        }
+
+        long length() {
+            long total = 0;
+            for (ByteBuffer b : buffers) {
+                total += b.capacity();
+            }
+            return total;
+        }
+
+        Table recordBatch(int rows) {
+            long[] layout = new long[2 * buffers.size()];
+            long offset = 0;
+            for (int i = 0; i < buffers.size(); i++) {
+                ByteBuffer b = buffers.get(i);
+                layout[2 * i] = offset;
+                layout[2 * i + 1] = b.limit();
+                offset += b.capacity();
+            }
+            return new Table()
+                    .addLong(0, rows)
+                    .ref(1, FlatBuilder.structs(2, nodes))
+                    .ref(2, FlatBuilder.structs(2, layout));
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            for (ByteBuffer b : buffers) {
+                out.write(b.array(), 0, b.capacity());
+            }
+        }
+    }
+}
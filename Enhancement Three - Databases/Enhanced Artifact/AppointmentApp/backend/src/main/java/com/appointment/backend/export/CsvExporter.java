@@ -0,0 +1,267 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentCursor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams appointments as CSV (same bytes as CsvUtil, UTF-8), optionally
+ * gzip-compressed on the fly.
+ *
+ * Rows come from an {@link AppointmentCursor}, which reads the store a date
+ * window of about {@code chunk-rows} at a time, so the export is never held
+ * as a whole. Each window is cut into chunks of about {@code chunk-rows},
+ * each ending where the date changes, so a chunk is a contiguous date
+ * partition of the (date-ordered) export. Chunks are encoded in parallel on
+ * a fork-join pool by {@link CsvRowEncoder} into pooled byte buffers and
+ * written in order; at most {@code 2 x parallelism} chunks are in flight
+ * (the cursor waits while they are), so memory stays bounded however large
+ * the export is. Single-chunk exports are encoded on the caller's thread.
+ */
+@Component
+public class CsvExporter implements MetricsSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkRows;
+    private final int window;
+    private final int gzipLevel;
+    private final ConcurrentLinkedQueue<byte[]> spare = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+
+    @Autowired
+    public CsvExporter(
+            @Value("${app.export.csv.parallelism:0}") int parallelism,
+            @Value("${app.export.csv.chunk-rows:4096}") int chunkRows,
+            @Value("${app.export.gzip.level:1}") int gzipLevel) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        this.chunkRows = Math.max(1, chunkRows);
+        this.window = 2 * threads;
+        this.gzipLevel = gzipLevel;
+    }
+
+    /**
+     * Write the header and every row the cursor hands out to {@code out},
+     * gzip-compressed if asked. Does not close {@code out}.
+     */
+    public void write(AppointmentCursor cursor, OutputStream out, boolean gzip) throws IOException {
+        if (!gzip) {
+            write(cursor, out);
+            return;
+        }
+        Gzip zip = new Gzip(out, gzipLevel);
+        try {
+            try {
+                write(cursor, zip);
+            } finally {
+                zip.finish();
+            }
+        } finally {
+            // zip is never closed (that would close out), so its native zlib memory is freed here
+            zip.end();
+        }
+    }
+
+    private void write(AppointmentCursor cursor, OutputStream out) throws IOException {
+        exports.increment();
+        out.write(CsvRowEncoder.HEADER);
+        Pipeline pipeline = new Pipeline(out);
+        try {
+            cursor.forEachWindow(chunkRows, w -> {
+                rows.add(w.size());
+                for (int[] p : partition(w, chunkRows)) {
+                    pipeline.add(w.subList(p[0], p[1]));
+                }
+            });
+            pipeline.finish();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            // Client went away mid-download: stop encoding what will never be sent
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * Chunk boundaries as {from, to} row indexes: at least {@code chunkRows}
+     * rows each (except the last), extended to the end of the current date.
+     */
+    static List<int[]> partition(List<Appointment> items, int chunkRows) {
+        List<int[]> out = new ArrayList<>();
+        int from = 0;
+        int n = items.size();
+        while (from < n) {
+            int to = Math.min(n, from + chunkRows);
+            while (to < n && items.get(to).getAppointmentDate().equals(items.get(to - 1).getAppointmentDate())) {
+                to++;
+            }
+            out.add(new int[] { from, to });
+            from = to;
+        }
+        if (out.isEmpty()) {
+            out.add(new int[] { 0, 0 });
+        }
+        return out;
+    }
+
+    private Chunk encode(List<Appointment> items) {
+        long start = System.nanoTime();
+        int bound = 0;
+        for (Appointment a : items) {
+            bound += CsvRowEncoder.maxRowBytes(a);
+        }
+        byte[] buf = spare.poll();
+        if (buf == null || buf.length < bound) {
+            buf = new byte[Math.max(BUFFER_SIZE, bound)];
+        }
+        int pos = 0;
+        for (Appointment a : items) {
+            pos = CsvRowEncoder.encodeRow(a, buf, pos);
+        }
+        encodeNanos.add(System.nanoTime() - start);
+        return new Chunk(buf, pos);
+    }
+
+    private void emit(Chunk c, OutputStream out) throws IOException {
+        out.write(c.buf, 0, c.length);
+        chunks.increment();
+        bytes.add(c.length);
+        if (spare.size() < window) {
+            spare.offer(c.buf);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String metricsName() {
+        return "csvExport";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        long b = bytes.sum();
+        long nanos = encodeNanos.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("parallelism", pool.getParallelism());
+        out.put("exports", exports.sum());
+        out.put("rows", rows.sum());
+        out.put("chunks", chunks.sum());
+        out.put("bytes", b);
+        // Encoding throughput of one thread (summed encode time across workers)
+        out.put("encodeMBPerSecondPerCore", nanos == 0 ? 0.0 : b / 1e6 / (nanos / 1e9));
+        return out;
+    }
+
+    /** GZIP at a chosen level whose Deflater can be freed without closing the underlying stream. */
+    private static final class Gzip extends GZIPOutputStream {
+
+        Gzip(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level); // default level 6 costs several times the CSV encoding itself
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * The chunks of one export, encoded on the pool and written in order.
+     * The first chunk is held back: if nothing follows it, it is encoded on
+     * the caller's thread instead.
+     */
+    private final class Pipeline {
+
+        private final OutputStream out;
+        private final Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>(window);
+        private List<Appointment> first;
+        private boolean parallel;
+
+        Pipeline(OutputStream out) {
+            this.out = out;
+        }
+
+        /** Called from the cursor's callback, so IO failures leave it unchecked. */
+        void add(List<Appointment> chunk) {
+            if (!parallel && first == null) {
+                first = chunk;
+                return;
+            }
+            if (!parallel) {
+                parallel = true;
+                submit(first);
+                first = null;
+            }
+            submit(chunk);
+        }
+
+        private void submit(List<Appointment> chunk) {
+            if (inFlight.size() == window) {
+                try {
+                    emit(inFlight.removeFirst().join(), out);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            inFlight.addLast(pool.submit(() -> encode(chunk)));
+        }
+
+        void finish() throws IOException {
+            if (first != null) {
+                emit(encode(first), out);
+                first = null;
+            }
+            while (!inFlight.isEmpty()) {
+                emit(inFlight.removeFirst().join(), out);
+            }
+        }
+
+        void cancel() {
+            for (ForkJoinTask<Chunk> t : inFlight) {
+                t.cancel(true);
+            }
+        }
+    }
+
+    /** Encoded bytes of one chunk; {@code buf} goes back to the pool once written. */
+    private static final class Chunk {
+
+        final byte[] buf;
+        final int length;
+
+        Chunk(byte[] buf, int length) {
+            this.buf = buf;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.model.Appointment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Encodes appointments as CSV rows, straight into a caller-supplied UTF-8
+ * byte buffer. Output is byte-for-byte what {@code CsvUtil.toCsv} produces
+ * (encoded as UTF-8), but each field is encoded in one pass over its chars,
+ * without allocating.
+ *
+ * A field is written one byte to the right of where it belongs, leaving room
+ * for an opening quote. If it turns out to need quoting (it holds a comma,
+ * quote, CR or LF) the quote goes into that slot; otherwise the bytes are
+ * moved back by one.
+ */
+public final class CsvRowEncoder {
+
+    static final byte[] HEADER = "appointmentId,appointmentDate,description\n".getBytes(StandardCharsets.US_ASCII);
+
+    private CsvRowEncoder() {
+    }
+
+    /** Upper bound of the bytes {@link #encodeRow} writes for {@code a}. */
+    static int maxRowBytes(Appointment a) {
+        // 3 bytes per char covers doubled quotes and surrogate pairs (4 bytes for 2 chars);
+        // 16 covers any LocalDate.toString
+        return fieldBound(a.getAppointmentId()) + 1 + 16 + 1 + fieldBound(a.getDescription()) + 1;
+    }
+
+    private static int fieldBound(String s) {
+        return s == null ? 0 : 2 + 3 * s.length();
+    }
+
+    /** Write one row (with its trailing newline) at {@code pos}; returns the new position. */
+    static int encodeRow(Appointment a, byte[] buf, int pos) {
+        pos = field(a.getAppointmentId(), buf, pos);
+        buf[pos++] = ',';
+        pos = date(a.getAppointmentDate(), buf, pos);
+        buf[pos++] = ',';
+        pos = field(a.getDescription(), buf, pos);
+        buf[pos++] = '\n';
+        return pos;
+    }
+
+    static int field(String s, byte[] buf, int start) {
+        if (s == null) {
+            return start;
+        }
+        int pos = start + 1; // room for an opening quote
+        boolean quote = false;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    buf[pos++] = '"';
+                    quote = true;
+                } else if (c == ',' || c == '\n' || c == '\r') {
+                    quote = true;
+                }
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                buf[pos++] = '?'; // unpaired surrogate, replaced like String.getBytes(UTF_8) does
+            }
+        }
+        if (quote) {
+            buf[start] = '"';
+            buf[pos++] = '"';
+            return pos;
+        }
+        System.arraycopy(buf, start + 1, buf, start, pos - start - 1);
+        return pos - 1;
+    }
+
+    /** yyyy-MM-dd, as LocalDate.toString writes it for four-digit years. */
+    static int date(LocalDate d, byte[] buf, int pos) {
+        int y = d.getYear();
+        if (y < 0 || y > 9999) {
+            for (char c : d.toString().toCharArray()) {
+                buf[pos++] = (byte) c;
+            }
+            return pos;
+        }
+        buf[pos++] = (byte) ('0' + y / 1000);
+        buf[pos++] = (byte) ('0' + y / 100 % 10);
+        buf[pos++] = (byte) ('0' + y / 10 % 10);
+        buf[pos++] = (byte) ('0' + y % 10);
+        buf[pos++] = '-';
+        int m = d.getMonthValue();
+        buf[pos++] = (byte) ('0' + m / 10);
+        buf[pos++] = (byte) ('0' + m % 10);
+        buf[pos++] = '-';
+        int day = d.getDayOfMonth();
+        buf[pos++] = (byte) ('0' + day / 10);
+        buf[pos++] = (byte) ('0' + day % 10);
+        return pos;
+    }
+}
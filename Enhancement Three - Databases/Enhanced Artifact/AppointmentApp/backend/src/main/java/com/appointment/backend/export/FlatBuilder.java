@@ -0,0 +1,236 @@
+package com.appointment.backend.export;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Just enough of a FlatBuffers writer for Arrow IPC metadata: tables,
+ * strings, vectors of tables and vectors of structs made of longs.
+ *
+ * The reference builder fills its buffer back to front. This one lays
+ * objects out front to back instead: a table is written first, then the
+ * objects it refers to, and its offsets are patched once their positions are
+ * known, so every offset points forward as the format requires. Scalars are
+ * aligned to their size from the start of the buffer.
+ */
+final class FlatBuilder {
+
+    private byte[] buf = new byte[512];
+    private int len;
+
+    private FlatBuilder() {
+    }
+
+    /** Serialize {@code root}: a root offset followed by the objects. */
+    static byte[] finish(Table root) {
+        FlatBuilder b = new FlatBuilder();
+        b.len = 4;
+        int pos = root.write(b);
+        b.putInt(0, pos);
+        return Arrays.copyOf(b.buf, b.len);
+    }
+
+    static Node string(String s) {
+        return new Str(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Node tables(List<Table> tables) {
+        return new Tables(tables);
+    }
+
+    /** Vector of structs of {@code longsPerStruct} longs each (e.g. Arrow's FieldNode and Buffer). */
+    static Node structs(int longsPerStruct, long[] values) {
+        return new Structs(longsPerStruct, values);
+    }
+
+    /** An object that can be referred to by offset. */
+    abstract static class Node {
+
+        /** Write the object at the end of the buffer; returns its position. */
+        abstract int write(FlatBuilder b);
+    }
+
+    /** A table: scalar and reference fields by field ID. */
+    static final class Table extends Node {
+
+        private final List<Slot> slots = new ArrayList<>();
+
+        Table addByte(int id, int value) {
+            slots.add(new Slot(id, 1, value, null));
+            return this;
+        }
+
+        Table addBool(int id, boolean value) {
+            return addByte(id, value ? 1 : 0);
+        }
+
+        Table addShort(int id, int value) {
+            slots.add(new Slot(id, 2, value, null));
+            return this;
+        }
+
+        Table addInt(int id, int value) {
+            slots.add(new Slot(id, 4, value, null));
+            return this;
+        }
+
+        Table addLong(int id, long value) {
+            slots.add(new Slot(id, 8, value, null));
+            return this;
+        }
+
+        Table ref(int id, Node child) {
+            slots.add(new Slot(id, 4, 0, child));
+            return this;
+        }
+
+        @Override
+        int write(FlatBuilder b) {
+            int maxId = -1;
+            for (Slot s : slots) {
+                maxId = Math.max(maxId, s.id);
+            }
+            int vtableSize = 4 + 2 * (maxId + 1);
+            int vtable = align(b.len, 2);
+            int table = align(vtable + vtableSize, 8);
+
+            // Widest fields first, each aligned to its size
+            List<Slot> order = new ArrayList<>(slots);
+            order.sort(Comparator.comparingInt((Slot s) -> s.size).reversed());
+            int p = table + 4;
+            for (Slot s : order) {
+                p = align(p, s.size);
+                s.at = p;
+                p += s.size;
+            }
+            b.ensure(p);
+            b.len = p;
+
+            b.putShort(vtable, vtableSize);
+            b.putShort(vtable + 2, p - table);
+            for (Slot s : slots) {
+                b.putShort(vtable + 4 + 2 * s.id, s.at - table);
+                if (s.ref == null) {
+                    b.putScalar(s.at, s.size, s.value);
+                }
+            }
+            b.putInt(table, table - vtable); // soffset: the vtable sits just before
+            for (Slot s : slots) {
+                if (s.ref != null) {
+                    b.putInt(s.at, s.ref.write(b) - s.at);
+                }
+            }
+            return table;
+        }
+    }
+
+    private static final class Slot {
+
+        final int id;
+        final int size;
+        final long value;
+        final Node ref;
+        int at;
+
+        Slot(int id, int size, long value, Node ref) {
+            this.id = id;
+            this.size = size;
+            this.value = value;
+            this.ref = ref;
+        }
+    }
+
+    private static final class Str extends Node {
+
+        private final byte[] bytes;
+
+        Str(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        int write(FlatBuilder b) {
+            int pos = align(b.len, 4);
+            b.ensure(pos + 4 + bytes.length + 1);
+            b.putInt(pos, bytes.length);
+            System.arraycopy(bytes, 0, b.buf, pos + 4, bytes.length);
+            b.len = pos + 4 + bytes.length + 1; // zero terminator
+            return pos;
+        }
+    }
+
+    private static final class Tables extends Node {
+
+        private final List<Table> tables;
+
+        Tables(List<Table> tables) {
+            this.tables = tables;
+        }
+
+        @Override
+        int write(FlatBuilder b) {
+            int pos = align(b.len, 4);
+            int end = pos + 4 + 4 * tables.size();
+            b.ensure(end);
+            b.putInt(pos, tables.size());
+            b.len = end;
+            for (int i = 0; i < tables.size(); i++) {
+                int slot = pos + 4 + 4 * i;
+                b.putInt(slot, tables.get(i).write(b) - slot);
+            }
+            return pos;
+        }
+    }
+
+    private static final class Structs extends Node {
+
+        private final int longsPerStruct;
+        private final long[] values;
+
+        Structs(int longsPerStruct, long[] values) {
+            this.longsPerStruct = longsPerStruct;
+            this.values = values;
+        }
+
+        @Override
+        int write(FlatBuilder b) {
+            int pos = align(b.len + 4, 8) - 4; // elements 8-aligned after the length
+            int end = pos + 4 + 8 * values.length;
+            b.ensure(end);
+            b.putInt(pos, values.length / longsPerStruct);
+            for (int i = 0; i < values.length; i++) {
+                b.putScalar(pos + 4 + 8 * i, 8, values[i]);
+            }
+            b.len = end;
+            return pos;
+        }
+    }
+
+    static int align(int pos, int to) {
+        return (pos + to - 1) & -to;
+    }
+
+    private void ensure(int size) {
+        if (size > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(size, buf.length * 2));
+        }
+    }
+
+    private void putShort(int pos, int v) {
+        putScalar(pos, 2, v);
+    }
+
+    private void putInt(int pos, int v) {
+        putScalar(pos, 4, v);
+    }
+
+    /** Little-endian. */
+    private void putScalar(int pos, int size, long v) {
+        for (int i = 0; i < size; i++) {
+            buf[pos + i] = (byte) (v >>> (8 * i));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.appointment.backend.exportjob;
+
+import com.appointment.backend.export.ArrowExporter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One background export: what was asked for, where it is, and (once done)
+ * the file in the spool directory. Status fields are written by the job's
+ * worker thread and read by status requests.
+ */
+public final class ExportJob {
+
+    /** Lifecycle: queued -> running -> done or failed. */
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    /** Output formats, with the file extension and content type of each. */
+    public enum Format {
+        CSV("csv", "text/csv;charset=UTF-8"),
+        JSON("json", "application/json"),
+        ARROW("arrows", ArrowExporter.CONTENT_TYPE);
+
+        final String extension;
+        final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        static Format parse(String format) {
+            for (Format f : values()) {
+                if (f.name().equalsIgnoreCase(format)) {
+                    return f;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format. Use csv, json or arrow.");
+        }
+    }
+
+    private final String id;
+    private final String key;
+    private final Format format;
+    private final String scope;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final Instant createdAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant finishedAt;
+    private volatile Path file;
+    private volatile long bytes;
+    private volatile String error;
+
+    ExportJob(String id, String key, Format format, String scope, LocalDate start, LocalDate end, Instant createdAt) {
+        this.id = id;
+        this.key = key;
+        this.format = format;
+        this.scope = scope;
+        this.start = start;
+        this.end = end;
+        this.createdAt = createdAt;
+    }
+
+    void running() {
+        status = Status.RUNNING;
+    }
+
+    void done(Path file, long bytes, Instant now) {
+        this.file = file;
+        this.bytes = bytes;
+        this.finishedAt = now;
+        this.status = Status.DONE;
+    }
+
+    void failed(String error, Instant now) {
+        this.error = error;
+        this.finishedAt = now;
+        this.status = Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** When the job finished (done or failed), or null. */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /** The finished file, or null until the job is done. */
+    public Path getFile() {
+        return file;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** Why the job failed, or null. */
+    public String getError() {
+        return error;
+    }
+
+    public String getContentType() {
+        return format.contentType;
+    }
+
+    /** Download name, like the synchronous export's: appointments-{scope}.{ext}. */
+    public String getFileName() {
+        return "appointments-" + scope + "." + format.extension;
+    }
+}
@@ -0,0 +1,271 @@
+package com.appointment.backend.exportjob;
+
+import com.appointment.backend.export.ArrowExporter;
+import com.appointment.backend.export.CsvExporter;
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.service.AppointmentService;
+import com.appointment.backend.sync.ChangeSequence;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background exports (POST /appointments/exports): the file is written to a
+ * spool directory by a worker thread, and the client polls the job and then
+ * downloads the file, resuming with Range requests if the connection drops.
+ *
+ * - Concurrency: at most {@code max-concurrent} jobs run at once and
+ *   {@code max-queued} wait; beyond that, submit throws
+ *   {@link TooManyExportJobsException} (503 with Retry-After).
+ * - Deduplication: a request identical to a queued, running or finished job
+ *   (same format, scope and bounds, same day, and no appointment written
+ *   since, going by the change sequence) gets that job back instead of a new
+ *   one. Failed jobs are not reused.
+ * - Cleanup: finished jobs and their files are dropped {@code ttl-minutes}
+ *   after they finish. Jobs are kept in memory only, so on startup the spool
+ *   directory is emptied.
+ *
+ * Files are written as {id}.part and renamed when complete, so a download
+ * never sees a partial file.
+ */
+@Component
+public class ExportJobs implements MetricsSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportJobs.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AppointmentService service;
+    private final CsvExporter csvExporter;
+    private final ArrowExporter arrowExporter;
+    private final ObjectMapper objectMapper;
+    private final ChangeSequence sequence;
+    private final Path dir;
+    private final Duration ttl;
+    private final long retryAfterSeconds;
+    private final int maxConcurrent;
+    private final ThreadPoolExecutor pool;
+    private final SecureRandom random = new SecureRandom();
+
+    private final ConcurrentHashMap<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ExportJob> byKey = new HashMap<>(); // guarded by itself
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public ExportJobs(
+            AppointmentService service,
+            CsvExporter csvExporter,
+            ArrowExporter arrowExporter,
+            ObjectMapper objectMapper,
+            ChangeSequence sequence,
+            @Value("${app.export.jobs.dir:data/exports}") String dir,
+            @Value("${app.export.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${app.export.jobs.max-queued:16}") int maxQueued,
+            @Value("${app.export.jobs.ttl-minutes:60}") long ttlMinutes,
+            @Value("${app.export.jobs.retry-after-seconds:10}") long retryAfterSeconds) {
+        this.service = service;
+        this.csvExporter = csvExporter;
+        this.arrowExporter = arrowExporter;
+        this.objectMapper = objectMapper;
+        this.sequence = sequence;
+        this.dir = Path.of(dir);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(this.maxConcurrent, this.maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)),
+                r -> {
+                    Thread t = new Thread(r, "export-job-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        try {
+            Files.createDirectories(this.dir);
+            clearSpool();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot prepare export spool directory " + dir, ex);
+        }
+    }
+
+    /**
+     * Start (or find an identical) export job. Format, scope and bounds are
+     * checked here, so a bad request fails at once rather than as a failed job.
+     */
+    public ExportJob submit(String format, String scope, LocalDate start, LocalDate end) {
+        ExportJob.Format f = ExportJob.Format.parse(format);
+        String s = scope.toLowerCase();
+        service.scanScope(s, start, end); // same checks as the synchronous export
+        String key = f + " " + s + " " + start + " " + end + " " + service.today() + " " + sequence.current();
+
+        ExportJob job;
+        synchronized (byKey) {
+            ExportJob existing = byKey.get(key);
+            if (existing != null && existing.getStatus() != ExportJob.Status.FAILED) {
+                deduplicated.increment();
+                return existing;
+            }
+            job = new ExportJob(newId(), key, f, s, start, end, Instant.now());
+            jobs.put(job.getId(), job);
+            byKey.put(key, job);
+        }
+        try {
+            ExportJob queued = job;
+            pool.execute(() -> run(queued));
+        } catch (RejectedExecutionException ex) {
+            forget(job);
+            rejected.increment();
+            throw new TooManyExportJobsException(retryAfterSeconds);
+        }
+        submitted.increment();
+        return job;
+    }
+
+    /** The job with this ID, or null (unknown or expired). */
+    public ExportJob find(String id) {
+        return jobs.get(id);
+    }
+
+    private void run(ExportJob job) {
+        job.running();
+        Path part = dir.resolve(job.getId() + ".part");
+        Path done = dir.resolve(job.getId() + "." + job.getFormat().extension);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), BUFFER_SIZE)) {
+                switch (job.getFormat()) {
+                    case CSV -> csvExporter.write(service.scanScope(job.getScope(), job.getStart(), job.getEnd()), out,
+                            false);
+                    case JSON -> objectMapper.writeValue(out,
+                            service.getScope(job.getScope(), job.getStart(), job.getEnd()));
+                    case ARROW -> arrowExporter.write(service.scanScope(job.getScope(), job.getStart(), job.getEnd()),
+                            out);
+                }
+            }
+            Files.move(part, done, StandardCopyOption.ATOMIC_MOVE);
+            job.done(done, Files.size(done), Instant.now());
+            completed.increment();
+        } catch (Exception ex) {
+            log.warn("Export job {} failed: {}", job.getId(), ex.toString());
+            deleteQuietly(part);
+            job.failed("Export failed: " + ex.getMessage(), Instant.now());
+            failed.increment();
+        }
+    }
+
+    /** Drop finished jobs (and their files) older than the TTL. */
+    @Scheduled(fixedDelayString = "${app.export.jobs.cleanup-interval-ms:60000}")
+    public void expire() {
+        Instant cutoff = Instant.now().minus(ttl);
+        for (ExportJob job : jobs.values()) {
+            Instant finished = job.getFinishedAt();
+            if (finished != null && finished.isBefore(cutoff)) {
+                forget(job);
+                if (job.getFile() != null) {
+                    // A download still reading it keeps its open handle
+                    deleteQuietly(job.getFile());
+                }
+                expired.increment();
+            }
+        }
+    }
+
+    private void forget(ExportJob job) {
+        jobs.remove(job.getId(), job);
+        synchronized (byKey) {
+            byKey.remove(job.getKey(), job);
+        }
+    }
+
+    private String newId() {
+        byte[] b = new byte[16];
+        random.nextBytes(b);
+        return HexFormat.of().formatHex(b);
+    }
+
+    private void clearSpool() throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path p : files) {
+                if (Files.isRegularFile(p)) {
+                    Files.delete(p);
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} file(s) left in export spool {} by a previous run", removed, dir);
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ex) {
+            log.warn("Could not delete {}: {}", p, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String metricsName() {
+        return "exportJobs";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        long spoolBytes = 0;
+        for (ExportJob job : jobs.values()) {
+            spoolBytes += job.getBytes();
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("maxConcurrent", maxConcurrent);
+        out.put("running", pool.getActiveCount());
+        out.put("queued", pool.getQueue().size());
+        out.put("jobs", jobs.size());
+        out.put("submitted", submitted.sum());
+        out.put("deduplicated", deduplicated.sum());
+        out.put("rejected", rejected.sum());
+        out.put("completed", completed.sum());
+        out.put("failed", failed.sum());
+        out.put("expired", expired.sum());
+        out.put("spoolBytes", spoolBytes);
+        return out;
+    }
+}
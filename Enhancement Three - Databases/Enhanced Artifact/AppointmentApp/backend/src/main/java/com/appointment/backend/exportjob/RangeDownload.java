@@ -0,0 +1,103 @@
+package com.appointment.backend.exportjob;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.EOFException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Download of a finished export file, with single-range requests so an
+ * interrupted download can resume (Range, If-Range, 206, 416).
+ *
+ * The bytes go from the file to the response with FileChannel#transferTo, so
+ * the file is never read into the heap. Behind the servlet API the target is
+ * the container's output stream, not the socket itself, so this is a copy
+ * through a small direct buffer rather than a kernel sendfile.
+ */
+public final class RangeDownload {
+
+    private RangeDownload() {
+    }
+
+    /**
+     * The response for {@code file} (immutable, identified by {@code etag}).
+     * A Range header is honoured when it asks for one satisfiable range and
+     * If-Range, if sent, still matches; several ranges or a malformed header
+     * get the whole file (RFC 9110 lets a server ignore Range).
+     */
+    public static ResponseEntity<?> of(Path file, long length, String contentType, String fileName, String etag,
+            String range, String ifRange) {
+        long[] span = span(range, ifRange, etag, length);
+        if (span == null) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .build();
+        }
+        long from = span[0];
+        long to = span[1];
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(span[2] == 1 ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header("Content-Disposition", "attachment; filename=" + fileName)
+                .eTag(etag)
+                .contentType(MediaType.valueOf(contentType))
+                .contentLength(to - from);
+        if (span[2] == 1) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + from + "-" + (to - 1) + "/" + length);
+        }
+        StreamingResponseBody body = out -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long pos = from;
+                while (pos < to) {
+                    long n = channel.transferTo(pos, to - pos, target);
+                    if (n <= 0) {
+                        throw new EOFException("Export file ended early: " + file);
+                    }
+                    pos += n;
+                }
+            }
+        };
+        return response.body(body);
+    }
+
+    /**
+     * {from, to (exclusive), partial ? 1 : 0}, or null if the range cannot be
+     * satisfied (416).
+     */
+    static long[] span(String range, String ifRange, String etag, long length) {
+        long[] whole = { 0, length, 0 };
+        if (range == null || (ifRange != null && !ifRange.equals(etag))) {
+            return whole; // a changed file (If-Range mismatch) is sent whole
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException ex) {
+            return whole;
+        }
+        if (ranges.size() != 1) {
+            return whole;
+        }
+        HttpRange r = ranges.get(0);
+        if (length == 0) {
+            return null;
+        }
+        long first = r.getRangeStart(length);
+        long last = r.getRangeEnd(length);
+        if (first >= length || first > last) {
+            return null;
+        }
+        return new long[] { first, last + 1, 1 };
+    }
+}
@@ -0,0 +1,19 @@
+package com.appointment.backend.exportjob;
+
+/**
+ * Thrown when every export worker is busy and the job queue is full.
+ * Mapped to 503 with a Retry-After header.
+ */
+public class TooManyExportJobsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyExportJobsException(long retryAfterSeconds) {
+        super("Too many export jobs in progress. Try again in " + retryAfterSeconds + " s.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
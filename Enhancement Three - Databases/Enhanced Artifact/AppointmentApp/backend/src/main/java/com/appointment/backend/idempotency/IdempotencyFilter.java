@@ -0,0 +1,222 @@
+package com.appointment.backend.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Idempotency-Key support for POST and DELETE /appointments/**.
+ *
+ * The first request with a given key (per authenticated subject) runs
+ * normally and its response is recorded in {@link IdempotencyStore}. A retry
+ * with the same key gets that response back, with an Idempotent-Replayed
+ * header, without reaching the controller; a retry that arrives while the
+ * first one is still running waits for it. Responses that may turn out
+ * differently next time (5xx, 429) are not recorded.
+ *
+ * Reusing a key for a different request (method, path or body) is refused
+ * with 422, and a body over app.idempotency.max-body-bytes with 413.
+ * Requests without the header are untouched.
+ *
+ * Runs after {@link com.appointment.backend.security.JwtAuthFilter}, so keys
+ * are scoped to the caller; unauthenticated requests pass through to get
+ * their 401.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+
+    public IdempotencyFilter(IdempotencyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        String key = request.getHeader(HEADER);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (key == null || !store.isEnabled() || !applies(request) || auth == null || !auth.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            error(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters.");
+            return;
+        }
+
+        // The body is held in memory to fingerprint it, so its size is capped
+        int max = store.maxBodyBytes();
+        byte[] body = request.getContentLengthLong() > max ? null : request.getInputStream().readNBytes(max + 1);
+        if (body == null || body.length > max) {
+            error(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body is larger than " + max + " bytes.");
+            return;
+        }
+        String fingerprint = fingerprint(request, body);
+        String id = auth.getName() + " " + key;
+
+        StoredResponse prior;
+        try {
+            prior = store.claim(id, fingerprint);
+        } catch (KeyInProgressException ex) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            error(response, HttpStatus.CONFLICT, ex.getMessage());
+            return;
+        }
+        if (prior != null) {
+            replay(prior, fingerprint, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        StoredResponse result = null;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), captured);
+            int status = captured.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                result = new StoredResponse(id, fingerprint, status, captured.getContentType(),
+                        captured.getHeader(HttpHeaders.LOCATION),
+                        new String(captured.getContentAsByteArray(), StandardCharsets.UTF_8), store.now());
+            }
+        } finally {
+            if (result != null) {
+                store.complete(id, result);
+            } else {
+                store.abandon(id);
+            }
+        }
+        captured.copyBodyToResponse();
+    }
+
+    private static boolean applies(HttpServletRequest request) {
+        String method = request.getMethod();
+        return ("POST".equals(method) || "DELETE".equals(method))
+                && request.getRequestURI().startsWith("/appointments");
+    }
+
+    private void replay(StoredResponse prior, String fingerprint, HttpServletResponse response) throws IOException {
+        if (!prior.getFingerprint().equals(fingerprint)) {
+            store.countMismatch();
+            error(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request.");
+            return;
+        }
+        response.setStatus(prior.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (prior.getContentType() != null) {
+            response.setContentType(prior.getContentType());
+        }
+        if (prior.getLocation() != null) {
+            response.setHeader(HttpHeaders.LOCATION, prior.getLocation());
+        }
+        byte[] bytes = prior.getBody() == null ? new byte[0] : prior.getBody().getBytes(StandardCharsets.UTF_8);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /** SHA-256 of method, path and body. */
+    static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update((request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8));
+            sha.update(body);
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 unavailable", ex);
+        }
+    }
+
+    /** Written here directly: exceptions thrown by filters never reach GlobalExceptionHandler. */
+    private static void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    /** The body was read for the fingerprint; this hands the same bytes to the controller. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Async reads are not supported");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
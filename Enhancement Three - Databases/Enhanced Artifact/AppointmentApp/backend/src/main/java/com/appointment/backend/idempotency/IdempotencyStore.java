@@ -0,0 +1,365 @@
+package com.appointment.backend.idempotency;
+
+import com.appointment.backend.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Responses stored under an Idempotency-Key (see {@link IdempotencyFilter}).
+ *
+ * Lookups go to a small in-memory LRU of recent responses first, then to
+ * the idempotency_keys collection, where a TTL index removes entries after
+ * app.idempotency.ttl-hours.
+ *
+ * The first request with a key claims it by inserting a pending document on
+ * the unique _id, so with several instances behind the load balancer only
+ * one of them runs the request. Later requests with the same key wait for
+ * its response (up to app.idempotency.max-wait-ms) instead of running again:
+ * on this instance by joining the running request, on another by polling the
+ * collection. A claim whose owner died mid-request is taken over once it is
+ * older than app.idempotency.claim-lease-ms.
+ *
+ * Mongo errors never fail a request: a failed lookup counts as a miss, a
+ * failed claim leaves only this instance's coordination, a failed save
+ * leaves the response in the near cache only.
+ */
+@Component
+public class IdempotencyStore implements MetricsSource {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+    private static final long POLL_MS = 50;
+
+    /** The idempotency_keys collection; a seam so tests can run without MongoDB. */
+    interface Keys {
+        StoredResponse find(String id);
+
+        /** Insert a claim; false if the ID is already there. */
+        boolean insert(StoredResponse claim);
+
+        /** Store the finished response over its claim. */
+        void save(StoredResponse response);
+
+        /** Replace {@code old} (a stale claim or expired response) if it is still there unchanged. */
+        boolean replace(StoredResponse old, StoredResponse claim);
+
+        /** Remove the claim if it is still this one. */
+        void release(StoredResponse claim);
+    }
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration lease;
+    private final long maxWaitMs;
+    private final int maxBodyBytes;
+    private final Keys keys;
+    private final Clock clock;
+    private final Map<String, StoredResponse> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StoredResponse> claims = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder replayedFromCache = new LongAdder();
+    private final LongAdder replayedFromMongo = new LongAdder();
+    private final LongAdder replayedAfterWait = new LongAdder();
+    private final LongAdder stillRunning = new LongAdder();
+    private final LongAdder takenOver = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder claimFailures = new LongAdder();
+    private final LongAdder saveFailures = new LongAdder();
+
+    @Autowired
+    public IdempotencyStore(
+            MongoTemplate mongo,
+            @Value("${app.idempotency.enabled:true}") boolean enabled,
+            @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${app.idempotency.claim-lease-ms:60000}") long claimLeaseMs,
+            @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+            @Value("${app.idempotency.max-wait-ms:5000}") long maxWaitMs,
+            @Value("${app.idempotency.max-body-bytes:65536}") int maxBodyBytes) {
+        this(enabled, Duration.ofHours(ttlHours), Duration.ofMillis(claimLeaseMs), cacheSize, maxWaitMs, maxBodyBytes,
+                mongoKeys(mongo), Clock.systemUTC());
+    }
+
+    /** For tests: the durable layer and the clock are supplied by the caller. */
+    IdempotencyStore(boolean enabled, Duration ttl, Duration lease, int cacheSize, long maxWaitMs, int maxBodyBytes,
+            Keys keys, Clock clock) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.maxWaitMs = maxWaitMs;
+        this.maxBodyBytes = maxBodyBytes;
+        this.keys = keys;
+        this.clock = clock;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    private static Keys mongoKeys(MongoTemplate mongo) {
+        return new Keys() {
+            @Override
+            public StoredResponse find(String id) {
+                return mongo.findById(id, StoredResponse.class);
+            }
+
+            @Override
+            public boolean insert(StoredResponse claim) {
+                try {
+                    mongo.insert(claim);
+                    return true;
+                } catch (DuplicateKeyException ex) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void save(StoredResponse response) {
+                mongo.save(response);
+            }
+
+            @Override
+            public boolean replace(StoredResponse old, StoredResponse claim) {
+                Query unchanged = Query.query(Criteria.where("_id").is(old.getId())
+                        .and("status").is(old.getStatus()).and("createdAt").is(old.getCreatedAt()));
+                Update update = new Update()
+                        .set("fingerprint", claim.getFingerprint()).set("status", claim.getStatus())
+                        .unset("contentType").unset("location").unset("body")
+                        .set("createdAt", claim.getCreatedAt());
+                return mongo.updateFirst(unchanged, update, StoredResponse.class).getModifiedCount() == 1;
+            }
+
+            @Override
+            public void release(StoredResponse claim) {
+                mongo.remove(Query.query(Criteria.where("_id").is(claim.getId())
+                        .and("status").is(0).and("createdAt").is(claim.getCreatedAt())), StoredResponse.class);
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Largest request body the filter reads to fingerprint it; bigger ones get 413. */
+    int maxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    Instant now() {
+        return clock.instant();
+    }
+
+    /**
+     * The response already recorded for {@code id}, waiting for it if the
+     * first request is still running (here or on another instance); or null,
+     * in which case the caller now owns the key and must call
+     * {@link #complete} or {@link #abandon}.
+     * Throws {@link KeyInProgressException} if the wait runs out.
+     */
+    StoredResponse claim(String id, String fingerprint) {
+        requests.increment();
+        while (true) {
+            CompletableFuture<StoredResponse> running = inFlight.get(id);
+            if (running == null) {
+                StoredResponse hit = cached(id);
+                if (hit != null) {
+                    replayedFromCache.increment();
+                    return hit;
+                }
+                CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+                running = inFlight.putIfAbsent(id, mine);
+                if (running == null) {
+                    StoredResponse done;
+                    try {
+                        done = claimDurably(id, fingerprint);
+                    } catch (RuntimeException ex) {
+                        release(id, null);
+                        throw ex;
+                    }
+                    if (done != null) {
+                        release(id, done);
+                    }
+                    return done;
+                }
+            }
+            StoredResponse result = await(running);
+            if (result != null) {
+                replayedAfterWait.increment();
+                return result;
+            }
+            // The first request ended without a response worth keeping: try to run it ourselves
+        }
+    }
+
+    /**
+     * Claim {@code id} in the collection. Returns null once this instance owns
+     * it, or the response another instance recorded (waiting while it runs).
+     */
+    private StoredResponse claimDurably(String id, String fingerprint) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        boolean waited = false;
+        while (true) {
+            StoredResponse claim = StoredResponse.pending(id, fingerprint, clock.instant());
+            try {
+                if (keys.insert(claim)) {
+                    claims.put(id, claim);
+                    return null;
+                }
+                StoredResponse other = keys.find(id);
+                if (other == null) {
+                    continue; // released between the insert and the read
+                }
+                boolean abandoned = other.isPending() && other.getCreatedAt().plus(lease).isBefore(clock.instant());
+                if (expired(other) || abandoned) {
+                    if (keys.replace(other, claim)) {
+                        if (abandoned) {
+                            takenOver.increment();
+                        }
+                        claims.put(id, claim);
+                        return null;
+                    }
+                    continue;
+                }
+                if (!other.isPending()) {
+                    recent.put(id, other);
+                    (waited ? replayedAfterWait : replayedFromMongo).increment();
+                    return other;
+                }
+            } catch (DataAccessException ex) {
+                claimFailures.increment();
+                log.warn("Idempotency claim skipped: {}", ex.getMessage());
+                return null;
+            }
+            // Another instance is running the first request
+            if (System.nanoTime() - deadline >= 0) {
+                stillRunning.increment();
+                throw new KeyInProgressException();
+            }
+            waited = true;
+            try {
+                Thread.sleep(POLL_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new KeyInProgressException();
+            }
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            stillRunning.increment();
+            throw new KeyInProgressException();
+        } catch (ExecutionException ex) {
+            return null; // never completed exceptionally; treat like an abandoned attempt
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KeyInProgressException();
+        }
+    }
+
+    private StoredResponse cached(String id) {
+        StoredResponse hit = recent.get(id);
+        if (hit != null && expired(hit)) {
+            recent.remove(id, hit);
+            return null;
+        }
+        return hit;
+    }
+
+    /** The TTL monitor only runs once a minute, so expiry is checked on read as well. */
+    private boolean expired(StoredResponse r) {
+        return r.getCreatedAt() == null || r.getCreatedAt().plus(ttl).isBefore(clock.instant());
+    }
+
+    /** Record the response of the request that owns {@code id} and hand it to anyone waiting. */
+    void complete(String id, StoredResponse response) {
+        recent.put(id, response);
+        claims.remove(id);
+        try {
+            keys.save(response);
+        } catch (DataAccessException ex) {
+            saveFailures.increment();
+            log.warn("Idempotency save skipped: {}", ex.getMessage());
+        }
+        stored.increment();
+        release(id, response);
+    }
+
+    /** The owning request failed in a way that may succeed on retry: nothing is stored. */
+    void abandon(String id) {
+        StoredResponse claim = claims.remove(id);
+        if (claim != null) {
+            try {
+                keys.release(claim);
+            } catch (DataAccessException ex) {
+                // The lease runs out and the next retry takes the claim over
+                log.warn("Idempotency claim release skipped: {}", ex.getMessage());
+            }
+        }
+        release(id, null);
+    }
+
+    private void release(String id, StoredResponse response) {
+        CompletableFuture<StoredResponse> running = inFlight.remove(id);
+        if (running != null) {
+            running.complete(response);
+        }
+    }
+
+    /** A key came back with a different request than the one it was first used for. */
+    void countMismatch() {
+        mismatched.increment();
+    }
+
+    @Override
+    public String metricsName() {
+        return "idempotency";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("requests", requests.sum());
+        out.put("replayedFromCache", replayedFromCache.sum());
+        out.put("replayedFromMongo", replayedFromMongo.sum());
+        out.put("replayedAfterWait", replayedAfterWait.sum());
+        out.put("stillRunning", stillRunning.sum());
+        out.put("takenOver", takenOver.sum());
+        out.put("mismatched", mismatched.sum());
+        out.put("stored", stored.sum());
+        out.put("claimFailures", claimFailures.sum());
+        out.put("saveFailures", saveFailures.sum());
+        out.put("cached", recent.size());
+        out.put("inFlight", inFlight.size());
+        return out;
+    }
+}
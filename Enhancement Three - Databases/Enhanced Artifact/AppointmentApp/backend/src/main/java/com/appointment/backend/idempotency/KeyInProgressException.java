@@ -0,0 +1,14 @@
+package com.appointment.backend.idempotency;
+
+/**
+ * The first request with this Idempotency-Key is still running and did not
+ * finish within the wait. Answered 409 with Retry-After by
+ * {@link IdempotencyFilter}.
+ */
+class KeyInProgressException extends RuntimeException {
+
+    KeyInProgressException() {
+        // Thrown on an expected path: no stack trace needed
+        super("A request with this Idempotency-Key is still being processed. Try again shortly.", null, false, false);
+    }
+}
@@ -0,0 +1,87 @@
+package com.appointment.backend.idempotency;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * First response to a request carrying an Idempotency-Key, replayed for
+ * retries with the same key. Expired by the TTL index on createdAt (declared
+ * in IndexManager).
+ *
+ * While the first request is running, the document is a claim (status 0,
+ * no response yet), inserted on the unique _id so only one instance runs it.
+ */
+@Document(collection = "idempotency_keys")
+public class StoredResponse {
+
+    @Id // caller subject + key, so two users can pick the same key
+    private String id;
+
+    // SHA-256 of method, path and body: a key reused for another request is refused
+    private String fingerprint;
+
+    private int status; // 0 while the first request is still running
+
+    private String contentType;
+
+    private String location;
+
+    private String body;
+
+    private Instant createdAt;
+
+    public StoredResponse() {
+    }
+
+    public StoredResponse(String id, String fingerprint, int status, String contentType, String location,
+            String body, Instant createdAt) {
+        this.id = id;
+        this.fingerprint = fingerprint;
+        this.status = status;
+        this.contentType = contentType;
+        this.location = location;
+        this.body = body;
+        this.createdAt = createdAt;
+    }
+
+    /** A claim on {@code id}, held while the first request with it runs. */
+    static StoredResponse pending(String id, String fingerprint, Instant createdAt) {
+        // Millisecond precision, as stored, so the claim can be matched when released
+        return new StoredResponse(id, fingerprint, 0, null, null, null, createdAt.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    boolean isPending() {
+        return status == 0;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
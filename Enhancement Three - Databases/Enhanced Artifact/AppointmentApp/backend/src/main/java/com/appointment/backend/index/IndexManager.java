@@ -0,0 +1,332 @@
+package com.appointment.backend.index;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declares every MongoDB index the app relies on and builds the missing ones
+ * in the background after startup, instead of relying on @Indexed (which
+ * would build them implicitly while the context starts).
+ *
+ * Each index serves a query path. In enforce mode
+ * (app.indexes.mode=enforce), {@link #require(String)} refuses a path until
+ * all of its indexes are ready; in warn mode (the default) queries run
+ * regardless, just slower. Progress is reported by GET /ops/indexes.
+ *
+ * A build the server rejects (e.g. a unique index over existing duplicates)
+ * is FAILED and its error is logged and reported. It is retried with
+ * exponential backoff (failed-retry-ms, doubling up to 30 minutes), so
+ * once an operator has fixed the data the path opens again without a restart.
+ */
+@Component
+public class IndexManager {
+
+    /** Date-ordered appointment reads: all sorted, upcoming, previous, range, export. */
+    public static final String APPOINTMENTS_BY_DATE = "appointments.by-date";
+    /** Change feed: appointments and tombstones by sequence number. */
+    public static final String CHANGE_FEED = "change-feed";
+    /** Register/login lookups by email (the unique index also guards duplicates). */
+    public static final String USERS_BY_EMAIL = "users.by-email";
+    /** Tombstone purge: range on deletedAt, then the newest sequence in it. */
+    public static final String TOMBSTONE_PURGE = "tombstones.purge";
+    /** Expiry of stored Idempotency-Key responses (TTL index; no query waits on it). */
+    public static final String IDEMPOTENCY_EXPIRY = "idempotency.expiry";
+
+    public static final String PENDING = "pending";
+    public static final String BUILDING = "building";
+    public static final String READY = "ready";
+    public static final String FAILED = "failed";
+
+    private static final Logger log = LoggerFactory.getLogger(IndexManager.class);
+    private static final long MAX_FAILED_RETRY_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private final MongoTemplate mongo;
+    private final boolean enforce;
+    private final long retryAfterSeconds;
+    private final long retryDelayMs;
+    private final long failedRetryMs;
+    private final List<IndexSpec> required = new ArrayList<>();
+    private final Map<IndexSpec, String> states = new ConcurrentHashMap<>();
+    private final Map<IndexSpec, String> errors = new ConcurrentHashMap<>();
+    private volatile Thread builder;
+
+    public IndexManager(MongoTemplate mongo, AppointmentSchema schema, String mode, long retryAfterSeconds,
+            long retryDelayMs, String engine, long idempotencyTtlHours) {
+        this(mongo, schema, mode, retryAfterSeconds, retryDelayMs, 60_000, engine, idempotencyTtlHours);
+    }
+
+    @Autowired
+    public IndexManager(
+            MongoTemplate mongo,
+            AppointmentSchema schema,
+            @Value("${app.indexes.mode:warn}") String mode,
+            @Value("${app.indexes.retry-after-seconds:30}") long retryAfterSeconds,
+            @Value("${app.indexes.retry-delay-ms:10000}") long retryDelayMs,
+            @Value("${app.indexes.failed-retry-ms:60000}") long failedRetryMs,
+            @Value("${app.storage.engine:mongo}") String engine,
+            @Value("${app.idempotency.ttl-hours:24}") long idempotencyTtlHours) {
+        this.mongo = mongo;
+        this.enforce = "enforce".equalsIgnoreCase(mode);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.retryDelayMs = retryDelayMs;
+        this.failedRetryMs = Math.max(1, failedRetryMs);
+
+        // Appointments only live in MongoDB with the mongo engine; users and tombstones always do
+        List<String> appointmentCollections = "mongo".equals(engine)
+                ? List.of("appointments", AppointmentArchive.COLLECTION)
+                : List.of();
+        for (String c : appointmentCollections) {
+            declare(c, "date", new Document(AppointmentSchema.DATE, 1), false, APPOINTMENTS_BY_DATE);
+            declare(c, "seq", new Document(AppointmentSchema.SEQ, 1), false, CHANGE_FEED);
+            if (schema.compact()) {
+                declare(c, "d", new Document(AppointmentSchema.COMPACT_DATE, 1), false, APPOINTMENTS_BY_DATE);
+                declare(c, "s", new Document(AppointmentSchema.COMPACT_SEQ, 1), false, CHANGE_FEED);
+            }
+        }
+        declare("users", "email_unique", new Document("email", 1), true, USERS_BY_EMAIL);
+        declare("appointment_tombstones", "seq", new Document("changeSeq", 1), false, CHANGE_FEED);
+        declare("appointment_tombstones", "deletedAt_seq",
+                new Document("deletedAt", 1).append("changeSeq", -1), false, TOMBSTONE_PURGE);
+        declare(new IndexSpec("idempotency_keys", "createdAt_ttl", new Document("createdAt", 1), false,
+                IDEMPOTENCY_EXPIRY, TimeUnit.HOURS.toSeconds(idempotencyTtlHours)));
+    }
+
+    private void declare(String collection, String name, Document keys, boolean unique, String path) {
+        declare(new IndexSpec(collection, name, keys, unique, path));
+    }
+
+    private void declare(IndexSpec spec) {
+        required.add(spec);
+        states.put(spec, PENDING);
+    }
+
+    /** Start the background check/build once the app is up, so startup never waits on it. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread t = new Thread(this::buildMissing, "index-manager");
+        t.setDaemon(true);
+        builder = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = builder;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * Compare the declared indexes with what exists and build the missing
+     * ones one at a time. Retries while MongoDB is unreachable, and retries
+     * failed builds with backoff until every index is ready.
+     */
+    void buildMissing() {
+        boolean retryFailed = false;
+        long failedDelay = failedRetryMs;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                reconcile(retryFailed);
+                long failed = states.values().stream().filter(FAILED::equals).count();
+                if (failed == 0) {
+                    return;
+                }
+                log.warn("{} index build(s) failed (see GET /ops/indexes); retrying in {} ms", failed, failedDelay);
+                try {
+                    Thread.sleep(failedDelay);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                retryFailed = true;
+                failedDelay = Math.min(failedDelay * 2, Math.max(failedRetryMs, MAX_FAILED_RETRY_MS));
+            } catch (DataAccessException | MongoException ex) {
+                log.warn("Index check failed, retrying in {} ms: {}", retryDelayMs, ex.getMessage());
+                try {
+                    Thread.sleep(retryDelayMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void reconcile(boolean retryFailed) {
+        for (IndexSpec spec : required) {
+            String state = states.get(spec);
+            if (!PENDING.equals(state) && !(retryFailed && FAILED.equals(state))) {
+                continue;
+            }
+            MongoCollection<Document> coll = mongo.getCollection(spec.getCollection());
+            Document found = null;
+            for (Document existing : coll.listIndexes()) {
+                if (spec.matches(existing)) {
+                    found = existing;
+                }
+            }
+            if (found != null) {
+                if (spec.ttlDiffers(found)) {
+                    log.info("Changing expiry of index {}.{} to {} s", spec.getCollection(), found.getString("name"),
+                            spec.getExpireAfterSeconds());
+                    mongo.executeCommand(new Document("collMod", spec.getCollection())
+                            .append("index", new Document("keyPattern", spec.getKeys())
+                                    .append("expireAfterSeconds", spec.getExpireAfterSeconds())));
+                }
+                states.put(spec, READY);
+                errors.remove(spec);
+                continue;
+            }
+
+            log.info("Building index {}.{} {}", spec.getCollection(), spec.getName(), spec.getKeys().toJson());
+            states.put(spec, BUILDING);
+            try {
+                // background only matters before MongoDB 4.2; newer servers always build without blocking
+                IndexOptions options = new IndexOptions().name(spec.getName()).unique(spec.isUnique()).background(true);
+                if (spec.getExpireAfterSeconds() != null) {
+                    options.expireAfter(spec.getExpireAfterSeconds(), TimeUnit.SECONDS);
+                }
+                coll.createIndex(spec.getKeys(), options);
+                states.put(spec, READY);
+                errors.remove(spec);
+                log.info("Index {}.{} is ready", spec.getCollection(), spec.getName());
+            } catch (MongoException ex) {
+                if (isConnectionProblem(ex)) {
+                    states.put(spec, state);
+                    throw ex;
+                }
+                // e.g. duplicate keys for a unique index: needs an operator; retried with backoff
+                states.put(spec, FAILED);
+                errors.put(spec, ex.getMessage());
+                log.error("Index {}.{} failed: {}", spec.getCollection(), spec.getName(), ex.getMessage());
+            }
+        }
+    }
+
+    private static boolean isConnectionProblem(MongoException ex) {
+        return ex instanceof MongoSocketException || ex instanceof MongoTimeoutException;
+    }
+
+    /** True once every index of {@code path} is ready. */
+    public boolean isReady(String path) {
+        for (IndexSpec spec : required) {
+            if (spec.getPath().equals(path) && !READY.equals(states.get(spec))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** True once every declared index is ready. */
+    public boolean isReady() {
+        return required.stream().allMatch(spec -> READY.equals(states.get(spec)));
+    }
+
+    /** In enforce mode, refuse {@code path} until its indexes are ready. */
+    public void require(String path) {
+        if (enforce && !isReady(path)) {
+            throw new IndexNotReadyException(path, retryAfterSeconds, hasFailed(path));
+        }
+    }
+
+    /** True if an index of {@code path} failed to build (and waits for its retry). */
+    public boolean hasFailed(String path) {
+        for (IndexSpec spec : required) {
+            if (spec.getPath().equals(path) && FAILED.equals(states.get(spec))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** False when enforce mode would refuse {@code path} (for background jobs). */
+    public boolean allows(String path) {
+        return !enforce || isReady(path);
+    }
+
+    /** Snapshot for GET /ops/indexes, including build progress where the server reports it. */
+    public Map<String, Object> report() {
+        Map<String, Map<String, Object>> progress = buildProgress();
+        List<Map<String, Object>> indexes = new ArrayList<>();
+        for (IndexSpec spec : required) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("collection", spec.getCollection());
+            entry.put("name", spec.getName());
+            entry.put("keys", spec.getKeys());
+            entry.put("unique", spec.isUnique());
+            entry.put("path", spec.getPath());
+            if (spec.getExpireAfterSeconds() != null) {
+                entry.put("expireAfterSeconds", spec.getExpireAfterSeconds());
+            }
+            entry.put("state", states.get(spec));
+            if (errors.containsKey(spec)) {
+                entry.put("error", errors.get(spec));
+            }
+            if (BUILDING.equals(states.get(spec)) && progress.containsKey(spec.getCollection())) {
+                entry.put("progress", progress.get(spec.getCollection()));
+            }
+            indexes.add(entry);
+        }
+
+        Map<String, Object> paths = new LinkedHashMap<>();
+        for (String path : List.of(APPOINTMENTS_BY_DATE, CHANGE_FEED, USERS_BY_EMAIL, TOMBSTONE_PURGE,
+                IDEMPOTENCY_EXPIRY)) {
+            paths.put(path, isReady(path) ? READY : "not ready");
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ready", isReady());
+        out.put("mode", enforce ? "enforce" : "warn");
+        out.put("paths", paths);
+        out.put("indexes", indexes);
+        return out;
+    }
+
+    /** Per-collection {done, total} of running index builds, from currentOp (best effort). */
+    private Map<String, Map<String, Object>> buildProgress() {
+        Map<String, Map<String, Object>> out = new ConcurrentHashMap<>();
+        if (!states.containsValue(BUILDING)) {
+            return out;
+        }
+        try {
+            Document ops = mongo.getMongoDatabaseFactory().getMongoDatabase("admin")
+                    .runCommand(new Document("currentOp", true).append("command.createIndexes", new Document("$exists", true)));
+            for (Document op : ops.getList("inprog", Document.class, List.of())) {
+                Document command = op.get("command", Document.class);
+                Document p = op.get("progress", Document.class);
+                if (command != null && p != null) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("done", p.get("done"));
+                    entry.put("total", p.get("total"));
+                    out.put(command.getString("createIndexes"), entry);
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Needs the inprog privilege; progress is optional
+            log.debug("Index build progress unavailable: {}", ex.getMessage());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,23 @@
+package com.appointment.backend.index;
+
+/**
+ * Thrown (in enforce mode) when a request needs a query path whose index is
+ * still being built. Mapped to 503 with a Retry-After header.
+ */
+public class IndexNotReadyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /** {@code failed}: the build was rejected and is waiting for its next retry. */
+    public IndexNotReadyException(String path, long retryAfterSeconds, boolean failed) {
+        super(failed
+                ? "Temporarily unavailable: building the index for " + path
+                        + " failed and is retried periodically. Try again later."
+                : "Temporarily unavailable while the index for " + path + " is being built. Try again later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,89 @@
+package com.appointment.backend.index;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One required index: where it lives, its key pattern, and the query path
+ * (see {@link IndexManager}) that depends on it. A TTL index also carries
+ * its expireAfterSeconds.
+ */
+public final class IndexSpec {
+
+    private final String collection;
+    private final String name;
+    private final Document keys;
+    private final boolean unique;
+    private final String path;
+    private final Long expireAfterSeconds;
+
+    public IndexSpec(String collection, String name, Document keys, boolean unique, String path) {
+        this(collection, name, keys, unique, path, null);
+    }
+
+    public IndexSpec(String collection, String name, Document keys, boolean unique, String path,
+            Long expireAfterSeconds) {
+        this.collection = collection;
+        this.name = name;
+        this.keys = keys;
+        this.unique = unique;
+        this.path = path;
+        this.expireAfterSeconds = expireAfterSeconds;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Document getKeys() {
+        return keys;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /** Null unless this is a TTL index. */
+    public Long getExpireAfterSeconds() {
+        return expireAfterSeconds;
+    }
+
+    /**
+     * True if a matching TTL index (see {@link #matches}) expires documents
+     * after a different time; collMod can fix that without a rebuild.
+     */
+    boolean ttlDiffers(Document existing) {
+        if (expireAfterSeconds == null) {
+            return false;
+        }
+        Object current = existing.get("expireAfterSeconds");
+        return !(current instanceof Number n) || n.longValue() != expireAfterSeconds;
+    }
+
+    /** True if an entry from listIndexes has the same key pattern (in order) and uniqueness. */
+    boolean matches(Document existing) {
+        Document key = existing.get("key", Document.class);
+        return key != null
+                && pattern(key).equals(pattern(keys))
+                && existing.getBoolean("unique", false) == unique;
+    }
+
+    /** Field:direction pairs in order; listIndexes may return directions as int, long or double
+     * (or a string such as "text"). */
+    private static List<String> pattern(Document keys) {
+        List<String> out = new ArrayList<>();
+        keys.forEach((field, direction) -> out.add(field + ":"
+                + (direction instanceof Number n ? String.valueOf(n.intValue()) : String.valueOf(direction))));
+        return out;
+    }
+}
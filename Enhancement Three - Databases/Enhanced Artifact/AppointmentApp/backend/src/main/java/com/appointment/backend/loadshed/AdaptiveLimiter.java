@@ -0,0 +1,199 @@
+package com.appointment.backend.loadshed;
+
+import com.appointment.backend.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit for /appointments/** that follows observed latency
+ * (gradient algorithm, as in Netflix's concurrency-limits Gradient2).
+ *
+ * Latency samples are averaged over windows of {@code window-samples}
+ * requests. Each window's average (short RTT) is compared with a slow moving
+ * average of past windows (long RTT): while they agree the limit grows by
+ * about sqrt(limit) per window; when the short RTT rises above
+ * {@code rtt-tolerance} times the long RTT, meaning requests are queueing in
+ * MongoDB or the pool, the limit shrinks in proportion (at most by half per
+ * window). The limit does not grow while less than half of it is used, so a
+ * quiet period cannot inflate it.
+ *
+ * Requests over the limit are refused at once (load shedding) instead of
+ * waiting. Lower priorities only get part of the limit, so they are shed
+ * first: {@link Priority#LOW} (exports, anonymous reads) up to
+ * {@code low-share}, {@link Priority#NORMAL} (authenticated reads) up to
+ * {@code normal-share}, {@link Priority#CRITICAL} (authenticated writes) all
+ * of it.
+ */
+@Component
+public class AdaptiveLimiter implements MetricsSource {
+
+    /** Number of windows the long RTT averages over. */
+    private static final int LONG_WINDOWS = 20;
+
+    /** Shedding order: LOW goes first, CRITICAL last. */
+    public enum Priority { LOW, NORMAL, CRITICAL }
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int windowSamples;
+    private final double lowShare;
+    private final double normalShare;
+    private final long retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Current window; guarded by this
+    private long windowRttSum;
+    private int windowCount;
+    private int windowMaxInFlight;
+    private double longRtt;
+    private volatile double lastShortRtt;
+    private volatile double lastLongRtt;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder[] dropped = { new LongAdder(), new LongAdder(), new LongAdder() };
+    private final LongAdder decreases = new LongAdder();
+
+    @Autowired
+    public AdaptiveLimiter(
+            @Value("${app.loadshed.enabled:true}") boolean enabled,
+            @Value("${app.loadshed.initial-limit:40}") int initialLimit,
+            @Value("${app.loadshed.min-limit:8}") int minLimit,
+            @Value("${app.loadshed.max-limit:150}") int maxLimit,
+            @Value("${app.loadshed.rtt-tolerance:1.5}") double rttTolerance,
+            @Value("${app.loadshed.smoothing:0.2}") double smoothing,
+            @Value("${app.loadshed.window-samples:25}") int windowSamples,
+            @Value("${app.loadshed.low-share:0.5}") double lowShare,
+            @Value("${app.loadshed.normal-share:0.8}") double normalShare,
+            @Value("${app.loadshed.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.rttTolerance = Math.max(1.0, rttTolerance);
+        this.smoothing = Math.min(1.0, Math.max(0.01, smoothing));
+        this.windowSamples = Math.max(1, windowSamples);
+        this.lowShare = lowShare;
+        this.normalShare = normalShare;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /** Take a slot for a request of this priority; false means shed it. */
+    public boolean tryAcquire(Priority priority) {
+        int cap = cap(priority);
+        while (true) {
+            int n = inFlight.get();
+            if (n >= cap) {
+                dropped[priority.ordinal()].increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(n, n + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give the slot back. {@code rttNanos} is the request's latency, or a
+     * negative value if it should not count as a sample (streamed exports,
+     * whose length depends on the data rather than on load).
+     */
+    public void release(long rttNanos) {
+        int n = inFlight.getAndDecrement();
+        if (rttNanos >= 0) {
+            sample(rttNanos, n);
+        }
+    }
+
+    private int cap(Priority priority) {
+        double l = limit;
+        double share = switch (priority) {
+            case LOW -> lowShare;
+            case NORMAL -> normalShare;
+            case CRITICAL -> 1.0;
+        };
+        return Math.max(1, (int) (l * share));
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightAtEnd) {
+        windowRttSum += rttNanos;
+        windowCount++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtEnd);
+        if (windowCount < windowSamples) {
+            return;
+        }
+        double shortRtt = (double) windowRttSum / windowCount;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowCount = 0;
+        windowMaxInFlight = 0;
+        lastShortRtt = shortRtt;
+
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOWS;
+        }
+        // After a slowdown, let the baseline come back down quickly
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        lastLongRtt = longRtt;
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        if (gradient >= 1.0 && maxInFlight < current / 2) {
+            return; // not using the limit, so latency says nothing about raising it
+        }
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - smoothing) + target * smoothing;
+        if (next < current) {
+            decreases.increment();
+        }
+        limit = Math.min(maxLimit, Math.max(minLimit, next));
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    @Override
+    public String metricsName() {
+        return "adaptiveLimit";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("limit", (int) limit);
+        out.put("inFlight", inFlight.get());
+        out.put("shortRttMs", lastShortRtt / 1e6);
+        out.put("longRttMs", lastLongRtt / 1e6);
+        out.put("admitted", admitted.sum());
+        out.put("droppedLow", dropped[Priority.LOW.ordinal()].sum());
+        out.put("droppedNormal", dropped[Priority.NORMAL.ordinal()].sum());
+        out.put("droppedCritical", dropped[Priority.CRITICAL.ordinal()].sum());
+        out.put("limitDecreases", decreases.sum());
+        return out;
+    }
+}
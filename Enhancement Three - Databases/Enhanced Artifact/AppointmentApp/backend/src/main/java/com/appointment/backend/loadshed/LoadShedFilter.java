@@ -0,0 +1,140 @@
+package com.appointment.backend.loadshed;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Servlet filter that applies {@link AdaptiveLimiter} to the appointment
+ * API. Requests over the current limit for their priority get 503 with
+ * Retry-After before any database work is done.
+ *
+ * Runs after {@link com.appointment.backend.security.JwtAuthFilter}, since
+ * the priority depends on whether the caller is authenticated:
+ * - LOW:      exports, and anything from an anonymous caller
+ * - NORMAL:   authenticated GET /appointments/**
+ * - CRITICAL: authenticated POST and DELETE /appointments/**
+ */
+public class LoadShedFilter extends OncePerRequestFilter {
+
+    private final AdaptiveLimiter limiter;
+
+    public LoadShedFilter(AdaptiveLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        AdaptiveLimiter.Priority priority = limiter.isEnabled() ? priorityOf(request) : null;
+        if (priority == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire(priority)) {
+            reject(response, limiter.getRetryAfterSeconds());
+            return;
+        }
+        Release release = new Release(limiter, System.nanoTime());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streamed: keep the slot until the body is sent, but its length is not a latency sample
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.sampled();
+            }
+        }
+    }
+
+    static AdaptiveLimiter.Priority priorityOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        if (!path.equals("/appointments") && !path.startsWith("/appointments/")) {
+            return null;
+        }
+        if (path.equals("/appointments/export") || path.equals("/appointments/exports")
+                || path.startsWith("/appointments/exports/")) {
+            return AdaptiveLimiter.Priority.LOW;
+        }
+        boolean write = "POST".equals(method) || "DELETE".equals(method);
+        if (!write && !"GET".equals(method)) {
+            return null;
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return AdaptiveLimiter.Priority.LOW;
+        }
+        return write ? AdaptiveLimiter.Priority.CRITICAL : AdaptiveLimiter.Priority.NORMAL;
+    }
+
+    /** Written here directly: exceptions thrown by filters never reach GlobalExceptionHandler. */
+    private static void reject(HttpServletResponse response, long seconds) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"The server is overloaded. Try again in " + seconds + " s.\"}");
+    }
+
+    /** Gives the slot back exactly once, whichever way the request ends. */
+    private static final class Release implements AsyncListener {
+
+        private final AdaptiveLimiter limiter;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Release(AdaptiveLimiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        void sampled() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - startNanos);
+            }
+        }
+
+        private void unsampled() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(-1);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            unsampled();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            unsampled();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            unsampled();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.appointment.backend.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, mean and max of a timed operation. Thread-safe and allocation-free
+ * on the recording side.
+ */
+public final class LatencyStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /** {count, meanMs, maxMs} */
+    public Map<String, Object> snapshot() {
+        long n = count.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", n);
+        out.put("meanMs", n == 0 ? 0.0 : toMillis(totalNanos.sum() / (double) n));
+        out.put("maxMs", toMillis(maxNanos.get()));
+        return out;
+    }
+
+    private static double toMillis(double nanos) {
+        return Math.round(nanos / TimeUnit.MILLISECONDS.toNanos(1) * 100) / 100.0;
+    }
+}
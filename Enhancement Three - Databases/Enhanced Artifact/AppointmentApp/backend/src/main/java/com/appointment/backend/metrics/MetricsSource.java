@@ -0,0 +1,16 @@
+package com.appointment.backend.metrics;
+
+import java.util.Map;
+
+/**
+ * A component that reports its own counters for GET /ops/metrics.
+ * Every bean implementing this is picked up automatically.
+ */
+public interface MetricsSource {
+
+    /** Section name in the /ops/metrics response. */
+    String metricsName();
+
+    /** Current values; read often, so keep it cheap and never block. */
+    Map<String, Object> metrics();
+}
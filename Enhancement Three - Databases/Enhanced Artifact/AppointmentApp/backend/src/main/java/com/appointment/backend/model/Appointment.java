@@ -1,8 +1,10 @@
 package com.appointment.backend.model;
 
+import com.appointment.backend.util.DateCache;
+import com.appointment.backend.util.DescriptionDictionary;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -11,21 +13,24 @@ import java.time.LocalDate;
  * Original file from CS-320 Artifact, with enhancements made.
  * MongoDB document representing an appointment.
  * Basic invariants (lengths, date floor) are enforced in the
- * constructor/setter.
+ * constructor/setter. Dates and descriptions are swapped for shared
+ * instances there, so every read path (Mongo mapping, JSON, the stores)
+ * keeps one copy per distinct value.
  */
 @Document(collection = "appointments")
 public class Appointment {
 
-    @Id
-    @Indexed(unique = true) // ensure appointmentId is unique across the collection
+    @Id // _id is unique by itself; the other indexes are declared in IndexManager
     private final String appointmentId;
 
     @JsonFormat(pattern = "yyyy-MM-dd") // serialize/deserialize dates in ISO yyyy-MM-dd
-    @Indexed // index to speed up date-based queries (upcoming/previous/range)
     private final LocalDate appointmentDate;
 
     private String description;
 
+    @JsonIgnore // internal sync cursor, not part of the REST contract
+    private long changeSeq;
+
     public Appointment(String appointmentId, LocalDate appointmentDate, String description) {
         // Guard clauses keep the object in a valid state at creation time
         if (appointmentId == null || appointmentId.trim().isEmpty() || appointmentId.length() > 10) {
@@ -42,8 +47,8 @@ public class Appointment {
         }
 
         this.appointmentId = appointmentId.trim();
-        this.appointmentDate = appointmentDate;
-        this.description = description.trim();
+        this.appointmentDate = DateCache.canonical(appointmentDate);
+        this.description = DescriptionDictionary.canonical(description.trim());
     }
 
     public String getAppointmentId() {
@@ -58,11 +63,20 @@ public class Appointment {
         return description;
     }
 
+    /** Sequence number of the last mutation that touched this appointment. */
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
     /** Update description with the same validation rules as construction. */
     public void setDescription(String description) {
         if (description == null || description.trim().isEmpty() || description.length() > 50) {
             throw new IllegalArgumentException("Description must be 1–50 characters.");
         }
-        this.description = description.trim();
+        this.description = DescriptionDictionary.canonical(description.trim());
     }
 }
@@ -0,0 +1,76 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.util.DateCache;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.time.LocalDate;
+
+/**
+ * Hand-written BSON codec for appointment documents.
+ * Decodes straight from the driver's reader into {@link Appointment}, with no
+ * intermediate Document map and no reflective mapping.
+ *
+ * Reads both document shapes described in {@link AppointmentSchema}; writes
+ * the legacy one, which is exactly what Spring Data's mapping produces.
+ * Unknown fields such as _class are skipped.
+ */
+public final class AppointmentCodec implements Codec<Appointment> {
+
+    /** Driver registry with this codec in front of the defaults. */
+    public static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(new AppointmentCodec()),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    @Override
+    public Appointment decode(BsonReader reader, DecoderContext context) {
+        String id = null;
+        LocalDate date = null;
+        String description = null;
+        long changeSeq = 0;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> id = reader.readString();
+                case AppointmentSchema.DATE -> date = AppointmentSchema.toLocalDate(reader.readDateTime());
+                case AppointmentSchema.COMPACT_DATE -> date = DateCache.ofEpochDay(reader.readInt32());
+                case AppointmentSchema.DESCRIPTION, AppointmentSchema.COMPACT_DESCRIPTION ->
+                        description = reader.readString();
+                case AppointmentSchema.SEQ, AppointmentSchema.COMPACT_SEQ ->
+                        changeSeq = reader.getCurrentBsonType() == BsonType.INT32
+                                ? reader.readInt32()
+                                : reader.readInt64();
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        Appointment a = new Appointment(id, date, description);
+        a.setChangeSeq(changeSeq);
+        return a;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Appointment a, EncoderContext context) {
+        writer.writeStartDocument();
+        writer.writeString("_id", a.getAppointmentId());
+        writer.writeDateTime(AppointmentSchema.DATE, AppointmentSchema.toBsonDate(a.getAppointmentDate()).getTime());
+        writer.writeString(AppointmentSchema.DESCRIPTION, a.getDescription());
+        writer.writeInt64(AppointmentSchema.SEQ, a.getChangeSeq());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Appointment> getEncoderClass() {
+        return Appointment.class;
+    }
+}
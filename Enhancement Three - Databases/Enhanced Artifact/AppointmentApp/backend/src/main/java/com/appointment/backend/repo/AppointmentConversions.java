@@ -0,0 +1,50 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.model.Appointment;
+import org.bson.Document;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spring Data converters for the document shapes in {@link AppointmentSchema},
+ * so repository and template calls keep working with either shape.
+ * - reading: always registered, accepts both shapes
+ * - writing: only in compact mode (otherwise the default mapping already
+ *   produces the legacy shape)
+ */
+@Configuration
+public class AppointmentConversions {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(AppointmentSchema schema) {
+        List<Converter<?, ?>> converters = new ArrayList<>();
+        converters.add(new AppointmentReader());
+        if (schema.compact()) {
+            converters.add(new CompactAppointmentWriter());
+        }
+        return new MongoCustomConversions(converters);
+    }
+
+    @ReadingConverter
+    static class AppointmentReader implements Converter<Document, Appointment> {
+        @Override
+        public Appointment convert(Document source) {
+            return AppointmentSchema.read(source);
+        }
+    }
+
+    @WritingConverter
+    static class CompactAppointmentWriter implements Converter<Appointment, Document> {
+        @Override
+        public Document convert(Appointment source) {
+            return AppointmentSchema.write(source, true);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.archive.TierMerge;
+import com.appointment.backend.model.Appointment;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * List queries that read through {@link AppointmentCodec} instead of
+ * Spring Data's mapping converter. They run inside MongoTemplate#execute, so
+ * driver errors are still translated into DataAccessExceptions.
+ *
+ * While both document shapes may exist ({@link AppointmentSchema}), each
+ * ordered query runs once per shape and the two results are merged (sorting
+ * on two different fields cannot be one query). The old shape is read first:
+ * documents only ever move into the configured shape, so one rewritten
+ * between the two queries is caught by the second, and one seen by both is
+ * returned once (from the first).
+ *
+ * Each list query is capped on the server at {@code query-timeout-ms}
+ * (maxTimeMS), so a slow plan fails instead of holding its request thread;
+ * the connection-level timeouts are set on the connection string.
+ *
+ * Reads follow the {@link ReadRoute} of the calling thread and writes take
+ * their write concern and causal session from {@link MongoRouting}.
+ */
+@Component
+public class AppointmentQueries {
+
+    private static final Comparator<Appointment> BY_SEQ = Comparator.comparingLong(Appointment::getChangeSeq);
+
+    private final MongoTemplate mongo;
+    private final AppointmentSchema schema;
+    private final long queryTimeoutMs;
+    private final MongoRouting routing;
+
+    public AppointmentQueries(MongoTemplate mongo, AppointmentSchema schema,
+            @Value("${app.storage.mongo.query-timeout-ms:5000}") long queryTimeoutMs, MongoRouting routing) {
+        this.mongo = mongo;
+        this.schema = schema;
+        this.queryTimeoutMs = Math.max(0, queryTimeoutMs);
+        this.routing = routing;
+    }
+
+    /** Every appointment in {@code collection}, in no particular order. */
+    public List<Appointment> all(String collection) {
+        return find(collection, Filters.empty(), null, 0);
+    }
+
+    /** Appointments dated in [from, to) (either bound may be null), ordered by date. */
+    public List<Appointment> byDate(String collection, LocalDate from, LocalDate to, boolean descending) {
+        List<Appointment> out = List.of();
+        for (boolean shape : schema.queryOrder()) {
+            if (schema.mayHold(shape)) {
+                String field = AppointmentSchema.dateField(shape);
+                List<Appointment> part = find(collection, AppointmentSchema.dateRange(shape, from, to),
+                        descending ? Sorts.descending(field) : Sorts.ascending(field), 0);
+                out = TierMerge.merge(out, part, descending ? TierMerge.DESCENDING : TierMerge.ASCENDING);
+            }
+        }
+        return out;
+    }
+
+    /** Change feed: since < seq <= upTo, ordered by sequence, at most {@code limit}. */
+    public List<Appointment> bySeq(String collection, long since, long upTo, int limit) {
+        List<Appointment> out = List.of();
+        long complete = upTo; // every document up to here is in out
+        for (boolean shape : schema.queryOrder()) {
+            if (schema.mayHold(shape)) {
+                List<Appointment> part = find(collection, AppointmentSchema.seqRange(shape, since, upTo),
+                        Sorts.ascending(AppointmentSchema.seqField(shape)), limit);
+                if (part.size() == limit) {
+                    // A cut-off part may hold more beyond its last row
+                    complete = Math.min(complete, part.get(part.size() - 1).getChangeSeq());
+                }
+                out = TierMerge.merge(out, part, BY_SEQ);
+            }
+        }
+        // After de-duplication the page may be short; never return rows past a gap
+        int end = 0;
+        while (end < out.size() && end < limit && out.get(end).getChangeSeq() <= complete) {
+            end++;
+        }
+        return end == out.size() ? out : out.subList(0, end);
+    }
+
+    /** Newest date in {@code collection}, or null if it is empty. */
+    public LocalDate newestDate(String collection) {
+        return edgeDate(collection, true);
+    }
+
+    /** Oldest date in {@code collection}, or null if it is empty. */
+    public LocalDate oldestDate(String collection) {
+        return edgeDate(collection, false);
+    }
+
+    /** One indexed lookup per shape: the first date in either direction. */
+    private LocalDate edgeDate(String collection, boolean newest) {
+        LocalDate edge = null;
+        for (boolean shape : schema.queryOrder()) {
+            if (schema.mayHold(shape)) {
+                String field = AppointmentSchema.dateField(shape);
+                List<Appointment> top = find(collection, AppointmentSchema.dateRange(shape, null, null),
+                        newest ? Sorts.descending(field) : Sorts.ascending(field), 1);
+                if (!top.isEmpty()) {
+                    LocalDate d = top.get(0).getAppointmentDate();
+                    if (edge == null || (newest ? d.isAfter(edge) : d.isBefore(edge))) {
+                        edge = d;
+                    }
+                }
+            }
+        }
+        return edge;
+    }
+
+    /**
+     * Unordered insertMany in the configured shape. Returns the IDs rejected
+     * as duplicates; any other write error is thrown.
+     */
+    public Set<String> insertMany(String collection, List<Appointment> batch) {
+        List<Document> docs = new ArrayList<>(batch.size());
+        for (Appointment a : batch) {
+            docs.add(schema.write(a));
+        }
+        return write(collection, routing.bulk(), (coll, session) -> {
+            try {
+                InsertManyOptions options = new InsertManyOptions().ordered(false);
+                if (session == null) {
+                    coll.insertMany(docs, options);
+                } else {
+                    coll.insertMany(session, docs, options);
+                }
+                return Set.of();
+            } catch (MongoBulkWriteException ex) {
+                Set<String> duplicates = new HashSet<>();
+                for (BulkWriteError error : ex.getWriteErrors()) {
+                    if (error.getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                        throw ex;
+                    }
+                    duplicates.add(docs.get(error.getIndex()).getString("_id"));
+                }
+                return duplicates;
+            }
+        });
+    }
+
+    /**
+     * Insert one appointment in the configured shape.
+     * A taken ID comes back as DuplicateKeyException (translated by MongoTemplate).
+     */
+    public void insertOne(String collection, Appointment appointment) {
+        Document doc = schema.write(appointment);
+        write(collection, routing.single(), (coll, session) -> session == null
+                ? coll.insertOne(doc)
+                : coll.insertOne(session, doc));
+    }
+
+    /** Delete one appointment by ID (no-op if it is not there). */
+    public void deleteById(String collection, String appointmentId) {
+        Bson byId = Filters.eq("_id", appointmentId);
+        write(collection, routing.single(), (coll, session) -> session == null
+                ? coll.deleteOne(byId)
+                : coll.deleteOne(session, byId));
+    }
+
+    /**
+     * Run a write with {@code concern} (null = client default). For an
+     * authenticated caller it runs in a causally consistent session, and how
+     * far it got is recorded so their later reads wait for it.
+     */
+    private <T> T write(String collection, WriteConcern concern,
+            BiFunction<MongoCollection<Document>, ClientSession, T> op) {
+        return mongo.execute(collection, coll -> {
+            MongoCollection<Document> target = concern == null ? coll : coll.withWriteConcern(concern);
+            if (!routing.tracksCurrentWriter()) {
+                return op.apply(target, null);
+            }
+            try (ClientSession session = causalSession()) {
+                try {
+                    return op.apply(target, session);
+                } finally {
+                    // Also after a partly failed batch: the writes that did land count
+                    routing.recordWrite(session.getOperationTime(), session.getClusterTime());
+                }
+            }
+        });
+    }
+
+    private ClientSession causalSession() {
+        return mongo.getMongoDatabaseFactory()
+                .getSession(ClientSessionOptions.builder().causallyConsistent(true).build());
+    }
+
+    /** Every _id in {@code collection}, streamed (only the _id is fetched). */
+    public void forEachId(String collection, Consumer<String> action) {
+        mongo.execute(collection, coll -> {
+            for (Document d : coll.find().projection(Projections.include("_id"))) {
+                action.accept(d.getString("_id"));
+            }
+            return null;
+        });
+    }
+
+    /** {@code sort} may be null; a {@code limit} of 0 means no limit. */
+    private List<Appointment> find(String collection, Bson filter, Bson sort, int limit) {
+        ReadRoute route = ReadRoute.current();
+        routing.countRead(route);
+        return mongo.execute(collection, coll -> {
+            MongoCollection<Appointment> c = coll
+                    .withDocumentClass(Appointment.class)
+                    .withCodecRegistry(AppointmentCodec.REGISTRY)
+                    .withReadPreference(route.preference());
+            ClientSession session = null;
+            if (route.after() != null) {
+                // Causal read: the server waits until it has applied the caller's last write
+                session = causalSession();
+                session.advanceClusterTime(route.after().clusterTime());
+                session.advanceOperationTime(route.after().operationTime());
+            }
+            try {
+                FindIterable<Appointment> found = session == null ? c.find(filter) : c.find(session, filter);
+                return found
+                        .sort(sort)
+                        .limit(limit)
+                        .maxTime(queryTimeoutMs, TimeUnit.MILLISECONDS) // 0 = no limit
+                        .into(new ArrayList<>());
+            } finally {
+                if (session != null) {
+                    session.close();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.util.DateCache;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Field layout of appointment documents. Two shapes exist:
+ * - legacy (Spring Data's default mapping): _id, appointmentDate (BSON
+ *   datetime), description, changeSeq
+ * - compact (opt-in, app.storage.mongo.compact-schema=true): _id,
+ *   d (int32 epoch day), t (description), s (changeSeq)
+ *
+ * Both shapes are always readable. New writes use the configured shape and
+ * {@link SchemaMigrationJob} rewrites the others in the background; until it
+ * reports that the other shape is gone, list queries run once per shape and
+ * the results are merged. The job keeps re-checking afterwards, since an
+ * instance running an older build or the other setting can still write the
+ * other shape; when it finds such documents, both shapes are queried again.
+ */
+@Component
+public class AppointmentSchema {
+
+    public static final String DATE = "appointmentDate";
+    public static final String DESCRIPTION = "description";
+    public static final String SEQ = "changeSeq";
+    public static final String COMPACT_DATE = "d";
+    public static final String COMPACT_DESCRIPTION = "t";
+    public static final String COMPACT_SEQ = "s";
+
+    private final boolean compact;
+    private final boolean[] queryOrder;
+    private volatile boolean otherShapeGone;
+
+    public AppointmentSchema(@Value("${app.storage.mongo.compact-schema:false}") boolean compact) {
+        this.compact = compact;
+        this.queryOrder = new boolean[] { !compact, compact };
+    }
+
+    /** True if new documents are written in the compact shape. */
+    public boolean compact() {
+        return compact;
+    }
+
+    /** Called once no document in the non-configured shape is left. */
+    public void migrationFinished() {
+        otherShapeGone = true;
+    }
+
+    /** Called when documents in the non-configured shape turn up again. */
+    public void otherShapeFound() {
+        otherShapeGone = false;
+    }
+
+    /**
+     * Shapes in the order list queries read them: the other shape first,
+     * then the configured one that documents are being rewritten into.
+     */
+    public boolean[] queryOrder() {
+        return queryOrder.clone();
+    }
+
+    /** Whether documents of the given shape may exist and must be queried. */
+    public boolean mayHold(boolean compactShape) {
+        return compactShape == compact || !otherShapeGone;
+    }
+
+    /** Date field of the given shape. */
+    public static String dateField(boolean compactShape) {
+        return compactShape ? COMPACT_DATE : DATE;
+    }
+
+    /** Sequence field of the given shape. */
+    public static String seqField(boolean compactShape) {
+        return compactShape ? COMPACT_SEQ : SEQ;
+    }
+
+    /**
+     * Documents of one shape dated in [from, to); either bound may be null.
+     * Without bounds the filter still requires the date field, so each shape's
+     * query only returns its own documents.
+     */
+    public static Bson dateRange(boolean compactShape, LocalDate from, LocalDate to) {
+        String field = dateField(compactShape);
+        List<Bson> parts = new ArrayList<>();
+        if (from != null) {
+            parts.add(Filters.gte(field, dateValue(compactShape, from)));
+        }
+        if (to != null) {
+            parts.add(Filters.lt(field, dateValue(compactShape, to)));
+        }
+        if (parts.isEmpty()) {
+            return Filters.exists(field);
+        }
+        return parts.size() == 1 ? parts.get(0) : Filters.and(parts);
+    }
+
+    /** Documents of one shape with since < seq <= upTo. */
+    public static Bson seqRange(boolean compactShape, long since, long upTo) {
+        String field = seqField(compactShape);
+        return Filters.and(Filters.gt(field, since), Filters.lte(field, upTo));
+    }
+
+    /** Documents of any shape that may exist, dated before {@code cutoff}. */
+    public Bson dateBefore(LocalDate cutoff) {
+        List<Bson> parts = new ArrayList<>();
+        for (boolean shape : new boolean[] { false, true }) {
+            if (mayHold(shape)) {
+                parts.add(dateRange(shape, null, cutoff));
+            }
+        }
+        return parts.size() == 1 ? parts.get(0) : Filters.or(parts);
+    }
+
+    /** Read a document of either shape (fields of both may even be mixed). */
+    public static Appointment read(Document doc) {
+        LocalDate date;
+        Object day = doc.get(COMPACT_DATE);
+        if (day != null) {
+            date = DateCache.ofEpochDay(((Number) day).longValue());
+        } else {
+            date = toLocalDate(doc.getDate(DATE).getTime());
+        }
+        String description = doc.containsKey(COMPACT_DESCRIPTION)
+                ? doc.getString(COMPACT_DESCRIPTION)
+                : doc.getString(DESCRIPTION);
+        Object seq = doc.containsKey(COMPACT_SEQ) ? doc.get(COMPACT_SEQ) : doc.get(SEQ);
+
+        Appointment a = new Appointment(doc.getString("_id"), date, description);
+        a.setChangeSeq(seq == null ? 0 : ((Number) seq).longValue());
+        return a;
+    }
+
+    /** Document in the configured shape. */
+    public Document write(Appointment a) {
+        return write(a, compact);
+    }
+
+    public static Document write(Appointment a, boolean compactShape) {
+        return new Document("_id", a.getAppointmentId())
+                .append(dateField(compactShape), dateValue(compactShape, a.getAppointmentDate()))
+                .append(compactShape ? COMPACT_DESCRIPTION : DESCRIPTION, a.getDescription())
+                .append(seqField(compactShape), a.getChangeSeq());
+    }
+
+    /** Stored form of a date: int32 epoch day (compact) or a datetime (legacy). */
+    public static Object dateValue(boolean compactShape, LocalDate date) {
+        return compactShape ? (Object) (int) date.toEpochDay() : toBsonDate(date);
+    }
+
+    /**
+     * Legacy stored form of a date: midnight in the JVM's default zone, which
+     * is what Spring Data's LocalDate converter writes.
+     */
+    public static Date toBsonDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    static LocalDate toLocalDate(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,319 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.metrics.MetricsSource;
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+import com.mongodb.WriteConcern;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read and write routing profiles for the appointment collections.
+ *
+ * - Public reads (upcoming, previous, range, export) use
+ *   {@code public-reads} (e.g. secondaryPreferred) with a max-staleness
+ *   bound. Everything else, including ID lookups and the change feed, reads
+ *   the primary.
+ * - Writes get a write concern per kind of operation: {@code single} for a
+ *   create or delete, {@code bulk} for write-behind batches.
+ * - Read-your-writes: an authenticated caller's writes run in a causally
+ *   consistent session. The session's operation and cluster time go back to
+ *   the client as a signed {@value #READ_AFTER_HEADER} token; a public read
+ *   sending it back carries that time (afterClusterTime), so a secondary
+ *   answers only once it has applied the write, whichever instance serves
+ *   the read. Each instance also keeps the time per JWT subject (for the
+ *   last {@code max-writers} subjects), which covers clients that do not
+ *   send the token back only while the same instance serves them. Reads
+ *   with neither never wait.
+ *
+ * Write-behind flushes run on the queue's thread with no caller, so those
+ * writes are neither tracked nor given a token. On a standalone server
+ * there are no operation times, so nothing is tracked and every read goes
+ * to the one server.
+ */
+@Component
+public class MongoRouting implements MetricsSource {
+
+    /** Token of a write's operation time: returned on tracked writes, sent back on later reads. */
+    public static final String READ_AFTER_HEADER = "X-Read-After";
+
+    private static final String MAC = "HmacSHA256";
+    /** Tokens are signed with HMAC(token-secret, this label), never with the secret itself. */
+    private static final byte[] TOKEN_KEY_LABEL = "X-Read-After token key".getBytes(StandardCharsets.UTF_8);
+
+    private final boolean enabled;
+    private final ReadPreference publicReads;
+    private final WriteConcern single;
+    private final WriteConcern bulk;
+    private final boolean causal;
+    private final Map<String, ReadRoute.After> writers;
+    private final SecretKeySpec tokenKey;
+
+    private final ReadRoute anonymousRoute;
+    private final LongAdder routedReads = new LongAdder();
+    private final LongAdder causalReads = new LongAdder();
+    private final LongAdder trackedWrites = new LongAdder();
+    private final LongAdder rejectedTokens = new LongAdder();
+
+    @Autowired
+    public MongoRouting(
+            @Value("${app.mongo.routing.enabled:true}") boolean enabled,
+            @Value("${app.mongo.routing.public-reads:secondaryPreferred}") String publicReads,
+            @Value("${app.mongo.routing.max-staleness-seconds:90}") long maxStalenessSeconds,
+            @Value("${app.mongo.routing.causal-sessions:true}") boolean causal,
+            @Value("${app.mongo.routing.max-writers:10000}") int maxWriters,
+            @Value("${app.mongo.write-concern.single:majority}") String single,
+            @Value("${app.mongo.write-concern.bulk:1}") String bulk,
+            @Value("${app.mongo.write-concern.wtimeout-ms:5000}") long wtimeoutMs,
+            @Value("${app.mongo.routing.token-secret:${app.jwt.secret}}") String tokenSecret) {
+        this.enabled = enabled;
+        this.publicReads = enabled ? readPreference(publicReads, maxStalenessSeconds) : ReadPreference.primary();
+        this.single = enabled ? writeConcern(single, wtimeoutMs) : null;
+        this.bulk = enabled ? writeConcern(bulk, wtimeoutMs) : null;
+        this.causal = enabled && causal;
+        int cap = Math.max(1, maxWriters);
+        this.writers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReadRoute.After> eldest) {
+                return size() > cap;
+            }
+        });
+        this.tokenKey = tokenKey(tokenSecret);
+        this.anonymousRoute = new ReadRoute(this.publicReads, null, "public");
+    }
+
+    /** Primary reads, default write concerns, no sessions (tools and tests). */
+    public static MongoRouting disabled() {
+        return new MongoRouting(false, "primary", 0, false, 1, "default", "default", 0, "unused");
+    }
+
+    /**
+     * The route for a public read by the current caller: the later of the
+     * request's token and the caller's own last write, if either is known.
+     */
+    public ReadRoute publicRead() {
+        if (!enabled) {
+            return ReadRoute.PRIMARY;
+        }
+        ReadRoute.After after = causal ? later(requested(), tracked(subject())) : null;
+        if (after == null) {
+            return anonymousRoute;
+        }
+        BsonTimestamp t = after.operationTime();
+        return new ReadRoute(publicReads, after, "after:" + t.getTime() + "." + t.getInc());
+    }
+
+    /** Write concern for a single create or delete, or null for the client default. */
+    WriteConcern single() {
+        return single;
+    }
+
+    /** Write concern for a batch insert, or null for the client default. */
+    WriteConcern bulk() {
+        return bulk;
+    }
+
+    /** Whether writes on this thread should run in a causal session (an authenticated caller). */
+    boolean tracksCurrentWriter() {
+        return causal && subject() != null;
+    }
+
+    /** Remember how far the current caller's writes got, and hand the client a token for it. */
+    void recordWrite(BsonTimestamp operationTime, BsonDocument clusterTime) {
+        String subject = subject();
+        if (subject == null || operationTime == null || clusterTime == null) {
+            return; // standalone server: no operation times
+        }
+        trackedWrites.increment();
+        ReadRoute.After latest = writers.merge(subject, new ReadRoute.After(operationTime, clusterTime),
+                MongoRouting::later);
+        HttpServletResponse response = currentResponse();
+        if (response != null && !response.isCommitted()) {
+            response.setHeader(READ_AFTER_HEADER, token(later(requested(), latest)));
+        }
+    }
+
+    void countRead(ReadRoute route) {
+        if (route != ReadRoute.PRIMARY) {
+            routedReads.increment();
+            if (route.after() != null) {
+                causalReads.increment();
+            }
+        }
+    }
+
+    private ReadRoute.After tracked(String subject) {
+        return subject == null ? null : writers.get(subject);
+    }
+
+    private static ReadRoute.After later(ReadRoute.After a, ReadRoute.After b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.operationTime().compareTo(b.operationTime()) >= 0 ? a : b;
+    }
+
+    /** The current request's token, or null if it has none or it does not verify. */
+    private ReadRoute.After requested() {
+        HttpServletRequest request = currentRequest();
+        String token = request == null ? null : request.getHeader(READ_AFTER_HEADER);
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        ReadRoute.After after = parseToken(token.trim());
+        if (after == null) {
+            rejectedTokens.increment();
+        }
+        return after;
+    }
+
+    /** base64url(BSON {o: operation time, c: cluster time}) "." base64url(HMAC). */
+    String token(ReadRoute.After after) {
+        BsonDocument doc = new BsonDocument("o", after.operationTime()).append("c", after.clusterTime());
+        BasicOutputBuffer out = new BasicOutputBuffer();
+        new BsonDocumentCodec().encode(new BsonBinaryWriter(out), doc, EncoderContext.builder().build());
+        byte[] body = out.toByteArray();
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return b64.encodeToString(body) + "." + b64.encodeToString(sign(body));
+    }
+
+    /** The time in a token this application signed, or null. */
+    ReadRoute.After parseToken(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            byte[] body = b64.decode(token.substring(0, dot));
+            if (!MessageDigest.isEqual(sign(body), b64.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            RawBsonDocument doc = new RawBsonDocument(body);
+            return new ReadRoute.After(doc.getTimestamp("o"), doc.getDocument("c"));
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] body) {
+        return hmac(tokenKey, body);
+    }
+
+    /**
+     * The token key derived from {@code secret}. The secret defaults to the
+     * JWT secret, so the derivation keeps one key from signing both JWTs and
+     * tokens: a MAC made with either never verifies as the other.
+     */
+    static SecretKeySpec tokenKey(String secret) {
+        byte[] key = hmac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC), TOKEN_KEY_LABEL);
+        return new SecretKeySpec(key, MAC);
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(MAC);
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs
+                ? attrs.getRequest() : null;
+    }
+
+    private static HttpServletResponse currentResponse() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs
+                ? attrs.getResponse() : null;
+    }
+
+    private static String subject() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+
+    /** e.g. "secondaryPreferred"; a max staleness applies to every mode but primary. */
+    static ReadPreference readPreference(String name, long maxStalenessSeconds) {
+        ReadPreference p = ReadPreference.valueOf(name.trim());
+        if (p instanceof TaggableReadPreference && maxStalenessSeconds > 0) {
+            // The server's floor is 90 s (and at least heartbeat + idle write period)
+            p = ReadPreference.valueOf(p.getName(), List.of(), maxStalenessSeconds, TimeUnit.SECONDS);
+        }
+        return p;
+    }
+
+    /** "default" (null), "majority", a node count such as "1", or a named concern such as "W2". */
+    static WriteConcern writeConcern(String spec, long wtimeoutMs) {
+        String s = spec.trim();
+        if (s.isEmpty() || s.equalsIgnoreCase("default")) {
+            return null;
+        }
+        WriteConcern wc;
+        if (s.equalsIgnoreCase("majority")) {
+            wc = WriteConcern.MAJORITY;
+        } else if (s.chars().allMatch(Character::isDigit)) {
+            wc = new WriteConcern(Integer.parseInt(s));
+        } else {
+            wc = WriteConcern.valueOf(s);
+            if (wc == null) {
+                throw new IllegalArgumentException("Unknown write concern: " + spec);
+            }
+        }
+        return wtimeoutMs > 0 && wc.isAcknowledged() ? wc.withWTimeout(wtimeoutMs, TimeUnit.MILLISECONDS) : wc;
+    }
+
+    @Override
+    public String metricsName() {
+        return "mongoRouting";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("publicReads", publicReads.toString());
+        out.put("singleWriteConcern", single == null ? "default" : single.toString());
+        out.put("bulkWriteConcern", bulk == null ? "default" : bulk.toString());
+        out.put("causalSessions", causal);
+        out.put("routedReads", routedReads.sum());
+        out.put("causalReads", causalReads.sum());
+        out.put("trackedWrites", trackedWrites.sum());
+        out.put("trackedWriters", writers.size());
+        out.put("rejectedTokens", rejectedTokens.sum());
+        return out;
+    }
+}
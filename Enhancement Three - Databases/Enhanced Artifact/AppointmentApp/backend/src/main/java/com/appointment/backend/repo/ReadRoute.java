@@ -0,0 +1,74 @@
+package com.appointment.backend.repo;
+
+import com.mongodb.ReadPreference;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+
+import java.util.function.Supplier;
+
+/**
+ * Where the list queries made on this thread may read from: a read
+ * preference, plus, for a caller who has written, the operation time their
+ * reads must have caught up to (so a secondary read still sees their
+ * writes). Outside {@link #with}, reads go to the primary.
+ *
+ * Set by {@link com.appointment.backend.store.RoutedAppointmentStore} around
+ * each call, on whichever thread makes it, so parallel shards and streamed
+ * exports keep the route of the request that started them.
+ */
+public final class ReadRoute {
+
+    public static final ReadRoute PRIMARY = new ReadRoute(ReadPreference.primary(), null, "primary");
+
+    private static final ThreadLocal<ReadRoute> CURRENT = new ThreadLocal<>();
+
+    private final ReadPreference preference;
+    private final After after;
+    private final String key;
+
+    /** A causal session's operation and cluster time after a write. */
+    record After(BsonTimestamp operationTime, BsonDocument clusterTime) {
+    }
+
+    ReadRoute(ReadPreference preference, After after, String key) {
+        this.preference = preference;
+        this.after = after;
+        this.key = key;
+    }
+
+    /** Run {@code op} with this route for the queries it makes on this thread. */
+    public <T> T with(Supplier<T> op) {
+        ReadRoute outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return op.get();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    static ReadRoute current() {
+        ReadRoute r = CURRENT.get();
+        return r == null ? PRIMARY : r;
+    }
+
+    ReadPreference preference() {
+        return preference;
+    }
+
+    After after() {
+        return after;
+    }
+
+    /**
+     * Distinguishes results that may not be shared between callers (shared
+     * reads must not hand a writer a result read without their write).
+     */
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,113 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online rewrite of appointment documents into the configured shape
+ * (see {@link AppointmentSchema}), one small batch per collection per tick,
+ * while the app keeps serving reads and writes.
+ * - Each replace is conditional on the document still being in the old
+ *   shape, so a concurrent delete is never undone.
+ * - Once a full pass finds nothing left to rewrite, queries stop looking for
+ *   the old shape. The finished state is per process, so the job keeps
+ *   looking every {@code migration-recheck-ms}: documents in the old shape
+ *   written by an instance on an older build or the other setting turn
+ *   queries for both shapes back on until they are rewritten too.
+ * - Only runs with the Mongo storage engine.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "mongo", matchIfMissing = true)
+public class SchemaMigrationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationJob.class);
+    private static final List<String> COLLECTIONS = List.of("appointments", AppointmentArchive.COLLECTION);
+
+    private final MongoTemplate mongo;
+    private final AppointmentSchema schema;
+    private final int batchSize;
+    private final long recheckNanos;
+    private volatile boolean finished;
+    private long checkedAt;
+    private long rewritten;
+
+    public SchemaMigrationJob(
+            MongoTemplate mongo,
+            AppointmentSchema schema,
+            @Value("${app.storage.mongo.migration-batch-size:500}") int batchSize,
+            @Value("${app.storage.mongo.migration-recheck-ms:60000}") long recheckMs) {
+        this.mongo = mongo;
+        this.schema = schema;
+        this.batchSize = batchSize;
+        this.recheckNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, recheckMs));
+    }
+
+    /** Scheduled entry point: one batch per collection (only a re-check once finished). */
+    @Scheduled(fixedDelayString = "${app.storage.mongo.migration-interval-ms:1000}")
+    public void run() {
+        if (finished && System.nanoTime() - checkedAt < recheckNanos) {
+            return;
+        }
+        try {
+            long batch = 0;
+            for (String c : COLLECTIONS) {
+                batch += migrateBatch(c);
+            }
+            rewritten += batch;
+            if (batch == 0) {
+                checkedAt = System.nanoTime();
+                if (!finished) {
+                    finished = true;
+                    schema.migrationFinished();
+                    if (rewritten > 0) {
+                        log.info("Rewrote {} appointments into the {} schema", rewritten,
+                                schema.compact() ? "compact" : "legacy");
+                    }
+                }
+            } else if (finished) {
+                finished = false;
+                schema.otherShapeFound();
+                log.warn("Found appointments in the {} schema again (written by an instance with another "
+                        + "setting?); reading both shapes until they are rewritten",
+                        schema.compact() ? "legacy" : "compact");
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Schema migration batch skipped: {}", ex.getMessage());
+        }
+    }
+
+    /** Rewrite up to one batch of old-shape documents; returns how many were found. */
+    int migrateBatch(String collection) {
+        String oldDate = AppointmentSchema.dateField(!schema.compact());
+        List<Document> batch = mongo.execute(collection, coll -> coll
+                .find(Filters.exists(oldDate))
+                .limit(batchSize)
+                .into(new ArrayList<>()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        for (Document d : batch) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(d.get("_id")).and(oldDate).exists(true)),
+                    schema.write(AppointmentSchema.read(d)));
+        }
+        bulk.execute();
+        return batch.size();
+    }
+}
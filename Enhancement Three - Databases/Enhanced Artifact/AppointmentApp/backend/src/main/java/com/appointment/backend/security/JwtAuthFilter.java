@@ -14,18 +14,23 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Servlet filter that reads the Authorization header, validates a Bearer token,
  * and populates the Spring Security context with a simple authenticated user.
+ * Users listed in {@code opsEmails} (lower case) also get ROLE_OPS.
  * If the token is missing/invalid, the request proceeds unauthenticated.
  */
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final Set<String> opsEmails;
 
-    public JwtAuthFilter(JwtService jwtService) {
+    public JwtAuthFilter(JwtService jwtService, Set<String> opsEmails) {
         this.jwtService = jwtService;
+        this.opsEmails = opsEmails;
     }
 
     @Override
@@ -40,8 +45,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             try {
                 // Validate token and use subject (email) as the principal
                 String subject = jwtService.validateAndGetSubject(token);
-                AbstractAuthenticationToken auth = new AbstractAuthenticationToken(
-                        AuthorityUtils.createAuthorityList("ROLE_USER")) {
+                boolean ops = opsEmails.contains(subject.toLowerCase(Locale.ROOT));
+                AbstractAuthenticationToken auth = new AbstractAuthenticationToken(ops
+                        ? AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_OPS")
+                        : AuthorityUtils.createAuthorityList("ROLE_USER")) {
                     @Override
                     public Object getCredentials() {
                         return token;
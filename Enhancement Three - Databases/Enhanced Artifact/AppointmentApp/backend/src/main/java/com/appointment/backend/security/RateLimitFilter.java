@@ -0,0 +1,100 @@
+package com.appointment.backend.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Servlet filter that applies {@link RateLimiter} to the expensive endpoints:
+ * - auth:   POST /auth/**
+ * - write:  POST and DELETE /appointments/**
+ * - export: GET /appointments/export
+ * Everything else passes untouched. Over the limit -> 429 with Retry-After.
+ *
+ * Used twice in the chain: keyed by client IP before {@link JwtAuthFilter}
+ * (so floods are cut before any token or password work), and keyed by the
+ * authenticated subject after it. Per-email limits for login/register are
+ * applied in AuthController, where the body has been parsed.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /** What identifies the caller. */
+    public enum Key {
+        CLIENT_IP, SUBJECT
+    }
+
+    private final RateLimiter limiter;
+    private final Key key;
+
+    public RateLimitFilter(RateLimiter limiter, Key key) {
+        this.limiter = limiter;
+        this.key = key;
+        // OncePerRequestFilter tracks "already ran" by name, and both instances share the class
+        setBeanName("rateLimitFilter." + key);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimiter.Limit limit = limitFor(request);
+        String id = limit == null ? null : callerId(request);
+        if (id != null) {
+            long waitNanos = limiter.acquire(limit, id);
+            if (waitNanos > 0) {
+                reject(response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimiter.Limit limitFor(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        if (path.startsWith("/auth/")) {
+            return "POST".equals(method) ? limiter.auth() : null;
+        }
+        if (path.startsWith("/appointments")) {
+            if ("POST".equals(method) || "DELETE".equals(method)) {
+                return limiter.write();
+            }
+            if ("GET".equals(method) && path.equals("/appointments/export")) {
+                return limiter.export();
+            }
+        }
+        return null;
+    }
+
+    /** Bucket key, or null if this filter does not apply (e.g. no subject yet). */
+    private String callerId(HttpServletRequest request) {
+        if (key == Key.CLIENT_IP) {
+            // Behind a proxy, set server.forward-headers-strategy so this is the real client
+            return request.getRemoteAddr();
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth == null || !auth.isAuthenticated() ? null : "sub:" + auth.getName();
+    }
+
+    /** Written here directly: exceptions thrown by filters never reach GlobalExceptionHandler. */
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        // No exception object here, so a flood of rejections costs no stack traces
+        long seconds = RateLimitedException.retryAfterSeconds(waitNanos);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests. Try again in " + seconds + " s.\"}");
+    }
+}
@@ -0,0 +1,27 @@
+package com.appointment.backend.security;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thrown when a caller is over its rate limit outside the filter chain
+ * (per-email limits in AuthController). Mapped to 429 with Retry-After.
+ */
+public class RateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(long waitNanos) {
+        super("Too many requests. Try again in " + retryAfterSeconds(waitNanos) + " s.");
+        this.retryAfterSeconds = retryAfterSeconds(waitNanos);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /** Whole seconds for a Retry-After header, rounded up (at least 1). */
+    static long retryAfterSeconds(long waitNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, (waitNanos + second - 1) / second);
+    }
+}
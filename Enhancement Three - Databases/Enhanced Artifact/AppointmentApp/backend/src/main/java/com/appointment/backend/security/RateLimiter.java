@@ -0,0 +1,146 @@
+package com.appointment.backend.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process rate limiter with one token bucket per (limit, key), where the
+ * key is a client IP, an email or a JWT subject.
+ *
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time"
+ * (GCRA, the generic cell rate algorithm, which behaves exactly like a token
+ * bucket): a request is allowed if the bucket would not run more than
+ * {@code burst} intervals ahead of now, and takes one compare-and-set. There
+ * are no locks and nothing to refill.
+ *
+ * A bucket whose arrival time has passed is full again and means the same
+ * as no bucket at all, so idle buckets are dropped by a sweep that runs at
+ * most once per sweep interval, piggybacked on a request.
+ */
+@Component
+public class RateLimiter {
+
+    private final boolean enabled;
+    private final Limit auth;
+    private final Limit write;
+    private final Limit export;
+    private final long sweepIntervalNanos;
+    private final LongSupplier clock;
+    private final AtomicLong nextSweep;
+
+    @Autowired
+    public RateLimiter(
+            @Value("${app.ratelimit.enabled:true}") boolean enabled,
+            @Value("${app.ratelimit.auth.per-minute:10}") int authPerMinute,
+            @Value("${app.ratelimit.auth.burst:5}") int authBurst,
+            @Value("${app.ratelimit.write.per-minute:120}") int writePerMinute,
+            @Value("${app.ratelimit.write.burst:30}") int writeBurst,
+            @Value("${app.ratelimit.export.per-minute:6}") int exportPerMinute,
+            @Value("${app.ratelimit.export.burst:3}") int exportBurst,
+            @Value("${app.ratelimit.sweep-interval-ms:60000}") long sweepIntervalMs) {
+        this(enabled, new Limit("auth", authPerMinute, authBurst), new Limit("write", writePerMinute, writeBurst),
+                new Limit("export", exportPerMinute, exportBurst), sweepIntervalMs, System::nanoTime);
+    }
+
+    RateLimiter(boolean enabled, Limit auth, Limit write, Limit export, long sweepIntervalMs, LongSupplier clock) {
+        this.enabled = enabled;
+        this.auth = auth;
+        this.write = write;
+        this.export = export;
+        this.sweepIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sweepIntervalMs);
+        this.clock = clock;
+        this.nextSweep = new AtomicLong(clock.getAsLong() + sweepIntervalNanos);
+    }
+
+    /** Login and registration (each one costs a BCrypt hash). */
+    public Limit auth() {
+        return auth;
+    }
+
+    /** Appointment creates and deletes. */
+    public Limit write() {
+        return write;
+    }
+
+    /** Full exports. */
+    public Limit export() {
+        return export;
+    }
+
+    /**
+     * Take one request from the bucket of {@code key}.
+     * Returns 0 if allowed, otherwise the nanoseconds until it would be.
+     */
+    public long acquire(Limit limit, String key) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        sweepIfDue(now);
+
+        AtomicLong bucket = limit.buckets.get(key);
+        if (bucket == null) {
+            AtomicLong fresh = new AtomicLong(now + limit.intervalNanos);
+            bucket = limit.buckets.putIfAbsent(key, fresh);
+            if (bucket == null) {
+                return 0; // first request of a new bucket is always allowed
+            }
+        }
+        while (true) {
+            long tat = bucket.get();
+            long next = Math.max(tat, now) + limit.intervalNanos;
+            long ahead = next - now - limit.toleranceNanos;
+            if (ahead > 0) {
+                return ahead;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /** Number of buckets currently held (all limits). */
+    public int bucketCount() {
+        return auth.buckets.size() + write.buckets.size() + export.buckets.size();
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + sweepIntervalNanos)) {
+            return;
+        }
+        // A request racing with the sweep may update a bucket that was just
+        // removed; that request is still counted, the next one starts full.
+        for (Limit limit : new Limit[] { auth, write, export }) {
+            limit.buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+
+    /** One rate class: {@code perMinute} sustained, up to {@code burst} back to back. */
+    public static final class Limit {
+
+        private final String name;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        Limit(String name, int perMinute, int burst) {
+            if (perMinute < 1 || burst < 1) {
+                throw new IllegalArgumentException("Rate limit " + name + " needs per-minute and burst >= 1");
+            }
+            this.name = name;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.toleranceNanos = intervalNanos * burst;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package com.appointment.backend.security;
 
 import com.appointment.backend.auth.JwtService;
+import com.appointment.backend.bulkhead.BulkheadFilter;
+import com.appointment.backend.bulkhead.Bulkheads;
+import com.appointment.backend.controller.AppointmentController;
+import com.appointment.backend.idempotency.IdempotencyFilter;
+import com.appointment.backend.idempotency.IdempotencyStore;
+import com.appointment.backend.loadshed.AdaptiveLimiter;
+import com.appointment.backend.loadshed.LoadShedFilter;
+import com.appointment.backend.repo.MongoRouting;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
@@ -12,30 +21,57 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Spring Security configuration.
  * - CORS: allows the configured frontend origin.
  * - CSRF: disabled for stateless API.
- * - AuthZ: GET /appointments/** is public; POST/DELETE require authentication.
+ * - AuthZ: GET /appointments/** is public; POST/DELETE require authentication;
+ *   the ops endpoints require an operator (app.ops.emails).
  * - JWT filter: validates tokens and sets the security context.
+ * - Rate limits: per client IP before the JWT filter, per subject after it.
+ * - Bulkheads: separate concurrency limits for reads, writes, auth and
+ *   exports, after the rate limits.
+ * - Load shedding: adaptive, latency-driven limit on the appointment API,
+ *   shedding exports and anonymous reads first.
+ * - Idempotency-Key replay for appointment writes, inside the write bulkhead.
  */
 @Configuration
 public class SecurityConfig {
 
     private final JwtService jwtService;
+    private final RateLimiter rateLimiter;
+    private final IdempotencyStore idempotencyStore;
+    private final Bulkheads bulkheads;
+    private final AdaptiveLimiter adaptiveLimiter;
     private final String allowedOrigin;
+    private final Set<String> opsEmails;
 
-    public SecurityConfig(JwtService jwtService, @Value("${app.cors.allowed-origin}") String allowedOrigin) {
+    public SecurityConfig(JwtService jwtService, RateLimiter rateLimiter, IdempotencyStore idempotencyStore,
+            Bulkheads bulkheads, AdaptiveLimiter adaptiveLimiter,
+            @Value("${app.cors.allowed-origin}") String allowedOrigin,
+            @Value("${app.ops.emails:}") String opsEmails) {
         this.jwtService = jwtService;
+        this.rateLimiter = rateLimiter;
+        this.idempotencyStore = idempotencyStore;
+        this.bulkheads = bulkheads;
+        this.adaptiveLimiter = adaptiveLimiter;
         this.allowedOrigin = allowedOrigin;
+        this.opsEmails = Arrays.stream(opsEmails.split(","))
+                .map(e -> e.trim().toLowerCase(Locale.ROOT))
+                .filter(e -> !e.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     /** Defines the HTTP security pipeline and authorization rules. */
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
-        JwtAuthFilter jwtFilter = new JwtAuthFilter(jwtService);
+        JwtAuthFilter jwtFilter = new JwtAuthFilter(jwtService, opsEmails);
 
         http
                 .csrf(csrf -> csrf.disable())
@@ -44,7 +80,10 @@ public class SecurityConfig {
                     CorsConfiguration cfg = new CorsConfiguration();
                     cfg.setAllowedOrigins(List.of(allowedOrigin));
                     cfg.setAllowedMethods(List.of("GET", "POST", "DELETE", "OPTIONS"));
-                    cfg.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+                    cfg.setAllowedHeaders(List.of("Authorization", "Content-Type", IdempotencyFilter.HEADER,
+                            MongoRouting.READ_AFTER_HEADER));
+                    cfg.setExposedHeaders(List.of(IdempotencyFilter.REPLAYED_HEADER, HttpHeaders.AGE,
+                            AppointmentController.STALE_HEADER, MongoRouting.READ_AFTER_HEADER));
                     cfg.setAllowCredentials(true);
                     return cfg;
                 }))
@@ -56,11 +95,22 @@ public class SecurityConfig {
                         // Protected: write endpoints require a valid JWT
                         .requestMatchers(HttpMethod.POST, "/appointments/**").authenticated()
                         .requestMatchers(HttpMethod.DELETE, "/appointments/**").authenticated()
+                        // Operators only: index state, metrics (BCrypt cost and timings, limiter, breaker and
+                        // bulkhead state, routing configuration)
+                        .requestMatchers("/ops/**").hasRole("OPS")
                         // Allow everything else (for example docs root page)
                         .anyRequest().permitAll())
                 // Inject JWT validation before username/password filter
                 .addFilterBefore(jwtFilter,
                         org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
+                // Rate limits: cheap IP check first, subject check once the token is validated
+                .addFilterBefore(new RateLimitFilter(rateLimiter, RateLimitFilter.Key.CLIENT_IP), JwtAuthFilter.class)
+                .addFilterAfter(new RateLimitFilter(rateLimiter, RateLimitFilter.Key.SUBJECT), JwtAuthFilter.class)
+                // Same anchor, so these run in the order registered: limit, shedding, bulkhead, idempotency.
+                // Shedding comes first so an overloaded request is refused before it waits in a bulkhead queue.
+                .addFilterAfter(new LoadShedFilter(adaptiveLimiter), JwtAuthFilter.class)
+                .addFilterAfter(new BulkheadFilter(bulkheads), JwtAuthFilter.class)
+                .addFilterAfter(new IdempotencyFilter(idempotencyStore), JwtAuthFilter.class)
                 .httpBasic(Customizer.withDefaults());
 
         return http.build();
@@ -0,0 +1,19 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An export scope read a window at a time, so a streaming export holds only
+ * one window in memory.
+ */
+public interface AppointmentCursor {
+
+    /**
+     * Hand every appointment in the scope to {@code sink}, in the scope's
+     * order, in consecutive non-empty windows of about {@code targetRows}.
+     */
+    void forEachWindow(int targetRows, Consumer<List<Appointment>> sink);
+}
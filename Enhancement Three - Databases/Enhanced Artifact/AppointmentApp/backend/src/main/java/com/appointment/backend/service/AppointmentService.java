@@ -1,82 +1,321 @@
 package com.appointment.backend.service;
 
+import com.appointment.backend.breaker.CircuitBreaker;
+import com.appointment.backend.breaker.CircuitOpenException;
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.metrics.MetricsSource;
 import com.appointment.backend.model.Appointment;
-import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.repo.ReadRoute;
+import com.appointment.backend.store.AppointmentStore;
+import com.appointment.backend.store.CircuitBreakingAppointmentStore;
+import com.appointment.backend.store.RoutedAppointmentStore;
+import com.appointment.backend.sync.ChangeFeedService;
+import com.appointment.backend.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Original file from CS-320 Artifact, with enhancements made.
  * Business logic for appointments.
  * Handles validation, duplicate checking, and delegates persistence to the
- * repository.
+ * configured {@link AppointmentStore} (MongoDB or the embedded engine).
+ *
+ * Upcoming/previous are served from precomputed immutable views (loaded once,
+ * patched on every write, re-partitioned at midnight in the configured zone).
+ * The views only see writes made through this instance, which matches the
+ * single-backend deployment; turn them off with
+ * app.appointments.split-views.enabled=false to query the store on every call
+ * (recommended when the embedded store holds more than fits in the heap).
+ *
+ * List reads go through a {@link SingleFlight}: identical concurrent calls
+ * (same method and arguments) share one store query. Writes make later reads
+ * start a fresh query, so a client always sees its own write. Wide ranges and
+ * the full sorted read are split into parallel sub-range queries by
+ * {@link ScatterGather}.
+ *
+ * Every store call goes through a {@link CircuitBreaker}. While the store
+ * cannot be reached, upcoming/previous fall back to the last lists read
+ * successfully ({@link LastKnownGood}), marked stale; a scheduled task
+ * refreshes them as soon as the store answers again.
+ *
+ * Public reads (upcoming, previous, range and the export scopes) may be
+ * served by a secondary, as set by {@link MongoRouting}; a caller who has
+ * written reads at least up to their own writes.
  */
 @Service
-public class AppointmentService {
+public class AppointmentService implements MetricsSource {
 
-    private final AppointmentRepository repo;
+    private final AppointmentStore store;
+    private final ChangeFeedService changes;
+    private final IndexManager indexes;
+    private final ZoneId zone;
+    private final boolean viewsEnabled;
+    private final UpcomingPreviousViews views;
+    private final SingleFlight reads;
+    private final ScatterGather scatter;
+    private final LastKnownGood lastKnownGood;
+    private final MongoRouting routing;
+    private volatile boolean viewsLoaded;
 
-    public AppointmentService(AppointmentRepository repo) {
-        this.repo = repo;
+    public AppointmentService(
+            AppointmentStore store,
+            ChangeFeedService changes,
+            IndexManager indexes,
+            ScatterGather scatter,
+            CircuitBreaker breaker,
+            LastKnownGood lastKnownGood,
+            MongoRouting routing,
+            @Value("${app.schedule.zone:}") String zone,
+            @Value("${app.appointments.split-views.enabled:true}") boolean viewsEnabled,
+            @Value("${app.appointments.single-flight.enabled:true}") boolean singleFlight,
+            @Value("${app.appointments.single-flight.max-wait-ms:2000}") long maxWaitMs) {
+        this.store = new CircuitBreakingAppointmentStore(store, breaker);
+        this.changes = changes;
+        this.indexes = indexes;
+        this.scatter = scatter;
+        this.lastKnownGood = lastKnownGood;
+        this.routing = routing;
+        this.zone = zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+        this.viewsEnabled = viewsEnabled;
+        this.views = new UpcomingPreviousViews(today());
+        this.reads = new SingleFlight(singleFlight, maxWaitMs);
     }
 
     /**
      * Create a new appointment.
      * - Checks for duplicate IDs before saving.
      * - Handles both app-level and DB-level duplicate errors.
+     * - Stamps the change-feed sequence number.
      */
     public void addAppointment(Appointment appointment) {
         // Friendly duplicate message + unique index safety net
-        if (repo.existsById(appointment.getAppointmentId())) {
+        if (store.existsById(appointment.getAppointmentId())) {
             throw new IllegalArgumentException("Appointment ID already exists");
         }
+        long seq = changes.begin();
         try {
-            repo.save(appointment);
+            appointment.setChangeSeq(seq);
+            store.insert(appointment);
         } catch (DuplicateKeyException ex) {
             throw new IllegalArgumentException("Appointment ID already exists");
+        } finally {
+            changes.end(seq);
         }
+        reads.forgetInFlight();
+        views.add(appointment);
+    }
+
+    /**
+     * Write-behind flush: store a batch with one store call, stamping each
+     * appointment with its own change-feed sequence number.
+     * {@code stamped} runs once the batch is stamped, before it is sent.
+     * Returns the IDs rejected as duplicates.
+     *
+     * An earlier attempt at the batch may have been written in part before it
+     * failed. {@code earlier} holds, per ID, the sequence numbers stamped by
+     * earlier attempts; a duplicate whose stored copy has the same date and
+     * description and one of those numbers is that earlier write and counts
+     * as written. Any other duplicate is someone else's appointment.
+     */
+    public Set<String> insertBatch(List<Appointment> batch, Map<String, Set<Long>> earlier,
+            Consumer<List<Appointment>> stamped) {
+        long[] seqs = new long[batch.size()];
+        int begun = 0;
+        Set<String> duplicates;
+        try {
+            for (Appointment a : batch) {
+                seqs[begun] = changes.begin();
+                a.setChangeSeq(seqs[begun++]);
+            }
+            stamped.accept(batch);
+            duplicates = store.insertAll(batch);
+        } finally {
+            for (int i = 0; i < begun; i++) {
+                changes.end(seqs[i]);
+            }
+        }
+        reads.forgetInFlight();
+        Set<String> rejected = new HashSet<>();
+        for (Appointment a : batch) {
+            String id = a.getAppointmentId();
+            if (!duplicates.contains(id)) {
+                views.add(a);
+                continue;
+            }
+            Appointment ours = earlier.containsKey(id) ? earlierWrite(a, earlier.get(id)) : null;
+            if (ours != null) {
+                views.add(ours);
+            } else {
+                rejected.add(id);
+            }
+        }
+        return rejected;
+    }
+
+    /** The stored copy of {@code queued} if an earlier attempt wrote it, else null. */
+    private Appointment earlierWrite(Appointment queued, Set<Long> seqs) {
+        Appointment stored = store.findById(queued.getAppointmentId()).orElse(null);
+        if (stored != null
+                && seqs.contains(stored.getChangeSeq())
+                && stored.getAppointmentDate().equals(queued.getAppointmentDate())
+                && stored.getDescription().equals(queued.getDescription())) {
+            return stored;
+        }
+        return null;
     }
 
     /**
      * Delete an appointment by ID.
      * Throws if the ID does not exist.
+     * Leaves a tombstone so sync clients learn about the deletion.
      */
     public void deleteAppointment(String appointmentId) {
-        if (!repo.existsById(appointmentId)) {
+        // Fetch (rather than existsById) so the views know which date to patch
+        Appointment existing = getAppointment(appointmentId);
+        if (existing == null) {
             throw new IllegalArgumentException("Appointment ID does not exist");
         }
-        repo.deleteById(appointmentId);
+        long seq = changes.begin();
+        try {
+            // Tombstone first: a delete that lands without one would never reach sync clients
+            changes.recordDeletion(appointmentId, seq);
+            try {
+                store.deleteById(appointmentId);
+            } catch (RuntimeException ex) {
+                discardTombstoneIfStillStored(appointmentId, seq);
+                throw ex;
+            }
+        } finally {
+            changes.end(seq);
+        }
+        reads.forgetInFlight();
+        views.remove(appointmentId, existing.getAppointmentDate());
+    }
+
+    /**
+     * After a failed delete, drop its tombstone only if the appointment is
+     * known to still exist; if that cannot be told (the delete may have been
+     * applied before the error), the tombstone stays.
+     */
+    private void discardTombstoneIfStillStored(String appointmentId, long seq) {
+        try {
+            if (store.existsById(appointmentId)) {
+                changes.discardDeletion(appointmentId, seq);
+            }
+        } catch (RuntimeException ignored) {
+            // Store still unreachable: keep the tombstone
+        }
     }
 
     /** Find an appointment by ID (returns null if not found). */
     public Appointment getAppointment(String appointmentId) {
-        return repo.findById(appointmentId).orElse(null);
+        return store.findById(appointmentId).orElse(null);
     }
 
     /** Return all appointments (unsorted). */
     public Collection<Appointment> getAllAppointments() {
-        return repo.findAll();
+        return reads.run("all", store::findAll);
     }
 
     /** Return all appointments sorted by date ascending. */
     public List<Appointment> getAllSortedByDate() {
-        return repo.findAllByOrderByAppointmentDateAsc();
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        return reads.run("sorted", () -> scatter.findAllSorted(store));
     }
 
     /** Return upcoming appointments (today or later). */
     public List<Appointment> getUpcomingAppointments() {
-        LocalDate today = LocalDate.now();
-        return repo.findAllByAppointmentDateGreaterThanEqualOrderByAppointmentDateAsc(today);
+        if (!viewsEnabled) {
+            indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+            LocalDate today = today();
+            ReadRoute route = routing.publicRead();
+            return reads.run(List.of("upcoming", today, route.key()), () -> routed(route).findUpcoming(today));
+        }
+        ensureViewsLoaded();
+        return views.upcoming();
     }
 
     /** Return past appointments (before today). */
     public List<Appointment> getPreviousAppointments() {
-        LocalDate today = LocalDate.now();
-        return repo.findAllByAppointmentDateLessThanOrderByAppointmentDateDesc(today);
+        if (!viewsEnabled) {
+            indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+            LocalDate today = today();
+            ReadRoute route = routing.publicRead();
+            return reads.run(List.of("previous", today, route.key()), () -> routed(route).findPrevious(today));
+        }
+        ensureViewsLoaded();
+        return views.previous();
+    }
+
+    /**
+     * Upcoming appointments, or the last list read if the store cannot be
+     * reached (marked stale). With split views on, the lists come from memory
+     * once loaded and cannot fail, so this fallback only fires with views off
+     * or while the views' first load is failing.
+     */
+    public Served<List<Appointment>> getUpcomingOrStale() {
+        try {
+            return lastKnownGood.upcoming(getUpcomingAppointments());
+        } catch (RuntimeException ex) {
+            Served<List<Appointment>> stale = storeUnavailable(ex) ? lastKnownGood.staleUpcoming() : null;
+            if (stale == null) {
+                throw ex;
+            }
+            return stale;
+        }
+    }
+
+    /** Previous appointments, or the last list read if the store cannot be reached (marked stale). */
+    public Served<List<Appointment>> getPreviousOrStale() {
+        try {
+            return lastKnownGood.previous(getPreviousAppointments());
+        } catch (RuntimeException ex) {
+            Served<List<Appointment>> stale = storeUnavailable(ex) ? lastKnownGood.stalePrevious() : null;
+            if (stale == null) {
+                throw ex;
+            }
+            return stale;
+        }
+    }
+
+    private static boolean storeUnavailable(RuntimeException ex) {
+        return ex instanceof CircuitOpenException || ex instanceof UncheckedIOException
+                || (ex instanceof DataAccessException && !(ex instanceof DuplicateKeyException));
+    }
+
+    /**
+     * After stale lists were served, re-read both once the store answers.
+     * While the breaker is open this is refused at once; once it is due for
+     * a trial call, this is that call, so recovery does not wait for traffic.
+     * Stale lists are only served when the lists read the store (see
+     * {@link #getUpcomingOrStale()}), so with views loaded this never runs.
+     */
+    @Scheduled(fixedDelayString = "${app.breaker.refresh-interval-ms:2000}")
+    public void refreshLastKnownGood() {
+        if (!lastKnownGood.isRefreshPending()) {
+            return;
+        }
+        try {
+            lastKnownGood.upcoming(getUpcomingAppointments());
+            lastKnownGood.previous(getPreviousAppointments());
+            lastKnownGood.refreshed();
+        } catch (RuntimeException ex) {
+            // Still unavailable; the next run tries again
+        }
     }
 
     /**
@@ -90,6 +329,128 @@ public class AppointmentService {
         if (end.isBefore(start)) {
             throw new IllegalArgumentException("End date must be on or after start date");
         }
-        return repo.findAllByAppointmentDateBetweenOrderByAppointmentDateAsc(start, end);
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        ReadRoute route = routing.publicRead();
+        return reads.run(List.of("range", start, end, route.key()),
+                () -> scatter.findBetween(routed(route), start, end));
+    }
+
+    /** An export scope as a list: all | upcoming | previous | range (range requires start & end). */
+    public List<Appointment> getScope(String scope, LocalDate start, LocalDate end) {
+        return switch (scope.toLowerCase()) {
+            case "all" -> exportAllSorted();
+            case "upcoming" -> getUpcomingAppointments();
+            case "previous" -> getPreviousAppointments();
+            case "range" -> getAppointmentsInRange(requireStart(start, end), end);
+            default -> throw new IllegalArgumentException("Unsupported scope. Use all|upcoming|previous|range.");
+        };
+    }
+
+    /** An export scope as a cursor (see {@link #scanAll}); same scopes and checks as {@link #getScope}. */
+    public AppointmentCursor scanScope(String scope, LocalDate start, LocalDate end) {
+        return switch (scope.toLowerCase()) {
+            case "all" -> scanAll();
+            case "upcoming" -> scanUpcoming();
+            case "previous" -> scanPrevious();
+            case "range" -> scanRange(requireStart(start, end), end);
+            default -> throw new IllegalArgumentException("Unsupported scope. Use all|upcoming|previous|range.");
+        };
+    }
+
+    /** Like {@link #getAllSortedByDate}, but a public read (the views load stays on the primary). */
+    private List<Appointment> exportAllSorted() {
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        ReadRoute route = routing.publicRead();
+        return reads.run(List.of("sorted", route.key()), () -> scatter.findAllSorted(routed(route)));
+    }
+
+    private AppointmentStore routed(ReadRoute route) {
+        return new RoutedAppointmentStore(store, route);
+    }
+
+    private static LocalDate requireStart(LocalDate start, LocalDate end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Range export requires start and end query parameters.");
+        }
+        return start;
+    }
+
+    /**
+     * Every appointment, ascending by date, as a cursor for streaming exports.
+     * The scan* methods cover the same scopes as the list reads above, but
+     * read the store a date window at a time (see DateWindowCursor); their
+     * arguments are checked here, before anything is streamed.
+     */
+    public AppointmentCursor scanAll() {
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        AppointmentStore s = routed(routing.publicRead());
+        return new DateWindowCursor(s, null, null, false, s::findAllSorted);
+    }
+
+    /** Upcoming appointments (today or later), ascending. */
+    public AppointmentCursor scanUpcoming() {
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        LocalDate today = today();
+        AppointmentStore s = routed(routing.publicRead());
+        return new DateWindowCursor(s, today.minusDays(1), null, false, () -> s.findUpcoming(today));
+    }
+
+    /** Past appointments (before today), newest first. */
+    public AppointmentCursor scanPrevious() {
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        LocalDate today = today();
+        AppointmentStore s = routed(routing.publicRead());
+        return new DateWindowCursor(s, null, today, true, () -> s.findPrevious(today));
+    }
+
+    /** Appointments strictly between start and end, ascending; same checks as {@link #getAppointmentsInRange}. */
+    public AppointmentCursor scanRange(LocalDate start, LocalDate end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Start and end dates are required");
+        }
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End date must be on or after start date");
+        }
+        indexes.require(IndexManager.APPOINTMENTS_BY_DATE);
+        AppointmentStore s = routed(routing.publicRead());
+        return new DateWindowCursor(s, start, end, false, () -> s.findBetween(start, end));
+    }
+
+    /** Move the upcoming/previous boundary at midnight in the configured zone. */
+    @Scheduled(cron = "0 0 0 * * *", zone = "${app.schedule.zone:}")
+    public void rolloverViews() {
+        views.rollTo(today());
+    }
+
+    /** Today in the configured zone (the upcoming/previous boundary). */
+    public LocalDate today() {
+        return LocalDate.now(zone);
+    }
+
+    /**
+     * Load both views with a single sorted query on first use.
+     * Holding the views' lock means a concurrent write patches after the load
+     * (patches are idempotent, so a write the load already saw is not doubled).
+     */
+    private void ensureViewsLoaded() {
+        if (viewsLoaded) {
+            return;
+        }
+        synchronized (views) {
+            if (!viewsLoaded) {
+                views.reset(today(), getAllSortedByDate());
+                viewsLoaded = true;
+            }
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "singleFlight";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        return reads.metrics();
     }
 }
@@ -0,0 +1,137 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list split into chunks of up to 2 * CHUNK elements, backing the
+ * views in {@link UpcomingPreviousViews}.
+ * insert/delete return a new list that shares every untouched chunk, so a
+ * write copies one chunk plus the chunk table (O(CHUNK + n / CHUNK)) rather
+ * than the whole list.
+ */
+final class ChunkedList extends AbstractList<Appointment> implements RandomAccess {
+
+    static final int CHUNK = 512;
+    static final ChunkedList EMPTY = new ChunkedList(new Appointment[0][], new int[0], 0);
+
+    private final Appointment[][] chunks;
+    private final int[] starts; // index of each chunk's first element
+    private final int size;
+
+    private ChunkedList(Appointment[][] chunks, int[] starts, int size) {
+        this.chunks = chunks;
+        this.starts = starts;
+        this.size = size;
+    }
+
+    static ChunkedList of(List<Appointment> items) {
+        int n = items.size();
+        int count = (n + CHUNK - 1) / CHUNK;
+        Appointment[][] chunks = new Appointment[count][];
+        int[] starts = new int[count];
+        for (int k = 0; k < count; k++) {
+            int from = k * CHUNK;
+            chunks[k] = items.subList(from, Math.min(n, from + CHUNK)).toArray(new Appointment[0]);
+            starts[k] = from;
+        }
+        return new ChunkedList(chunks, starts, n);
+    }
+
+    @Override
+    public Appointment get(int index) {
+        Objects.checkIndex(index, size);
+        int k = chunkOf(index);
+        return chunks[k][index - starts[k]];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    ChunkedList insert(int at, Appointment a) {
+        if (chunks.length == 0) {
+            return new ChunkedList(new Appointment[][] { { a } }, new int[] { 0 }, 1);
+        }
+        int k = at == size ? chunks.length - 1 : chunkOf(at);
+        Appointment[] old = chunks[k];
+        int off = at - starts[k];
+        Appointment[] grown = new Appointment[old.length + 1];
+        System.arraycopy(old, 0, grown, 0, off);
+        grown[off] = a;
+        System.arraycopy(old, off, grown, off + 1, old.length - off);
+
+        if (grown.length <= 2 * CHUNK) {
+            Appointment[][] nc = chunks.clone();
+            nc[k] = grown;
+            int[] ns = starts.clone();
+            for (int j = k + 1; j < ns.length; j++) {
+                ns[j]++;
+            }
+            return new ChunkedList(nc, ns, size + 1);
+        }
+
+        // Split an over-full chunk in two
+        int half = grown.length / 2;
+        Appointment[][] nc = new Appointment[chunks.length + 1][];
+        int[] ns = new int[chunks.length + 1];
+        System.arraycopy(chunks, 0, nc, 0, k);
+        nc[k] = Arrays.copyOfRange(grown, 0, half);
+        nc[k + 1] = Arrays.copyOfRange(grown, half, grown.length);
+        System.arraycopy(chunks, k + 1, nc, k + 2, chunks.length - k - 1);
+        System.arraycopy(starts, 0, ns, 0, k + 1);
+        ns[k + 1] = starts[k] + half;
+        for (int j = k + 1; j < starts.length; j++) {
+            ns[j + 1] = starts[j] + 1;
+        }
+        return new ChunkedList(nc, ns, size + 1);
+    }
+
+    ChunkedList delete(int at) {
+        int k = chunkOf(at);
+        Appointment[] old = chunks[k];
+        if (old.length == 1) {
+            // Drop the now-empty chunk
+            Appointment[][] nc = new Appointment[chunks.length - 1][];
+            int[] ns = new int[chunks.length - 1];
+            System.arraycopy(chunks, 0, nc, 0, k);
+            System.arraycopy(chunks, k + 1, nc, k, nc.length - k);
+            System.arraycopy(starts, 0, ns, 0, k);
+            for (int j = k + 1; j < starts.length; j++) {
+                ns[j - 1] = starts[j] - 1;
+            }
+            return new ChunkedList(nc, ns, size - 1);
+        }
+        int off = at - starts[k];
+        Appointment[] shrunk = new Appointment[old.length - 1];
+        System.arraycopy(old, 0, shrunk, 0, off);
+        System.arraycopy(old, off + 1, shrunk, off, old.length - off - 1);
+        Appointment[][] nc = chunks.clone();
+        nc[k] = shrunk;
+        int[] ns = starts.clone();
+        for (int j = k + 1; j < ns.length; j++) {
+            ns[j]--;
+        }
+        return new ChunkedList(nc, ns, size - 1);
+    }
+
+    /** Last chunk whose first element is at or before {@code index}. */
+    private int chunkOf(int index) {
+        int lo = 0, hi = chunks.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,100 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.store.AppointmentStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Walks the dates strictly between {@code after} and {@code before} (null
+ * for open-ended) in consecutive windows, one indexed
+ * {@link AppointmentStore#findBetween} per window, ascending or newest first.
+ *
+ * The walk is clamped to the store's date span, and windows adapt to the
+ * data: a window that returned fewer than half the target rows doubles the
+ * next one, one that returned more than twice the target halves it (down to a
+ * single day). Stores that cannot report their span are read in one query and
+ * handed out in slices.
+ *
+ * Not a point-in-time snapshot: each window sees the store as it is when that
+ * window is read.
+ */
+final class DateWindowCursor implements AppointmentCursor {
+
+    static final int INITIAL_WINDOW_DAYS = 7;
+    static final int MAX_WINDOW_DAYS = 3660;
+
+    private final AppointmentStore store;
+    private final LocalDate after;
+    private final LocalDate before;
+    private final boolean descending;
+    private final Supplier<List<Appointment>> whole;
+
+    /** {@code whole} reads the same scope in one query (the fallback). */
+    DateWindowCursor(AppointmentStore store, LocalDate after, LocalDate before, boolean descending,
+            Supplier<List<Appointment>> whole) {
+        this.store = store;
+        this.after = after;
+        this.before = before;
+        this.descending = descending;
+        this.whole = whole;
+    }
+
+    @Override
+    public void forEachWindow(int targetRows, Consumer<List<Appointment>> sink) {
+        LocalDate[] span = store.dateSpan();
+        if (span == null) {
+            List<Appointment> all = whole.get();
+            for (int i = 0; i < all.size(); i += targetRows) {
+                sink.accept(all.subList(i, Math.min(all.size(), i + targetRows)));
+            }
+            return;
+        }
+        LocalDate first = after == null || span[0].isAfter(after) ? span[0] : after.plusDays(1);
+        LocalDate last = before == null || span[1].isBefore(before) ? span[1] : before.minusDays(1);
+
+        long days = INITIAL_WINDOW_DAYS;
+        LocalDate from = first;
+        LocalDate to = last;
+        while (!from.isAfter(to)) {
+            LocalDate lo;
+            LocalDate hi;
+            if (descending) {
+                hi = to;
+                lo = latest(from, to.minusDays(days - 1));
+                to = lo.minusDays(1);
+            } else {
+                lo = from;
+                hi = earliest(to, from.plusDays(days - 1));
+                from = hi.plusDays(1);
+            }
+            List<Appointment> window = store.findBetween(lo.minusDays(1), hi.plusDays(1));
+            if (window.size() < targetRows / 2) {
+                days = Math.min(MAX_WINDOW_DAYS, days * 2);
+            } else if (window.size() > 2L * targetRows) {
+                days = Math.max(1, days / 2);
+            }
+            if (window.isEmpty()) {
+                continue;
+            }
+            if (descending) {
+                window = new ArrayList<>(window);
+                Collections.reverse(window);
+            }
+            sink.accept(window);
+        }
+    }
+
+    private static LocalDate earliest(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate latest(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
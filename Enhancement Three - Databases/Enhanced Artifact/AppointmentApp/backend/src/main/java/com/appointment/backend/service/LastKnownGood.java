@@ -0,0 +1,98 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.model.Appointment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The last upcoming and previous lists read successfully, served (marked
+ * stale) while the store cannot be reached. Both lists are immutable, so
+ * keeping them costs a reference each.
+ *
+ * Serving a stale list flags a refresh, which AppointmentService makes in
+ * the background once the store answers again.
+ */
+@Component
+public class LastKnownGood implements MetricsSource {
+
+    private final AtomicReference<Served<List<Appointment>>> upcoming = new AtomicReference<>();
+    private final AtomicReference<Served<List<Appointment>>> previous = new AtomicReference<>();
+    private volatile boolean refreshPending;
+
+    private final LongAdder servedStale = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+
+    Served<List<Appointment>> upcoming(List<Appointment> fresh) {
+        return record(upcoming, fresh);
+    }
+
+    Served<List<Appointment>> previous(List<Appointment> fresh) {
+        return record(previous, fresh);
+    }
+
+    /** The stale upcoming list, or null if there has never been one. */
+    Served<List<Appointment>> staleUpcoming() {
+        return stale(upcoming);
+    }
+
+    Served<List<Appointment>> stalePrevious() {
+        return stale(previous);
+    }
+
+    boolean isRefreshPending() {
+        return refreshPending;
+    }
+
+    void refreshed() {
+        refreshPending = false;
+        refreshed.increment();
+    }
+
+    private static Served<List<Appointment>> record(AtomicReference<Served<List<Appointment>>> slot,
+            List<Appointment> fresh) {
+        Served<List<Appointment>> served = Served.fresh(fresh);
+        slot.set(served);
+        return served;
+    }
+
+    private Served<List<Appointment>> stale(AtomicReference<Served<List<Appointment>>> slot) {
+        refreshPending = true;
+        Served<List<Appointment>> last = slot.get();
+        if (last == null) {
+            missed.increment();
+            return null;
+        }
+        servedStale.increment();
+        return last.asStale();
+    }
+
+    @Override
+    public String metricsName() {
+        return "lastKnownGood";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("upcomingAgeSeconds", ageSeconds(upcoming.get()));
+        out.put("previousAgeSeconds", ageSeconds(previous.get()));
+        out.put("refreshPending", refreshPending);
+        out.put("servedStale", servedStale.sum());
+        out.put("missed", missed.sum());
+        out.put("refreshed", refreshed.sum());
+        return out;
+    }
+
+    private static Long ageSeconds(Served<?> served) {
+        return served == null ? null : Duration.between(served.asOf(), Instant.now()).toSeconds();
+    }
+}
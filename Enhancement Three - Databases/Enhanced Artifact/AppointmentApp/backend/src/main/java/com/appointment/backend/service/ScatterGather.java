@@ -0,0 +1,186 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.store.AppointmentStore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Splits wide date-ordered reads into sub-ranges that are queried in
+ * parallel, so a multi-year range or a full export is not bound by a single
+ * cursor.
+ *
+ * A range is cut into at most {@code fan-out} contiguous shards of at least
+ * {@code min-days-per-shard} days; narrower ranges run as one query. Shards
+ * cover disjoint, ascending date ranges and each comes back sorted, so the
+ * merged result is their concatenation in order: no re-sort.
+ *
+ * Shards run on a small bounded pool; the caller runs the first shard
+ * itself, and runs further ones too when the pool's queue is full, so a
+ * saturated pool degrades to sequential reads instead of queuing or failing.
+ */
+@Component
+public class ScatterGather implements MetricsSource {
+
+    private final int fanOut;
+    private final int minDaysPerShard;
+    private final ThreadPoolExecutor pool;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder split = new LongAdder();
+    private final LongAdder shards = new LongAdder();
+    private final LongAdder ranInCaller = new LongAdder();
+
+    @Autowired
+    public ScatterGather(
+            @Value("${app.appointments.scatter-gather.fan-out:4}") int fanOut,
+            @Value("${app.appointments.scatter-gather.min-days-per-shard:365}") int minDaysPerShard,
+            @Value("${app.appointments.scatter-gather.threads:8}") int threads) {
+        this.fanOut = Math.max(1, fanOut);
+        this.minDaysPerShard = Math.max(1, minDaysPerShard);
+        AtomicInteger n = new AtomicInteger();
+        int size = Math.max(1, threads);
+        this.pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(size * 4),
+                r -> {
+                    Thread t = new Thread(r, "scatter-gather-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> {
+                    ranInCaller.increment();
+                    r.run();
+                });
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /** start < date < end, ascending (same as {@link AppointmentStore#findBetween}). */
+    public List<Appointment> findBetween(AppointmentStore store, LocalDate start, LocalDate end) {
+        List<LocalDate[]> ranges = split(start, end, fanOut, minDaysPerShard);
+        List<Supplier<List<Appointment>>> parts = new ArrayList<>(ranges.size());
+        for (LocalDate[] r : ranges) {
+            parts.add(() -> store.findBetween(r[0], r[1]));
+        }
+        return gather(parts);
+    }
+
+    /**
+     * Every appointment, ascending. Split over the store's date span when the
+     * store reports one; appointments written meanwhile outside that span are
+     * left out, as if the read had started a moment earlier.
+     */
+    public List<Appointment> findAllSorted(AppointmentStore store) {
+        if (fanOut == 1) {
+            return gather(List.<Supplier<List<Appointment>>>of(store::findAllSorted));
+        }
+        LocalDate[] span = store.dateSpan();
+        if (span == null) {
+            return gather(List.<Supplier<List<Appointment>>>of(store::findAllSorted));
+        }
+        return findBetween(store, span[0].minusDays(1), span[1].plusDays(1));
+    }
+
+    /**
+     * Cut the exclusive range (start, end) into at most {@code maxShards}
+     * contiguous exclusive ranges of at least {@code minDays} days each,
+     * ascending. A range too narrow to split comes back unchanged.
+     */
+    static List<LocalDate[]> split(LocalDate start, LocalDate end, int maxShards, int minDays) {
+        long days = end.toEpochDay() - start.toEpochDay() - 1; // dates strictly inside
+        int count = (int) Math.min(maxShards, days / minDays);
+        if (count <= 1) {
+            return List.<LocalDate[]>of(new LocalDate[] { start, end });
+        }
+        List<LocalDate[]> out = new ArrayList<>(count);
+        long base = days / count;
+        long extra = days % count;
+        LocalDate first = start.plusDays(1); // first date of the current shard
+        for (int i = 0; i < count; i++) {
+            LocalDate last = first.plusDays(base + (i < extra ? 1 : 0) - 1);
+            out.add(new LocalDate[] { first.minusDays(1), last.plusDays(1) });
+            first = last.plusDays(1);
+        }
+        return out;
+    }
+
+    /** Run the parts (the first in the caller) and concatenate their results in order. */
+    <T> List<T> gather(List<Supplier<List<T>>> parts) {
+        reads.increment();
+        if (parts.size() == 1) {
+            return parts.get(0).get();
+        }
+        split.increment();
+        shards.add(parts.size());
+        List<Future<List<T>>> futures = new ArrayList<>(parts.size() - 1);
+        try {
+            for (int i = 1; i < parts.size(); i++) {
+                futures.add(pool.submit(parts.get(i)::get));
+            }
+            List<T> head = parts.get(0).get();
+            List<List<T>> results = new ArrayList<>(parts.size());
+            results.add(head);
+            int total = head.size();
+            for (Future<List<T>> f : futures) {
+                List<T> part = f.get();
+                results.add(part);
+                total += part.size();
+            }
+            List<T> out = new ArrayList<>(total);
+            for (List<T> part : results) {
+                out.addAll(part);
+            }
+            return out;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a range shard", ex);
+        } finally {
+            for (Future<List<T>> f : futures) {
+                f.cancel(true); // no-op for finished shards; frees the pool when one failed
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @Override
+    public String metricsName() {
+        return "scatterGather";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        long s = split.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("fanOut", fanOut);
+        out.put("minDaysPerShard", minDaysPerShard);
+        out.put("reads", reads.sum());
+        out.put("split", s);
+        out.put("avgShards", s == 0 ? 0.0 : (double) shards.sum() / s);
+        out.put("shardsRanInCaller", ranInCaller.sum());
+        out.put("poolActive", pool.getActiveCount());
+        return out;
+    }
+}
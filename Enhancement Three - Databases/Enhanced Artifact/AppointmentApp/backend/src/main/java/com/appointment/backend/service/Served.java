@@ -0,0 +1,18 @@
+package com.appointment.backend.service;
+
+import java.time.Instant;
+
+/**
+ * A read result and when it was read from the store. {@code stale} means the
+ * store could not be reached and this is the last result that was.
+ */
+public record Served<T>(T value, Instant asOf, boolean stale) {
+
+    static <T> Served<T> fresh(T value) {
+        return new Served<>(value, Instant.now(), false);
+    }
+
+    Served<T> asStale() {
+        return new Served<>(value, asOf, true);
+    }
+}
@@ -0,0 +1,143 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ready-to-serve upcoming/previous partitions around "today".
+ * - upcoming: date >= today, ascending
+ * - previous: date < today, newest first
+ * Within a single date, appointments keep their insertion order in both views.
+ *
+ * Both views are immutable lists swapped in through volatile fields, so
+ * readers get a plain reference with no copying or locking. The lists are
+ * stored in fixed-size chunks, so a write copies one chunk plus the chunk
+ * table instead of the whole view; the boundary moves via {@link #rollTo}.
+ */
+public class UpcomingPreviousViews {
+
+    private volatile LocalDate today;
+    private volatile ChunkedList upcoming = ChunkedList.EMPTY;
+    private volatile ChunkedList previous = ChunkedList.EMPTY;
+
+    public UpcomingPreviousViews(LocalDate today) {
+        this.today = today;
+    }
+
+    public LocalDate today() {
+        return today;
+    }
+
+    public List<Appointment> upcoming() {
+        return upcoming;
+    }
+
+    public List<Appointment> previous() {
+        return previous;
+    }
+
+    /** Rebuild both views from every appointment in ascending date order. */
+    public synchronized void reset(LocalDate newToday, List<Appointment> ascending) {
+        int split = firstIndexAfter(ascending, newToday.minusDays(1));
+        today = newToday;
+        upcoming = ChunkedList.of(ascending.subList(split, ascending.size()));
+        previous = ChunkedList.of(reverseByDate(ascending.subList(0, split)));
+    }
+
+    /** Move the today boundary (normally at midnight) and re-partition. */
+    public synchronized void rollTo(LocalDate newToday) {
+        if (newToday.equals(today)) {
+            return;
+        }
+        List<Appointment> ascending = reverseByDate(previous);
+        ascending.addAll(upcoming);
+        reset(newToday, ascending);
+    }
+
+    /** Insert an appointment into its view (no-op if the ID is already there). */
+    public synchronized void add(Appointment a) {
+        LocalDate date = a.getAppointmentDate();
+        if (!date.isBefore(today)) {
+            if (indexOf(upcoming, a.getAppointmentId(), date, true) < 0) {
+                upcoming = upcoming.insert(firstIndexAfter(upcoming, date), a);
+            }
+        } else if (indexOf(previous, a.getAppointmentId(), date, false) < 0) {
+            previous = previous.insert(firstIndexBefore(previous, date), a);
+        }
+    }
+
+    /** Remove an appointment from its view (no-op if it isn't there). */
+    public synchronized void remove(String appointmentId, LocalDate date) {
+        if (!date.isBefore(today)) {
+            int i = indexOf(upcoming, appointmentId, date, true);
+            if (i >= 0) {
+                upcoming = upcoming.delete(i);
+            }
+        } else {
+            int i = indexOf(previous, appointmentId, date, false);
+            if (i >= 0) {
+                previous = previous.delete(i);
+            }
+        }
+    }
+
+    // ----- helpers -----
+
+    /** Ascending list: first index whose date is after {@code date}. */
+    private static int firstIndexAfter(List<Appointment> asc, LocalDate date) {
+        int lo = 0, hi = asc.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (asc.get(mid).getAppointmentDate().isAfter(date)) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /** Descending list: first index whose date is before {@code date}. */
+    private static int firstIndexBefore(List<Appointment> desc, LocalDate date) {
+        int lo = 0, hi = desc.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (desc.get(mid).getAppointmentDate().isBefore(date)) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /** Position of an ID inside its date run, or -1. */
+    private static int indexOf(List<Appointment> view, String id, LocalDate date, boolean ascending) {
+        int end = ascending ? firstIndexAfter(view, date) : firstIndexBefore(view, date);
+        for (int i = end - 1; i >= 0 && view.get(i).getAppointmentDate().equals(date); i--) {
+            if (view.get(i).getAppointmentId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Reverse the date order while keeping insertion order inside each date. */
+    private static List<Appointment> reverseByDate(List<Appointment> list) {
+        List<Appointment> out = new ArrayList<>(list.size());
+        int end = list.size();
+        while (end > 0) {
+            LocalDate date = list.get(end - 1).getAppointmentDate();
+            int start = end - 1;
+            while (start > 0 && list.get(start - 1).getAppointmentDate().equals(date)) {
+                start--;
+            }
+            out.addAll(list.subList(start, end));
+            end = start;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,85 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Persistence for appointments, independent of the storage engine.
+ * Selected with app.storage.engine:
+ * - mongo (default): {@link MongoAppointmentStore}, hot collection + archive tier
+ * - embedded: {@link EmbeddedAppointmentStore}, on-disk LSM tree in app.storage.embedded.dir
+ * - memory: {@link InMemoryAppointmentStore}, HashMap + TreeMap indexes (not durable)
+ * - linear: {@link LinearScanAppointmentStore}, one HashMap scanned per query (baseline)
+ * - offheap: {@link OffHeapAppointmentStore}, records and indexes in direct memory (not durable)
+ *
+ * Every implementation must pass the shared contract tests
+ * (AppointmentStoreContractTest); AppointmentStoreBenchmark compares them.
+ *
+ * Date queries follow the original repository's semantics: ordered by date,
+ * range bounds exclusive. Order among appointments on the same date is up to
+ * the engine.
+ */
+public interface AppointmentStore {
+
+    boolean existsById(String appointmentId);
+
+    Optional<Appointment> findById(String appointmentId);
+
+    /**
+     * Store a new appointment.
+     * Throws {@link org.springframework.dao.DuplicateKeyException} if the ID is taken.
+     */
+    void insert(Appointment appointment);
+
+    /**
+     * Store several new appointments at once (write-behind batches).
+     * Returns the IDs that were rejected as duplicates; the rest are stored.
+     */
+    default Set<String> insertAll(List<Appointment> batch) {
+        Set<String> duplicates = new HashSet<>();
+        for (Appointment a : batch) {
+            try {
+                insert(a);
+            } catch (DuplicateKeyException ex) {
+                duplicates.add(a.getAppointmentId());
+            }
+        }
+        return duplicates;
+    }
+
+    /** Delete by ID (no-op if it does not exist). */
+    void deleteById(String appointmentId);
+
+    /** Every appointment, in no particular order. */
+    List<Appointment> findAll();
+
+    /** Every appointment, ascending by date. */
+    List<Appointment> findAllSorted();
+
+    /** date >= today, ascending. */
+    List<Appointment> findUpcoming(LocalDate today);
+
+    /** date < today, newest first. */
+    List<Appointment> findPrevious(LocalDate today);
+
+    /** start < date < end, ascending. */
+    List<Appointment> findBetween(LocalDate start, LocalDate end);
+
+    /**
+     * Earliest and latest appointment dates as {first, last}, or null if the
+     * store is empty or cannot tell without a full scan. Lets a full sorted
+     * read be split into date ranges (see ScatterGather).
+     */
+    default LocalDate[] dateSpan() {
+        return null;
+    }
+
+    /** Change feed: since < changeSeq <= upTo, ordered by sequence, at most {@code limit}. */
+    List<Appointment> findChanged(long since, long upTo, int limit);
+}
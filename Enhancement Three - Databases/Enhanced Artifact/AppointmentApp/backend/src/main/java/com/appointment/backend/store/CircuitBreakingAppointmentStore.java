@@ -0,0 +1,88 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.breaker.CircuitBreaker;
+import com.appointment.backend.model.Appointment;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Wraps a store so that every call goes through a {@link CircuitBreaker}.
+ * Full scans, date ranges (export and cursor windows can span years) and
+ * batch inserts go through {@link CircuitBreaker#callBulk}, so a few long
+ * but healthy ones in a row do not open the breaker for everyone.
+ * Not a bean: AppointmentService wraps whichever engine is configured, so
+ * there is still exactly one AppointmentStore to inject.
+ */
+public final class CircuitBreakingAppointmentStore implements AppointmentStore {
+
+    private final AppointmentStore store;
+    private final CircuitBreaker breaker;
+
+    public CircuitBreakingAppointmentStore(AppointmentStore store, CircuitBreaker breaker) {
+        this.store = store;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public boolean existsById(String appointmentId) {
+        return breaker.call(() -> store.existsById(appointmentId));
+    }
+
+    @Override
+    public Optional<Appointment> findById(String appointmentId) {
+        return breaker.call(() -> store.findById(appointmentId));
+    }
+
+    @Override
+    public void insert(Appointment appointment) {
+        breaker.run(() -> store.insert(appointment));
+    }
+
+    @Override
+    public Set<String> insertAll(List<Appointment> batch) {
+        return breaker.callBulk(() -> store.insertAll(batch));
+    }
+
+    @Override
+    public void deleteById(String appointmentId) {
+        breaker.run(() -> store.deleteById(appointmentId));
+    }
+
+    @Override
+    public List<Appointment> findAll() {
+        return breaker.callBulk(store::findAll);
+    }
+
+    @Override
+    public List<Appointment> findAllSorted() {
+        return breaker.callBulk(store::findAllSorted);
+    }
+
+    @Override
+    public List<Appointment> findUpcoming(LocalDate today) {
+        return breaker.call(() -> store.findUpcoming(today));
+    }
+
+    @Override
+    public List<Appointment> findPrevious(LocalDate today) {
+        return breaker.call(() -> store.findPrevious(today));
+    }
+
+    @Override
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        return breaker.callBulk(() -> store.findBetween(start, end));
+    }
+
+    @Override
+    public LocalDate[] dateSpan() {
+        return breaker.call(store::dateSpan);
+    }
+
+    @Override
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        return breaker.call(() -> store.findChanged(since, upTo, limit));
+    }
+}
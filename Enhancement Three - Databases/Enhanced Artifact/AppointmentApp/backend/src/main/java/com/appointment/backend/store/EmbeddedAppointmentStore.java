@@ -0,0 +1,178 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.store.lsm.LsmStore;
+import com.appointment.backend.store.lsm.WriteBatch;
+import com.appointment.backend.util.DateCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Embedded on-disk store (no MongoDB needed for appointments), for data sets
+ * larger than the heap. Backed by an {@link LsmStore} with three key spaces:
+ * - 'p' + id                 -> record (primary)
+ * - 'd' + epochDay + id      -> record (date index, covers the date queries)
+ * - 's' + changeSeq          -> record (change feed)
+ * Index entries carry the whole record, so scans never do a second lookup.
+ * Within a date, results come back in ID order.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "embedded")
+public class EmbeddedAppointmentStore implements AppointmentStore, AutoCloseable {
+
+    private static final byte PRIMARY = 'p';
+    private static final byte BY_DATE = 'd';
+    private static final byte BY_SEQ = 's';
+
+    private final LsmStore lsm;
+
+    public EmbeddedAppointmentStore(
+            @Value("${app.storage.embedded.dir:data/appointments}") String dir,
+            @Value("${app.storage.embedded.memtable-mb:8}") int memtableMb,
+            @Value("${app.storage.embedded.compaction-trigger:8}") int compactionTrigger,
+            @Value("${app.storage.embedded.block-cache-blocks:4096}") int cacheBlocks) {
+        this.lsm = LsmStore.open(Path.of(dir), memtableMb * 1024L * 1024L, compactionTrigger, cacheBlocks);
+    }
+
+    @Override
+    public boolean existsById(String appointmentId) {
+        return lsm.get(primaryKey(appointmentId)) != null;
+    }
+
+    @Override
+    public Optional<Appointment> findById(String appointmentId) {
+        byte[] record = lsm.get(primaryKey(appointmentId));
+        return record == null ? Optional.empty() : Optional.of(decode(record));
+    }
+
+    @Override
+    public synchronized void insert(Appointment a) {
+        if (existsById(a.getAppointmentId())) {
+            throw new DuplicateKeyException("Appointment ID already exists");
+        }
+        byte[] record = encode(a);
+        WriteBatch batch = new WriteBatch()
+                .put(primaryKey(a.getAppointmentId()), record)
+                .put(dateKey(a.getAppointmentDate(), a.getAppointmentId()), record);
+        if (a.getChangeSeq() > 0) {
+            batch.put(seqKey(a.getChangeSeq()), record);
+        }
+        lsm.write(batch);
+    }
+
+    @Override
+    public synchronized void deleteById(String appointmentId) {
+        Optional<Appointment> existing = findById(appointmentId);
+        if (existing.isEmpty()) {
+            return;
+        }
+        Appointment a = existing.get();
+        WriteBatch batch = new WriteBatch()
+                .delete(primaryKey(appointmentId))
+                .delete(dateKey(a.getAppointmentDate(), appointmentId));
+        if (a.getChangeSeq() > 0) {
+            batch.delete(seqKey(a.getChangeSeq()));
+        }
+        lsm.write(batch);
+    }
+
+    @Override
+    public List<Appointment> findAll() {
+        return scan(new byte[] { PRIMARY }, new byte[] { PRIMARY + 1 }, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Appointment> findAllSorted() {
+        return scan(new byte[] { BY_DATE }, new byte[] { BY_DATE + 1 }, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Appointment> findUpcoming(LocalDate today) {
+        return scan(dateKey(today, ""), new byte[] { BY_DATE + 1 }, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Appointment> findPrevious(LocalDate today) {
+        List<Appointment> out = scan(new byte[] { BY_DATE }, dateKey(today, ""), Integer.MAX_VALUE);
+        Collections.reverse(out);
+        return out;
+    }
+
+    @Override
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        return scan(dateKey(start.plusDays(1), ""), dateKey(end, ""), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        return scan(seqKey(since + 1), seqKey(upTo + 1), limit);
+    }
+
+    @Override
+    public void close() {
+        lsm.close();
+    }
+
+    private List<Appointment> scan(byte[] from, byte[] to, int limit) {
+        List<byte[]> records = lsm.scan(from, to, limit);
+        List<Appointment> out = new ArrayList<>(records.size());
+        for (byte[] r : records) {
+            out.add(decode(r));
+        }
+        return out;
+    }
+
+    // ----- keys and records -----
+
+    private static byte[] primaryKey(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + idBytes.length).put(PRIMARY).put(idBytes).array();
+    }
+
+    /** Big-endian day with the sign bit flipped, so byte order equals date order. */
+    private static byte[] dateKey(LocalDate date, String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + 4 + idBytes.length)
+                .put(BY_DATE).putInt((int) date.toEpochDay() ^ Integer.MIN_VALUE).put(idBytes).array();
+    }
+
+    private static byte[] seqKey(long seq) {
+        return ByteBuffer.allocate(1 + 8).put(BY_SEQ).putLong(seq ^ Long.MIN_VALUE).array();
+    }
+
+    /** [u8 idLen][id][int epochDay][u16 descLen][desc][long changeSeq] */
+    private static byte[] encode(Appointment a) {
+        byte[] id = a.getAppointmentId().getBytes(StandardCharsets.UTF_8);
+        byte[] desc = a.getDescription().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + id.length + 4 + 2 + desc.length + 8)
+                .put((byte) id.length).put(id)
+                .putInt((int) a.getAppointmentDate().toEpochDay())
+                .putShort((short) desc.length).put(desc)
+                .putLong(a.getChangeSeq())
+                .array();
+    }
+
+    private static Appointment decode(byte[] record) {
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        byte[] id = new byte[buf.get() & 0xFF];
+        buf.get(id);
+        LocalDate date = DateCache.ofEpochDay(buf.getInt());
+        byte[] desc = new byte[buf.getShort() & 0xFFFF];
+        buf.get(desc);
+        Appointment a = new Appointment(new String(id, StandardCharsets.UTF_8), date,
+                new String(desc, StandardCharsets.UTF_8));
+        a.setChangeSeq(buf.getLong());
+        return a;
+    }
+}
@@ -0,0 +1,182 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory store with complementary indexes (the Algorithms and Data
+ * Structure enhancement's design):
+ * - byId: HashMap for O(1) lookups/deletes
+ * - byDate: TreeMap of date buckets for sorted and range reads
+ * - bySeq: TreeMap for the change feed
+ * Data is lost on restart. Buckets keep insertion order within a date.
+ * Reads share a read lock, so the sub-range queries of a scatter-gather read
+ * run in parallel; writes take the write lock.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class InMemoryAppointmentStore implements AppointmentStore {
+
+    private final Map<String, Appointment> byId = new HashMap<>();
+    private final NavigableMap<LocalDate, List<Appointment>> byDate = new TreeMap<>();
+    private final NavigableMap<Long, Appointment> bySeq = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock read = lock.readLock();
+    private final Lock write = lock.writeLock();
+
+    @Override
+    public boolean existsById(String appointmentId) {
+        read.lock();
+        try {
+            return byId.containsKey(appointmentId);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Appointment> findById(String appointmentId) {
+        read.lock();
+        try {
+            return Optional.ofNullable(byId.get(appointmentId));
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public void insert(Appointment appointment) {
+        write.lock();
+        try {
+            if (byId.putIfAbsent(appointment.getAppointmentId(), appointment) != null) {
+                throw new DuplicateKeyException("Appointment ID already exists");
+            }
+            byDate.computeIfAbsent(appointment.getAppointmentDate(), d -> new ArrayList<>()).add(appointment);
+            if (appointment.getChangeSeq() > 0) {
+                bySeq.put(appointment.getChangeSeq(), appointment);
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(String appointmentId) {
+        write.lock();
+        try {
+            Appointment removed = byId.remove(appointmentId);
+            if (removed == null) {
+                return;
+            }
+            List<Appointment> bucket = byDate.get(removed.getAppointmentDate());
+            bucket.removeIf(a -> a.getAppointmentId().equals(appointmentId));
+            if (bucket.isEmpty()) {
+                byDate.remove(removed.getAppointmentDate());
+            }
+            bySeq.remove(removed.getChangeSeq(), removed);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findAll() {
+        read.lock();
+        try {
+            return new ArrayList<>(byId.values());
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findAllSorted() {
+        read.lock();
+        try {
+            return flatten(byDate);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findUpcoming(LocalDate today) {
+        read.lock();
+        try {
+            return flatten(byDate.tailMap(today, true));
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findPrevious(LocalDate today) {
+        read.lock();
+        try {
+            return flatten(byDate.headMap(today, false).descendingMap());
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        read.lock();
+        try {
+            if (!end.isAfter(start)) {
+                return new ArrayList<>();
+            }
+            return flatten(byDate.subMap(start, false, end, false));
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public LocalDate[] dateSpan() {
+        read.lock();
+        try {
+            return byDate.isEmpty() ? null : new LocalDate[] { byDate.firstKey(), byDate.lastKey() };
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        read.lock();
+        try {
+            List<Appointment> out = new ArrayList<>();
+            for (Appointment a : bySeq.subMap(since, false, upTo, true).values()) {
+                if (out.size() == limit) {
+                    break;
+                }
+                out.add(a);
+            }
+            return out;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    private static List<Appointment> flatten(Map<LocalDate, List<Appointment>> buckets) {
+        List<Appointment> out = new ArrayList<>();
+        for (List<Appointment> bucket : buckets.values()) {
+            out.addAll(bucket);
+        }
+        return out;
+    }
+}
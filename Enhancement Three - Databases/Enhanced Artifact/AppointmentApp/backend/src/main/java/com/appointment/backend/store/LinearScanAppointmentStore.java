@@ -0,0 +1,110 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory store with a single HashMap (the Software Design enhancement's
+ * design): every date query filters and sorts all appointments on each call.
+ * Kept as a baseline for comparing the other engines.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "linear")
+public class LinearScanAppointmentStore implements AppointmentStore {
+
+    private static final Comparator<Appointment> BY_DATE = Comparator.comparing(Appointment::getAppointmentDate);
+
+    private final Map<String, Appointment> appointments = new HashMap<>();
+
+    @Override
+    public synchronized boolean existsById(String appointmentId) {
+        return appointments.containsKey(appointmentId);
+    }
+
+    @Override
+    public synchronized Optional<Appointment> findById(String appointmentId) {
+        return Optional.ofNullable(appointments.get(appointmentId));
+    }
+
+    @Override
+    public synchronized void insert(Appointment appointment) {
+        if (appointments.putIfAbsent(appointment.getAppointmentId(), appointment) != null) {
+            throw new DuplicateKeyException("Appointment ID already exists");
+        }
+    }
+
+    @Override
+    public synchronized void deleteById(String appointmentId) {
+        appointments.remove(appointmentId);
+    }
+
+    @Override
+    public synchronized List<Appointment> findAll() {
+        return new ArrayList<>(appointments.values());
+    }
+
+    @Override
+    public synchronized List<Appointment> findAllSorted() {
+        List<Appointment> out = new ArrayList<>(appointments.values());
+        out.sort(BY_DATE);
+        return out;
+    }
+
+    @Override
+    public synchronized List<Appointment> findUpcoming(LocalDate today) {
+        List<Appointment> out = new ArrayList<>();
+        for (Appointment a : appointments.values()) {
+            if (!a.getAppointmentDate().isBefore(today)) { // >= today
+                out.add(a);
+            }
+        }
+        out.sort(BY_DATE);
+        return out;
+    }
+
+    @Override
+    public synchronized List<Appointment> findPrevious(LocalDate today) {
+        List<Appointment> out = new ArrayList<>();
+        for (Appointment a : appointments.values()) {
+            if (a.getAppointmentDate().isBefore(today)) {
+                out.add(a);
+            }
+        }
+        out.sort(BY_DATE.reversed());
+        return out;
+    }
+
+    @Override
+    public synchronized List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        List<Appointment> out = new ArrayList<>();
+        for (Appointment a : appointments.values()) {
+            if (a.getAppointmentDate().isAfter(start) && a.getAppointmentDate().isBefore(end)) {
+                out.add(a);
+            }
+        }
+        out.sort(BY_DATE);
+        return out;
+    }
+
+    @Override
+    public synchronized List<Appointment> findChanged(long since, long upTo, int limit) {
+        List<Appointment> out = new ArrayList<>();
+        for (Appointment a : appointments.values()) {
+            if (a.getChangeSeq() > since && a.getChangeSeq() <= upTo) {
+                out.add(a);
+            }
+        }
+        out.sort(Comparator.comparingLong(Appointment::getChangeSeq));
+        return out.size() > limit ? new ArrayList<>(out.subList(0, limit)) : out;
+    }
+}
@@ -0,0 +1,172 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.archive.TierMerge;
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.util.ExistenceFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * MongoDB-backed store: the "appointments" collection, plus the archive tier.
+ * ID lookups go through {@link AppointmentRepository}; writes and list
+ * queries go through {@link AppointmentQueries}, which decodes with a
+ * hand-written codec instead of the reflective mapping converter and applies
+ * the routing profiles (read preference, write concern, causal sessions).
+ * Old appointments may have been moved to the archive; reads merge it in only
+ * when the requested window reaches back into it.
+ *
+ * existsById (asked before every insert, nearly always "no") first consults a
+ * Bloom filter of every ID in both tiers, loaded at startup; a definite miss
+ * skips the hot-collection query. The filter only knows IDs this process has
+ * seen, so the archive is still checked on a miss: an ID inserted by another
+ * instance and since archived would otherwise be inserted again into the hot
+ * collection, whose unique _id only covers that tier. That check is free
+ * while the archive is empty (its cached max date says so). A duplicate of an ID
+ * that another instance put in the hot collection is caught by that _id.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "mongo", matchIfMissing = true)
+public class MongoAppointmentStore implements AppointmentStore, MetricsSource {
+
+    private static final String HOT = "appointments";
+    private static final Logger log = LoggerFactory.getLogger(MongoAppointmentStore.class);
+
+    private final AppointmentRepository repo;
+    private final AppointmentArchive archive;
+    private final AppointmentQueries queries;
+    private final ExistenceFilter ids = new ExistenceFilter(1 << 16, 0.01);
+
+    public MongoAppointmentStore(AppointmentRepository repo, AppointmentArchive archive, AppointmentQueries queries) {
+        this.repo = repo;
+        this.archive = archive;
+        this.queries = queries;
+    }
+
+    @Override
+    public boolean existsById(String appointmentId) {
+        return ids.exists(appointmentId, repo::existsById) || archive.existsById(appointmentId);
+    }
+
+    @Override
+    public Optional<Appointment> findById(String appointmentId) {
+        Optional<Appointment> hot = repo.findById(appointmentId);
+        return hot.isPresent() ? hot : Optional.ofNullable(archive.findById(appointmentId));
+    }
+
+    @Override
+    public void insert(Appointment appointment) {
+        // Added first, so a concurrent existsById never gets a definite miss for it
+        ids.add(appointment.getAppointmentId());
+        // insert (not save): the unique _id turns a racing duplicate into DuplicateKeyException
+        queries.insertOne(HOT, appointment);
+    }
+
+    @Override
+    public Set<String> insertAll(List<Appointment> batch) {
+        for (Appointment a : batch) {
+            ids.add(a.getAppointmentId());
+        }
+        // One unordered insertMany instead of a round trip per appointment
+        return queries.insertMany(HOT, batch);
+    }
+
+    @Override
+    public void deleteById(String appointmentId) {
+        queries.deleteById(HOT, appointmentId);
+        archive.deleteById(appointmentId);
+    }
+
+    @Override
+    public List<Appointment> findAll() {
+        List<Appointment> hot = queries.all(HOT);
+        return archive.isEmpty() ? hot : TierMerge.concat(hot, archive.findAll());
+    }
+
+    @Override
+    public List<Appointment> findAllSorted() {
+        List<Appointment> hot = queries.byDate(HOT, null, null, false);
+        return archive.isEmpty() ? hot : TierMerge.merge(hot, archive.findAllSorted(), TierMerge.ASCENDING);
+    }
+
+    @Override
+    public List<Appointment> findUpcoming(LocalDate today) {
+        // The archive only holds dates older than the horizon, never upcoming ones
+        return queries.byDate(HOT, today, null, false);
+    }
+
+    @Override
+    public List<Appointment> findPrevious(LocalDate today) {
+        List<Appointment> hot = queries.byDate(HOT, null, today, true);
+        return archive.isEmpty() ? hot : TierMerge.merge(hot, archive.findBefore(today), TierMerge.DESCENDING);
+    }
+
+    @Override
+    public LocalDate[] dateSpan() {
+        // Two indexed single-document lookups per tier
+        LocalDate first = queries.oldestDate(HOT);
+        LocalDate last = queries.newestDate(HOT);
+        LocalDate archivedFirst = archive.minDate();
+        if (archivedFirst != null) {
+            first = first == null || archivedFirst.isBefore(first) ? archivedFirst : first;
+            LocalDate archivedLast = archive.maxDate();
+            last = last == null || archivedLast.isAfter(last) ? archivedLast : last;
+        }
+        return first == null ? null : new LocalDate[] { first, last };
+    }
+
+    @Override
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        List<Appointment> hot = queries.byDate(HOT, start.plusDays(1), end, false);
+        // Exclusive range: the archive matters only if it holds a date after start
+        return archive.holdsOnOrAfter(start.plusDays(1))
+                ? TierMerge.merge(hot, archive.findBetween(start, end), TierMerge.ASCENDING)
+                : hot;
+    }
+
+    @Override
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        // Archived appointments keep their sequence numbers and still count
+        return TierMerge.merge(
+                queries.bySeq(HOT, since, upTo, limit),
+                archive.findChanged(since, upTo, limit),
+                Comparator.comparingLong(Appointment::getChangeSeq));
+    }
+
+    /** Load every existing ID into the filter; until this finishes, existsById always queries. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIdFilter() {
+        try {
+            queries.forEachId(HOT, ids::add);
+            queries.forEachId(AppointmentArchive.COLLECTION, ids::add);
+            ids.markLoaded();
+        } catch (DataAccessException ex) {
+            log.warn("Appointment ID filter load skipped: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "appointmentIdFilter";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        return ids.metrics();
+    }
+}
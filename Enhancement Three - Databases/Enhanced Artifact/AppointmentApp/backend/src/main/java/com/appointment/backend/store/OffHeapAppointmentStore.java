@@ -0,0 +1,256 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.store.offheap.IdIndex;
+import com.appointment.backend.store.offheap.RecordSlab;
+import com.appointment.backend.store.offheap.SeqIndex;
+import com.appointment.backend.util.DateCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory store for very large data sets that keeps almost nothing on the
+ * Java heap, so GC cost stays flat as the data grows:
+ * - records: fixed-layout slots in direct-memory slabs ({@link RecordSlab})
+ * - by id: off-heap open-addressing table ({@link IdIndex})
+ * - by date: a dense day table (one head/tail ref per day) whose records are
+ *   chained through prev/next fields inside the slots, in insertion order
+ * - by sequence: off-heap sorted pairs for the change feed ({@link SeqIndex})
+ * Appointment objects are only created for results being returned.
+ *
+ * Data is lost on restart. Direct memory is capped by -XX:MaxDirectMemorySize
+ * (defaults to the max heap size); about 100 bytes per appointment.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "offheap")
+public class OffHeapAppointmentStore implements AppointmentStore {
+
+    private final RecordSlab slab = new RecordSlab();
+    private final IdIndex ids = new IdIndex();
+    private final SeqIndex seqs = new SeqIndex();
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    // Day table: index = epochDay - firstDay
+    private int firstDay;
+    private int[] heads = new int[0];
+    private int[] tails = new int[0];
+
+    public OffHeapAppointmentStore() {
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public boolean existsById(String appointmentId) {
+        readLock.lock();
+        try {
+            return ids.get(appointmentId, slab) != RecordSlab.NONE;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Appointment> findById(String appointmentId) {
+        readLock.lock();
+        try {
+            int ref = ids.get(appointmentId, slab);
+            return ref == RecordSlab.NONE ? Optional.empty() : Optional.of(materialize(ref));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void insert(Appointment a) {
+        writeLock.lock();
+        try {
+            if (ids.get(a.getAppointmentId(), slab) != RecordSlab.NONE) {
+                throw new DuplicateKeyException("Appointment ID already exists");
+            }
+            int day = (int) a.getAppointmentDate().toEpochDay();
+            int ref = slab.allocate(a.getAppointmentId(), day, a.getDescription(), a.getChangeSeq());
+            ids.put(a.getAppointmentId(), ref);
+            if (a.getChangeSeq() > 0) {
+                seqs.add(a.getChangeSeq(), ref);
+            }
+
+            // Append to the day's chain
+            int d = dayIndex(day);
+            if (tails[d] == RecordSlab.NONE) {
+                heads[d] = ref;
+            } else {
+                slab.setNext(tails[d], ref);
+                slab.setPrev(ref, tails[d]);
+            }
+            tails[d] = ref;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(String appointmentId) {
+        writeLock.lock();
+        try {
+            int ref = ids.remove(appointmentId, slab);
+            if (ref == RecordSlab.NONE) {
+                return;
+            }
+            long seq = slab.changeSeq(ref);
+            if (seq > 0) {
+                seqs.remove(seq);
+            }
+
+            // Unlink from the day's chain
+            int d = slab.epochDay(ref) - firstDay;
+            int prev = slab.prev(ref);
+            int next = slab.next(ref);
+            if (prev == RecordSlab.NONE) {
+                heads[d] = next;
+            } else {
+                slab.setNext(prev, next);
+            }
+            if (next == RecordSlab.NONE) {
+                tails[d] = prev;
+            } else {
+                slab.setPrev(next, prev);
+            }
+            slab.free(ref);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findAll() {
+        return findAllSorted();
+    }
+
+    @Override
+    public List<Appointment> findAllSorted() {
+        readLock.lock();
+        try {
+            return collectDays(0, heads.length - 1);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findUpcoming(LocalDate today) {
+        readLock.lock();
+        try {
+            return collectDays((int) today.toEpochDay() - firstDay, heads.length - 1);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findPrevious(LocalDate today) {
+        readLock.lock();
+        try {
+            List<Appointment> out = new ArrayList<>();
+            for (int d = Math.min(heads.length, (int) today.toEpochDay() - firstDay) - 1; d >= 0; d--) {
+                collectDay(d, out);
+            }
+            return out;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        readLock.lock();
+        try {
+            return collectDays((int) start.toEpochDay() + 1 - firstDay, (int) end.toEpochDay() - 1 - firstDay);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        readLock.lock();
+        try {
+            List<Appointment> out = new ArrayList<>();
+            seqs.forRange(since, upTo, ref -> {
+                out.add(materialize(ref));
+                return out.size() < limit;
+            });
+            return out;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /** Off-heap bytes reserved by records and indexes. */
+    public long offHeapBytes() {
+        readLock.lock();
+        try {
+            return slab.offHeapBytes() + ids.offHeapBytes() + seqs.offHeapBytes();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private List<Appointment> collectDays(int from, int to) {
+        List<Appointment> out = new ArrayList<>();
+        for (int d = Math.max(0, from); d <= Math.min(to, heads.length - 1); d++) {
+            collectDay(d, out);
+        }
+        return out;
+    }
+
+    private void collectDay(int d, List<Appointment> out) {
+        for (int ref = heads[d]; ref != RecordSlab.NONE; ref = slab.next(ref)) {
+            out.add(materialize(ref));
+        }
+    }
+
+    private Appointment materialize(int ref) {
+        Appointment a = new Appointment(slab.id(ref), DateCache.ofEpochDay(slab.epochDay(ref)), slab.description(ref));
+        a.setChangeSeq(slab.changeSeq(ref));
+        return a;
+    }
+
+    /** Index of {@code day} in the day table, growing the table if needed. */
+    private int dayIndex(int day) {
+        if (heads.length == 0) {
+            firstDay = day;
+            heads = new int[64];
+            tails = new int[64];
+        }
+        if (day < firstDay) {
+            int grow = Math.max(firstDay - day, heads.length);
+            heads = shiftRight(heads, grow);
+            tails = shiftRight(tails, grow);
+            firstDay -= grow;
+        } else if (day - firstDay >= heads.length) {
+            int length = Math.max(day - firstDay + 1, heads.length * 2);
+            heads = Arrays.copyOf(heads, length);
+            tails = Arrays.copyOf(tails, length);
+        }
+        return day - firstDay;
+    }
+
+    private static int[] shiftRight(int[] table, int by) {
+        int[] out = new int[table.length + by];
+        System.arraycopy(table, 0, out, by, table.length);
+        return out;
+    }
+}
@@ -0,0 +1,88 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.ReadRoute;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Runs the list reads of a store under a {@link ReadRoute}, on whichever
+ * thread makes them. Writes and ID lookups pass through unchanged (primary).
+ * Engines other than MongoDB ignore the route.
+ *
+ * Made per request by AppointmentService, since the route depends on the
+ * caller.
+ */
+public final class RoutedAppointmentStore implements AppointmentStore {
+
+    private final AppointmentStore store;
+    private final ReadRoute route;
+
+    public RoutedAppointmentStore(AppointmentStore store, ReadRoute route) {
+        this.store = store;
+        this.route = route;
+    }
+
+    @Override
+    public boolean existsById(String appointmentId) {
+        return store.existsById(appointmentId);
+    }
+
+    @Override
+    public Optional<Appointment> findById(String appointmentId) {
+        return store.findById(appointmentId);
+    }
+
+    @Override
+    public void insert(Appointment appointment) {
+        store.insert(appointment);
+    }
+
+    @Override
+    public Set<String> insertAll(List<Appointment> batch) {
+        return store.insertAll(batch);
+    }
+
+    @Override
+    public void deleteById(String appointmentId) {
+        store.deleteById(appointmentId);
+    }
+
+    @Override
+    public List<Appointment> findAll() {
+        return route.with(store::findAll);
+    }
+
+    @Override
+    public List<Appointment> findAllSorted() {
+        return route.with(store::findAllSorted);
+    }
+
+    @Override
+    public List<Appointment> findUpcoming(LocalDate today) {
+        return route.with(() -> store.findUpcoming(today));
+    }
+
+    @Override
+    public List<Appointment> findPrevious(LocalDate today) {
+        return route.with(() -> store.findPrevious(today));
+    }
+
+    @Override
+    public List<Appointment> findBetween(LocalDate start, LocalDate end) {
+        return route.with(() -> store.findBetween(start, end));
+    }
+
+    @Override
+    public LocalDate[] dateSpan() {
+        return route.with(store::dateSpan);
+    }
+
+    @Override
+    public List<Appointment> findChanged(long since, long upTo, int limit) {
+        return store.findChanged(since, upTo, limit);
+    }
+}
@@ -0,0 +1,50 @@
+package com.appointment.backend.store.lsm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of decoded table blocks for point lookups.
+ * Raw pages are already cached by the OS through the file mappings; this
+ * saves re-parsing hot blocks. Scans bypass it so they don't evict hot data.
+ */
+final class BlockCache {
+
+    /** A data block split into parallel key/value arrays (sorted by key). */
+    static final class Block {
+        final byte[][] keys;
+        final byte[][] values;
+
+        Block(byte[][] keys, byte[][] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Block> blocks;
+
+    BlockCache(int capacity) {
+        this.capacity = capacity;
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Block> eldest) {
+                return size() > BlockCache.this.capacity;
+            }
+        };
+    }
+
+    static long key(int tableId, int block) {
+        return ((long) tableId << 32) | (block & 0xFFFFFFFFL);
+    }
+
+    synchronized Block get(long key) {
+        return blocks.get(key);
+    }
+
+    synchronized void put(long key, Block block) {
+        if (capacity > 0) {
+            blocks.put(key, block);
+        }
+    }
+}
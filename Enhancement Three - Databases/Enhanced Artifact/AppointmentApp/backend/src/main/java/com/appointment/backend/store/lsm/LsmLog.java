@@ -0,0 +1,110 @@
+package com.appointment.backend.store.lsm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log for the memtable.
+ * One frame per {@link WriteBatch}: [int length][payload][int crc32c], where
+ * the payload is [int count] then per entry [u16 keyLen][int valLen or -1][key][value].
+ * Every append is fsynced before it returns.
+ */
+final class LsmLog implements Closeable {
+
+    final Path path;
+    private final FileChannel channel;
+
+    private LsmLog(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    static LsmLog create(Path path) throws IOException {
+        return new LsmLog(path, FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    void append(WriteBatch batch) throws IOException {
+        int payload = 4;
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] v = batch.values.get(i);
+            payload += 2 + 4 + batch.keys.get(i).length + (v == LsmStore.TOMBSTONE ? 0 : v.length);
+        }
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload + 4);
+        frame.putInt(payload).putInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] k = batch.keys.get(i);
+            byte[] v = batch.values.get(i);
+            frame.putShort((short) k.length).putInt(v == LsmStore.TOMBSTONE ? -1 : v.length).put(k);
+            if (v != LsmStore.TOMBSTONE) {
+                frame.put(v);
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), 4, payload);
+        frame.putInt((int) crc.getValue()).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Feed every complete frame to {@code apply}. A torn or corrupt tail is
+     * cut off (it was never acknowledged); corruption anywhere else fails.
+     */
+    static void replay(Path path, boolean last, BiConsumer<byte[], byte[]> apply) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C crc = new CRC32C();
+            int validEnd = 0;
+            while (buf.remaining() >= 4) {
+                int len = buf.getInt(buf.position());
+                if (len < 4 || buf.remaining() < 4 + len + 4) {
+                    break;
+                }
+                ByteBuffer payload = buf.slice(buf.position() + 4, len);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if (crc.getValue() != (buf.getInt(buf.position() + 4 + len) & 0xFFFFFFFFL)) {
+                    break;
+                }
+                buf.position(buf.position() + 4 + len + 4);
+                validEnd = buf.position();
+
+                int count = payload.getInt();
+                for (int i = 0; i < count; i++) {
+                    byte[] key = new byte[payload.getShort() & 0xFFFF];
+                    int valLen = payload.getInt();
+                    payload.get(key);
+                    byte[] value = LsmStore.TOMBSTONE;
+                    if (valLen >= 0) {
+                        value = new byte[valLen];
+                        payload.get(value);
+                    }
+                    apply.accept(key, value);
+                }
+            }
+            if (validEnd < size) {
+                if (!last) {
+                    throw new IOException("Corrupt log before the tail: " + path);
+                }
+                ch.truncate(validEnd);
+                ch.force(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,612 @@
+package com.appointment.backend.store.lsm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small embedded LSM tree: byte[] keys and values, sorted by unsigned bytes.
+ *
+ * - Writes go to a fsynced log, then to an in-memory sorted memtable.
+ * - A full memtable is swapped for a fresh one under the write lock, then
+ *   written out as an immutable {@link SsTable} without it, so writers keep
+ *   going during a flush; its log is deleted once the table is in place.
+ *   Only one flush runs at a time: if the new memtable fills up twice over
+ *   before it finishes, writers wait for it.
+ * - Once enough tables pile up, a background compaction merges all of them
+ *   into one (newest value wins, deletes are dropped).
+ * - Reads never lock: they work on an immutable {@link Version} (memtable,
+ *   memtable being flushed, tables) published through a volatile field, and
+ *   hold a reference to its tables so compaction can unmap the ones it
+ *   replaced once the last reader is done.
+ *
+ * Crash safety: tables are written to a temp file, fsynced and renamed into
+ * place; a log is deleted only after its table is in place. A compacted table
+ * "sst-N-G" (G > 0) supersedes every table numbered below N, so leftovers from
+ * an interrupted compaction are recognised and removed on open.
+ */
+public class LsmStore implements Closeable {
+
+    /** Marks a deleted key in memtables, logs and tables. Compared by identity. */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    private static final Logger log = LoggerFactory.getLogger(LsmStore.class);
+    private static final Comparator<byte[]> ORDER = Arrays::compareUnsigned;
+    private static final Pattern TABLE_NAME = Pattern.compile("sst-(\\d{20})-(\\d{3})\\.sst");
+    private static final Pattern LOG_NAME = Pattern.compile("wal-(\\d{20})\\.log");
+    private static final int ENTRY_OVERHEAD = 64; // rough skip-list node cost
+
+    /** Cursor over sorted entries (tombstones included). */
+    interface Cursor {
+        boolean valid();
+
+        byte[] key();
+
+        byte[] value();
+
+        void next();
+    }
+
+    /** What a reader sees: newest data first in lookup order. */
+    private static final class Version {
+        final ConcurrentSkipListMap<byte[], byte[]> memtable;
+        final NavigableMap<byte[], byte[]> flushing; // null unless a flush is running
+        final List<SsTable> tables;                  // oldest first
+
+        Version(ConcurrentSkipListMap<byte[], byte[]> memtable, NavigableMap<byte[], byte[]> flushing,
+                List<SsTable> tables) {
+            this.memtable = memtable;
+            this.flushing = flushing;
+            this.tables = tables;
+        }
+    }
+
+    private final Path dir;
+    private final long memtableBytes;
+    private final int compactionTrigger;
+    private final BlockCache cache;
+    private final Object writeLock = new Object();
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /** A memtable taken out of service, waiting to be written as table {@code number}. */
+    private static final class Flush {
+        final NavigableMap<byte[], byte[]> memtable;
+        final long bytes;
+        final List<LsmLog> logs; // hold exactly this memtable's entries
+        final long number;
+        final boolean dropTombstones;
+
+        Flush(NavigableMap<byte[], byte[]> memtable, long bytes, List<LsmLog> logs, long number,
+                boolean dropTombstones) {
+            this.memtable = memtable;
+            this.bytes = bytes;
+            this.logs = logs;
+            this.number = number;
+            this.dropTombstones = dropTombstones;
+        }
+    }
+
+    private volatile Version current;
+    // Fields below are guarded by writeLock
+    private LsmLog wal;
+    private List<LsmLog> retiredLogs = new ArrayList<>(); // older logs of the memtable after a failed flush
+    private long memBytes;
+    private long nextNumber;
+    private boolean closed;
+
+    private LsmStore(Path dir, long memtableBytes, int compactionTrigger, int cacheBlocks) {
+        this.dir = dir;
+        this.memtableBytes = memtableBytes;
+        this.compactionTrigger = compactionTrigger;
+        this.cache = new BlockCache(cacheBlocks);
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "appointments-lsm-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Open (or create) a store directory, replaying any unflushed log.
+     *
+     * @param memtableBytes     flush the memtable to a table at about this size
+     * @param compactionTrigger merge all tables once this many exist
+     * @param cacheBlocks       decoded blocks kept for point lookups (0 = off)
+     */
+    public static LsmStore open(Path dir, long memtableBytes, int compactionTrigger, int cacheBlocks) {
+        LsmStore store = new LsmStore(dir, memtableBytes, compactionTrigger, cacheBlocks);
+        try {
+            store.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open storage directory " + dir, e);
+        }
+        return store;
+    }
+
+    // ----- reads -----
+
+    /** Current value for {@code key}, or null if absent. */
+    public byte[] get(byte[] key) {
+        Version v = acquire();
+        try {
+            byte[] value = v.memtable.get(key);
+            if (value == null && v.flushing != null) {
+                value = v.flushing.get(key);
+            }
+            for (int i = v.tables.size() - 1; value == null && i >= 0; i--) {
+                value = v.tables.get(i).get(key);
+            }
+            return value == TOMBSTONE ? null : value;
+        } finally {
+            release(v);
+        }
+    }
+
+    /** Values for keys in [from, to), in key order, at most {@code limit}. */
+    public List<byte[]> scan(byte[] from, byte[] to, int limit) {
+        List<byte[]> out = new ArrayList<>();
+        Version v = acquire();
+        try {
+            Iterator<Map.Entry<byte[], byte[]>> it = merged(v, from);
+            while (out.size() < limit && it.hasNext()) {
+                Map.Entry<byte[], byte[]> e = it.next();
+                if (ORDER.compare(e.getKey(), to) >= 0) {
+                    break;
+                }
+                if (e.getValue() != TOMBSTONE) {
+                    out.add(e.getValue());
+                }
+            }
+        } finally {
+            release(v);
+        }
+        return out;
+    }
+
+    /** Tables of the current version, oldest first. */
+    List<SsTable> tables() {
+        return current.tables;
+    }
+
+    /** The current version with a reference on each of its tables. */
+    private Version acquire() {
+        while (true) {
+            Version v = current;
+            int held = 0;
+            while (held < v.tables.size() && v.tables.get(held).retain()) {
+                held++;
+            }
+            if (held == v.tables.size()) {
+                return v;
+            }
+            // A compaction replaced v meanwhile; retry on the newer version
+            for (int i = 0; i < held; i++) {
+                v.tables.get(i).release();
+            }
+        }
+    }
+
+    private static void release(Version v) {
+        for (SsTable t : v.tables) {
+            t.release();
+        }
+    }
+
+    // ----- writes -----
+
+    /** Apply a batch durably (fsynced before returning). */
+    public void write(WriteBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Flush flush = null;
+        synchronized (writeLock) {
+            // Back-pressure: don't let memory grow without bound behind a slow flush
+            while (!closed && current.flushing != null && memBytes >= 2 * memtableBytes) {
+                awaitFlush();
+            }
+            if (closed) {
+                throw new IllegalStateException("Store is closed");
+            }
+            try {
+                wal.append(batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Write to the storage log failed", e);
+            }
+            ConcurrentSkipListMap<byte[], byte[]> mem = current.memtable;
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] k = batch.keys.get(i);
+                byte[] val = batch.values.get(i);
+                mem.put(k, val);
+                memBytes += k.length + val.length + ENTRY_OVERHEAD;
+            }
+            if (memBytes >= memtableBytes && current.flushing == null) {
+                flush = retire();
+            }
+        }
+        if (flush != null) {
+            writeOut(flush);
+        }
+    }
+
+    /** Flush what is in memory and release the log. */
+    @Override
+    public void close() {
+        Flush flush = null;
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            while (current.flushing != null) {
+                awaitFlush();
+            }
+            if (!current.memtable.isEmpty()) {
+                flush = retire();
+            }
+        }
+        try {
+            if (flush != null) {
+                writeOut(flush);
+            }
+        } finally {
+            synchronized (writeLock) {
+                try {
+                    wal.close();
+                } catch (IOException e) {
+                    log.warn("Closing storage log failed: {}", e.getMessage());
+                }
+            }
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ----- flush / compaction -----
+
+    /** Wait for the running flush to finish. Caller holds writeLock. */
+    private void awaitFlush() {
+        try {
+            writeLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a memtable flush", e);
+        }
+    }
+
+    /**
+     * Swap in a fresh memtable and log; the old memtable stays readable as
+     * {@code flushing} until {@link #writeOut} has written it.
+     * Caller holds writeLock and has checked that no flush is running.
+     */
+    private Flush retire() {
+        LsmLog fresh;
+        try {
+            fresh = LsmLog.create(logPath(nextNumber++));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Flushing the memtable failed", e);
+        }
+        Version v = current;
+        List<LsmLog> logs = new ArrayList<>(retiredLogs);
+        logs.add(wal);
+        retiredLogs = new ArrayList<>();
+        wal = fresh;
+        Flush flush = new Flush(v.memtable, memBytes, logs, nextNumber++, v.tables.isEmpty());
+        memBytes = 0;
+        current = new Version(new ConcurrentSkipListMap<>(ORDER), v.memtable, v.tables);
+        return flush;
+    }
+
+    /** Write a retired memtable out as a table, without holding writeLock. */
+    private void writeOut(Flush flush) {
+        SsTable table;
+        try {
+            table = install(flush.memtable.entrySet().iterator(), flush.dropTombstones, flush.number, 0);
+        } catch (IOException | RuntimeException e) {
+            synchronized (writeLock) {
+                // Data is still safe in the old logs (replayed on the next open); keep
+                // it in memory and let the next flush take it along
+                Version v = current;
+                current = new Version(merge(flush.memtable, v.memtable), null, v.tables);
+                memBytes += flush.bytes;
+                retiredLogs.addAll(0, flush.logs);
+                writeLock.notifyAll();
+            }
+            if (e instanceof IOException io) {
+                throw new UncheckedIOException("Flushing the memtable failed", io);
+            }
+            throw (RuntimeException) e;
+        }
+        synchronized (writeLock) {
+            Version v = current;
+            List<SsTable> tables = new ArrayList<>(v.tables);
+            tables.add(table);
+            current = new Version(v.memtable, null, List.copyOf(tables));
+            writeLock.notifyAll();
+            if (!closed && current.tables.size() >= compactionTrigger && compacting.compareAndSet(false, true)) {
+                compactor.execute(this::compact);
+            }
+        }
+        for (LsmLog l : flush.logs) {
+            try {
+                l.close();
+                Files.deleteIfExists(l.path);
+            } catch (IOException e) {
+                log.warn("Could not remove flushed storage log {}: {}", l.path, e.getMessage());
+            }
+        }
+    }
+
+    private static ConcurrentSkipListMap<byte[], byte[]> merge(NavigableMap<byte[], byte[]> older,
+            ConcurrentSkipListMap<byte[], byte[]> newer) {
+        ConcurrentSkipListMap<byte[], byte[]> out = new ConcurrentSkipListMap<>(ORDER);
+        out.putAll(older);
+        out.putAll(newer);
+        return out;
+    }
+
+    /** Merge every current table into one. Runs on the compaction thread. */
+    private void compact() {
+        try {
+            List<SsTable> inputs = current.tables;
+            SsTable last = inputs.get(inputs.size() - 1);
+            int generation = inputs.stream().mapToInt(t -> t.generation).max().orElse(0) + 1;
+            SsTable output = install(merged(inputs), true, last.number, generation);
+
+            synchronized (writeLock) {
+                List<SsTable> tables = new ArrayList<>();
+                tables.add(output);
+                for (SsTable t : current.tables) {
+                    if (!inputs.contains(t)) {
+                        tables.add(t);
+                    }
+                }
+                current = new Version(current.memtable, current.flushing, List.copyOf(tables));
+            }
+            // The output supersedes the inputs even if some deletes fail (e.g. still mapped on Windows);
+            // each is unmapped once the last reader of an older version lets go
+            for (SsTable t : inputs) {
+                t.release();
+                deleteQuietly(t.path);
+            }
+            log.debug("Compacted {} tables into {} ({} entries)", inputs.size(), output.path, output.entries);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Compaction failed: {}", e.getMessage());
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /** Write entries to a temp file, then fsync, rename into place and open. */
+    private SsTable install(Iterator<Map.Entry<byte[], byte[]>> entries, boolean dropTombstones,
+            long number, int generation) throws IOException {
+        Path target = tablePath(number, generation);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        SsTable.write(tmp, entries, dropTombstones);
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        return SsTable.open(target, number, generation, cache);
+    }
+
+    // ----- recovery -----
+
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        List<SsTable> tables = new ArrayList<>();
+        List<Path> logs = new ArrayList<>();
+        long maxNumber = 0;
+
+        List<long[]> found = new ArrayList<>(); // {number, generation}
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                Matcher t = TABLE_NAME.matcher(name);
+                Matcher l = LOG_NAME.matcher(name);
+                if (name.endsWith(".tmp")) {
+                    Files.delete(p); // never made it into place
+                } else if (t.matches()) {
+                    found.add(new long[] { Long.parseLong(t.group(1)), Integer.parseInt(t.group(2)) });
+                } else if (l.matches()) {
+                    logs.add(p);
+                    maxNumber = Math.max(maxNumber, Long.parseLong(l.group(1)));
+                }
+            }
+        }
+
+        // Oldest first; drop tables superseded by a compaction output
+        found.sort(Comparator.<long[]>comparingLong(f -> f[0]).thenComparingLong(f -> f[1]));
+        long[] newestCompaction = null;
+        for (long[] f : found) {
+            if (f[1] > 0) {
+                newestCompaction = f;
+            }
+        }
+        for (long[] f : found) {
+            Path p = tablePath(f[0], (int) f[1]);
+            maxNumber = Math.max(maxNumber, f[0]);
+            boolean superseded = newestCompaction != null && f != newestCompaction
+                    && (f[0] < newestCompaction[0] || (f[0] == newestCompaction[0] && f[1] < newestCompaction[1]));
+            if (superseded) {
+                deleteQuietly(p);
+            } else {
+                tables.add(SsTable.open(p, f[0], (int) f[1], cache));
+            }
+        }
+
+        // Replay logs that were never flushed
+        logs.sort(Comparator.naturalOrder());
+        ConcurrentSkipListMap<byte[], byte[]> mem = new ConcurrentSkipListMap<>(ORDER);
+        for (int i = 0; i < logs.size(); i++) {
+            LsmLog.replay(logs.get(i), i == logs.size() - 1, mem::put);
+        }
+
+        nextNumber = maxNumber + 1;
+        wal = LsmLog.create(logPath(nextNumber++));
+        current = new Version(mem, null, List.copyOf(tables));
+        if (!mem.isEmpty()) {
+            long number = nextNumber++;
+            tables.add(install(mem.entrySet().iterator(), tables.isEmpty(), number, 0));
+            current = new Version(new ConcurrentSkipListMap<>(ORDER), null, List.copyOf(tables));
+        }
+        for (Path p : logs) {
+            Files.delete(p);
+        }
+        log.info("Storage opened at {} ({} tables, {} logged entries replayed)", dir, tables.size(), mem.size());
+    }
+
+    // ----- helpers -----
+
+    private Path tablePath(long number, int generation) {
+        return dir.resolve(String.format("sst-%020d-%03d.sst", number, generation));
+    }
+
+    private Path logPath(long number) {
+        return dir.resolve(String.format("wal-%020d.log", number));
+    }
+
+    /** Make renames durable; not every platform can fsync a directory. */
+    private void syncDirectory() {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // e.g. Windows; the rename itself is still atomic
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            log.debug("Could not delete {} yet: {}", p, e.getMessage());
+        }
+    }
+
+    private static Iterator<Map.Entry<byte[], byte[]>> merged(Version v, byte[] from) {
+        List<Cursor> sources = new ArrayList<>(); // newest first
+        sources.add(mapCursor(v.memtable, from));
+        if (v.flushing != null) {
+            sources.add(mapCursor(v.flushing, from));
+        }
+        for (int i = v.tables.size() - 1; i >= 0; i--) {
+            sources.add(v.tables.get(i).cursor(from));
+        }
+        return new MergeIterator(sources);
+    }
+
+    private static Iterator<Map.Entry<byte[], byte[]>> merged(List<SsTable> tables) {
+        List<Cursor> sources = new ArrayList<>();
+        for (int i = tables.size() - 1; i >= 0; i--) {
+            sources.add(tables.get(i).cursor(new byte[0]));
+        }
+        return new MergeIterator(sources);
+    }
+
+    private static Cursor mapCursor(NavigableMap<byte[], byte[]> map, byte[] from) {
+        Iterator<Map.Entry<byte[], byte[]>> it = map.tailMap(from, true).entrySet().iterator();
+        return new Cursor() {
+            private Map.Entry<byte[], byte[]> entry = it.hasNext() ? it.next() : null;
+
+            @Override
+            public boolean valid() {
+                return entry != null;
+            }
+
+            @Override
+            public byte[] key() {
+                return entry.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return entry.getValue();
+            }
+
+            @Override
+            public void next() {
+                entry = it.hasNext() ? it.next() : null;
+            }
+        };
+    }
+
+    /**
+     * K-way merge of sorted cursors given newest first. For keys present in
+     * several sources, only the newest entry is returned.
+     */
+    private static final class MergeIterator implements Iterator<Map.Entry<byte[], byte[]>> {
+        private final List<Cursor> sources;
+        private final PriorityQueue<Integer> heap;
+
+        MergeIterator(List<Cursor> sources) {
+            this.sources = sources;
+            this.heap = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int c = ORDER.compare(sources.get(a).key(), sources.get(b).key());
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i).valid()) {
+                    heap.add(i);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            if (heap.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            int top = heap.poll();
+            Cursor c = sources.get(top);
+            Map.Entry<byte[], byte[]> out = new AbstractMap.SimpleImmutableEntry<>(c.key(), c.value());
+            advance(top);
+            // Skip older versions of the same key
+            while (!heap.isEmpty() && ORDER.compare(sources.get(heap.peek()).key(), out.getKey()) == 0) {
+                advance(heap.poll());
+            }
+            return out;
+        }
+
+        private void advance(int i) {
+            Cursor c = sources.get(i);
+            c.next();
+            if (c.valid()) {
+                heap.add(i);
+            }
+        }
+    }
+}
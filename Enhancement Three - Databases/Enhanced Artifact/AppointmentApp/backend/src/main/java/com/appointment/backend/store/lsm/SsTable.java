@@ -0,0 +1,384 @@
+package com.appointment.backend.store.lsm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable sorted table file, read through memory mappings.
+ *
+ * Layout: data blocks of ~4 KB ([u16 keyLen][int valLen or -1][key][value]...),
+ * then the block index ([u16 len][first key][long offset][int length] per
+ * block), then a footer [long indexOffset][int blocks][long entries][int magic].
+ * Blocks never straddle a 1 GB boundary, so the data section is mapped in
+ * 1 GB windows and files over 2 GB still work. The block index stays on heap.
+ *
+ * Readers {@link #retain()} a table for the duration of a lookup or scan; the
+ * store holds one more reference while the table is live. When the last one
+ * is released (after a compaction replaced the table) the mappings are
+ * unmapped right away instead of whenever the GC gets to them.
+ */
+final class SsTable {
+
+    static final long WINDOW = 1L << 30;
+    static final int BLOCK_SIZE = 4096;
+    private static final int MAGIC = 0x4C534D31; // "LSM1"
+    private static final int FOOTER = 8 + 4 + 8 + 4;
+    private static final AtomicInteger IDS = new AtomicInteger();
+    // sun.misc.Unsafe#invokeCleaner, or null if this JVM does not offer it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method cleaner = null;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+            cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall back to the GC releasing the mappings
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = cleaner;
+    }
+
+    final Path path;
+    final long number;
+    final int generation;
+    final long entries;
+
+    private final int id = IDS.incrementAndGet(); // block cache namespace
+    private final BlockCache cache;
+    private final MappedByteBuffer[] windows;
+    private final byte[][] firstKeys;
+    private final long[] offsets;
+    private final int[] lengths;
+    // The store's reference plus one per reader; 0 = unmapped
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    private SsTable(Path path, long number, int generation, long entries, BlockCache cache,
+            MappedByteBuffer[] windows, byte[][] firstKeys, long[] offsets, int[] lengths) {
+        this.path = path;
+        this.number = number;
+        this.generation = generation;
+        this.entries = entries;
+        this.cache = cache;
+        this.windows = windows;
+        this.firstKeys = firstKeys;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    // ----- writing -----
+
+    /**
+     * Write sorted entries to {@code file} and fsync it.
+     * With {@code dropTombstones} (nothing older remains underneath), deletes are
+     * left out. Returns the number of entries written.
+     */
+    static long write(Path file, Iterator<Map.Entry<byte[], byte[]>> sorted, boolean dropTombstones)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+            DataOutputStream out = new DataOutputStream(block);
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+
+            long pos = 0;
+            long count = 0;
+            int blocks = 0;
+            byte[] firstKey = null;
+            while (sorted.hasNext()) {
+                Map.Entry<byte[], byte[]> e = sorted.next();
+                byte[] value = e.getValue();
+                boolean tombstone = value == LsmStore.TOMBSTONE;
+                if (tombstone && dropTombstones) {
+                    continue;
+                }
+                if (firstKey == null) {
+                    firstKey = e.getKey();
+                }
+                out.writeShort(e.getKey().length);
+                out.writeInt(tombstone ? -1 : value.length);
+                out.write(e.getKey());
+                if (!tombstone) {
+                    out.write(value);
+                }
+                count++;
+                if (block.size() >= BLOCK_SIZE) {
+                    pos = writeBlock(ch, pos, block, firstKey, index);
+                    blocks++;
+                    firstKey = null;
+                }
+            }
+            if (block.size() > 0) {
+                pos = writeBlock(ch, pos, block, firstKey, index);
+                blocks++;
+            }
+
+            ByteBuffer tail = ByteBuffer.allocate(indexBytes.size() + FOOTER);
+            tail.put(indexBytes.toByteArray())
+                    .putLong(pos).putInt(blocks).putLong(count).putInt(MAGIC)
+                    .flip();
+            writeFully(ch, tail, pos);
+            ch.force(true);
+            return count;
+        }
+    }
+
+    private static long writeBlock(FileChannel ch, long pos, ByteArrayOutputStream block, byte[] firstKey,
+            DataOutputStream index) throws IOException {
+        int len = block.size();
+        long used = pos % WINDOW;
+        if (used + len > WINDOW) {
+            // Pad to the next window so the block can be read from a single mapping
+            writeFully(ch, ByteBuffer.allocate((int) (WINDOW - used)), pos);
+            pos += WINDOW - used;
+        }
+        writeFully(ch, ByteBuffer.wrap(block.toByteArray()), pos);
+        index.writeShort(firstKey.length);
+        index.write(firstKey);
+        index.writeLong(pos);
+        index.writeInt(len);
+        block.reset();
+        return pos + len;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += ch.write(buf, pos);
+        }
+    }
+
+    // ----- reading -----
+
+    static SsTable open(Path file, long number, int generation, BlockCache cache) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < FOOTER) {
+                throw new IOException("Truncated table: " + file);
+            }
+            ByteBuffer footer = readFully(ch, size - FOOTER, FOOTER);
+            long indexOffset = footer.getLong();
+            int blocks = footer.getInt();
+            long entries = footer.getLong();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Not a table file: " + file);
+            }
+
+            ByteBuffer index = readFully(ch, indexOffset, (int) (size - FOOTER - indexOffset));
+            byte[][] firstKeys = new byte[blocks][];
+            long[] offsets = new long[blocks];
+            int[] lengths = new int[blocks];
+            for (int b = 0; b < blocks; b++) {
+                firstKeys[b] = new byte[index.getShort() & 0xFFFF];
+                index.get(firstKeys[b]);
+                offsets[b] = index.getLong();
+                lengths[b] = index.getInt();
+            }
+
+            // Mappings stay valid after the channel is closed
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((indexOffset + WINDOW - 1) / WINDOW)];
+            for (int w = 0; w < windows.length; w++) {
+                long start = w * WINDOW;
+                windows[w] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, indexOffset - start));
+            }
+            return new SsTable(file, number, generation, entries, cache, windows, firstKeys, offsets, lengths);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, pos + buf.position()) < 0) {
+                throw new IOException("Unexpected end of table file");
+            }
+        }
+        return buf.flip();
+    }
+
+    // ----- lifetime -----
+
+    /** Take a reference for a read; false if the table was already released for good. */
+    boolean retain() {
+        while (true) {
+            int n = refs.get();
+            if (n == 0) {
+                return false;
+            }
+            if (refs.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Drop a reference; the last one unmaps the file. */
+    void release() {
+        if (refs.decrementAndGet() == 0) {
+            for (int w = 0; w < windows.length; w++) {
+                unmap(windows[w]);
+                windows[w] = null;
+            }
+        }
+    }
+
+    /** True until the last reference is released. */
+    boolean isOpen() {
+        return refs.get() > 0;
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || buffer == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // Left to the GC
+        }
+    }
+
+    /** Value for {@code key}, {@link LsmStore#TOMBSTONE} if deleted here, or null if not in this table. */
+    byte[] get(byte[] key) {
+        int b = blockFor(key);
+        if (b < 0) {
+            return null;
+        }
+        long cacheKey = BlockCache.key(id, b);
+        BlockCache.Block block = cache.get(cacheKey);
+        if (block == null) {
+            block = decode(b);
+            cache.put(cacheKey, block);
+        }
+        int lo = 0, hi = block.keys.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Arrays.compareUnsigned(block.keys[mid], key);
+            if (c == 0) {
+                return block.values[mid];
+            }
+            if (c < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    /** Cursor positioned at the first key >= {@code from}. */
+    LsmStore.Cursor cursor(byte[] from) {
+        return new TableCursor(from);
+    }
+
+    /** Last block whose first key is <= key, or -1 if key sorts before the table. */
+    private int blockFor(byte[] key) {
+        int lo = 0, hi = firstKeys.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Arrays.compareUnsigned(firstKeys[mid], key) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private ByteBuffer block(int b) {
+        return windows[(int) (offsets[b] / WINDOW)].slice((int) (offsets[b] % WINDOW), lengths[b]);
+    }
+
+    private BlockCache.Block decode(int b) {
+        ByteBuffer buf = block(b);
+        int n = 0;
+        byte[][] keys = new byte[64][];
+        byte[][] values = new byte[64][];
+        while (buf.hasRemaining()) {
+            if (n == keys.length) {
+                keys = Arrays.copyOf(keys, n * 2);
+                values = Arrays.copyOf(values, n * 2);
+            }
+            keys[n] = new byte[buf.getShort() & 0xFFFF];
+            int valLen = buf.getInt();
+            buf.get(keys[n]);
+            values[n] = readValue(buf, valLen);
+            n++;
+        }
+        return new BlockCache.Block(Arrays.copyOf(keys, n), Arrays.copyOf(values, n));
+    }
+
+    private static byte[] readValue(ByteBuffer buf, int valLen) {
+        if (valLen < 0) {
+            return LsmStore.TOMBSTONE;
+        }
+        byte[] value = new byte[valLen];
+        buf.get(value);
+        return value;
+    }
+
+    /** Streams entries block by block straight from the mapping. */
+    private final class TableCursor implements LsmStore.Cursor {
+        private int block;
+        private ByteBuffer buf;
+        private byte[] key;
+        private byte[] value;
+
+        TableCursor(byte[] from) {
+            block = Math.max(0, blockFor(from));
+            buf = block < offsets.length ? block(block) : null;
+            next();
+            while (key != null && Arrays.compareUnsigned(key, from) < 0) {
+                next();
+            }
+        }
+
+        @Override
+        public boolean valid() {
+            return key != null;
+        }
+
+        @Override
+        public byte[] key() {
+            return key;
+        }
+
+        @Override
+        public byte[] value() {
+            return value;
+        }
+
+        @Override
+        public void next() {
+            while (buf != null && !buf.hasRemaining()) {
+                block++;
+                buf = block < offsets.length ? block(block) : null;
+            }
+            if (buf == null) {
+                key = null;
+                value = null;
+                return;
+            }
+            key = new byte[buf.getShort() & 0xFFFF];
+            int valLen = buf.getInt();
+            buf.get(key);
+            value = readValue(buf, valLen);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.appointment.backend.store.lsm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of puts/deletes applied atomically: they share one log frame, so
+ * after a crash either all of them are replayed or none.
+ */
+public final class WriteBatch {
+
+    final List<byte[]> keys = new ArrayList<>();
+    final List<byte[]> values = new ArrayList<>(); // LsmStore.TOMBSTONE marks a delete
+
+    public WriteBatch put(byte[] key, byte[] value) {
+        keys.add(key);
+        values.add(value);
+        return this;
+    }
+
+    public WriteBatch delete(byte[] key) {
+        keys.add(key);
+        values.add(LsmStore.TOMBSTONE);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    int size() {
+        return keys.size();
+    }
+}
@@ -0,0 +1,122 @@
+package com.appointment.backend.store.offheap;
+
+/**
+ * Open-addressing hash index from appointment id to record ref, off-heap.
+ * Each slot is one long: [32-bit hash][32-bit ref], 0 = empty. Linear
+ * probing with backward-shift deletion, so there are no tombstones. The
+ * stored hash lets resizes and most mismatches skip reading the record.
+ * Not thread-safe.
+ */
+public final class IdIndex {
+
+    private static final double MAX_LOAD = 0.7;
+
+    private LongArray table;
+    private long mask;
+    private long size;
+
+    public IdIndex() {
+        allocate(1 << 16);
+    }
+
+    /** Ref for {@code id}, or {@link RecordSlab#NONE}. */
+    public int get(String id, RecordSlab slab) {
+        int h = hash(id);
+        for (long i = h & 0xFFFFFFFFL & mask; ; i = (i + 1) & mask) {
+            long e = table.get(i);
+            if (e == 0) {
+                return RecordSlab.NONE;
+            }
+            int ref = (int) e;
+            if ((int) (e >>> 32) == h && slab.idEquals(ref, id)) {
+                return ref;
+            }
+        }
+    }
+
+    /** Add a mapping; the id must not be present. */
+    public void put(String id, int ref) {
+        if (size + 1 > (mask + 1) * MAX_LOAD) {
+            resize();
+        }
+        insert(((long) hash(id) << 32) | (ref & 0xFFFFFFFFL));
+        size++;
+    }
+
+    /** Remove the mapping for {@code id}; returns its ref or NONE. */
+    public int remove(String id, RecordSlab slab) {
+        int h = hash(id);
+        long i = h & 0xFFFFFFFFL & mask;
+        while (true) {
+            long e = table.get(i);
+            if (e == 0) {
+                return RecordSlab.NONE;
+            }
+            if ((int) (e >>> 32) == h && slab.idEquals((int) e, id)) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        int removed = (int) table.get(i);
+
+        // Shift later entries of the probe run back into the hole
+        long hole = i;
+        long j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long e = table.get(j);
+            if (e == 0) {
+                break;
+            }
+            long home = (e >>> 32) & mask;
+            boolean canMove = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+            if (canMove) {
+                table.set(hole, e);
+                hole = j;
+            }
+        }
+        table.set(hole, 0);
+        size--;
+        return removed;
+    }
+
+    public long offHeapBytes() {
+        return table.offHeapBytes();
+    }
+
+    private void insert(long entry) {
+        long i = (entry >>> 32) & mask;
+        while (table.get(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        table.set(i, entry);
+    }
+
+    private void resize() {
+        LongArray old = table;
+        long oldCapacity = mask + 1;
+        allocate(oldCapacity * 2);
+        for (long i = 0; i < oldCapacity; i++) {
+            long e = old.get(i);
+            if (e != 0) {
+                insert(e);
+            }
+        }
+    }
+
+    private void allocate(long capacity) {
+        table = new LongArray(capacity);
+        mask = capacity - 1;
+    }
+
+    /** String hash with a final avalanche (murmur3 fmix32) so low bits spread well. */
+    private static int hash(String id) {
+        int h = id.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,47 @@
+package com.appointment.backend.store.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable array of longs in direct (off-heap) memory, allocated in 8 MB
+ * chunks so it can exceed the 2 GB limit of a single buffer. New slots read
+ * as 0. Not thread-safe.
+ */
+final class LongArray {
+
+    private static final int CHUNK_SHIFT = 20; // 1M longs per chunk
+    private static final int CHUNK_LEN = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_LEN - 1;
+
+    private final List<LongBuffer> chunks = new ArrayList<>();
+
+    LongArray(long length) {
+        ensureCapacity(length);
+    }
+
+    long capacity() {
+        return (long) chunks.size() << CHUNK_SHIFT;
+    }
+
+    void ensureCapacity(long length) {
+        while (capacity() < length) {
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_LEN * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer());
+        }
+    }
+
+    long get(long i) {
+        return chunks.get((int) (i >>> CHUNK_SHIFT)).get((int) (i & CHUNK_MASK));
+    }
+
+    void set(long i, long value) {
+        chunks.get((int) (i >>> CHUNK_SHIFT)).put((int) (i & CHUNK_MASK), value);
+    }
+
+    long offHeapBytes() {
+        return capacity() * Long.BYTES;
+    }
+}
@@ -0,0 +1,190 @@
+package com.appointment.backend.store.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-layout appointment records in direct-memory slabs.
+ *
+ * A record is addressed by an int ref (0 = none). There are two slot classes:
+ * - LATIN1 (88 bytes): every char of id and description fits in one byte
+ * - UTF16 (144 bytes): anything else, two bytes per char
+ * The model caps the id at 10 chars and the description at 50, so both
+ * always fit. Slot layout:
+ *   0 int epochDay | 4 long changeSeq | 12 int prev | 16 int next
+ *   20 byte idLen | 21 byte descLen | 22 id | 22+ID_CAP desc
+ * prev/next chain records of the same day (see {@link OffHeapAppointmentStore});
+ * freed slots are chained through next and reused first. Not thread-safe.
+ */
+public final class RecordSlab {
+
+    public static final int NONE = 0;
+
+    static final int MAX_ID = 10;
+    static final int MAX_DESC = 50;
+
+    private static final int SLOTS_SHIFT = 16; // 64K slots per chunk
+    private static final int SLOTS_MASK = (1 << SLOTS_SHIFT) - 1;
+    private static final int LATIN1 = 0;
+    private static final int UTF16 = 1;
+    private static final int[] SLOT_SIZE = { 88, 144 };
+    private static final int[] CHAR_BYTES = { 1, 2 };
+
+    private static final int DAY = 0;
+    private static final int SEQ = 4;
+    private static final int PREV = 12;
+    private static final int NEXT = 16;
+    private static final int ID_LEN = 20;
+    private static final int DESC_LEN = 21;
+    private static final int ID = 22;
+
+    // Indexed by size class (LATIN1, UTF16)
+    private final List<List<ByteBuffer>> chunks = List.of(new ArrayList<>(), new ArrayList<>());
+    private final int[] used = new int[2];
+    private final int[] freeHead = new int[2];
+    private long live;
+
+    /** Store a record; returns its ref. prev/next start out empty. */
+    public int allocate(String id, int epochDay, String description, long changeSeq) {
+        if (id.length() > MAX_ID || description.length() > MAX_DESC) {
+            throw new IllegalArgumentException("Record exceeds the fixed layout");
+        }
+        int cls = isLatin1(id) && isLatin1(description) ? LATIN1 : UTF16;
+        int ref;
+        if (freeHead[cls] != NONE) {
+            ref = freeHead[cls];
+            freeHead[cls] = next(ref);
+        } else {
+            int index = used[cls]++;
+            if ((index >>> SLOTS_SHIFT) == chunks.get(cls).size()) {
+                chunks.get(cls).add(ByteBuffer.allocateDirect(SLOT_SIZE[cls] << SLOTS_SHIFT).order(ByteOrder.nativeOrder()));
+            }
+            ref = (index << 1 | cls) + 1;
+        }
+        ByteBuffer b = chunk(ref);
+        int base = base(ref);
+        b.putInt(base + DAY, epochDay);
+        b.putLong(base + SEQ, changeSeq);
+        b.putInt(base + PREV, NONE);
+        b.putInt(base + NEXT, NONE);
+        b.put(base + ID_LEN, (byte) id.length());
+        b.put(base + DESC_LEN, (byte) description.length());
+        putChars(b, base + ID, id, cls);
+        putChars(b, base + ID + MAX_ID * CHAR_BYTES[cls], description, cls);
+        live++;
+        return ref;
+    }
+
+    /** Return a slot to its class's free list. */
+    public void free(int ref) {
+        int cls = cls(ref);
+        setNext(ref, freeHead[cls]);
+        freeHead[cls] = ref;
+        live--;
+    }
+
+    public int epochDay(int ref) {
+        return chunk(ref).getInt(base(ref) + DAY);
+    }
+
+    public long changeSeq(int ref) {
+        return chunk(ref).getLong(base(ref) + SEQ);
+    }
+
+    public int prev(int ref) {
+        return chunk(ref).getInt(base(ref) + PREV);
+    }
+
+    public int next(int ref) {
+        return chunk(ref).getInt(base(ref) + NEXT);
+    }
+
+    public void setPrev(int ref, int prev) {
+        chunk(ref).putInt(base(ref) + PREV, prev);
+    }
+
+    public void setNext(int ref, int next) {
+        chunk(ref).putInt(base(ref) + NEXT, next);
+    }
+
+    public String id(int ref) {
+        ByteBuffer b = chunk(ref);
+        int base = base(ref);
+        return getChars(b, base + ID, b.get(base + ID_LEN), cls(ref));
+    }
+
+    public String description(int ref) {
+        ByteBuffer b = chunk(ref);
+        int base = base(ref);
+        int cls = cls(ref);
+        return getChars(b, base + ID + MAX_ID * CHAR_BYTES[cls], b.get(base + DESC_LEN), cls);
+    }
+
+    /** Compare the stored id with {@code id} without building a String. */
+    public boolean idEquals(int ref, String id) {
+        ByteBuffer b = chunk(ref);
+        int base = base(ref);
+        int len = b.get(base + ID_LEN);
+        if (len != id.length()) {
+            return false;
+        }
+        int cls = cls(ref);
+        for (int i = 0; i < len; i++) {
+            char c = cls == LATIN1 ? (char) (b.get(base + ID + i) & 0xFF) : b.getChar(base + ID + 2 * i);
+            if (c != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long live() {
+        return live;
+    }
+
+    public long offHeapBytes() {
+        return ((long) chunks.get(LATIN1).size() * SLOT_SIZE[LATIN1] + (long) chunks.get(UTF16).size() * SLOT_SIZE[UTF16])
+                << SLOTS_SHIFT;
+    }
+
+    private static int cls(int ref) {
+        return (ref - 1) & 1;
+    }
+
+    private ByteBuffer chunk(int ref) {
+        return chunks.get(cls(ref)).get((ref - 1) >>> 1 >>> SLOTS_SHIFT);
+    }
+
+    private static int base(int ref) {
+        return (((ref - 1) >>> 1) & SLOTS_MASK) * SLOT_SIZE[cls(ref)];
+    }
+
+    private static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putChars(ByteBuffer b, int at, String s, int cls) {
+        for (int i = 0; i < s.length(); i++) {
+            if (cls == LATIN1) {
+                b.put(at + i, (byte) s.charAt(i));
+            } else {
+                b.putChar(at + 2 * i, s.charAt(i));
+            }
+        }
+    }
+
+    private static String getChars(ByteBuffer b, int at, int len, int cls) {
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = cls == LATIN1 ? (char) (b.get(at + i) & 0xFF) : b.getChar(at + 2 * i);
+        }
+        return new String(chars);
+    }
+}
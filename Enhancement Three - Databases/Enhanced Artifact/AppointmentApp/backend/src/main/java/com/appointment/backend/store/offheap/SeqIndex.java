@@ -0,0 +1,86 @@
+package com.appointment.backend.store.offheap;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Change-feed index: (changeSeq, ref) pairs kept sorted by sequence, off-heap.
+ * Sequences arrive almost in order, so an insert only shifts a few entries
+ * at the tail. Deletes just clear the ref and are compacted away in bulk.
+ * Not thread-safe.
+ */
+public final class SeqIndex {
+
+    private final LongArray seqs = new LongArray(1);
+    private final LongArray refs = new LongArray(1);
+    private long size;
+    private long dead;
+
+    public void add(long seq, int ref) {
+        seqs.ensureCapacity(size + 1);
+        refs.ensureCapacity(size + 1);
+        long i = size++;
+        while (i > 0 && seqs.get(i - 1) > seq) {
+            seqs.set(i, seqs.get(i - 1));
+            refs.set(i, refs.get(i - 1));
+            i--;
+        }
+        seqs.set(i, seq);
+        refs.set(i, ref);
+    }
+
+    public void remove(long seq) {
+        long i = firstAbove(seq - 1);
+        if (i < size && seqs.get(i) == seq && refs.get(i) != 0) {
+            refs.set(i, 0);
+            dead++;
+            if (dead > 1024 && dead * 2 > size) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Visit refs with since < seq <= upTo in sequence order until the
+     * visitor returns false.
+     */
+    public void forRange(long since, long upTo, IntPredicate visitor) {
+        for (long i = firstAbove(since); i < size && seqs.get(i) <= upTo; i++) {
+            int ref = (int) refs.get(i);
+            if (ref != 0 && !visitor.test(ref)) {
+                return;
+            }
+        }
+    }
+
+    public long offHeapBytes() {
+        return seqs.offHeapBytes() + refs.offHeapBytes();
+    }
+
+    /** First index whose seq is > {@code seq}. */
+    private long firstAbove(long seq) {
+        long lo = 0, hi = size;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (seqs.get(mid) <= seq) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void compact() {
+        long w = 0;
+        for (long r = 0; r < size; r++) {
+            long ref = refs.get(r);
+            if (ref != 0) {
+                seqs.set(w, seqs.get(r));
+                refs.set(w, ref);
+                w++;
+            }
+        }
+        size = w;
+        dead = 0;
+    }
+}
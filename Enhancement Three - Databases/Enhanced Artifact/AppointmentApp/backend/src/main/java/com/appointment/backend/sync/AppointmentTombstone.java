@@ -0,0 +1,43 @@
+package com.appointment.backend.sync;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Marker left behind when an appointment is deleted, so incremental sync
+ * clients can learn about the deletion.
+ * Tombstones are kept for a retention window and then purged.
+ */
+@Document(collection = "appointment_tombstones")
+public class AppointmentTombstone {
+
+    @Id // one tombstone per ID; a later delete of a re-created ID replaces it
+    private String appointmentId;
+
+    private long changeSeq;
+
+    private Instant deletedAt;
+
+    public AppointmentTombstone() {
+    }
+
+    public AppointmentTombstone(String appointmentId, long changeSeq, Instant deletedAt) {
+        this.appointmentId = appointmentId;
+        this.changeSeq = changeSeq;
+        this.deletedAt = deletedAt;
+    }
+
+    public String getAppointmentId() {
+        return appointmentId;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -0,0 +1,23 @@
+package com.appointment.backend.sync;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data repository for deletion tombstones.
+ */
+public interface AppointmentTombstoneRepository extends MongoRepository<AppointmentTombstone, String> {
+
+    /** Tombstones with since < changeSeq <= upTo, oldest first. */
+    List<AppointmentTombstone> findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(
+            long since, long upTo, Limit limit);
+
+    /** Newest tombstone that has fallen out of the retention window. */
+    Optional<AppointmentTombstone> findTopByDeletedAtBeforeOrderByChangeSeqDesc(Instant cutoff);
+
+    long deleteByDeletedAtBefore(Instant cutoff);
+}
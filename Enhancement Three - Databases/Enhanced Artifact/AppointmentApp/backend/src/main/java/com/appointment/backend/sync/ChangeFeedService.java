@@ -0,0 +1,208 @@
+package com.appointment.backend.sync;
+
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.store.AppointmentStore;
+import com.appointment.backend.sync.dto.ChangeEntry;
+import com.appointment.backend.sync.dto.ChangeFeedResponse;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental sync support for offline-capable clients.
+ * - Every add/delete is stamped with a number from {@link ChangeSequence}.
+ * - Deletes leave a tombstone that is kept for a retention window.
+ * - Clients pull "everything since N" instead of the whole collection.
+ */
+@Service
+public class ChangeFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    static final int DEFAULT_LIMIT = 500;
+    static final int MAX_LIMIT = 5000;
+    private static final int BACKFILL_BATCH = 500;
+
+    private final AppointmentStore appointments;
+    private final AppointmentTombstoneRepository tombstones;
+    private final ChangeSequence sequence;
+    private final MongoTemplate mongo;
+    private final AppointmentSchema schema;
+    private final IndexManager indexes;
+    private final Duration retention;
+    private final boolean mongoEngine;
+
+    public ChangeFeedService(
+            AppointmentStore appointments,
+            AppointmentTombstoneRepository tombstones,
+            ChangeSequence sequence,
+            MongoTemplate mongo,
+            AppointmentSchema schema,
+            IndexManager indexes,
+            @Value("${app.sync.tombstone-retention-days:30}") long retentionDays,
+            @Value("${app.storage.engine:mongo}") String engine) {
+        this.appointments = appointments;
+        this.tombstones = tombstones;
+        this.sequence = sequence;
+        this.mongo = mongo;
+        this.schema = schema;
+        this.indexes = indexes;
+        this.retention = Duration.ofDays(retentionDays);
+        this.mongoEngine = "mongo".equals(engine);
+    }
+
+    /**
+     * Start a mutation: returns its sequence number.
+     * Always pair with {@link #end(long)} in a finally block.
+     */
+    public long begin() {
+        return sequence.next();
+    }
+
+    /** Finish a mutation started with {@link #begin()}. */
+    public void end(long seq) {
+        sequence.complete(seq);
+    }
+
+    /**
+     * Leave a tombstone for an appointment about to be deleted.
+     * Written before the delete, so a delete can never land without one.
+     */
+    public void recordDeletion(String appointmentId, long seq) {
+        tombstones.save(new AppointmentTombstone(appointmentId, seq, Instant.now()));
+    }
+
+    /**
+     * Take back the tombstone written by {@link #recordDeletion} when the
+     * delete itself failed and the appointment is still there. Only removes
+     * it if no later delete has replaced it.
+     */
+    public void discardDeletion(String appointmentId, long seq) {
+        mongo.remove(Query.query(Criteria.where("_id").is(appointmentId).and("changeSeq").is(seq)),
+                AppointmentTombstone.class);
+    }
+
+    /**
+     * Return up to {@code limit} changes with a sequence number above
+     * {@code since}, in sequence order.
+     * Throws {@link ResyncRequiredException} if tombstones the client has not
+     * seen yet were already purged.
+     */
+    public ChangeFeedResponse changesSince(long since, Integer limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since must be 0 or greater");
+        }
+        int size = limit == null ? DEFAULT_LIMIT : limit;
+        if (size < 1 || size > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        indexes.require(IndexManager.CHANGE_FEED);
+
+        // since == 0 is a full sync, so missing old tombstones does not matter
+        long purged = sequence.purgedThrough();
+        if (since > 0 && since < purged) {
+            throw new ResyncRequiredException(
+                    "Changes before sequence " + purged + " are no longer retained. Resync from since=0.");
+        }
+
+        // Never read past a write that is still in flight
+        long upTo = sequence.stableWatermark();
+        if (upTo <= since) {
+            return new ChangeFeedResponse(List.of(), since, false);
+        }
+
+        // Fetch one extra from each side to know whether another page exists
+        List<Appointment> ups = appointments.findChanged(since, upTo, size + 1);
+        List<AppointmentTombstone> dels = tombstones
+                .findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(since, upTo, Limit.of(size + 1));
+
+        // Merge the two seq-ordered lists
+        List<ChangeEntry> out = new ArrayList<>(Math.min(size, ups.size() + dels.size()));
+        int i = 0, j = 0;
+        while (out.size() < size && (i < ups.size() || j < dels.size())) {
+            boolean takeUpsert = j >= dels.size()
+                    || (i < ups.size() && ups.get(i).getChangeSeq() < dels.get(j).getChangeSeq());
+            if (takeUpsert) {
+                out.add(ChangeEntry.upsert(ups.get(i++)));
+            } else {
+                AppointmentTombstone t = dels.get(j++);
+                out.add(ChangeEntry.delete(t.getChangeSeq(), t.getAppointmentId()));
+            }
+        }
+        boolean hasMore = i < ups.size() || j < dels.size();
+        long nextSince = out.isEmpty() ? since : out.get(out.size() - 1).getSeq();
+        return new ChangeFeedResponse(out, nextSince, hasMore);
+    }
+
+    /**
+     * Drop tombstones older than the retention window.
+     * The purge horizon is recorded first, so a reader never gets a page that
+     * silently lacks a deletion.
+     */
+    @Scheduled(fixedDelayString = "${app.sync.tombstone-purge-interval-ms:3600000}")
+    public void purgeExpiredTombstones() {
+        if (!indexes.allows(IndexManager.TOMBSTONE_PURGE)) {
+            return; // next run; a late purge only keeps tombstones a little longer
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        tombstones.findTopByDeletedAtBeforeOrderByChangeSeqDesc(cutoff)
+                .ifPresent(t -> sequence.advancePurgedThrough(t.getChangeSeq()));
+        tombstones.deleteByDeletedAtBefore(cutoff);
+    }
+
+    /**
+     * Stamp appointments written before the change feed existed, so every
+     * document can be paged by sequence number.
+     * Only the Mongo collection can hold such legacy documents.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLegacyAppointments() {
+        if (!mongoEngine) {
+            return;
+        }
+        Criteria noSeq = new Criteria().andOperator(
+                Criteria.where(AppointmentSchema.SEQ).exists(false),
+                Criteria.where(AppointmentSchema.COMPACT_SEQ).exists(false));
+        Query missing = Query.query(noSeq).limit(BACKFILL_BATCH);
+        missing.fields().include("_id");
+        String seqField = AppointmentSchema.seqField(schema.compact());
+
+        try {
+            List<Document> batch;
+            do {
+                batch = mongo.find(missing, Document.class, "appointments");
+                for (Document d : batch) {
+                    long seq = begin();
+                    try {
+                        mongo.updateFirst(
+                                Query.query(Criteria.where("_id").is(d.get("_id")).andOperator(noSeq)),
+                                new Update().set(seqField, seq), "appointments");
+                    } finally {
+                        end(seq);
+                    }
+                }
+            } while (batch.size() == BACKFILL_BATCH);
+        } catch (DataAccessException ex) {
+            // Don't block startup; the backfill runs again on the next boot
+            log.warn("Change-feed backfill skipped: {}", ex.getMessage());
+        }
+    }
+}
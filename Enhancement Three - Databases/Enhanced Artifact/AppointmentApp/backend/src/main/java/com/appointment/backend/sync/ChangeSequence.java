@@ -0,0 +1,157 @@
+package com.appointment.backend.sync;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.TreeMap;
+
+/**
+ * Monotonically increasing sequence for appointment mutations.
+ * - Numbers are allocated atomically from a counter document ($inc).
+ * - Allocated-but-unfinished numbers are tracked so readers never skip past
+ *   a write that has not landed yet (see {@link #stableWatermark()}).
+ *
+ * The counter round trip runs outside the lock: before it starts, the
+ * allocation holds a placeholder at the lowest number it can get (one above
+ * the highest counter value seen), which the real number then replaces.
+ * Only the bookkeeping of the held set is serialized.
+ *
+ * The in-flight tracking is per process, which matches the single backend
+ * instance this app is deployed as.
+ */
+@Component
+public class ChangeSequence {
+
+    static final String COUNTERS = "counters";
+    static final String KEY = "appointments";
+
+    /** The counter document; a seam so tests can run without MongoDB. */
+    interface Counter {
+        long increment();
+
+        long current();
+    }
+
+    private final Counter counter;
+    private final MongoTemplate mongo;
+
+    // Numbers (or placeholders) not finished yet, with multiplicity; guarded by itself
+    private final TreeMap<Long, Integer> held = new TreeMap<>();
+    private long highestSeen; // guarded by held
+
+    @Autowired
+    public ChangeSequence(MongoTemplate mongo) {
+        this.mongo = mongo;
+        this.counter = new Counter() {
+            @Override
+            public long increment() {
+                Document doc = mongo.findAndModify(
+                        Query.query(Criteria.where("_id").is(KEY)),
+                        new Update().inc("seq", 1L),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, COUNTERS);
+                return ((Number) doc.get("seq")).longValue();
+            }
+
+            @Override
+            public long current() {
+                Document doc = counterDocument();
+                return doc == null ? 0 : ((Number) doc.getOrDefault("seq", 0L)).longValue();
+            }
+        };
+    }
+
+    ChangeSequence(Counter counter) {
+        this.mongo = null;
+        this.counter = counter;
+    }
+
+    /**
+     * Allocate the next sequence number.
+     * Callers must pass it to {@link #complete(long)} once the write is done
+     * (or has failed).
+     */
+    public long next() {
+        long placeholder;
+        synchronized (held) {
+            // The counter only grows, so the number allocated below is at least this
+            placeholder = highestSeen + 1;
+            hold(placeholder);
+        }
+        long seq;
+        try {
+            seq = counter.increment();
+        } catch (RuntimeException | Error ex) {
+            synchronized (held) {
+                release(placeholder);
+            }
+            throw ex;
+        }
+        synchronized (held) {
+            release(placeholder);
+            hold(seq);
+            highestSeen = Math.max(highestSeen, seq);
+        }
+        return seq;
+    }
+
+    /** Mark a previously allocated number as finished. */
+    public void complete(long seq) {
+        synchronized (held) {
+            release(seq);
+        }
+    }
+
+    /**
+     * Highest sequence number below which every write has finished.
+     * Change-feed reads are capped here so a slower concurrent writer can't be
+     * skipped by a client that already advanced its cursor.
+     */
+    public long stableWatermark() {
+        // Read the counter first: any number at or below it was allocated
+        // before this point, so it is held below unless already finished
+        long current = current();
+        synchronized (held) {
+            return held.isEmpty() ? current : Math.min(current, held.firstKey() - 1);
+        }
+    }
+
+    /** Sequence number of the last allocated mutation (0 if none yet). */
+    public long current() {
+        long current = counter.current();
+        synchronized (held) {
+            highestSeen = Math.max(highestSeen, current);
+        }
+        return current;
+    }
+
+    /** Highest sequence number whose tombstone may have been purged. */
+    public long purgedThrough() {
+        Document doc = counterDocument();
+        return doc == null ? 0 : ((Number) doc.getOrDefault("purgedThrough", 0L)).longValue();
+    }
+
+    /** Record that tombstones up to {@code seq} are gone (never moves backwards). */
+    public void advancePurgedThrough(long seq) {
+        mongo.upsert(Query.query(Criteria.where("_id").is(KEY)),
+                new Update().max("purgedThrough", seq), COUNTERS);
+    }
+
+    private void hold(long seq) {
+        held.merge(seq, 1, Integer::sum);
+    }
+
+    private void release(long seq) {
+        held.computeIfPresent(seq, (k, n) -> n == 1 ? null : n - 1);
+    }
+
+    private Document counterDocument() {
+        return mongo.findById(KEY, Document.class, COUNTERS);
+    }
+}
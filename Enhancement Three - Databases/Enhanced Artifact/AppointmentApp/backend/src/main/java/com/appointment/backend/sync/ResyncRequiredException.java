@@ -0,0 +1,11 @@
+package com.appointment.backend.sync;
+
+/**
+ * Thrown when a sync cursor is older than the tombstone retention window,
+ * so deletions may have been missed and the client must pull everything again.
+ */
+public class ResyncRequiredException extends RuntimeException {
+    public ResyncRequiredException(String message) {
+        super(message);
+    }
+}
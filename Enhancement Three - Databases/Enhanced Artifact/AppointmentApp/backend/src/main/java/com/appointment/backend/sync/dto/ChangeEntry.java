@@ -0,0 +1,52 @@
+package com.appointment.backend.sync.dto;
+
+import com.appointment.backend.model.Appointment;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One entry of the change feed.
+ * - type "upsert": the appointment as it currently exists.
+ * - type "delete": only the ID; the appointment is omitted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEntry {
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    private final long seq;
+    private final String type;
+    private final String appointmentId;
+    private final Appointment appointment;
+
+    public ChangeEntry(long seq, String type, String appointmentId, Appointment appointment) {
+        this.seq = seq;
+        this.type = type;
+        this.appointmentId = appointmentId;
+        this.appointment = appointment;
+    }
+
+    public static ChangeEntry upsert(Appointment a) {
+        return new ChangeEntry(a.getChangeSeq(), UPSERT, a.getAppointmentId(), a);
+    }
+
+    public static ChangeEntry delete(long seq, String appointmentId) {
+        return new ChangeEntry(seq, DELETE, appointmentId, null);
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getAppointmentId() {
+        return appointmentId;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+}
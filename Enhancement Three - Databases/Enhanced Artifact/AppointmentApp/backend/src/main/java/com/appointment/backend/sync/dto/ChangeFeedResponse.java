@@ -0,0 +1,33 @@
+package com.appointment.backend.sync.dto;
+
+import java.util.List;
+
+/**
+ * DTO for a page of the change feed.
+ * Clients pass {@code nextSince} back as {@code since} on the next call and
+ * keep paging while {@code hasMore} is true.
+ */
+public class ChangeFeedResponse {
+
+    private final List<ChangeEntry> changes;
+    private final long nextSince;
+    private final boolean hasMore;
+
+    public ChangeFeedResponse(List<ChangeEntry> changes, long nextSince, boolean hasMore) {
+        this.changes = changes;
+        this.nextSince = nextSince;
+        this.hasMore = hasMore;
+    }
+
+    public List<ChangeEntry> getChanges() {
+        return changes;
+    }
+
+    public long getNextSince() {
+        return nextSince;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
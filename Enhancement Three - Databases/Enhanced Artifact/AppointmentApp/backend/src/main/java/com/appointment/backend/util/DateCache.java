@@ -0,0 +1,47 @@
+package com.appointment.backend.util;
+
+import java.time.LocalDate;
+
+/**
+ * Canonical LocalDate instances for the years appointments actually use
+ * (2000-01-01, the model's floor, through 2099-12-31).
+ * Thousands of appointments share each date, so they can all point at one
+ * object. Slots are filled lazily; LocalDate is immutable, so a racing
+ * double fill is harmless. Dates outside the range pass through unchanged.
+ */
+public final class DateCache {
+
+    private static final long FIRST = LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final long LAST = LocalDate.of(2099, 12, 31).toEpochDay();
+    private static final LocalDate[] DATES = new LocalDate[(int) (LAST - FIRST + 1)];
+
+    private DateCache() {
+    }
+
+    public static LocalDate ofEpochDay(long epochDay) {
+        if (epochDay < FIRST || epochDay > LAST) {
+            return LocalDate.ofEpochDay(epochDay);
+        }
+        int i = (int) (epochDay - FIRST);
+        LocalDate date = DATES[i];
+        if (date == null) {
+            date = LocalDate.ofEpochDay(epochDay);
+            DATES[i] = date;
+        }
+        return date;
+    }
+
+    /** The canonical instance equal to {@code date} (or the argument itself). */
+    public static LocalDate canonical(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        if (epochDay < FIRST || epochDay > LAST) {
+            return date;
+        }
+        LocalDate cached = DATES[(int) (epochDay - FIRST)];
+        if (cached != null) {
+            return cached;
+        }
+        DATES[(int) (epochDay - FIRST)] = date;
+        return date;
+    }
+}
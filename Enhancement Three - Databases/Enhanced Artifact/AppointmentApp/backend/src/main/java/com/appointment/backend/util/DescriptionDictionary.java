@@ -0,0 +1,61 @@
+package com.appointment.backend.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared dictionary of appointment descriptions.
+ * A few descriptions ("Annual checkup", "Dentist") cover most rows, so every
+ * decoded copy is swapped for one canonical String and the duplicate becomes
+ * garbage straight away.
+ *
+ * Every decode goes through here, so a hit is a single lock-free
+ * {@link ConcurrentHashMap#get}. The dictionary is bounded by generations
+ * instead of a strict LRU: new values go into the current generation, and
+ * once it holds half of {@link #MAX_ENTRIES} it becomes the previous one
+ * and the old previous one is dropped. A value found only in the previous
+ * generation is copied forward, so anything still in use survives and
+ * values that stop being seen (common early on, or made up by clients) age
+ * out after two generations.
+ */
+public final class DescriptionDictionary {
+
+    static final int MAX_ENTRIES = 4096;
+    private static final int GENERATION = MAX_ENTRIES / 2;
+
+    private record Generations(ConcurrentHashMap<String, String> current,
+            ConcurrentHashMap<String, String> previous) {
+    }
+
+    private static final AtomicReference<Generations> GENERATIONS = new AtomicReference<>(
+            new Generations(new ConcurrentHashMap<>(), new ConcurrentHashMap<>()));
+
+    private DescriptionDictionary() {
+    }
+
+    /** The canonical instance equal to {@code description} (or the argument itself). */
+    public static String canonical(String description) {
+        Generations g = GENERATIONS.get();
+        String known = g.current().get(description);
+        if (known != null) {
+            return known;
+        }
+        String older = g.previous().get(description);
+        String candidate = older != null ? older : description;
+        known = g.current().putIfAbsent(description, candidate);
+        if (known != null) {
+            return known;
+        }
+        if (g.current().size() >= GENERATION) {
+            // Losing this race is fine: another thread has just started a new generation
+            GENERATIONS.compareAndSet(g, new Generations(new ConcurrentHashMap<>(), g.current()));
+        }
+        return candidate;
+    }
+
+    /** Number of entries held (a value copied forward counts in both generations). */
+    public static int size() {
+        Generations g = GENERATIONS.get();
+        return g.current().size() + g.previous().size();
+    }
+}
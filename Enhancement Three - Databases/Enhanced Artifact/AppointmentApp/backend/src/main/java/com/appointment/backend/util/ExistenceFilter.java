@@ -0,0 +1,74 @@
+package com.appointment.backend.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Fast path for "does this key already exist?" checks that are almost always
+ * answered "no": a {@link ScalableBloomFilter} of every known key answers a
+ * definite miss without a database round trip.
+ *
+ * The filter is only trusted after {@link #markLoaded()}, i.e. once it holds
+ * every existing key. Keys are never removed, so deleted ones still cost a
+ * query; a unique index must back the insert that follows, in case a key was
+ * written by someone who does not update this filter.
+ */
+public final class ExistenceFilter {
+
+    private final ScalableBloomFilter bloom;
+    private volatile boolean loaded;
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public ExistenceFilter(long initialCapacity, double falsePositiveRate) {
+        this.bloom = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+    }
+
+    /** {@code query} is the real check, run unless the filter rules the key out. */
+    public boolean exists(String key, Predicate<String> query) {
+        checks.increment();
+        if (loaded && !bloom.mightContain(key)) {
+            skipped.increment();
+            return false;
+        }
+        boolean exists = query.test(key);
+        if (!exists && loaded) {
+            falsePositives.increment();
+        }
+        return exists;
+    }
+
+    /** Record a key that exists (or is about to). */
+    public void add(String key) {
+        bloom.add(key);
+    }
+
+    /** Every existing key has been added: definite misses can be trusted from now on. */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Map<String, Object> metrics() {
+        long fp = falsePositives.sum();
+        long saved = skipped.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("loaded", loaded);
+        out.put("keys", bloom.size());
+        out.put("stages", bloom.stageCount());
+        out.put("bytes", bloom.bytes());
+        out.put("checks", checks.sum());
+        out.put("queriesSkipped", saved);
+        // Includes keys that were deleted after being added
+        out.put("falsePositives", fp);
+        out.put("observedFalsePositiveRate", fp + saved == 0 ? 0.0 : (double) fp / (fp + saved));
+        out.put("expectedFalsePositiveRate", bloom.expectedFalsePositiveRate());
+        return out;
+    }
+}
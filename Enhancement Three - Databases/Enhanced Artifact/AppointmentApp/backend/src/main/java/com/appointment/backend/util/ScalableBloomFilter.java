@@ -0,0 +1,173 @@
+package com.appointment.backend.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter of strings that grows as keys are added and can be updated
+ * concurrently without locks.
+ *
+ * Keys go into the newest stage until it holds its planned capacity; then a
+ * stage twice as large with half the false-positive rate is appended
+ * (Almeida et al., "Scalable Bloom Filters"). The rates form a geometric
+ * series, so the overall rate stays below the configured one however many
+ * stages are added. Bits are set with one atomic OR each; only appending a
+ * stage takes a lock.
+ *
+ * {@link #mightContain} never answers false for a key that was added.
+ */
+public final class ScalableBloomFilter {
+
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final double TIGHTENING = 0.5;
+    private static final int GROWTH = 2;
+
+    private volatile Stage[] stages;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Bloom filter needs capacity >= 1 and a rate in (0, 1)");
+        }
+        this.stages = new Stage[] { new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING)) };
+    }
+
+    /** False means the key was definitely never added. */
+    public boolean mightContain(String key) {
+        long h1 = hash(key);
+        long h2 = secondHash(h1);
+        for (Stage s : stages) {
+            if (s.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Adds the key; returns false if it (or a colliding key) was already present. */
+    public boolean add(String key) {
+        long h1 = hash(key);
+        long h2 = secondHash(h1);
+        Stage[] current = stages;
+        for (Stage s : current) {
+            if (s.mightContain(h1, h2)) {
+                return false;
+            }
+        }
+        Stage last = current[current.length - 1];
+        if (last.count.get() >= last.capacity) {
+            last = grow(last);
+        }
+        last.put(h1, h2);
+        return true;
+    }
+
+    /** Approximate number of keys added. */
+    public long size() {
+        long n = 0;
+        for (Stage s : stages) {
+            n += s.count.get();
+        }
+        return n;
+    }
+
+    public int stageCount() {
+        return stages.length;
+    }
+
+    /** Heap used by the bit arrays. */
+    public long bytes() {
+        long n = 0;
+        for (Stage s : stages) {
+            n += s.words.length * 8L;
+        }
+        return n;
+    }
+
+    /** Expected false-positive rate for the keys added so far. */
+    public double expectedFalsePositiveRate() {
+        double allMiss = 1;
+        for (Stage s : stages) {
+            double filled = 1 - Math.exp(-(double) s.hashes * s.count.get() / s.bits);
+            allMiss *= 1 - Math.pow(filled, s.hashes);
+        }
+        return 1 - allMiss;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage[] current = stages;
+        Stage last = current[current.length - 1];
+        if (last != full) {
+            return last; // another thread already grew it
+        }
+        Stage next = new Stage(full.capacity * GROWTH, full.falsePositiveRate * TIGHTENING);
+        Stage[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        stages = grown;
+        return next;
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars, then a finalizer so every bit depends on every char. */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /** Odd, so the probe sequence h1 + i*h2 never repeats early. */
+    private static long secondHash(long h1) {
+        return mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** One fixed-size classic Bloom filter. */
+    private static final class Stage {
+
+        final long capacity;
+        final double falsePositiveRate;
+        final long bits;
+        final int hashes;
+        final long[] words;
+        final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            // Optimal sizing: m = -n ln p / (ln 2)^2, k = (m / n) ln 2
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new long[(int) Math.max(1, (m + 63) / 64)];
+            this.bits = words.length * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long h = h1;
+            for (int i = 0; i < hashes; i++, h += h2) {
+                long bit = (h >>> 1) % bits;
+                if (((long) BITS.getVolatile(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long h1, long h2) {
+            long h = h1;
+            for (int i = 0; i < hashes; i++, h += h2) {
+                long bit = (h >>> 1) % bits;
+                BITS.getAndBitwiseOr(words, (int) (bit >>> 6), 1L << bit);
+            }
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.appointment.backend.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical reads into one.
+ *
+ * The first caller for a key (the leader) runs the loader on its own thread;
+ * callers with an equal key that arrive while it runs wait for and share its
+ * result (or its exception). A waiter gives up after {@code maxWaitMs} and
+ * runs the loader itself, so a slow query never holds anyone longer than
+ * that plus their own query.
+ *
+ * Results are shared between callers, so they must not be modified.
+ */
+public final class SingleFlight {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long maxWaitMs;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(boolean enabled, long maxWaitMs) {
+        this.enabled = enabled;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V run(Object key, Supplier<V> loader) {
+        calls.increment();
+        if (!enabled) {
+            loads.increment();
+            return loader.get();
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            return (V) lead(key, mine, loader);
+        }
+        try {
+            V result = (V) running.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            shared.increment();
+            return result;
+        } catch (TimeoutException ex) {
+            timeouts.increment();
+            loads.increment();
+            return loader.get();
+        } catch (ExecutionException ex) {
+            shared.increment();
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared read", ex);
+        }
+    }
+
+    private Object lead(Object key, CompletableFuture<Object> mine, Supplier<?> loader) {
+        loads.increment();
+        try {
+            Object result = loader.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Call after a write: reads that start from now on run a fresh query
+     * instead of joining one that began before the write.
+     */
+    public void forgetInFlight() {
+        inFlight.clear();
+    }
+
+    /** {calls, loads, shared, timeouts, collapseRatio} */
+    public Map<String, Object> metrics() {
+        long n = calls.sum();
+        long s = shared.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("calls", n);
+        out.put("loads", loads.sum());
+        out.put("shared", s);
+        out.put("timeouts", timeouts.sum());
+        out.put("collapseRatio", n == 0 ? 0.0 : (double) s / n);
+        out.put("inFlight", inFlight.size());
+        return out;
+    }
+}
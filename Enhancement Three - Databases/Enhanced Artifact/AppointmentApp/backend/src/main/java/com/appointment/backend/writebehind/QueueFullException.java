@@ -0,0 +1,23 @@
+package com.appointment.backend.writebehind;
+
+/**
+ * Thrown when the write-behind queue has no room for another appointment.
+ * Mapped to 503 with a Retry-After header.
+ */
+public class QueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public QueueFullException(long retryAfterSeconds) {
+        this("Too many pending writes. Try again in " + retryAfterSeconds + " s.", retryAfterSeconds);
+    }
+
+    public QueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
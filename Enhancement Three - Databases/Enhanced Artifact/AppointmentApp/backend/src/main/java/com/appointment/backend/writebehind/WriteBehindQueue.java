@@ -0,0 +1,398 @@
+package com.appointment.backend.writebehind;
+
+import com.appointment.backend.breaker.CircuitOpenException;
+import com.appointment.backend.metrics.MetricsSource;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentService;
+import com.appointment.backend.store.AppointmentStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional write-behind for POST /appointments
+ * (app.appointments.write-behind.enabled).
+ *
+ * A request is validated, its ID is reserved in memory (so a second POST with
+ * the same ID is refused at once, as before), the appointment is appended to
+ * the {@link WriteJournal} and queued; the caller gets 202 without waiting
+ * for MongoDB. One writer thread drains the queue and stores a batch with a
+ * single insertMany as soon as batch-size appointments are waiting or
+ * linger-ms has passed since the first one.
+ *
+ * - Backpressure: at most {@code capacity} appointments are outstanding
+ *   (queued or being written); beyond that, submit throws
+ *   {@link QueueFullException} (503 with Retry-After) instead of buffering.
+ * - Failures: a batch that fails with a database error, or is refused
+ *   because the store's circuit breaker is open, is retried with backoff
+ *   until it succeeds. A restart replays the journal and writes
+ *   whatever was accepted but not yet written, before taking new work.
+ *   The sequence numbers of every attempt are journaled before it is sent,
+ *   so a duplicate found on a retry counts as written only if the stored
+ *   copy is one of those attempts (same date, description and sequence).
+ * - Visibility: queued appointments are not returned by reads until written;
+ *   GET /appointments/{id}/status reports queued, written or failed.
+ * - Deletes: DELETE of a queued appointment withdraws it from the queue
+ *   ({@link #cancel}); one already being written is waited for, then
+ *   deleted from the store as usual.
+ */
+@Component
+public class WriteBehindQueue implements MetricsSource {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindQueue.class);
+    private static final int MAX_FAILURES_KEPT = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long CANCEL_WAIT_MS = 5_000;
+
+    /** Where an accepted appointment is now. */
+    public enum Status { QUEUED, WRITTEN, FAILED, UNKNOWN }
+
+    private final AppointmentService service;
+    private final AppointmentStore store;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long retryAfterSeconds;
+    private final WriteJournal journal;
+
+    private final ConcurrentHashMap<String, Appointment> reserved = new ConcurrentHashMap<>();
+    /** Change sequence numbers each outstanding appointment was sent with so far. */
+    private final ConcurrentHashMap<String, Set<Long>> stamps = new ConcurrentHashMap<>();
+    private final Object finished = new Object();
+    private final ArrayBlockingQueue<Appointment> queue;
+    private final Semaphore room;
+    private final List<Appointment> replayed = new ArrayList<>();
+    private final Map<String, String> failures = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_FAILURES_KEPT;
+                }
+            });
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedDuplicate = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private volatile Thread writer;
+
+    public WriteBehindQueue(
+            AppointmentService service,
+            AppointmentStore store,
+            @Value("${app.appointments.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.appointments.write-behind.capacity:10000}") int capacity,
+            @Value("${app.appointments.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.appointments.write-behind.linger-ms:20}") long lingerMs,
+            @Value("${app.appointments.write-behind.journal:data/write-behind.journal}") String journalPath,
+            @Value("${app.appointments.write-behind.fsync:true}") boolean fsync,
+            @Value("${app.appointments.write-behind.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.service = service;
+        this.store = store;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        if (!enabled) {
+            this.journal = null;
+            this.room = new Semaphore(0);
+            return;
+        }
+        Map<String, Appointment> pending = new LinkedHashMap<>();
+        try {
+            this.journal = WriteJournal.open(Path.of(journalPath), fsync, pending, stamps);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open write-behind journal " + journalPath, ex);
+        }
+        // Replayed appointments count against the capacity until they are written
+        this.room = new Semaphore(capacity - pending.size());
+        reserved.putAll(pending);
+        replayed.addAll(pending.values());
+        if (!replayed.isEmpty()) {
+            log.info("Write-behind journal {}: {} appointment(s) accepted but not yet written", journal,
+                    replayed.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accept an (already validated) appointment for writing.
+     * Throws IllegalArgumentException if the ID is taken or already queued,
+     * {@link QueueFullException} if the queue is full.
+     */
+    public void submit(Appointment a) {
+        if (!enabled) {
+            throw new IllegalStateException("Write-behind is disabled");
+        }
+        String id = a.getAppointmentId();
+        if (reserved.putIfAbsent(id, a) != null) {
+            rejectedDuplicate.increment();
+            throw new IllegalArgumentException("Appointment ID already exists");
+        }
+        boolean queued = false;
+        try {
+            if (store.existsById(id)) {
+                rejectedDuplicate.increment();
+                throw new IllegalArgumentException("Appointment ID already exists");
+            }
+            if (!room.tryAcquire()) {
+                rejectedFull.increment();
+                throw new QueueFullException(retryAfterSeconds);
+            }
+            try {
+                journal.accepted(a);
+            } catch (IOException ex) {
+                room.release();
+                throw new UncheckedIOException("Write-behind journal append failed", ex);
+            }
+            failures.remove(id);
+            queue.add(a); // cannot fail: the permit guarantees room
+            queued = true;
+            accepted.increment();
+        } finally {
+            if (!queued) {
+                reserved.remove(id, a);
+            }
+        }
+    }
+
+    /** Status of an appointment submitted here (or written some other way). */
+    public Status status(String appointmentId) {
+        if (reserved.containsKey(appointmentId)) {
+            return Status.QUEUED;
+        }
+        if (failures.containsKey(appointmentId)) {
+            return Status.FAILED;
+        }
+        return store.existsById(appointmentId) ? Status.WRITTEN : Status.UNKNOWN;
+    }
+
+    /**
+     * Withdraw a queued appointment (DELETE before it was written).
+     * Returns true if it was withdrawn and will not be written; false if it
+     * is not queued here, in which case the caller deletes it from the store.
+     * If it is being written right now, waits for that write to finish
+     * first, and throws {@link QueueFullException} if it does not finish in
+     * time (the store is down and the batch is being retried).
+     */
+    public boolean cancel(String appointmentId) {
+        Appointment a = reserved.get(appointmentId);
+        if (a == null) {
+            return false;
+        }
+        if (queue.remove(a)) {
+            finish(List.of(a));
+            cancelled.increment();
+            return true;
+        }
+        // Already taken by the writer (or replayed after a restart)
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CANCEL_WAIT_MS);
+        synchronized (finished) {
+            while (reserved.get(appointmentId) == a) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    throw new QueueFullException("Appointment is still being written. Try again in "
+                            + retryAfterSeconds + " s.", retryAfterSeconds);
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(finished, left);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new QueueFullException(retryAfterSeconds);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Why a failed appointment was not written, or null. */
+    public String failureReason(String appointmentId) {
+        return failures.get(appointmentId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread t = new Thread(this::run, "write-behind");
+        t.setDaemon(true);
+        writer = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = writer;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                log.warn("Write-behind journal close failed: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            // Whatever a previous run accepted goes first; it may be partly written already
+            for (int i = 0; i < replayed.size(); i += batchSize) {
+                flush(new ArrayList<>(replayed.subList(i, Math.min(replayed.size(), i + batchSize))));
+            }
+            replayed.clear();
+
+            List<Appointment> batch = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                Appointment first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) {
+                        break;
+                    }
+                    Appointment next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        } catch (InterruptedException ex) {
+            // Shutting down: anything not written is still in the journal
+        }
+    }
+
+    /** Write one batch, retrying database errors and open-breaker refusals until it goes through. */
+    private void flush(List<Appointment> batch) throws InterruptedException {
+        Set<String> duplicates;
+        long backoffMs = 100;
+        while (true) {
+            try {
+                duplicates = service.insertBatch(batch, stamps, this::stamped);
+                break;
+            } catch (DataAccessException | CircuitOpenException ex) {
+                retries.increment();
+                log.warn("Write-behind batch of {} failed, retrying in {} ms: {}", batch.size(), backoffMs,
+                        ex.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+            } catch (RuntimeException ex) {
+                // Not a database outage (retrying would fail the same way): report it per appointment
+                log.error("Write-behind batch of {} rejected", batch.size(), ex);
+                duplicates = Set.of();
+                for (Appointment a : batch) {
+                    failures.put(a.getAppointmentId(), "Write failed: " + ex.getMessage());
+                }
+                failed.add(batch.size());
+                finish(batch);
+                return;
+            }
+        }
+        for (String id : duplicates) {
+            failures.put(id, "Appointment ID already exists");
+        }
+        failed.add(duplicates.size());
+        written.add(batch.size() - duplicates.size());
+        batches.increment();
+        finish(batch);
+    }
+
+    /** Remember (and journal) the sequence numbers a batch is about to be sent with. */
+    private void stamped(List<Appointment> batch) {
+        for (Appointment a : batch) {
+            stamps.computeIfAbsent(a.getAppointmentId(), k -> ConcurrentHashMap.newKeySet()).add(a.getChangeSeq());
+        }
+        try {
+            journal.stamped(batch);
+        } catch (IOException ex) {
+            // Still written; only a crash before the written record would then report it failed
+            log.warn("Write-behind journal update failed: {}", ex.getMessage());
+        }
+    }
+
+    private void finish(List<Appointment> batch) {
+        List<String> ids = new ArrayList<>(batch.size());
+        for (Appointment a : batch) {
+            ids.add(a.getAppointmentId());
+        }
+        try {
+            journal.written(ids);
+        } catch (IOException ex) {
+            // Harmless: a replay would find them written
+            log.warn("Write-behind journal update failed: {}", ex.getMessage());
+        }
+        for (Appointment a : batch) {
+            reserved.remove(a.getAppointmentId(), a);
+            stamps.remove(a.getAppointmentId());
+        }
+        room.release(batch.size());
+        synchronized (finished) {
+            finished.notifyAll();
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "writeBehind";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("accepted", accepted.sum());
+        out.put("rejectedDuplicate", rejectedDuplicate.sum());
+        out.put("rejectedFull", rejectedFull.sum());
+        out.put("written", written.sum());
+        out.put("failed", failed.sum());
+        out.put("batches", batches.sum());
+        out.put("retries", retries.sum());
+        out.put("cancelled", cancelled.sum());
+        out.put("outstanding", reserved.size());
+        out.put("queueDepth", queue.size());
+        out.put("journalBytes", journal == null ? 0 : journal.sizeBytes());
+        return out;
+    }
+}
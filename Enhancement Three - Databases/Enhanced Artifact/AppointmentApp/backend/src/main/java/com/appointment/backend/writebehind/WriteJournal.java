@@ -0,0 +1,253 @@
+package com.appointment.backend.writebehind;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.util.DateCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of the write-behind queue, so accepted appointments
+ * survive a restart before they reach the store.
+ * One frame per record: [int length][payload][int crc32c], where the payload is
+ * - accepted: 'A' [u8 idLen][id][int epochDay][u16 descLen][desc]
+ * - written:  'W' [int count] then per ID [u8 idLen][id]
+ * - stamped:  'S' [int count] then per ID [u8 idLen][id][long changeSeq]
+ *
+ * An accepted record is fsynced before the request is answered, a stamped
+ * record before the batch it describes is sent to the store (so after a
+ * crash the queue can tell its own earlier write from someone else's
+ * appointment with the same ID). Concurrent
+ * appends share fsyncs: whoever syncs first covers everything written so far
+ * (group commit). Once every accepted record has a matching written record,
+ * the file is truncated.
+ */
+final class WriteJournal implements Closeable {
+
+    private static final byte ACCEPTED = 'A';
+    private static final byte WRITTEN = 'W';
+    private static final byte STAMPED = 'S';
+
+    private final Path path;
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final Object syncLock = new Object();
+    private long written;
+    private volatile long synced;
+    private long outstanding;
+
+    private WriteJournal(Path path, FileChannel channel, boolean fsync, long outstanding) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.fsync = fsync;
+        this.outstanding = outstanding;
+        this.written = channel.size();
+        this.synced = written;
+    }
+
+    static WriteJournal open(Path path, boolean fsync, Map<String, Appointment> pending) throws IOException {
+        return open(path, fsync, pending, new HashMap<>());
+    }
+
+    /**
+     * Open (or create) the journal. Appointments accepted but never written
+     * are added to {@code pending}, oldest first; the change sequence numbers
+     * they were stamped with on earlier write attempts go to {@code stamps}.
+     */
+    static WriteJournal open(Path path, boolean fsync, Map<String, Appointment> pending,
+            Map<String, Set<Long>> stamps) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (Files.exists(path)) {
+            replay(path, pending, stamps);
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new WriteJournal(path, channel, fsync, pending.size());
+    }
+
+    /** Record an accepted appointment; durable when this returns. */
+    void accepted(Appointment a) throws IOException {
+        byte[] id = a.getAppointmentId().getBytes(StandardCharsets.UTF_8);
+        byte[] desc = a.getDescription().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 1 + id.length + 4 + 2 + desc.length)
+                .put(ACCEPTED).put((byte) id.length).put(id)
+                .putInt((int) a.getAppointmentDate().toEpochDay())
+                .putShort((short) desc.length).put(desc);
+        long end;
+        synchronized (this) {
+            end = append(payload);
+            outstanding++;
+        }
+        syncTo(end);
+    }
+
+    /** Record the sequence numbers a batch is about to be written with; durable when this returns. */
+    void stamped(List<Appointment> batch) throws IOException {
+        int size = 1 + 4;
+        List<byte[]> encoded = new ArrayList<>(batch.size());
+        for (Appointment a : batch) {
+            byte[] b = a.getAppointmentId().getBytes(StandardCharsets.UTF_8);
+            encoded.add(b);
+            size += 1 + b.length + 8;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size).put(STAMPED).putInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] b = encoded.get(i);
+            payload.put((byte) b.length).put(b).putLong(batch.get(i).getChangeSeq());
+        }
+        long end;
+        synchronized (this) {
+            end = append(payload);
+        }
+        syncTo(end);
+    }
+
+    /**
+     * Record that these appointments reached the store (or were rejected).
+     * Not fsynced: if it is lost, replay retries them and finds them stored.
+     */
+    synchronized void written(List<String> ids) throws IOException {
+        int size = 1 + 4;
+        List<byte[]> encoded = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            byte[] b = id.getBytes(StandardCharsets.UTF_8);
+            encoded.add(b);
+            size += 1 + b.length;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size).put(WRITTEN).putInt(ids.size());
+        for (byte[] b : encoded) {
+            payload.put((byte) b.length).put(b);
+        }
+        append(payload);
+        outstanding -= ids.size();
+        if (outstanding <= 0) {
+            // Nothing left to replay: start over instead of growing forever
+            channel.truncate(0);
+            written = 0;
+            synced = 0;
+        }
+    }
+
+    synchronized long sizeBytes() {
+        return written;
+    }
+
+    private long append(ByteBuffer payload) throws IOException {
+        int len = payload.position();
+        ByteBuffer frame = ByteBuffer.allocate(4 + len + 4);
+        frame.putInt(len).put(payload.array(), 0, len);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array(), 0, len);
+        frame.putInt((int) crc.getValue()).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        written += frame.limit();
+        return written;
+    }
+
+    private void syncTo(long end) throws IOException {
+        if (!fsync) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= end) {
+                return; // another thread's fsync already covered this record
+            }
+            long upTo;
+            synchronized (this) {
+                upTo = written;
+            }
+            channel.force(false);
+            synced = upTo;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Collect accepted-but-not-written records. A torn tail (never acknowledged) is cut off. */
+    private static void replay(Path path, Map<String, Appointment> pending, Map<String, Set<Long>> stamps)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C crc = new CRC32C();
+            Map<String, Appointment> found = new LinkedHashMap<>();
+            Map<String, Set<Long>> seqs = new HashMap<>();
+            int validEnd = 0;
+            while (buf.remaining() >= 4) {
+                int len = buf.getInt(buf.position());
+                if (len < 1 || buf.remaining() < 4 + len + 4) {
+                    break;
+                }
+                ByteBuffer payload = buf.slice(buf.position() + 4, len);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if (crc.getValue() != (buf.getInt(buf.position() + 4 + len) & 0xFFFFFFFFL)) {
+                    break;
+                }
+                buf.position(buf.position() + 4 + len + 4);
+                validEnd = buf.position();
+
+                byte type = payload.get();
+                if (type == ACCEPTED) {
+                    String id = readId(payload);
+                    int day = payload.getInt();
+                    byte[] desc = new byte[payload.getShort() & 0xFFFF];
+                    payload.get(desc);
+                    found.put(id, new Appointment(id, DateCache.ofEpochDay(day), new String(desc, StandardCharsets.UTF_8)));
+                } else if (type == STAMPED) {
+                    int count = payload.getInt();
+                    for (int i = 0; i < count; i++) {
+                        seqs.computeIfAbsent(readId(payload), k -> new HashSet<>()).add(payload.getLong());
+                    }
+                } else {
+                    int count = payload.getInt();
+                    for (int i = 0; i < count; i++) {
+                        String id = readId(payload);
+                        found.remove(id);
+                        seqs.remove(id);
+                    }
+                }
+            }
+            if (validEnd < size) {
+                ch.truncate(validEnd);
+                ch.force(true);
+            }
+            pending.putAll(found);
+            seqs.keySet().retainAll(found.keySet());
+            stamps.putAll(seqs);
+        }
+    }
+
+    private static String readId(ByteBuffer payload) {
+        byte[] id = new byte[payload.get() & 0xFF];
+        payload.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
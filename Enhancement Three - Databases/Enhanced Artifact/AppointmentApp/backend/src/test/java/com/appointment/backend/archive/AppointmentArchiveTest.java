@@ -0,0 +1,72 @@
+package com.appointment.backend.archive;
+
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Which archive lookups reach the server. No MongoDB needed: the client
+ * never connects, and the queries made are counted instead.
+ */
+class AppointmentArchiveTest {
+
+    private final MongoClient client = MongoClients.create("mongodb://localhost:1/?serverSelectionTimeoutMS=100");
+    private final AtomicInteger existsQueries = new AtomicInteger();
+    private final AtomicInteger dateQueries = new AtomicInteger();
+    private volatile LocalDate newest;
+
+    @AfterEach
+    void close() {
+        client.close();
+    }
+
+    private AppointmentArchive archive() {
+        MongoTemplate mongo = new MongoTemplate(client, "unused") {
+            @Override
+            public boolean exists(Query query, String collectionName) {
+                existsQueries.incrementAndGet();
+                return true;
+            }
+        };
+        AppointmentQueries queries = new AppointmentQueries(mongo, new AppointmentSchema(false), 0,
+                MongoRouting.disabled()) {
+            @Override
+            public LocalDate newestDate(String collection) {
+                dateQueries.incrementAndGet();
+                return newest;
+            }
+        };
+        return new AppointmentArchive(mongo, queries, 60_000);
+    }
+
+    @Test
+    void anEmptyArchiveAnswersExistsWithoutAQuery() {
+        AppointmentArchive archive = archive();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(archive.existsById("a" + i));
+        }
+        assertEquals(0, existsQueries.get());
+        assertEquals(1, dateQueries.get()); // the cached max date, read once
+    }
+
+    @Test
+    void aNonEmptyArchiveIsAsked() {
+        newest = LocalDate.of(2020, 1, 1);
+        AppointmentArchive archive = archive();
+        assertTrue(archive.existsById("a1"));
+        assertEquals(1, existsQueries.get());
+    }
+}
@@ -0,0 +1,121 @@
+package com.appointment.backend.archive;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.sync.AppointmentTombstone;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The archival move against a real MongoDB (skipped if none is reachable;
+ * override with -Dtest.mongodb.uri=...).
+ */
+class ArchivalJobTest {
+
+    private static final String URI = System.getProperty("test.mongodb.uri",
+            "mongodb://localhost:27017/appointmentapp_test?serverSelectionTimeoutMS=1000");
+    private static final LocalDate CUTOFF = LocalDate.of(2030, 1, 1);
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+    private AppointmentQueries queries;
+    private AppointmentArchive archive;
+    private ArchivalJob job;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(URI);
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            client.close();
+            client = null;
+        }
+        assumeTrue(client != null, "MongoDB not reachable at " + URI);
+        mongo = new MongoTemplate(client, "appointmentapp_archive_test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongo.getDb().drop();
+        AppointmentSchema schema = new AppointmentSchema(false);
+        queries = new AppointmentQueries(mongo, schema, 0, MongoRouting.disabled());
+        archive = new AppointmentArchive(mongo, queries, 0);
+        job = new ArchivalJob(mongo, archive, schema, true, 180, 2, "UTC");
+    }
+
+    private void insertHot(String id, LocalDate date, long seq) {
+        Appointment a = new Appointment(id, date, "Visit " + id);
+        a.setChangeSeq(seq);
+        queries.insertOne("appointments", a);
+    }
+
+    @Test
+    void movesOldAppointmentsInBatches() {
+        insertHot("old1", CUTOFF.minusDays(10), 1);
+        insertHot("old2", CUTOFF.minusDays(5), 2);
+        insertHot("old3", CUTOFF.minusDays(1), 3);
+        insertHot("new", CUTOFF, 4);
+
+        assertEquals(3, job.archiveBefore(CUTOFF));
+        assertEquals(CUTOFF.minusDays(1), archive.maxDate());
+        assertNotNull(archive.findById("old2"));
+        assertNull(archive.findById("new"));
+        assertEquals(1, mongo.getCollection("appointments").countDocuments());
+    }
+
+    @Test
+    void anAppointmentDeletedDuringTheMoveIsNotArchived() {
+        insertHot("old", CUTOFF.minusDays(10), 1);
+        insertHot("gone", CUTOFF.minusDays(10), 2);
+        // The delete's tombstone is written first; its hot delete races the batch
+        mongo.save(new AppointmentTombstone("gone", 3, Instant.now()));
+
+        assertEquals(1, job.archiveBefore(CUTOFF));
+        assertNotNull(archive.findById("old"));
+        assertNull(archive.findById("gone"));
+    }
+
+    @Test
+    void anOlderTombstoneDoesNotHideARecreatedAppointment() {
+        mongo.save(new AppointmentTombstone("again", 1, Instant.now()));
+        insertHot("again", CUTOFF.minusDays(10), 2);
+
+        assertEquals(1, job.archiveBefore(CUTOFF));
+        assertNotNull(archive.findById("again"));
+    }
+
+    @Test
+    void maxDateSeesArchivingByAnotherInstance() {
+        assertNull(archive.maxDate());
+        AppointmentArchive other = new AppointmentArchive(mongo, queries, 0);
+        insertHot("old", CUTOFF.minusDays(3), 1);
+        new ArchivalJob(mongo, other, new AppointmentSchema(false), true, 180, 10, "UTC").archiveBefore(CUTOFF);
+
+        assertEquals(CUTOFF.minusDays(3), archive.maxDate()); // refresh interval 0: re-read every call
+    }
+}
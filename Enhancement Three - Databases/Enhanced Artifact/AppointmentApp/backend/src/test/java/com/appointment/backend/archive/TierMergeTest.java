@@ -0,0 +1,76 @@
+package com.appointment.backend.archive;
+
+import com.appointment.backend.model.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TierMergeTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 15);
+
+    private static Appointment appt(String id, int dayOffset, long seq) {
+        Appointment a = new Appointment(id, DAY.plusDays(dayOffset), "Visit " + id);
+        a.setChangeSeq(seq);
+        return a;
+    }
+
+    private static List<String> ids(List<Appointment> list) {
+        return list.stream().map(Appointment::getAppointmentId).toList();
+    }
+
+    @Test
+    void emptyArchiveReturnsTheHotListItself() {
+        List<Appointment> hot = List.of(appt("h1", 0, 1));
+        assertSame(hot, TierMerge.merge(hot, List.of(), TierMerge.ASCENDING));
+    }
+
+    @Test
+    void mergesAscendingWithHotFirstOnTies() {
+        List<Appointment> hot = List.of(appt("h1", 1, 1), appt("h2", 3, 2));
+        List<Appointment> archive = List.of(appt("a0", 0, 3), appt("a1", 1, 4), appt("a4", 4, 5));
+        assertEquals(List.of("a0", "h1", "a1", "h2", "a4"),
+                ids(TierMerge.merge(hot, archive, TierMerge.ASCENDING)));
+    }
+
+    @Test
+    void mergesDescending() {
+        List<Appointment> hot = List.of(appt("h3", 3, 1), appt("h1", 1, 2));
+        List<Appointment> archive = List.of(appt("a2", 2, 3), appt("a0", 0, 4));
+        assertEquals(List.of("h3", "a2", "h1", "a0"),
+                ids(TierMerge.merge(hot, archive, TierMerge.DESCENDING)));
+    }
+
+    @Test
+    void anIdInBothTiersComesOnceFromTheHotTier() {
+        Appointment hotCopy = appt("x", 1, 7);
+        List<Appointment> merged = TierMerge.merge(
+                List.of(hotCopy, appt("h", 2, 8)),
+                List.of(appt("x", 1, 7), appt("a", 2, 9)),
+                TierMerge.ASCENDING);
+        assertEquals(List.of("x", "h", "a"), ids(merged));
+        assertSame(hotCopy, merged.get(0));
+    }
+
+    @Test
+    void mergesBySequenceForTheChangeFeed() {
+        List<Appointment> merged = TierMerge.merge(
+                List.of(appt("h5", 0, 5), appt("h9", 0, 9)),
+                List.of(appt("a2", -400, 2), appt("a7", -400, 7)),
+                Comparator.comparingLong(Appointment::getChangeSeq));
+        assertEquals(List.of("a2", "h5", "a7", "h9"), ids(merged));
+    }
+
+    @Test
+    void concatKeepsHotThenArchiveWithoutDuplicates() {
+        List<Appointment> merged = TierMerge.concat(
+                List.of(appt("h2", 2, 1), appt("x", 1, 2)),
+                List.of(appt("a0", 0, 3), appt("x", 1, 2)));
+        assertEquals(List.of("h2", "x", "a0"), ids(merged));
+    }
+}
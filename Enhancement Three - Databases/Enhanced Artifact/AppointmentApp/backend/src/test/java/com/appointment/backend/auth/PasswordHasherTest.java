@@ -0,0 +1,71 @@
+package com.appointment.backend.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+
+    @Test
+    void calibrationStaysWithinBounds() {
+        // A zero target can never be met: the minimum is used anyway
+        assertEquals(4, new PasswordHasher(0, 0, 4, 6).cost());
+
+        int picked = new PasswordHasher(0, 60_000, 4, 6).cost();
+        assertEquals(6, picked);
+    }
+
+    @Test
+    void readsCostFromStoredHashes() {
+        assertEquals(5, PasswordHasher.costOf(BCrypt.hashpw("pw", BCrypt.gensalt(5))));
+        assertEquals(12, PasswordHasher.costOf("$2a$12$abcdefghijklmnopqrstuv"));
+        assertEquals(-1, PasswordHasher.costOf("plain"));
+        assertEquals(-1, PasswordHasher.costOf(null));
+    }
+
+    @Test
+    void hashesVerifyAcrossCosts() {
+        PasswordHasher hasher = new PasswordHasher(4, 250, 4, 16);
+        String hash = hasher.hash("secret1");
+        assertEquals(4, PasswordHasher.costOf(hash));
+        assertFalse(hasher.needsRehash(hash));
+        assertTrue(hasher.verify("secret1", hash));
+        assertFalse(hasher.verify("secret2", hash));
+        assertTrue(hasher.verify("secret1", BCrypt.hashpw("secret1", BCrypt.gensalt(5))));
+    }
+
+    @Test
+    void rehashesLowerCostsInTheBackground() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(5, 250, 4, 16);
+        String old = BCrypt.hashpw("secret1", BCrypt.gensalt(4));
+        CompletableFuture<String> stored = new CompletableFuture<>();
+
+        hasher.rehashIfNeeded("secret1", old, stored::complete);
+        String fresh = stored.get(10, TimeUnit.SECONDS);
+
+        assertEquals(5, PasswordHasher.costOf(fresh));
+        assertTrue(hasher.verify("secret1", fresh));
+        hasher.rehashIfNeeded("secret1", fresh, h -> {
+            throw new AssertionError("current cost must not be rehashed");
+        });
+        hasher.stop();
+    }
+
+    @Test
+    void neverLowersAHashMadeWithAHigherCost() {
+        // e.g. stored by a faster node, or before this node calibrated lower
+        PasswordHasher hasher = new PasswordHasher(4, 250, 4, 16);
+        String stronger = BCrypt.hashpw("secret1", BCrypt.gensalt(6));
+        assertFalse(hasher.needsRehash(stronger));
+        hasher.rehashIfNeeded("secret1", stronger, h -> {
+            throw new AssertionError("a higher cost must not be rehashed");
+        });
+        hasher.stop();
+    }
+}
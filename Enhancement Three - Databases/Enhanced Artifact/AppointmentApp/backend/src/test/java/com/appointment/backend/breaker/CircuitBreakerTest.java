@@ -0,0 +1,128 @@
+package com.appointment.backend.breaker;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(true, 3, 100, 1000, now::get);
+
+    private void fail() {
+        assertThrows(DataAccessResourceFailureException.class, () -> breaker.run(() -> {
+            throw new DataAccessResourceFailureException("timed out");
+        }));
+    }
+
+    private void advanceMs(long ms) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRefusesFast() {
+        fail();
+        fail();
+        breaker.run(() -> { }); // a success resets the count
+        fail();
+        fail();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        CircuitOpenException refused = assertThrows(CircuitOpenException.class, () -> breaker.call(() -> "x"));
+        assertEquals(1, refused.getRetryAfterSeconds());
+        assertEquals(1L, breaker.metrics().get("refused"));
+    }
+
+    @Test
+    void slowSuccessesCountAsFailures() {
+        for (int i = 0; i < 3; i++) {
+            breaker.call(() -> {
+                advanceMs(150);
+                return "slow";
+            });
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(3L, breaker.metrics().get("slowCalls"));
+    }
+
+    @Test
+    void slowBulkCallsDoNotCount() {
+        for (int i = 0; i < 5; i++) {
+            breaker.callBulk(() -> {
+                advanceMs(5_000); // a full export scan
+                return "rows";
+            });
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0L, breaker.metrics().get("slowCalls"));
+        fail();
+        fail();
+        assertThrows(DataAccessResourceFailureException.class, () -> breaker.callBulk(() -> {
+            throw new DataAccessResourceFailureException("timed out");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState()); // their errors still do
+    }
+
+    @Test
+    void aTrialEndingInAnErrorFreesTheTrialSlot() {
+        fail();
+        fail();
+        fail();
+        advanceMs(1000);
+        assertThrows(StackOverflowError.class, () -> breaker.call(() -> {
+            throw new StackOverflowError();
+        }));
+        assertEquals("ok", breaker.call(() -> "ok"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void answersFromTheStoreAreNotFailures() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(DuplicateKeyException.class, () -> breaker.run(() -> {
+                throw new DuplicateKeyException("dup");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void trialCallClosesOrReopens() {
+        fail();
+        fail();
+        fail();
+        advanceMs(1000);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        fail(); // the trial fails: open again for another period
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, () -> breaker.call(() -> "x"));
+
+        advanceMs(1000);
+        assertEquals("ok", breaker.call(() -> "ok"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2L, breaker.metrics().get("opened"));
+    }
+
+    @Test
+    void onlyOneTrialAtATime() {
+        fail();
+        fail();
+        fail();
+        advanceMs(1000);
+        breaker.call(() -> {
+            // While the trial runs, everyone else is still refused
+            assertThrows(CircuitOpenException.class, () -> breaker.call(() -> "other"));
+            return "trial";
+        });
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
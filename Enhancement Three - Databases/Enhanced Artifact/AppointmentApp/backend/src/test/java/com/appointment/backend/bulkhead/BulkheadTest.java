@@ -0,0 +1,89 @@
+package com.appointment.backend.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    @Test
+    void fullCompartmentWithNoQueueRefusesAtOnce() throws Exception {
+        Bulkhead b = new Bulkhead("export", 2, 0, 0, 503, 1);
+        assertNull(b.enter());
+        assertNull(b.enter());
+        assertEquals(Bulkhead.Rejection.QUEUE_FULL, b.enter());
+
+        b.release();
+        assertNull(b.enter());
+        Map<String, Object> m = b.metrics();
+        assertEquals(2, m.get("active"));
+        assertEquals(1.0, m.get("saturation"));
+        assertEquals(3L, m.get("admitted"));
+        assertEquals(1L, m.get("rejectedQueueFull"));
+    }
+
+    @Test
+    void waiterTimesOutWhenNoSlotFrees() throws Exception {
+        Bulkhead b = new Bulkhead("read", 1, 1, 20, 503, 1);
+        assertNull(b.enter());
+        assertEquals(Bulkhead.Rejection.TIMED_OUT, b.enter());
+        assertEquals(1L, b.metrics().get("rejectedTimedOut"));
+        assertEquals(0, b.metrics().get("waiting"));
+    }
+
+    @Test
+    void releaseLetsAWaiterIn() throws Exception {
+        Bulkhead b = new Bulkhead("write", 1, 1, 10_000, 503, 1);
+        assertNull(b.enter());
+        CompletableFuture<Bulkhead.Rejection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return b.enter();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!b.metrics().get("waiting").equals(1) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // The queue (one place) is taken, so a third caller is refused
+        assertEquals(Bulkhead.Rejection.QUEUE_FULL, b.enter());
+
+        b.release();
+        assertNull(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, b.metrics().get("waited"));
+        assertEquals(1, b.metrics().get("active"));
+    }
+
+    @Test
+    void requestsAreClassified() {
+        Bulkhead read = new Bulkhead("read", 1, 0, 0, 503, 1);
+        Bulkhead write = new Bulkhead("write", 1, 0, 0, 503, 1);
+        Bulkhead auth = new Bulkhead("auth", 1, 0, 0, 503, 1);
+        Bulkhead export = new Bulkhead("export", 1, 0, 0, 503, 1);
+        Bulkheads bulkheads = new Bulkheads(true, read, write, auth, export);
+
+        assertSame(read, bulkheads.forRequest("GET", "/appointments"));
+        assertSame(read, bulkheads.forRequest("GET", "/appointments/upcoming"));
+        assertSame(write, bulkheads.forRequest("POST", "/appointments"));
+        assertSame(write, bulkheads.forRequest("DELETE", "/appointments/A1"));
+        assertSame(auth, bulkheads.forRequest("POST", "/auth/login"));
+        assertSame(export, bulkheads.forRequest("GET", "/appointments/export"));
+        assertSame(export, bulkheads.forRequest("POST", "/appointments/exports"));
+        assertSame(export, bulkheads.forRequest("GET", "/appointments/exports/abc/file"));
+        assertSame(read, bulkheads.forRequest("GET", "/appointments/exports/abc")); // status poll
+        assertNull(bulkheads.forRequest("GET", "/ops/metrics"));
+        assertNull(bulkheads.forRequest("GET", "/appointmentsX"));
+        assertNull(bulkheads.forRequest("OPTIONS", "/appointments"));
+
+        assertNull(new Bulkheads(false, read, write, auth, export).forRequest("GET", "/appointments"));
+        assertTrue(bulkheads.metrics().containsKey("export"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.appointment.backend.controller;
+
+import com.appointment.backend.breaker.CircuitBreaker;
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.service.AppointmentService;
+import com.appointment.backend.service.LastKnownGood;
+import com.appointment.backend.service.ScatterGather;
+import com.appointment.backend.store.InMemoryAppointmentStore;
+import com.appointment.backend.sync.ChangeFeedService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Last-known-good lists during a store outage, through the controller so the
+ * headers are checked too. Stale lists only apply while the lists read the
+ * store, so the services here run with split views off unless noted.
+ */
+class StaleListsTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    /** Answers list reads until taken down. */
+    private static class FlakyStore extends InMemoryAppointmentStore {
+        volatile boolean down;
+
+        @Override
+        public List<Appointment> findUpcoming(LocalDate today) {
+            check();
+            return super.findUpcoming(today);
+        }
+
+        @Override
+        public List<Appointment> findPrevious(LocalDate today) {
+            check();
+            return super.findPrevious(today);
+        }
+
+        @Override
+        public List<Appointment> findAllSorted() {
+            check();
+            return super.findAllSorted();
+        }
+
+        private void check() {
+            if (down) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+        }
+    }
+
+    private final FlakyStore store = new FlakyStore();
+    private final CircuitBreaker breaker = new CircuitBreaker(true, 1, 3000, 50);
+    private final LastKnownGood lastKnownGood = new LastKnownGood();
+
+    private AppointmentService service(boolean views) {
+        ChangeFeedService changes = new ChangeFeedService(null, null, null, null, null, null, 30, "memory");
+        return new AppointmentService(store, changes,
+                new IndexManager(null, new AppointmentSchema(false), "warn", 30, 10_000, "memory", 24),
+                new ScatterGather(1, 365, 1), breaker, lastKnownGood,
+                MongoRouting.disabled(), "", views, false, 0);
+    }
+
+    private static AppointmentController controller(AppointmentService service) {
+        return new AppointmentController(service, null, null, null, null, null, true);
+    }
+
+    private static List<String> ids(ResponseEntity<List<Appointment>> response) {
+        return response.getBody().stream().map(Appointment::getAppointmentId).toList();
+    }
+
+    @Test
+    void servesTheLastListMarkedStaleThenRefreshesOnceTheStoreAnswers() throws Exception {
+        store.insert(new Appointment("a1", TOMORROW, "Checkup"));
+        AppointmentService service = service(false);
+        AppointmentController api = controller(service);
+
+        ResponseEntity<List<Appointment>> fresh = api.getUpcomingAppointments();
+        assertEquals(List.of("a1"), ids(fresh));
+        assertNull(fresh.getHeaders().getFirst(AppointmentController.STALE_HEADER));
+        assertNull(fresh.getHeaders().getFirst(HttpHeaders.AGE));
+
+        store.down = true;
+        Thread.sleep(1100);
+        ResponseEntity<List<Appointment>> stale = api.getUpcomingAppointments();
+        assertEquals(List.of("a1"), ids(stale));
+        assertEquals("true", stale.getHeaders().getFirst(AppointmentController.STALE_HEADER));
+        assertEquals("1", stale.getHeaders().getFirst(HttpHeaders.AGE));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        // Never read successfully, so there is nothing to fall back on
+        assertThrows(RuntimeException.class, api::getPreviousAppointments);
+
+        // Refused at once while the breaker is open
+        service.refreshLastKnownGood();
+        assertEquals(0L, lastKnownGood.metrics().get("refreshed"));
+
+        store.insert(new Appointment("a2", TOMORROW, "Follow-up"));
+        store.down = false;
+        Thread.sleep(100); // past open-ms: the refresh is the trial call
+        service.refreshLastKnownGood();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1L, lastKnownGood.metrics().get("refreshed"));
+        assertEquals(false, lastKnownGood.metrics().get("refreshPending"));
+
+        ResponseEntity<List<Appointment>> recovered = api.getUpcomingAppointments();
+        assertEquals(List.of("a1", "a2"), ids(recovered));
+        assertNull(recovered.getHeaders().getFirst(AppointmentController.STALE_HEADER));
+    }
+
+    @Test
+    void loadedViewsKeepAnsweringWithoutTheStore() {
+        store.insert(new Appointment("a1", TOMORROW, "Checkup"));
+        store.insert(new Appointment("p1", LocalDate.now().minusDays(1), "Checkup"));
+        AppointmentController api = controller(service(true));
+        assertEquals(List.of("a1"), ids(api.getUpcomingAppointments()));
+
+        store.down = true;
+        ResponseEntity<List<Appointment>> upcoming = api.getUpcomingAppointments();
+        assertEquals(List.of("a1"), ids(upcoming));
+        assertNull(upcoming.getHeaders().getFirst(AppointmentController.STALE_HEADER));
+        assertEquals(List.of("p1"), ids(api.getPreviousAppointments()));
+        assertEquals(0L, lastKnownGood.metrics().get("servedStale"));
+    }
+}
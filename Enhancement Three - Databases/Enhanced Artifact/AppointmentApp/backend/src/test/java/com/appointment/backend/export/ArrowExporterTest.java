@@ -0,0 +1,243 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentCursor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads the stream back with a minimal Arrow IPC / FlatBuffers reader
+ * written from the spec, independent of the writer.
+ */
+class ArrowExporterTest {
+
+    private static final String[] PIECES = { "Checkup", "café", "日本語", "emoji 😀", "a,b" };
+
+    static List<Appointment> sample(int n) {
+        Random random = new Random(5);
+        List<Appointment> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String desc = PIECES[random.nextInt(PIECES.length)] + " " + random.nextInt(40);
+            out.add(new Appointment("x" + i, LocalDate.of(2025, 1, 1).plusDays(random.nextInt(400)), desc));
+        }
+        out.sort(Comparator.comparing(Appointment::getAppointmentDate));
+        return out;
+    }
+
+    /** Hands out the rows in windows of random size, like a date-window cursor. */
+    static AppointmentCursor cursor(List<Appointment> rows) {
+        return (targetRows, sink) -> {
+            Random random = new Random(9);
+            for (int i = 0; i < rows.size();) {
+                int to = Math.min(rows.size(), i + 1 + random.nextInt(3 * targetRows));
+                sink.accept(rows.subList(i, to));
+                i = to;
+            }
+        };
+    }
+
+    private static Decoded export(ArrowExporter exporter, List<Appointment> rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(cursor(rows), out);
+        return decode(out.toByteArray());
+    }
+
+    @Test
+    void roundTripsThroughDictionaryDeltasAndReplacements() throws Exception {
+        List<Appointment> rows = sample(1_000);
+        // 400 distinct dates and 200 descriptions against 100-entry dictionaries: both get replaced
+        Decoded d = export(new ArrowExporter(64, 100), rows);
+
+        assertEquals(List.of("appointmentId", "appointmentDate", "description"), d.fieldNames);
+        assertEquals(List.of(-1L, 1L, 0L), d.dictionaryIds);
+        assertEquals(rows.size(), d.rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Appointment a = rows.get(i);
+            assertEquals(List.of(a.getAppointmentId(), a.getAppointmentDate(), a.getDescription()), d.rows.get(i));
+        }
+        assertEquals(16, d.batchSizes.size());
+        for (int i = 0; i < 15; i++) {
+            assertEquals(64, d.batchSizes.get(i));
+        }
+        assertTrue(d.deltas > 0, "later batches only add their new values");
+        assertTrue(d.replacements > 2, "a full dictionary is replaced rather than grown");
+    }
+
+    @Test
+    void emptyExportIsSchemaThenEndOfStream() throws Exception {
+        Decoded d = export(new ArrowExporter(64, 100), List.of());
+        assertEquals(3, d.fieldNames.size());
+        assertTrue(d.rows.isEmpty());
+        assertTrue(d.batchSizes.isEmpty());
+    }
+
+    @Test
+    void smallDictionariesAreSentOnce() throws Exception {
+        List<Appointment> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(new Appointment("id" + i, LocalDate.of(2026, 3, 1 + i / 100), i % 2 == 0 ? "Dentist" : "Checkup"));
+        }
+        Decoded d = export(new ArrowExporter(128, 1_000), rows);
+        assertEquals(500, d.rows.size());
+        assertEquals(2, d.replacements); // the first batch of each dictionary
+        assertFalse(d.deltas > 3, "only new dates arrive as deltas");
+    }
+
+    // --- Minimal reader ---
+
+    private static final class Decoded {
+
+        final List<String> fieldNames = new ArrayList<>();
+        final List<Long> dictionaryIds = new ArrayList<>();
+        final List<List<Object>> rows = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        int deltas;
+        int replacements;
+    }
+
+    private static Decoded decode(byte[] stream) {
+        ByteBuffer in = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+        Decoded d = new Decoded();
+        Map<Long, List<Object>> dictionaries = new HashMap<>();
+        while (true) {
+            assertEquals(0xFFFFFFFF, in.getInt(), "continuation marker");
+            int size = in.getInt();
+            if (size == 0) {
+                break;
+            }
+            assertEquals(0, size % 8, "metadata padded to 8 bytes");
+            ByteBuffer meta = in.slice(in.position(), size).order(ByteOrder.LITTLE_ENDIAN);
+            in.position(in.position() + size);
+            int message = ref(meta, 0);
+            assertEquals(4, meta.getShort(field(meta, message, 0)), "metadata V5");
+            int type = meta.get(field(meta, message, 1));
+            int header = ref(meta, field(meta, message, 2));
+            long bodyLength = meta.getLong(field(meta, message, 3));
+            assertEquals(0, bodyLength % 8);
+            ByteBuffer body = in.slice(in.position(), (int) bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+            in.position(in.position() + (int) bodyLength);
+
+            if (type == 1) {
+                schema(meta, header, d);
+            } else if (type == 2) {
+                long id = meta.getLong(field(meta, header, 0));
+                int isDelta = field(meta, header, 2);
+                boolean delta = isDelta >= 0 && meta.get(isDelta) != 0;
+                List<Object> values = column(meta, ref(meta, field(meta, header, 1)), body, 0,
+                        id == ArrowIpcWriter.DATE_DICTIONARY);
+                if (delta) {
+                    d.deltas++;
+                    dictionaries.get(id).addAll(values);
+                } else {
+                    d.replacements++;
+                    dictionaries.put(id, new ArrayList<>(values));
+                }
+            } else {
+                assertEquals(3, type);
+                int length = (int) meta.getLong(field(meta, header, 0));
+                List<Object> ids = column(meta, header, body, 0, false);
+                List<Object> dates = column(meta, header, body, 1, false);
+                List<Object> descs = column(meta, header, body, 2, false);
+                for (int i = 0; i < length; i++) {
+                    d.rows.add(List.of(ids.get(i),
+                            dictionaries.get(ArrowIpcWriter.DATE_DICTIONARY).get((Integer) dates.get(i)),
+                            dictionaries.get(ArrowIpcWriter.DESCRIPTION_DICTIONARY).get((Integer) descs.get(i))));
+                }
+                d.batchSizes.add(length);
+            }
+        }
+        assertFalse(in.hasRemaining());
+        return d;
+    }
+
+    private static void schema(ByteBuffer meta, int schema, Decoded d) {
+        int fields = ref(meta, field(meta, schema, 1));
+        for (int i = 0; i < meta.getInt(fields); i++) {
+            int f = ref(meta, fields + 4 + 4 * i);
+            d.fieldNames.add(string(meta, field(meta, f, 0)));
+            int dictionary = field(meta, f, 4);
+            d.dictionaryIds.add(dictionary < 0 ? -1L : meta.getLong(field(meta, ref(meta, dictionary), 0)));
+            int typeType = meta.get(field(meta, f, 2));
+            assertEquals(i == 1 ? 8 : 5, typeType, "date or utf8");
+        }
+    }
+
+    /**
+     * Column {@code index} of a record batch: utf8 strings (column 0 of a
+     * batch or a description dictionary), dates (date dictionary) or int32
+     * dictionary indexes.
+     */
+    private static List<Object> column(ByteBuffer meta, int batch, ByteBuffer body, int index, boolean dates) {
+        int length = (int) meta.getLong(field(meta, batch, 0));
+        int nodes = ref(meta, field(meta, batch, 1));
+        assertEquals(length, meta.getLong(nodes + 4 + 16 * index));
+        assertEquals(0, meta.getLong(nodes + 4 + 16 * index + 8), "null count");
+        assertEquals(0, (nodes + 4) % 8, "struct vector aligned");
+        int buffers = ref(meta, field(meta, batch, 2));
+        int columns = meta.getInt(nodes);
+        int first = 0;
+        List<Object> out = new ArrayList<>();
+        if (columns == 3) {
+            first = new int[] { 0, 3, 5 }[index]; // utf8 has 3 buffers, indexes 2
+        }
+        long[] offsets = new long[3];
+        long[] lengths = new long[3];
+        for (int b = 0; b < 3 && first + b < meta.getInt(buffers); b++) {
+            offsets[b] = meta.getLong(buffers + 4 + 16 * (first + b));
+            lengths[b] = meta.getLong(buffers + 4 + 16 * (first + b) + 8);
+            assertEquals(0, offsets[b] % 8, "buffer aligned");
+        }
+        assertEquals(0, lengths[0], "no validity bitmap");
+        boolean utf8 = columns == 3 ? index == 0 : !dates;
+        for (int i = 0; i < length; i++) {
+            if (utf8) {
+                int start = body.getInt((int) offsets[1] + 4 * i);
+                int end = body.getInt((int) offsets[1] + 4 * (i + 1));
+                byte[] bytes = new byte[end - start];
+                body.get((int) offsets[2] + start, bytes);
+                out.add(new String(bytes, StandardCharsets.UTF_8));
+            } else {
+                int v = body.getInt((int) offsets[1] + 4 * i);
+                out.add(dates ? LocalDate.ofEpochDay(v) : (Object) v);
+            }
+        }
+        return out;
+    }
+
+    /** Absolute position of field {@code id} of the table at {@code table}, or -1 if absent. */
+    private static int field(ByteBuffer buf, int table, int id) {
+        int vtable = table - buf.getInt(table);
+        int vtableSize = buf.getShort(vtable);
+        if (4 + 2 * id >= vtableSize) {
+            return -1;
+        }
+        int offset = buf.getShort(vtable + 4 + 2 * id);
+        return offset == 0 ? -1 : table + offset;
+    }
+
+    private static int ref(ByteBuffer buf, int pos) {
+        return pos + buf.getInt(pos);
+    }
+
+    private static String string(ByteBuffer buf, int pos) {
+        int s = ref(buf, pos);
+        byte[] bytes = new byte[buf.getInt(s)];
+        buf.get(s + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
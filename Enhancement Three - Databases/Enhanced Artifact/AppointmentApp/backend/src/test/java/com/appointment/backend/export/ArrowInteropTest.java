@@ -0,0 +1,96 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.model.Appointment;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Reads the export with the reference Java implementation (arrow-vector),
+ * so a misreading of the IPC or FlatBuffers spec shared by ArrowIpcWriter
+ * and the hand-written reader in ArrowExporterTest cannot pass unnoticed.
+ * Needs the dependency, so it is compiled and run only with the profile:
+ *   mvn test -Parrow-interop -Dtest=ArrowInteropTest
+ */
+class ArrowInteropTest {
+
+    @Test
+    void referenceReaderDecodesDeltasAndReplacements() throws Exception {
+        List<Appointment> rows = ArrowExporterTest.sample(1_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 100-entry dictionaries against 400 dates and 200 descriptions: deltas and replacements both occur
+        new ArrowExporter(64, 100).write(ArrowExporterTest.cursor(rows), out);
+
+        List<List<Object>> read = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()),
+                        allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            List<Field> fields = root.getSchema().getFields();
+            assertEquals(List.of("appointmentId", "appointmentDate", "description"),
+                    fields.stream().map(Field::getName).toList());
+            assertNull(fields.get(0).getDictionary());
+            assertEquals(1L, fields.get(1).getDictionary().getId());
+            assertEquals(0L, fields.get(2).getDictionary().getId());
+            assertEquals(new ArrowType.Int(32, true), fields.get(1).getDictionary().getIndexType());
+
+            while (reader.loadNextBatch()) {
+                VarCharVector ids = (VarCharVector) root.getVector("appointmentId");
+                Dictionary dates = reader.getDictionaryVectors().get(1L);
+                Dictionary descriptions = reader.getDictionaryVectors().get(0L);
+                try (ValueVector dateValues = DictionaryEncoder.decode(root.getVector("appointmentDate"), dates);
+                        ValueVector descValues = DictionaryEncoder.decode(root.getVector("description"),
+                                descriptions)) {
+                    assertInstanceOf(DateDayVector.class, dateValues);
+                    for (int i = 0; i < root.getRowCount(); i++) {
+                        read.add(List.of(
+                                new String(ids.get(i), StandardCharsets.UTF_8),
+                                LocalDate.ofEpochDay(((DateDayVector) dateValues).get(i)),
+                                new String(((VarCharVector) descValues).get(i), StandardCharsets.UTF_8)));
+                    }
+                }
+            }
+        }
+
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Appointment a = rows.get(i);
+            assertEquals(List.of(a.getAppointmentId(), a.getAppointmentDate(), a.getDescription()), read.get(i));
+        }
+    }
+
+    @Test
+    void referenceReaderAcceptsAnEmptyExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowExporter(64, 100).write(ArrowExporterTest.cursor(List.of()), out);
+        try (BufferAllocator allocator = new RootAllocator();
+                ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()),
+                        allocator)) {
+            List<FieldVector> vectors = reader.getVectorSchemaRoot().getFieldVectors();
+            assertEquals(3, vectors.size());
+            assertFalse(reader.loadNextBatch());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentCursor;
+import com.appointment.backend.util.CsvUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares CSV encoding throughput (MB/s of CSV produced) of CsvUtil and
+ * CsvExporter, plain and gzipped. Skipped unless enabled:
+ *   mvn test -Dtest=CsvExportBenchmark -Dcsv.benchmark=true [-Dcsv.benchmark.size=500000]
+ * "per core" divides by the threads that did the encoding.
+ */
+class CsvExportBenchmark {
+
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    @Test
+    void compareEncoders() throws Exception {
+        assumeTrue(Boolean.getBoolean("csv.benchmark"), "set -Dcsv.benchmark=true to run");
+        int size = Integer.getInteger("csv.benchmark.size", 500_000);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Random random = new Random(3);
+        List<Appointment> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String desc = random.nextInt(10) == 0 ? "Follow-up, room " + i : "Annual checkup " + i;
+            items.add(new Appointment("c" + i, LocalDate.of(2026, 1, 1).plusDays(i * 1460L / size), desc));
+        }
+        long mb = CsvUtil.toCsv(items).getBytes(StandardCharsets.UTF_8).length;
+        AppointmentCursor cursor = (targetRows, sink) -> {
+            for (int i = 0; i < size; i += targetRows) {
+                sink.accept(items.subList(i, Math.min(size, i + targetRows)));
+            }
+        };
+
+        System.out.printf("%nCSV export benchmark, %d rows, %.1f MB, %d cores%n", size, mb / 1e6, cores);
+        System.out.printf("%-22s %10s %14s%n", "encoder", "MB/s", "MB/s per core");
+        report("CsvUtil (1 thread)", mb, 1, () -> DISCARD.write(CsvUtil.toCsv(items).getBytes(StandardCharsets.UTF_8)));
+
+        CsvExporter single = new CsvExporter(1, 4096, 1);
+        report("CsvExporter 1 thread", mb, 1, () -> single.write(cursor, DISCARD, false));
+        single.stop();
+
+        CsvExporter parallel = new CsvExporter(cores, 4096, 1);
+        report("CsvExporter " + cores + " thread(s)", mb, cores, () -> parallel.write(cursor, DISCARD, false));
+        report("  + gzip level 1", mb, cores, () -> parallel.write(cursor, DISCARD, true));
+        parallel.stop();
+    }
+
+    private interface Run {
+        void run() throws Exception;
+    }
+
+    private static void report(String name, long bytes, int threads, Run run) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            run.run(); // warm-up
+        }
+        int runs = 5;
+        long t = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            run.run();
+        }
+        double mbps = bytes * runs / 1e6 / ((System.nanoTime() - t) / 1e9);
+        System.out.printf("%-22s %10.1f %14.1f%n", name, mbps, mbps / threads);
+    }
+}
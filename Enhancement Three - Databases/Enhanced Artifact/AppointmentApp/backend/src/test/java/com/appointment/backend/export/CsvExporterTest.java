@@ -0,0 +1,106 @@
+package com.appointment.backend.export;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.util.CsvUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvExporterTest {
+
+    // Every branch of the encoder: plain ASCII, quoting triggers, 2/3/4-byte UTF-8, a lone surrogate
+    private static final String[] PIECES = { "Checkup", "a,b", "say \"hi\"", "line\nbreak", "cr\rhere",
+            "café", "日本語", "emoji 😀", "lone \uD800 surrogate", "\"", "," };
+
+    private final CsvExporter exporter = new CsvExporter(4, 50, 1);
+
+    @AfterEach
+    void stop() {
+        exporter.stop();
+    }
+
+    private static List<Appointment> sample(int n) {
+        Random random = new Random(11);
+        List<Appointment> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String desc = PIECES[random.nextInt(PIECES.length)] + PIECES[random.nextInt(PIECES.length)];
+            String id = random.nextInt(20) == 0 ? "i,d" + i : "x" + i;
+            out.add(new Appointment(id, LocalDate.of(2025, 1, 1).plusDays(random.nextInt(400)), desc));
+        }
+        out.sort(Comparator.comparing(Appointment::getAppointmentDate));
+        return out;
+    }
+
+    private byte[] export(List<Appointment> items, boolean gzip) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.write(ArrowExporterTest.cursor(items), out, gzip);
+        return out.toByteArray();
+    }
+
+    @Test
+    void bytesMatchCsvUtil() throws Exception {
+        for (int n : new int[] { 0, 1, 49, 5_000 }) {
+            List<Appointment> items = sample(n);
+            assertArrayEquals(CsvUtil.toCsv(items).getBytes(StandardCharsets.UTF_8), export(items, false), "n=" + n);
+        }
+    }
+
+    @Test
+    void gzipRoundTripsToSameBytes() throws Exception {
+        List<Appointment> items = sample(5_000);
+        byte[] zipped = export(items, true);
+        byte[] plain;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(zipped))) {
+            plain = in.readAllBytes();
+        }
+        assertArrayEquals(CsvUtil.toCsv(items).getBytes(StandardCharsets.UTF_8), plain);
+        assertNotEquals(plain.length, zipped.length);
+    }
+
+    @Test
+    void rowsAreWrittenWhileTheCursorIsStillReading() throws Exception {
+        List<Appointment> items = sample(5_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Integer> writtenBeforeWindow = new ArrayList<>();
+        exporter.write((targetRows, sink) -> {
+            for (int i = 0; i < items.size(); i += targetRows) {
+                writtenBeforeWindow.add(out.size());
+                sink.accept(items.subList(i, Math.min(items.size(), i + targetRows)));
+            }
+        }, out, false);
+
+        assertArrayEquals(CsvUtil.toCsv(items).getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        // 100 windows, at most 2 x 4 chunks in flight: the last windows are read after rows went out
+        assertEquals(100, writtenBeforeWindow.size());
+        assertTrue(writtenBeforeWindow.get(99) > CsvRowEncoder.HEADER.length);
+    }
+
+    @Test
+    void chunksEndOnDateBoundaries() {
+        List<Appointment> items = sample(2_000);
+        List<int[]> parts = CsvExporter.partition(items, 50);
+        int expectedFrom = 0;
+        for (int[] p : parts) {
+            assertEquals(expectedFrom, p[0]);
+            if (p[1] < items.size()) {
+                assertNotEquals(items.get(p[1] - 1).getAppointmentDate(), items.get(p[1]).getAppointmentDate());
+            }
+            expectedFrom = p[1];
+        }
+        assertEquals(items.size(), expectedFrom);
+    }
+}
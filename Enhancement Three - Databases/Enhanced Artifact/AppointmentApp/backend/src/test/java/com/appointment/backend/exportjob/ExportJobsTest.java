@@ -0,0 +1,176 @@
+package com.appointment.backend.exportjob;
+
+import com.appointment.backend.breaker.CircuitBreaker;
+import com.appointment.backend.export.ArrowExporter;
+import com.appointment.backend.export.CsvExporter;
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.service.AppointmentService;
+import com.appointment.backend.service.LastKnownGood;
+import com.appointment.backend.service.ScatterGather;
+import com.appointment.backend.store.InMemoryAppointmentStore;
+import com.appointment.backend.sync.ChangeFeedService;
+import com.appointment.backend.sync.ChangeSequence;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Job deduplication, queue limits and expiry, with one worker, one queue
+ * slot and a TTL of zero. JSON jobs wait on {@link #release} (and fail while
+ * {@link #failJson} is set), so tests can hold the worker busy.
+ */
+class ExportJobsTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong seq = new AtomicLong(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicBoolean failJson = new AtomicBoolean();
+    private CsvExporter csv;
+    private ExportJobs jobs;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryAppointmentStore store = new InMemoryAppointmentStore();
+        for (int i = 0; i < 5; i++) {
+            store.insert(new Appointment("a" + i, LocalDate.now().plusDays(i - 2), "Checkup"));
+        }
+        ChangeFeedService changes = new ChangeFeedService(null, null, null, null, null, null, 30, "memory");
+        AppointmentService service = new AppointmentService(store, changes,
+                new IndexManager(null, new AppointmentSchema(false), "warn", 30, 10_000, "memory", 24),
+                new ScatterGather(1, 365, 1), new CircuitBreaker(false, 5, 3000, 10_000), new LastKnownGood(),
+                MongoRouting.disabled(), "", true, false, 0);
+        ChangeSequence sequence = new ChangeSequence((MongoTemplate) null) {
+            @Override
+            public long current() {
+                return seq.get();
+            }
+        };
+        ObjectMapper json = new ObjectMapper() {
+            @Override
+            public void writeValue(OutputStream out, Object value) throws IOException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failJson.get()) {
+                    throw new IOException("disk full");
+                }
+                super.writeValue(out, value);
+            }
+        };
+        json.findAndRegisterModules();
+        csv = new CsvExporter(1, 4096, 1);
+        jobs = new ExportJobs(service, csv, new ArrowExporter(1024, 1024), json, sequence,
+                dir.toString(), 1, 1, 0, 10);
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        jobs.stop();
+        csv.stop();
+    }
+
+    private static ExportJob.Status await(ExportJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((job.getStatus() == ExportJob.Status.QUEUED || job.getStatus() == ExportJob.Status.RUNNING)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return job.getStatus();
+    }
+
+    @Test
+    void identicalRequestsShareAJobUntilAnAppointmentIsWritten() throws Exception {
+        ExportJob first = jobs.submit("csv", "all", null, null);
+        assertSame(first, jobs.submit("CSV", "ALL", null, null));
+        assertEquals(ExportJob.Status.DONE, await(first));
+        assertSame(first, jobs.submit("csv", "all", null, null)); // finished jobs are reused too
+        ExportJob other = jobs.submit("csv", "upcoming", null, null);
+        assertNotEquals(first.getId(), other.getId());
+        assertEquals(ExportJob.Status.DONE, await(other));
+
+        seq.incrementAndGet(); // a write since the first job
+        ExportJob fresh = jobs.submit("csv", "all", null, null);
+        assertNotEquals(first.getId(), fresh.getId());
+        assertEquals(2L, jobs.metrics().get("deduplicated"));
+        assertEquals(ExportJob.Status.DONE, await(fresh));
+    }
+
+    @Test
+    void aFailedJobIsNotReused() throws Exception {
+        failJson.set(true);
+        release.countDown();
+        ExportJob failed = jobs.submit("json", "all", null, null);
+        assertEquals(ExportJob.Status.FAILED, await(failed));
+        assertTrue(failed.getError().contains("disk full"));
+        assertFalse(Files.exists(dir.resolve(failed.getId() + ".part")));
+
+        failJson.set(false);
+        ExportJob retry = jobs.submit("json", "all", null, null);
+        assertNotEquals(failed.getId(), retry.getId());
+        assertEquals(ExportJob.Status.DONE, await(retry));
+    }
+
+    @Test
+    void aFullQueueIsRefusedAndTheRefusedRequestIsNotKept() throws Exception {
+        ExportJob running = jobs.submit("json", "all", null, null);
+        ExportJob queued = jobs.submit("json", "upcoming", null, null);
+        TooManyExportJobsException ex = assertThrows(TooManyExportJobsException.class,
+                () -> jobs.submit("json", "previous", null, null));
+        assertEquals(10, ex.getRetryAfterSeconds());
+        assertEquals(1L, jobs.metrics().get("rejected"));
+        assertEquals(2, jobs.metrics().get("jobs"));
+
+        release.countDown();
+        assertEquals(ExportJob.Status.DONE, await(running));
+        assertEquals(ExportJob.Status.DONE, await(queued));
+        // The refused request was not recorded, so it is not handed back as a dead job
+        ExportJob later = jobs.submit("json", "previous", null, null);
+        assertEquals(ExportJob.Status.DONE, await(later));
+    }
+
+    @Test
+    void finishedJobsExpireWithTheirFiles() throws Exception {
+        ExportJob job = jobs.submit("csv", "all", null, null);
+        assertEquals(ExportJob.Status.DONE, await(job));
+        Path file = job.getFile();
+        assertTrue(Files.exists(file));
+
+        Thread.sleep(5); // TTL is zero: anything finished before now expires
+        jobs.expire();
+        assertNull(jobs.find(job.getId()));
+        assertFalse(Files.exists(file));
+        assertEquals(1L, jobs.metrics().get("expired"));
+        ExportJob again = jobs.submit("csv", "all", null, null);
+        assertNotEquals(job.getId(), again.getId());
+        assertEquals(ExportJob.Status.DONE, await(again));
+    }
+}
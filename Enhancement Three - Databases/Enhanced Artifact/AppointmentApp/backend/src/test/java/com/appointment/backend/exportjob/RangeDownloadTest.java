@@ -0,0 +1,73 @@
+package com.appointment.backend.exportjob;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RangeDownloadTest {
+
+    private static final String ETAG = "\"job1\"";
+
+    @Test
+    void spans() {
+        assertArrayEquals(new long[] { 0, 1000, 0 }, RangeDownload.span(null, null, ETAG, 1000));
+        assertArrayEquals(new long[] { 100, 200, 1 }, RangeDownload.span("bytes=100-199", null, ETAG, 1000));
+        // Open-ended (resume) and suffix ranges
+        assertArrayEquals(new long[] { 600, 1000, 1 }, RangeDownload.span("bytes=600-", null, ETAG, 1000));
+        assertArrayEquals(new long[] { 900, 1000, 1 }, RangeDownload.span("bytes=-100", null, ETAG, 1000));
+        // A last byte past the end is clamped
+        assertArrayEquals(new long[] { 990, 1000, 1 }, RangeDownload.span("bytes=990-5000", null, ETAG, 1000));
+    }
+
+    @Test
+    void unsatisfiableRangesAreRefused() {
+        assertNull(RangeDownload.span("bytes=1000-", null, ETAG, 1000));
+        assertNull(RangeDownload.span("bytes=0-", null, ETAG, 0));
+    }
+
+    @Test
+    void rangeIsIgnoredWhenItCannotApply() {
+        long[] whole = { 0, 1000, 0 };
+        assertArrayEquals(whole, RangeDownload.span("bytes=0-9,20-29", null, ETAG, 1000));
+        assertArrayEquals(whole, RangeDownload.span("lines=1-2", null, ETAG, 1000));
+        assertArrayEquals(whole, RangeDownload.span("bytes=100-199", "\"other\"", ETAG, 1000));
+        assertArrayEquals(new long[] { 100, 200, 1 }, RangeDownload.span("bytes=100-199", ETAG, ETAG, 1000));
+    }
+
+    @Test
+    void partialResponseCarriesTheRequestedBytes(@TempDir Path dir) throws Exception {
+        byte[] data = new byte[200_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        Path file = dir.resolve("export.csv");
+        Files.write(file, data);
+
+        ResponseEntity<?> response = RangeDownload.of(file, data.length, "text/csv;charset=UTF-8",
+                "appointments-all.csv", ETAG, "bytes=150000-", null);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 150000-199999/200000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(50_000, response.getHeaders().getContentLength());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        assertArrayEquals(Arrays.copyOfRange(data, 150_000, 200_000), out.toByteArray());
+
+        ResponseEntity<?> refused = RangeDownload.of(file, data.length, "text/csv", "a.csv", ETAG, "bytes=300000-",
+                null);
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, refused.getStatusCode());
+        assertEquals("bytes */200000", refused.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+}
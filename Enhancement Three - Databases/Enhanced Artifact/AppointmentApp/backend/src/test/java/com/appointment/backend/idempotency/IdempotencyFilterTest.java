@@ -0,0 +1,278 @@
+package com.appointment.backend.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"appointmentId\":\"A1\",\"appointmentDate\":\"2030-01-15\",\"description\":\"Checkup\"}";
+
+    private final Map<String, StoredResponse> mongo = new ConcurrentHashMap<>();
+    private final Instant start = Instant.parse("2030-01-01T00:00:00Z");
+    private final AtomicInteger controllerCalls = new AtomicInteger();
+    private IdempotencyStore store;
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore(Clock.fixed(start, ZoneOffset.UTC));
+        filter = new IdempotencyFilter(store);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice@example.com", null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private IdempotencyStore newStore(Clock clock) {
+        return new IdempotencyStore(true, Duration.ofHours(24), Duration.ofMinutes(1), 100, 2_000, 1024,
+                new IdempotencyStore.Keys() {
+                    @Override
+                    public StoredResponse find(String id) {
+                        return mongo.get(id);
+                    }
+
+                    @Override
+                    public boolean insert(StoredResponse claim) {
+                        return mongo.putIfAbsent(claim.getId(), claim) == null;
+                    }
+
+                    @Override
+                    public void save(StoredResponse response) {
+                        mongo.put(response.getId(), response);
+                    }
+
+                    @Override
+                    public boolean replace(StoredResponse old, StoredResponse claim) {
+                        return mongo.replace(old.getId(), old, claim);
+                    }
+
+                    @Override
+                    public void release(StoredResponse claim) {
+                        mongo.remove(claim.getId(), claim);
+                    }
+                }, clock);
+    }
+
+    private static MockHttpServletRequest post(String key, String body) {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/appointments");
+        req.setContentType("application/json");
+        req.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            req.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        return req;
+    }
+
+    /** Stands in for the controller: echoes the body it received with 200, or 409 on a second create. */
+    private FilterChain controller() {
+        return (req, res) -> {
+            int n = controllerCalls.incrementAndGet();
+            String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            HttpServletResponse http = (HttpServletResponse) res;
+            http.setStatus(n == 1 ? 200 : 409);
+            http.setContentType("application/json");
+            http.getWriter().write(n == 1 ? "{\"status\":\"created\",\"echo\":" + body.length() + "}" : "{\"error\":\"exists\"}");
+        };
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest req, FilterChain chain) throws Exception {
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        filter.doFilter(req, res, chain);
+        return res;
+    }
+
+    @Test
+    void retryReplaysFirstResponseWithoutReachingController() throws Exception {
+        MockHttpServletResponse first = send(post("k-1", BODY), controller());
+        MockHttpServletResponse retry = send(post("k-1", BODY), controller());
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(200, first.getStatus());
+        assertEquals("{\"status\":\"created\",\"echo\":" + BODY.length() + "}", first.getContentAsString());
+        assertEquals(200, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void storedResponseSurvivesRestartUntilItExpires() throws Exception {
+        send(post("k-1", BODY), controller());
+
+        // New instance, empty near cache: found in the collection
+        filter = new IdempotencyFilter(newStore(Clock.fixed(start.plus(Duration.ofHours(23)), ZoneOffset.UTC)));
+        assertEquals(200, send(post("k-1", BODY), controller()).getStatus());
+        assertEquals(1, controllerCalls.get());
+
+        // Past the TTL (before the TTL monitor removed it): runs again
+        filter = new IdempotencyFilter(newStore(Clock.fixed(start.plus(Duration.ofHours(25)), ZoneOffset.UTC)));
+        assertEquals(409, send(post("k-1", BODY), controller()).getStatus());
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRefused() throws Exception {
+        send(post("k-1", BODY), controller());
+        MockHttpServletResponse res = send(post("k-1", BODY.replace("A1", "A2")), controller());
+        assertEquals(422, res.getStatus());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    void keysAreScopedPerUserAndRequestsWithoutKeyPassThrough() throws Exception {
+        send(post("k-1", BODY), controller());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bob@example.com", null, List.of()));
+        assertEquals(409, send(post("k-1", BODY), controller()).getStatus());
+        assertEquals(409, send(post(null, BODY), controller()).getStatus());
+        assertEquals(3, controllerCalls.get());
+    }
+
+    @Test
+    void serverErrorsAreNotStored() throws Exception {
+        FilterChain failing = (req, res) -> {
+            controllerCalls.incrementAndGet();
+            ((HttpServletResponse) res).setStatus(503);
+        };
+        send(post("k-1", BODY), failing);
+        send(post("k-1", BODY), failing);
+        assertEquals(2, controllerCalls.get());
+        assertTrue(mongo.isEmpty());
+    }
+
+    @Test
+    void oversizeBodyIsRefusedBeforeTheKeyIsClaimed() throws Exception {
+        MockHttpServletResponse res = send(post("k-1", "x".repeat(1025)), controller());
+        assertEquals(413, res.getStatus());
+        assertEquals(0, controllerCalls.get());
+        assertTrue(mongo.isEmpty());
+    }
+
+    @Test
+    void keyClaimedByAnotherInstanceIsWaitedFor() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (req, res) -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            controller().doFilter(req, res);
+        };
+        IdempotencyFilter other = new IdempotencyFilter(newStore(Clock.fixed(start, ZoneOffset.UTC)));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            var auth = SecurityContextHolder.getContext().getAuthentication();
+            Future<MockHttpServletResponse> first = pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(auth);
+                return send(post("k-1", BODY), slow);
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            assertTrue(mongo.get(auth.getName() + " k-1").isPending());
+            Future<MockHttpServletResponse> second = pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(auth);
+                MockHttpServletResponse res = new MockHttpServletResponse();
+                other.doFilter(post("k-1", BODY), res, slow);
+                return res;
+            });
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+            MockHttpServletResponse dup = second.get(5, TimeUnit.SECONDS);
+            assertEquals(200, dup.getStatus());
+            assertEquals("true", dup.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+            assertEquals(1, controllerCalls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void claimLeftByADeadInstanceIsTakenOverAfterTheLease() throws Exception {
+        String id = "alice@example.com k-1";
+        mongo.put(id, StoredResponse.pending(id, "whatever", start.minus(Duration.ofMinutes(2))));
+
+        assertEquals(200, send(post("k-1", BODY), controller()).getStatus());
+        assertEquals(1, controllerCalls.get());
+        assertEquals(1L, store.metrics().get("takenOver"));
+        assertEquals(200, mongo.get(id).getStatus());
+    }
+
+    @Test
+    void abandonedAttemptReleasesItsClaim() throws Exception {
+        FilterChain failing = (req, res) -> ((HttpServletResponse) res).setStatus(503);
+        send(post("k-1", BODY), failing);
+        assertTrue(mongo.isEmpty());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForFirstAttempt() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (req, res) -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            controller().doFilter(req, res);
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            var auth = SecurityContextHolder.getContext().getAuthentication();
+            Future<MockHttpServletResponse> first = pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(auth);
+                return send(post("k-1", BODY), slow);
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<MockHttpServletResponse> second = pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(auth);
+                return send(post("k-1", BODY), slow);
+            });
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+            MockHttpServletResponse dup = second.get(5, TimeUnit.SECONDS);
+            assertEquals(200, dup.getStatus());
+            assertEquals("true", dup.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+            assertEquals(1, controllerCalls.get());
+            assertEquals(1L, store.metrics().get("replayedAfterWait"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.appointment.backend.index;
+
+import com.appointment.backend.repo.AppointmentSchema;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Index states and enforce mode. The build/retry test needs a real MongoDB
+ * (skipped if none is reachable; override with -Dtest.mongodb.uri=...).
+ */
+class IndexManagerTest {
+
+    private static final String URI = System.getProperty("test.mongodb.uri",
+            "mongodb://localhost:27017/appointmentapp_test?serverSelectionTimeoutMS=1000");
+
+    private static MongoClient client;
+
+    @AfterAll
+    static void disconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    private static MongoTemplate connect() {
+        if (client == null) {
+            MongoClient c = MongoClients.create(URI);
+            try {
+                c.getDatabase("admin").runCommand(new Document("ping", 1));
+                client = c;
+            } catch (RuntimeException e) {
+                c.close();
+            }
+        }
+        assumeTrue(client != null, "MongoDB not reachable at " + URI);
+        return new MongoTemplate(client, "appointmentapp_indexes_test");
+    }
+
+    private static IndexManager manager(MongoTemplate mongo, String mode, long failedRetryMs) {
+        return new IndexManager(mongo, new AppointmentSchema(false), mode, 30, 50, failedRetryMs, "mongo", 24);
+    }
+
+    @Test
+    void enforceModeRefusesPathsUntilTheirIndexesAreReady() {
+        IndexManager enforce = manager(null, "enforce", 60_000);
+        IndexNotReadyException ex = assertThrows(IndexNotReadyException.class,
+                () -> enforce.require(IndexManager.USERS_BY_EMAIL));
+        assertEquals(30, ex.getRetryAfterSeconds());
+        assertFalse(enforce.allows(IndexManager.APPOINTMENTS_BY_DATE));
+        assertFalse(enforce.isReady());
+
+        IndexManager warn = manager(null, "warn", 60_000);
+        assertDoesNotThrow(() -> warn.require(IndexManager.USERS_BY_EMAIL));
+        assertTrue(warn.allows(IndexManager.APPOINTMENTS_BY_DATE));
+    }
+
+    @Test
+    void aFailedUniqueIndexIsRetriedUntilTheDuplicatesAreGone() throws Exception {
+        MongoTemplate mongo = connect();
+        mongo.getDb().drop();
+        mongo.getCollection("users").insertMany(List.of(
+                new Document("_id", "u1").append("email", "same@example.com"),
+                new Document("_id", "u2").append("email", "same@example.com")));
+
+        IndexManager indexes = manager(mongo, "enforce", 100);
+        Thread builder = new Thread(indexes::buildMissing);
+        builder.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+            while (!indexes.hasFailed(IndexManager.USERS_BY_EMAIL) && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(indexes.hasFailed(IndexManager.USERS_BY_EMAIL));
+            IndexNotReadyException ex = assertThrows(IndexNotReadyException.class,
+                    () -> indexes.require(IndexManager.USERS_BY_EMAIL));
+            assertTrue(ex.getMessage().contains("failed"));
+            assertTrue(emailIndexEntry(indexes).containsKey("error"));
+
+            // An operator removes the duplicate; the next retry builds the index
+            mongo.getCollection("users").deleteOne(new Document("_id", "u2"));
+            builder.join(TimeUnit.SECONDS.toMillis(20));
+            assertFalse(builder.isAlive());
+            assertDoesNotThrow(() -> indexes.require(IndexManager.USERS_BY_EMAIL));
+            assertFalse(emailIndexEntry(indexes).containsKey("error"));
+            assertTrue(indexes.isReady());
+        } finally {
+            builder.interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> emailIndexEntry(IndexManager indexes) {
+        List<Map<String, Object>> all = (List<Map<String, Object>>) indexes.report().get("indexes");
+        return all.stream().filter(e -> IndexManager.USERS_BY_EMAIL.equals(e.get("path"))).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,37 @@
+package com.appointment.backend.index;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexSpecTest {
+
+    private static final IndexSpec PURGE = new IndexSpec("appointment_tombstones", "deletedAt_seq",
+            new Document("deletedAt", 1).append("changeSeq", -1), false, IndexManager.TOMBSTONE_PURGE);
+
+    @Test
+    void matchesSameKeysUnderAnyNameAndNumberType() {
+        // listIndexes returns whatever the creator sent, e.g. doubles from the shell
+        Document existing = new Document("v", 2).append("name", "deletedAt_1_changeSeq_-1")
+                .append("key", new Document("deletedAt", 1.0).append("changeSeq", -1L));
+        assertTrue(PURGE.matches(existing));
+    }
+
+    @Test
+    void keyOrderDirectionAndUniquenessMatter() {
+        assertFalse(PURGE.matches(new Document("key", new Document("changeSeq", -1).append("deletedAt", 1))));
+        assertFalse(PURGE.matches(new Document("key", new Document("deletedAt", 1).append("changeSeq", 1))));
+        assertFalse(PURGE.matches(new Document("key", new Document("deletedAt", 1)
+                .append("changeSeq", -1)).append("unique", true)));
+    }
+
+    @Test
+    void uniqueSpecNeedsUniqueIndex() {
+        IndexSpec email = new IndexSpec("users", "email_unique", new Document("email", 1), true,
+                IndexManager.USERS_BY_EMAIL);
+        assertFalse(email.matches(new Document("key", new Document("email", 1))));
+        assertTrue(email.matches(new Document("key", new Document("email", 1)).append("unique", true)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.appointment.backend.loadshed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static AdaptiveLimiter limiter(int initial) {
+        return new AdaptiveLimiter(true, initial, 4, 100, 1.5, 0.5, 10, 0.5, 0.8, 1);
+    }
+
+    /** One full window of requests with {@code concurrency} in flight, each taking {@code rttNanos}. */
+    private static void window(AdaptiveLimiter limiter, int concurrency, long rttNanos) {
+        for (int i = 0; i < 10; i += concurrency) {
+            for (int j = 0; j < concurrency; j++) {
+                assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.CRITICAL));
+            }
+            for (int j = 0; j < concurrency; j++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+
+    @Test
+    void lowerPrioritiesAreShedFirst() {
+        AdaptiveLimiter limiter = limiter(10);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.LOW));
+        }
+        assertFalse(limiter.tryAcquire(AdaptiveLimiter.Priority.LOW));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.NORMAL));
+        }
+        assertFalse(limiter.tryAcquire(AdaptiveLimiter.Priority.NORMAL));
+        assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.CRITICAL));
+        assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.CRITICAL));
+        assertFalse(limiter.tryAcquire(AdaptiveLimiter.Priority.CRITICAL));
+
+        assertEquals(10, limiter.metrics().get("inFlight"));
+        assertEquals(1L, limiter.metrics().get("droppedLow"));
+        assertEquals(1L, limiter.metrics().get("droppedNormal"));
+        assertEquals(1L, limiter.metrics().get("droppedCritical"));
+
+        limiter.release(-1);
+        assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.CRITICAL));
+    }
+
+    @Test
+    void limitGrowsWhileLatencyHoldsAndShrinksWhenItRises() {
+        AdaptiveLimiter limiter = limiter(10);
+        for (int i = 0; i < 5; i++) {
+            window(limiter, 10, 5 * MS);
+        }
+        int grown = limiter.limit();
+        assertTrue(grown > 10, "limit " + grown);
+
+        for (int i = 0; i < 5; i++) {
+            window(limiter, 5, 50 * MS);
+        }
+        int shrunk = limiter.limit();
+        assertTrue(shrunk <= grown * 0.6, "limit " + shrunk + " after " + grown);
+        assertTrue(shrunk >= 4);
+        assertTrue((Long) limiter.metrics().get("limitDecreases") > 0);
+    }
+
+    @Test
+    void idleLimitDoesNotGrow() {
+        AdaptiveLimiter limiter = limiter(40);
+        for (int i = 0; i < 20; i++) {
+            window(limiter, 1, 5 * MS);
+        }
+        assertEquals(40, limiter.limit());
+    }
+}
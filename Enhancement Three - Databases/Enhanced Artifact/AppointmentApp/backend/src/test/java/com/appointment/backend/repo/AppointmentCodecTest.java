@@ -0,0 +1,98 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.model.Appointment;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The codec must read and write exactly what Spring Data's mapping converter
+ * does, since both paths share the collection.
+ */
+class AppointmentCodecTest {
+
+    private final AppointmentCodec codec = new AppointmentCodec();
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    void decodesWhatSpringDataWrites() {
+        Appointment original = appointment("a1", LocalDate.of(2030, 6, 15), "Dentist", 42);
+        Document written = new Document();
+        converter.write(original, written); // includes _class
+
+        BsonDocument bson = written.toBsonDocument(BsonDocument.class, AppointmentCodec.REGISTRY);
+        Appointment decoded = codec.decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+
+        assertSame(original, decoded);
+    }
+
+    @Test
+    void springDataReadsWhatTheCodecWrites() {
+        Appointment original = appointment("a2", LocalDate.of(2001, 1, 31), "Annual checkup", 7);
+        BsonDocument bson = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(bson), original, EncoderContext.builder().build());
+
+        Document doc = new DocumentCodec().decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+        assertSame(original, converter.read(Appointment.class, doc));
+    }
+
+    @Test
+    void missingChangeSeqDefaultsToZero() {
+        BsonDocument bson = new Document("_id", "old1")
+                .append("appointmentDate", AppointmentSchema.toBsonDate(LocalDate.of(2020, 3, 1)))
+                .append("description", "Before the change feed")
+                .toBsonDocument(BsonDocument.class, AppointmentCodec.REGISTRY);
+
+        Appointment decoded = codec.decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+
+        assertEquals(0, decoded.getChangeSeq());
+        assertEquals(LocalDate.of(2020, 3, 1), decoded.getAppointmentDate());
+    }
+
+    @Test
+    void decodesCompactDocuments() {
+        Appointment original = appointment("c1", LocalDate.of(2031, 2, 3), "Eye exam", 11);
+        BsonDocument bson = AppointmentSchema.write(original, true)
+                .toBsonDocument(BsonDocument.class, AppointmentCodec.REGISTRY);
+
+        assertSame(original, codec.decode(new BsonDocumentReader(bson), DecoderContext.builder().build()));
+    }
+
+    private static Appointment appointment(String id, LocalDate date, String description, long seq) {
+        Appointment a = new Appointment(id, date, description);
+        a.setChangeSeq(seq);
+        return a;
+    }
+
+    private static void assertSame(Appointment expected, Appointment actual) {
+        assertEquals(expected.getAppointmentId(), actual.getAppointmentId());
+        assertEquals(expected.getAppointmentDate(), actual.getAppointmentDate());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getChangeSeq(), actual.getChangeSeq());
+    }
+}
@@ -0,0 +1,97 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.model.Appointment;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppointmentSchemaTest {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 6, 15);
+
+    @Test
+    void compactModeWritesShortKeysAndEpochDay() {
+        Document doc = new Document();
+        converter(true).write(appointment(), doc);
+
+        assertEquals(Set.of("_id", "d", "t", "s"), doc.keySet());
+        assertEquals((int) DATE.toEpochDay(), doc.get("d"));
+        assertEquals("Dentist", doc.get("t"));
+        assertEquals(9L, doc.get("s"));
+    }
+
+    @Test
+    void bothShapesReadBackInEitherMode() {
+        for (boolean mode : new boolean[] { false, true }) {
+            MappingMongoConverter converter = converter(mode);
+            for (boolean shape : new boolean[] { false, true }) {
+                Appointment read = converter.read(Appointment.class, AppointmentSchema.write(appointment(), shape));
+                assertEquals(DATE, read.getAppointmentDate());
+                assertEquals("Dentist", read.getDescription());
+                assertEquals(9, read.getChangeSeq());
+            }
+        }
+    }
+
+    @Test
+    void legacyModeKeepsSpringDataShape() {
+        Document doc = new Document();
+        converter(false).write(appointment(), doc);
+
+        assertEquals(AppointmentSchema.toBsonDate(DATE), doc.get("appointmentDate"));
+        assertEquals("Dentist", doc.get("description"));
+    }
+
+    @Test
+    void dateRangeUsesEachShapesStoredForm() {
+        BsonDocument compact = AppointmentSchema.dateRange(true, DATE, null).toBsonDocument();
+        BsonDocument legacy = AppointmentSchema.dateRange(false, null, DATE).toBsonDocument();
+
+        assertEquals((int) DATE.toEpochDay(), compact.getDocument("d").getInt32("$gte").getValue());
+        assertEquals(AppointmentSchema.toBsonDate(DATE).getTime(),
+                legacy.getDocument("appointmentDate").getDateTime("$lt").getValue());
+    }
+
+    @Test
+    void theShapeBeingMigratedAwayFromIsReadFirstUntilItIsGone() {
+        AppointmentSchema schema = new AppointmentSchema(true);
+        assertArrayEquals(new boolean[] { false, true }, schema.queryOrder());
+        assertArrayEquals(new boolean[] { true, false }, new AppointmentSchema(false).queryOrder());
+
+        assertTrue(schema.mayHold(false));
+        schema.migrationFinished();
+        assertFalse(schema.mayHold(false));
+        assertTrue(schema.mayHold(true));
+        schema.otherShapeFound();
+        assertTrue(schema.mayHold(false));
+    }
+
+    private static Appointment appointment() {
+        Appointment a = new Appointment("a1", DATE, "Dentist");
+        a.setChangeSeq(9);
+        return a;
+    }
+
+    private static MappingMongoConverter converter(boolean compact) {
+        MongoCustomConversions conversions = new AppointmentConversions()
+                .mongoCustomConversions(new AppointmentSchema(compact));
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
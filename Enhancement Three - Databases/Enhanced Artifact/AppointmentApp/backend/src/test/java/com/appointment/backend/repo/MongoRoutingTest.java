@@ -0,0 +1,243 @@
+package com.appointment.backend.repo;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+import com.mongodb.WriteConcern;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoRoutingTest {
+
+    private static final BsonDocument CLUSTER_TIME = new BsonDocument("clusterTime", new BsonTimestamp(100, 1));
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static MongoRouting routing(int maxWriters) {
+        return routing(maxWriters, "test-secret");
+    }
+
+    private static MongoRouting routing(int maxWriters, String tokenSecret) {
+        return new MongoRouting(true, "secondaryPreferred", 90, true, maxWriters, "majority", "1", 5000, tokenSecret);
+    }
+
+    /** Start a request carrying {@code token} (or none); returns its response. */
+    private static MockHttpServletResponse request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (token != null) {
+            request.addHeader(MongoRouting.READ_AFTER_HEADER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        return response;
+    }
+
+    private static void signIn(String subject) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(subject, null, List.of()));
+    }
+
+    @Test
+    void parsesReadPreferencesWithMaxStaleness() {
+        ReadPreference p = MongoRouting.readPreference("secondaryPreferred", 120);
+        assertEquals("secondaryPreferred", p.getName());
+        assertEquals(120L, ((TaggableReadPreference) p).getMaxStaleness(TimeUnit.SECONDS));
+
+        assertSame(ReadPreference.primary(), MongoRouting.readPreference("primary", 120));
+        assertNull(((TaggableReadPreference) MongoRouting.readPreference("nearest", 0))
+                .getMaxStaleness(TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> MongoRouting.readPreference("fastest", 90));
+    }
+
+    @Test
+    void parsesWriteConcerns() {
+        assertNull(MongoRouting.writeConcern("default", 5000));
+        assertEquals(WriteConcern.MAJORITY.withWTimeout(5000, TimeUnit.MILLISECONDS),
+                MongoRouting.writeConcern("majority", 5000));
+        assertEquals(new WriteConcern(1), MongoRouting.writeConcern(" 1 ", 0));
+        assertEquals(WriteConcern.W2.withWTimeout(250, TimeUnit.MILLISECONDS),
+                MongoRouting.writeConcern("w2", 250));
+        assertEquals(WriteConcern.UNACKNOWLEDGED, MongoRouting.writeConcern("0", 5000)); // no wtimeout on w:0
+        assertThrows(IllegalArgumentException.class, () -> MongoRouting.writeConcern("most", 5000));
+    }
+
+    @Test
+    void disabledRoutingReadsThePrimaryWithDefaultConcerns() {
+        MongoRouting routing = MongoRouting.disabled();
+        signIn("alice@example.com");
+
+        assertSame(ReadRoute.PRIMARY, routing.publicRead());
+        assertNull(routing.single());
+        assertNull(routing.bulk());
+        assertFalse(routing.tracksCurrentWriter());
+    }
+
+    @Test
+    void anonymousReadsShareOneRouteAndNeverWait() {
+        MongoRouting routing = routing(10);
+        ReadRoute r = routing.publicRead();
+        assertEquals("public", r.key());
+        assertNull(r.after());
+        assertEquals("secondaryPreferred", r.preference().getName());
+
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        assertFalse(routing.tracksCurrentWriter());
+        routing.recordWrite(new BsonTimestamp(100, 1), CLUSTER_TIME);
+        assertSame(r, routing.publicRead());
+    }
+
+    @Test
+    void aWritersLaterReadsCarryTheirOperationTime() {
+        MongoRouting routing = routing(10);
+        signIn("alice@example.com");
+        assertTrue(routing.tracksCurrentWriter());
+        assertEquals("public", routing.publicRead().key()); // nothing written yet
+
+        routing.recordWrite(new BsonTimestamp(100, 1), CLUSTER_TIME);
+        routing.recordWrite(new BsonTimestamp(90, 1), CLUSTER_TIME); // an older write finishing late
+        ReadRoute r = routing.publicRead();
+        assertEquals(new BsonTimestamp(100, 1), r.after().operationTime());
+        assertEquals("after:100.1", r.key());
+
+        signIn("bob@example.com");
+        assertEquals("public", routing.publicRead().key());
+        assertNotEquals(r.key(), routing.publicRead().key());
+    }
+
+    @Test
+    void standaloneServersLeaveNothingToTrack() {
+        MongoRouting routing = routing(10);
+        signIn("alice@example.com");
+        routing.recordWrite(null, null);
+        assertNull(routing.publicRead().after());
+        assertEquals(0, routing.metrics().get("trackedWriters"));
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentWriters() {
+        MongoRouting routing = routing(2);
+        for (String subject : List.of("a", "b", "c")) {
+            signIn(subject);
+            routing.recordWrite(new BsonTimestamp(100, 1), CLUSTER_TIME);
+        }
+        assertEquals(2, routing.metrics().get("trackedWriters"));
+        signIn("a");
+        assertNull(routing.publicRead().after());
+        signIn("c");
+        assertEquals("after:100.1", routing.publicRead().key());
+    }
+
+    @Test
+    void aWriteReturnsATokenThatAnotherInstanceHonours() {
+        MongoRouting writerSide = routing(10);
+        MongoRouting readerSide = routing(10);
+        signIn("alice@example.com");
+        MockHttpServletResponse response = request(null);
+        writerSide.recordWrite(new BsonTimestamp(100, 1), CLUSTER_TIME);
+        String token = response.getHeader(MongoRouting.READ_AFTER_HEADER);
+
+        // The next read lands on an instance that never saw the write, from an anonymous page
+        SecurityContextHolder.clearContext();
+        request(token);
+        ReadRoute r = readerSide.publicRead();
+        assertEquals(new BsonTimestamp(100, 1), r.after().operationTime());
+        assertEquals(CLUSTER_TIME, r.after().clusterTime());
+        assertEquals("after:100.1", r.key());
+    }
+
+    @Test
+    void theLaterOfTheTokenAndTheTrackedWriteWins() {
+        MongoRouting routing = routing(10);
+        signIn("alice@example.com");
+        request(null);
+        routing.recordWrite(new BsonTimestamp(100, 1), CLUSTER_TIME);
+        String older = routing.token(new ReadRoute.After(new BsonTimestamp(90, 1), CLUSTER_TIME));
+
+        MockHttpServletResponse response = request(older);
+        assertEquals(new BsonTimestamp(100, 1), routing.publicRead().after().operationTime());
+        routing.recordWrite(new BsonTimestamp(95, 1), CLUSTER_TIME); // an older write finishing late
+        ReadRoute.After returned = routing.parseToken(response.getHeader(MongoRouting.READ_AFTER_HEADER));
+        assertEquals(new BsonTimestamp(100, 1), returned.operationTime());
+    }
+
+    @Test
+    void forgedOrForeignTokensAreIgnored() {
+        MongoRouting routing = routing(10);
+        String token = routing.token(new ReadRoute.After(new BsonTimestamp(100, 1), CLUSTER_TIME));
+        String foreign = routing(10, "another-secret")
+                .token(new ReadRoute.After(new BsonTimestamp(100, 1), CLUSTER_TIME));
+        String tampered = routing.token(new ReadRoute.After(new BsonTimestamp(999, 1), CLUSTER_TIME))
+                .split("\\.")[0] + "." + token.split("\\.")[1];
+
+        for (String bad : List.of(foreign, tampered, "garbage", "a.b")) {
+            request(bad);
+            assertSame(routing.publicRead(), routing.publicRead());
+            assertEquals("public", routing.publicRead().key());
+        }
+        assertEquals(12L, routing.metrics().get("rejectedTokens"));
+    }
+
+    @Test
+    void tokensAreNotSignedWithTheSecretItself() throws Exception {
+        MongoRouting routing = routing(10);
+        String body = routing.token(new ReadRoute.After(new BsonTimestamp(100, 1), CLUSTER_TIME)).split("\\.")[0];
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec("test-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] rawMac = mac.doFinal(Base64.getUrlDecoder().decode(body));
+        String signedWithSecret = body + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(rawMac);
+
+        // A token MACed with the JWT secret (the default token-secret) does not verify
+        assertNull(routing.parseToken(signedWithSecret));
+        assertFalse(Arrays.equals("test-secret".getBytes(StandardCharsets.UTF_8),
+                MongoRouting.tokenKey("test-secret").getEncoded()));
+    }
+
+    @Test
+    void untrackedWritesReturnNoToken() {
+        MongoRouting routing = routing(10);
+        MockHttpServletResponse response = request(null);
+        routing.recordWrite(new BsonTimestamp(100, 1), CLUSTER_TIME); // no caller, as for write-behind
+        signIn("alice@example.com");
+        routing.recordWrite(null, null); // standalone server
+        assertNull(response.getHeader(MongoRouting.READ_AFTER_HEADER));
+    }
+
+    @Test
+    void routeIsVisibleOnlyInsideWith() {
+        ReadRoute r = routing(10).publicRead();
+        assertSame(ReadRoute.PRIMARY, ReadRoute.current());
+        assertSame(r, r.with(ReadRoute::current));
+        assertSame(ReadRoute.PRIMARY, r.with(() -> ReadRoute.PRIMARY.with(ReadRoute::current)));
+        assertSame(ReadRoute.PRIMARY, ReadRoute.current());
+    }
+}
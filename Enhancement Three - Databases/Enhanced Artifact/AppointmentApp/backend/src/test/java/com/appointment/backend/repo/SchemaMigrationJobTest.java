@@ -0,0 +1,129 @@
+package com.appointment.backend.repo;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.model.Appointment;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The background schema rewrite against a real MongoDB (skipped if none is
+ * reachable; override with -Dtest.mongodb.uri=...).
+ */
+class SchemaMigrationJobTest {
+
+    private static final String URI = System.getProperty("test.mongodb.uri",
+            "mongodb://localhost:27017/appointmentapp_test?serverSelectionTimeoutMS=1000");
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 15);
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+    private AppointmentSchema schema;
+    private AppointmentQueries queries;
+    private SchemaMigrationJob job;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(URI);
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            client.close();
+            client = null;
+        }
+        assumeTrue(client != null, "MongoDB not reachable at " + URI);
+        mongo = new MongoTemplate(client, "appointmentapp_migration_test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongo.getDb().drop();
+        schema = new AppointmentSchema(true);
+        queries = new AppointmentQueries(mongo, schema, 0, MongoRouting.disabled());
+        job = new SchemaMigrationJob(mongo, schema, 2, 0); // small batches, re-check every tick
+    }
+
+    private static Appointment appt(String id, int days, long seq) {
+        Appointment a = new Appointment(id, DAY.plusDays(days), "Visit " + id);
+        a.setChangeSeq(seq);
+        return a;
+    }
+
+    private void insertLegacy(String collection, Appointment a) {
+        mongo.getCollection(collection).insertOne(AppointmentSchema.write(a, false));
+    }
+
+    private long count(String collection, String field) {
+        return mongo.getCollection(collection).countDocuments(new Document(field, new Document("$exists", true)));
+    }
+
+    private void runUntilFinished() {
+        for (int i = 0; i < 20 && schema.mayHold(false); i++) {
+            job.run();
+        }
+        assertFalse(schema.mayHold(false), "migration did not finish");
+    }
+
+    private static List<String> ids(List<Appointment> list) {
+        return list.stream().map(Appointment::getAppointmentId).toList();
+    }
+
+    @Test
+    void rewritesBothTiersInBatchesThenStopsReadingTheOldShape() {
+        for (int i = 0; i < 5; i++) {
+            insertLegacy("appointments", appt("h" + i, i, i + 1));
+        }
+        insertLegacy(AppointmentArchive.COLLECTION, appt("a0", -400, 10));
+        queries.insertOne("appointments", appt("c0", 10, 11)); // already compact
+
+        // Mid-migration the two shapes are merged in date and sequence order
+        job.run();
+        assertTrue(schema.mayHold(false));
+        assertEquals(List.of("h0", "h1", "h2", "h3", "h4", "c0"), ids(queries.byDate("appointments", null, null, false)));
+        assertEquals(List.of("h0", "h1", "h2"), ids(queries.bySeq("appointments", 0, 100, 3)));
+
+        runUntilFinished();
+        assertEquals(0, count("appointments", AppointmentSchema.DATE));
+        assertEquals(0, count(AppointmentArchive.COLLECTION, AppointmentSchema.DATE));
+        assertEquals(6, count("appointments", AppointmentSchema.COMPACT_DATE));
+        assertEquals(List.of("h0", "h1", "h2", "h3", "h4", "c0"), ids(queries.byDate("appointments", null, null, false)));
+        assertEquals("Visit h3", queries.byDate("appointments", DAY.plusDays(3), DAY.plusDays(4), false)
+                .get(0).getDescription());
+    }
+
+    @Test
+    void oldShapeWrittenAfterFinishingIsFoundAndRewritten() {
+        queries.insertOne("appointments", appt("c0", 0, 1));
+        runUntilFinished();
+
+        // Another instance (older build or compact-schema=false) writes the legacy shape
+        insertLegacy("appointments", appt("late", 1, 2));
+        job.run();
+        assertEquals(0, count("appointments", AppointmentSchema.DATE));
+        assertEquals(List.of("c0", "late"), ids(queries.byDate("appointments", null, null, false)));
+
+        runUntilFinished();
+        assertEquals(List.of("c0", "late"), ids(queries.bySeq("appointments", 0, 100, 10)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.appointment.backend.security;
+
+import com.appointment.backend.auth.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Who may read the ops endpoints, through the real security filter chain.
+ * No MongoDB needed: the URI points nowhere and the storage engine is in memory.
+ */
+@SpringBootTest(properties = {
+        "spring.data.mongodb.uri=mongodb://localhost:1/ops_test?serverSelectionTimeoutMS=300&connectTimeoutMS=300",
+        "app.storage.engine=memory",
+        "app.ops.emails=Ops@Example.com"})
+@AutoConfigureMockMvc
+class OpsAccessTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JwtService jwt;
+
+    private String bearer(String email) {
+        return "Bearer " + jwt.generateToken(email);
+    }
+
+    @Test
+    void indexesNeedAnOperator() throws Exception {
+        mvc.perform(get("/ops/indexes")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/ops/indexes").header(HttpHeaders.AUTHORIZATION, bearer("alice@example.com")))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/ops/indexes").header(HttpHeaders.AUTHORIZATION, bearer("ops@example.com")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void metricsNeedAnOperator() throws Exception {
+        mvc.perform(get("/ops/metrics")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/ops/metrics").header(HttpHeaders.AUTHORIZATION, bearer("alice@example.com")))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/ops/metrics").header(HttpHeaders.AUTHORIZATION, bearer("ops@example.com")))
+                .andExpect(status().isOk());
+    }
+}
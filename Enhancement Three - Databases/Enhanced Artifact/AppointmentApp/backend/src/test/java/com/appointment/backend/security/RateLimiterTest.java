@@ -0,0 +1,101 @@
+package com.appointment.backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    // auth: 60/min (one per second), burst 3
+    private RateLimiter limiter(boolean enabled) {
+        return new RateLimiter(enabled, new RateLimiter.Limit("auth", 60, 3), new RateLimiter.Limit("write", 60, 3),
+                new RateLimiter.Limit("export", 60, 3), 10_000, now::get);
+    }
+
+    @Test
+    void allowsBurstThenReportsWaitUntilNextToken() {
+        RateLimiter limiter = limiter(true);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire(limiter.auth(), "1.2.3.4"));
+        }
+        assertEquals(SECOND, limiter.acquire(limiter.auth(), "1.2.3.4"));
+
+        now.addAndGet(SECOND);
+        assertEquals(0, limiter.acquire(limiter.auth(), "1.2.3.4"));
+        assertEquals(SECOND, limiter.acquire(limiter.auth(), "1.2.3.4"));
+    }
+
+    @Test
+    void keysAndLimitsAreIndependent() {
+        RateLimiter limiter = limiter(true);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(limiter.auth(), "a");
+        }
+        assertTrue(limiter.acquire(limiter.auth(), "a") > 0);
+        assertEquals(0, limiter.acquire(limiter.auth(), "b"));
+        assertEquals(0, limiter.acquire(limiter.write(), "a"));
+    }
+
+    @Test
+    void idleBucketsAreSweptOnceFull() {
+        RateLimiter limiter = limiter(true);
+        limiter.acquire(limiter.auth(), "a");
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(limiter.export(), "b");
+        }
+        assertEquals(2, limiter.bucketCount());
+
+        // "a" is full again after 1 s, "b" only after 3 s; the sweep is due after 10 s
+        now.addAndGet(2 * SECOND);
+        limiter.acquire(limiter.write(), "c");
+        assertEquals(3, limiter.bucketCount());
+
+        now.addAndGet(9 * SECOND);
+        limiter.acquire(limiter.write(), "d");
+        assertEquals(1, limiter.bucketCount());
+    }
+
+    @Test
+    void concurrentCallersNeverExceedBurst() throws Exception {
+        RateLimiter limiter = limiter(true);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.acquire(limiter.write(), "same") == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(3, allowed.get());
+    }
+
+    @Test
+    void disabledAllowsEverything() {
+        RateLimiter limiter = limiter(false);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.acquire(limiter.auth(), "a"));
+        }
+        assertEquals(0, limiter.bucketCount());
+    }
+}
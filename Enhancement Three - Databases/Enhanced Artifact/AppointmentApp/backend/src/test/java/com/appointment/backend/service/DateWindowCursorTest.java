@@ -0,0 +1,112 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.store.AppointmentStore;
+import com.appointment.backend.store.InMemoryAppointmentStore;
+import com.appointment.backend.store.LinearScanAppointmentStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateWindowCursorTest {
+
+    private static final LocalDate START = LocalDate.of(2030, 1, 1);
+
+    private static AppointmentStore fill(AppointmentStore store) {
+        Random random = new Random(3);
+        for (int i = 0; i < 2_000; i++) {
+            // Mostly sparse over three years, with one dense week
+            int day = i % 4 == 0 ? 400 + random.nextInt(7) : random.nextInt(3 * 365);
+            store.insert(new Appointment("a" + i, START.plusDays(day), "Checkup"));
+        }
+        return store;
+    }
+
+    private static List<List<Appointment>> windows(DateWindowCursor cursor, int targetRows) {
+        List<List<Appointment>> out = new ArrayList<>();
+        cursor.forEachWindow(targetRows, out::add);
+        return out;
+    }
+
+    /** Same appointments, in the same date order (order within a date is up to the engine). */
+    private static void assertSameRows(List<Appointment> expected, List<List<Appointment>> windows, boolean descending) {
+        List<Appointment> actual = new ArrayList<>();
+        for (List<Appointment> w : windows) {
+            assertFalse(w.isEmpty(), "no empty windows");
+            actual.addAll(w);
+        }
+        assertEquals(expected.size(), actual.size());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.get(i).getAppointmentDate(), actual.get(i).getAppointmentDate());
+            ids.add(actual.get(i).getAppointmentId());
+            if (i > 0) {
+                int cmp = actual.get(i - 1).getAppointmentDate().compareTo(actual.get(i).getAppointmentDate());
+                assertTrue(descending ? cmp >= 0 : cmp <= 0);
+            }
+        }
+        assertEquals(actual.size(), ids.size());
+    }
+
+    @Test
+    void ascendingWalkMatchesTheSortedRead() {
+        AppointmentStore store = fill(new InMemoryAppointmentStore());
+        List<List<Appointment>> w = windows(new DateWindowCursor(store, null, null, false, store::findAllSorted), 100);
+        assertSameRows(store.findAllSorted(), w, false);
+        assertTrue(w.size() > 5, "read in several windows");
+    }
+
+    @Test
+    void descendingWalkMatchesPrevious() {
+        AppointmentStore store = fill(new InMemoryAppointmentStore());
+        LocalDate today = START.plusDays(500);
+        List<List<Appointment>> w = windows(
+                new DateWindowCursor(store, null, today, true, () -> store.findPrevious(today)), 100);
+        assertSameRows(store.findPrevious(today), w, true);
+    }
+
+    @Test
+    void boundsAreExclusive() {
+        AppointmentStore store = fill(new InMemoryAppointmentStore());
+        LocalDate s = START.plusDays(398);
+        LocalDate e = START.plusDays(700);
+        List<List<Appointment>> w = windows(
+                new DateWindowCursor(store, s, e, false, () -> store.findBetween(s, e)), 50);
+        assertSameRows(store.findBetween(s, e), w, false);
+    }
+
+    @Test
+    void windowsAdaptToDensity() {
+        AppointmentStore store = fill(new InMemoryAppointmentStore());
+        List<List<Appointment>> w = windows(new DateWindowCursor(store, null, null, false, store::findAllSorted), 100);
+        int max = 0;
+        for (List<Appointment> window : w) {
+            max = Math.max(max, window.size());
+        }
+        // The dense week holds ~500 rows; windows shrink around it instead of swallowing months of data with it
+        assertTrue(max < 1_000, "largest window " + max);
+    }
+
+    @Test
+    void storesWithoutASpanAreSliced() {
+        AppointmentStore store = fill(new LinearScanAppointmentStore());
+        List<List<Appointment>> w = windows(new DateWindowCursor(store, null, null, false, store::findAllSorted), 300);
+        assertSameRows(store.findAllSorted(), w, false);
+        assertEquals(7, w.size());
+    }
+
+    @Test
+    void emptyStoreHasNoWindows() {
+        AppointmentStore store = new InMemoryAppointmentStore();
+        assertTrue(windows(new DateWindowCursor(store, null, null, false, store::findAllSorted), 10).isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.store.InMemoryAppointmentStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScatterGatherTest {
+
+    private static final LocalDate START = LocalDate.of(2030, 1, 1);
+
+    private final ScatterGather scatter = new ScatterGather(4, 30, 4);
+
+    @AfterEach
+    void stop() {
+        scatter.stop();
+    }
+
+    private static List<String> ids(List<Appointment> list) {
+        List<String> out = new ArrayList<>();
+        for (Appointment a : list) {
+            out.add(a.getAppointmentId());
+        }
+        return out;
+    }
+
+    @Test
+    void splitCoversEveryInnerDateExactlyOnce() {
+        LocalDate end = START.plusDays(366);
+        List<LocalDate[]> shards = ScatterGather.split(START, end, 4, 30);
+        assertEquals(4, shards.size());
+
+        LocalDate expected = START.plusDays(1);
+        for (LocalDate[] s : shards) {
+            // Exclusive bounds: the shard's first date is the day after its lower bound
+            assertEquals(expected, s[0].plusDays(1));
+            expected = s[1];
+        }
+        assertEquals(end, expected);
+    }
+
+    @Test
+    void narrowRangesAreNotSplit() {
+        List<LocalDate[]> shards = ScatterGather.split(START, START.plusDays(60), 4, 30);
+        assertEquals(1, shards.size());
+        assertEquals(START, shards.get(0)[0]);
+        assertEquals(START.plusDays(60), shards.get(0)[1]);
+
+        assertEquals(3, ScatterGather.split(START, START.plusDays(100), 8, 30).size());
+    }
+
+    @Test
+    void splitReadsMatchSingleQuery() {
+        InMemoryAppointmentStore store = new InMemoryAppointmentStore();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            store.insert(new Appointment("s" + i, START.plusDays(random.nextInt(3 * 365)), "Visit " + i));
+        }
+
+        LocalDate from = START.plusDays(40);
+        LocalDate to = START.plusDays(900);
+        assertEquals(ids(store.findBetween(from, to)), ids(scatter.findBetween(store, from, to)));
+        assertEquals(ids(store.findAllSorted()), ids(scatter.findAllSorted(store)));
+        assertEquals(2L, scatter.metrics().get("split"));
+    }
+
+    @Test
+    void emptyStoreReadsNothing() {
+        assertEquals(List.of(), scatter.findAllSorted(new InMemoryAppointmentStore()));
+    }
+
+    @Test
+    void shardFailureIsRethrown() {
+        IllegalStateException boom = new IllegalStateException("shard down");
+        List<Supplier<List<String>>> parts = List.of(
+                () -> List.of("a"),
+                () -> {
+                    throw boom;
+                },
+                () -> List.of("c"));
+        assertSame(boom, assertThrows(IllegalStateException.class, () -> scatter.gather(parts)));
+    }
+}
@@ -0,0 +1,162 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs every store through the same workload and prints ops/s per phase.
+ * Skipped unless enabled:
+ *   mvn test -Dtest=AppointmentStoreBenchmark -Dstore.benchmark=true [-Dstore.benchmark.size=50000]
+ * MongoDB is included when reachable at -Dtest.mongodb.uri (see MongoAppointmentStoreTest).
+ */
+class AppointmentStoreBenchmark {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+    private static final int DAYS = 3 * 365;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compareStores() {
+        assumeTrue(Boolean.getBoolean("store.benchmark"), "set -Dstore.benchmark=true to run");
+        int size = Integer.getInteger("store.benchmark.size", 50_000);
+
+        Map<String, Supplier<AppointmentStore>> stores = new LinkedHashMap<>();
+        stores.put("linear", LinearScanAppointmentStore::new);
+        stores.put("memory", InMemoryAppointmentStore::new);
+        stores.put("offheap", OffHeapAppointmentStore::new);
+        stores.put("embedded", () -> new EmbeddedAppointmentStore(
+                dir.resolve("lsm-" + System.nanoTime()).toString(), 8, 8, 4096));
+        MongoClient client = connectMongo();
+        if (client != null) {
+            MongoTemplate mongo = new MongoTemplate(client, "appointmentapp_bench");
+            stores.put("mongo", () -> {
+                mongo.getDb().drop();
+                AppointmentRepository repo = new MongoRepositoryFactory(mongo).getRepository(AppointmentRepository.class);
+                AppointmentQueries queries = new AppointmentQueries(mongo, new AppointmentSchema(false), 0,
+                        MongoRouting.disabled());
+                return new MongoAppointmentStore(repo, new AppointmentArchive(mongo, queries), queries);
+            });
+        }
+
+        System.out.printf("%nAppointmentStore benchmark, %d appointments (ops/s)%n", size);
+        System.out.printf("%-9s %10s %10s %10s %10s %10s %10s %10s%n",
+                "store", "insert", "findById", "upcoming", "previous", "range30d", "changes", "delete");
+        for (Map.Entry<String, Supplier<AppointmentStore>> e : stores.entrySet()) {
+            run(e.getValue().get(), Math.max(1_000, size / 10)); // warm-up
+            double[] r = run(e.getValue().get(), size);
+            System.out.printf("%-9s %10.0f %10.0f %10.1f %10.1f %10.0f %10.0f %10.0f%n",
+                    e.getKey(), r[0], r[1], r[2], r[3], r[4], r[5], r[6]);
+        }
+        if (client != null) {
+            client.getDatabase("appointmentapp_bench").drop();
+            client.close();
+        }
+    }
+
+    /** One full workload; returns ops/s per phase. */
+    private static double[] run(AppointmentStore store, int size) {
+        Random random = new Random(42);
+        double[] out = new double[7];
+
+        long t = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            Appointment a = new Appointment("b" + i, TODAY.plusDays(random.nextInt(DAYS) - DAYS / 2), "Visit " + i);
+            a.setChangeSeq(i + 1);
+            store.insert(a);
+        }
+        out[0] = rate(size, t);
+
+        int lookups = 20_000;
+        t = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            store.findById("b" + random.nextInt(size));
+        }
+        out[1] = rate(lookups, t);
+
+        int scans = 20;
+        t = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            store.findUpcoming(TODAY);
+        }
+        out[2] = rate(scans, t);
+        t = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            store.findPrevious(TODAY);
+        }
+        out[3] = rate(scans, t);
+
+        int ranges = 500;
+        t = System.nanoTime();
+        for (int i = 0; i < ranges; i++) {
+            LocalDate start = TODAY.plusDays(random.nextInt(DAYS) - DAYS / 2);
+            store.findBetween(start, start.plusDays(30));
+        }
+        out[4] = rate(ranges, t);
+
+        int pages = 200;
+        t = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            long since = random.nextInt(size);
+            store.findChanged(since, size, 500);
+        }
+        out[5] = rate(pages, t);
+
+        List<String> victims = new ArrayList<>();
+        for (int i = 0; i < size / 10; i++) {
+            victims.add("b" + random.nextInt(size));
+        }
+        t = System.nanoTime();
+        for (String id : victims) {
+            store.deleteById(id);
+        }
+        out[6] = rate(victims.size(), t);
+
+        if (store instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+                // benchmark only
+            }
+        }
+        return out;
+    }
+
+    private static double rate(int ops, long startNanos) {
+        return ops / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    private static MongoClient connectMongo() {
+        MongoClient client = MongoClients.create(MongoAppointmentStoreTest.URI);
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+            return client;
+        } catch (RuntimeException e) {
+            client.close();
+            return null;
+        }
+    }
+}
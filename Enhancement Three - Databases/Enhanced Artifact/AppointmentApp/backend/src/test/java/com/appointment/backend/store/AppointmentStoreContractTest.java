@@ -0,0 +1,207 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behaviour every {@link AppointmentStore} must share.
+ * Subclasses only say how to build a fresh, empty store.
+ * Order within a single date is engine-specific, so only date order is checked.
+ */
+abstract class AppointmentStoreContractTest {
+
+    static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+
+    protected AppointmentStore store;
+    private long seq;
+
+    /** A new store with no appointments in it. */
+    protected abstract AppointmentStore createStore() throws Exception;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = createStore();
+        seq = 0;
+    }
+
+    protected Appointment add(String id, LocalDate date) {
+        Appointment a = new Appointment(id, date, "Visit " + id);
+        a.setChangeSeq(++seq);
+        store.insert(a);
+        return a;
+    }
+
+    @Test
+    void insertThenFindById() {
+        add("a1", TODAY);
+
+        assertTrue(store.existsById("a1"));
+        Appointment found = store.findById("a1").orElseThrow();
+        assertEquals(TODAY, found.getAppointmentDate());
+        assertEquals("Visit a1", found.getDescription());
+        assertEquals(1, found.getChangeSeq());
+    }
+
+    @Test
+    void readsShareRepeatedDescriptionsAndDates() {
+        store.insert(new Appointment("a1", TODAY, "Annual checkup"));
+        store.insert(new Appointment("a2", TODAY, new String("Annual checkup")));
+
+        Appointment first = store.findById("a1").orElseThrow();
+        Appointment second = store.findById("a2").orElseThrow();
+        assertSame(first.getDescription(), second.getDescription());
+        assertSame(first.getAppointmentDate(), second.getAppointmentDate());
+    }
+
+    @Test
+    void unknownIdIsAbsent() {
+        assertFalse(store.existsById("missing"));
+        assertTrue(store.findById("missing").isEmpty());
+    }
+
+    @Test
+    void duplicateIdIsRejected() {
+        add("a1", TODAY);
+
+        assertThrows(DuplicateKeyException.class, () -> add("a1", TODAY.plusDays(3)));
+        assertEquals(TODAY, store.findById("a1").orElseThrow().getAppointmentDate());
+    }
+
+    @Test
+    void deleteRemovesFromEveryQuery() {
+        add("a1", TODAY.minusDays(2));
+        add("a2", TODAY.plusDays(2));
+
+        store.deleteById("a1");
+        store.deleteById("a2");
+
+        assertFalse(store.existsById("a1"));
+        assertTrue(store.findAll().isEmpty());
+        assertTrue(store.findAllSorted().isEmpty());
+        assertTrue(store.findUpcoming(TODAY).isEmpty());
+        assertTrue(store.findPrevious(TODAY).isEmpty());
+        assertTrue(store.findBetween(TODAY.minusDays(10), TODAY.plusDays(10)).isEmpty());
+        assertTrue(store.findChanged(0, Long.MAX_VALUE - 1, 10).isEmpty());
+    }
+
+    @Test
+    void deleteOfUnknownIdIsNoOp() {
+        add("a1", TODAY);
+
+        store.deleteById("missing");
+
+        assertEquals(1, store.findAll().size());
+    }
+
+    @Test
+    void idCanBeReusedAfterDelete() {
+        add("a1", TODAY);
+        store.deleteById("a1");
+        add("a1", TODAY.plusDays(1));
+
+        assertEquals(TODAY.plusDays(1), store.findById("a1").orElseThrow().getAppointmentDate());
+        assertEquals(1, store.findAllSorted().size());
+    }
+
+    @Test
+    void findAllReturnsEverything() {
+        add("a1", TODAY);
+        add("a2", TODAY.minusDays(1));
+        add("a3", TODAY.plusDays(1));
+
+        assertEquals(Set.of("a1", "a2", "a3"), ids(store.findAll()));
+        assertEquals(3, store.findAll().size());
+    }
+
+    @Test
+    void findAllSortedIsAscendingByDate() {
+        add("a1", TODAY.plusDays(5));
+        add("a2", TODAY.minusDays(5));
+        add("a3", TODAY);
+        add("a4", TODAY);
+
+        assertEquals(List.of(TODAY.minusDays(5), TODAY, TODAY, TODAY.plusDays(5)), dates(store.findAllSorted()));
+    }
+
+    @Test
+    void upcomingIncludesTodayAscending() {
+        add("past", TODAY.minusDays(1));
+        add("today", TODAY);
+        add("later", TODAY.plusDays(7));
+        add("soon", TODAY.plusDays(1));
+
+        List<Appointment> upcoming = store.findUpcoming(TODAY);
+
+        assertEquals(List.of(TODAY, TODAY.plusDays(1), TODAY.plusDays(7)), dates(upcoming));
+        assertEquals("today", upcoming.get(0).getAppointmentId());
+    }
+
+    @Test
+    void previousExcludesTodayNewestFirst() {
+        add("today", TODAY);
+        add("old", TODAY.minusDays(30));
+        add("yesterday", TODAY.minusDays(1));
+        add("older", TODAY.minusDays(7));
+
+        assertEquals(List.of(TODAY.minusDays(1), TODAY.minusDays(7), TODAY.minusDays(30)),
+                dates(store.findPrevious(TODAY)));
+    }
+
+    @Test
+    void betweenExcludesBothBounds() {
+        add("start", TODAY);
+        add("inside1", TODAY.plusDays(1));
+        add("inside2", TODAY.plusDays(9));
+        add("end", TODAY.plusDays(10));
+        add("outside", TODAY.plusDays(11));
+
+        List<Appointment> range = store.findBetween(TODAY, TODAY.plusDays(10));
+
+        assertEquals(List.of(TODAY.plusDays(1), TODAY.plusDays(9)), dates(range));
+        assertEquals(Set.of("inside1", "inside2"), ids(range));
+    }
+
+    @Test
+    void betweenWithNoGapIsEmpty() {
+        add("a1", TODAY);
+
+        assertTrue(store.findBetween(TODAY, TODAY).isEmpty());
+        assertTrue(store.findBetween(TODAY, TODAY.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void changedIsOrderedBySequenceWithinBoundsAndLimit() {
+        for (int i = 1; i <= 10; i++) {
+            add("a" + i, TODAY.plusDays(10 - i)); // date order opposite to sequence order
+        }
+        store.deleteById("a5");
+
+        List<Long> seqs = store.findChanged(2, 8, 100).stream().map(Appointment::getChangeSeq).collect(Collectors.toList());
+        assertEquals(List.of(3L, 4L, 6L, 7L, 8L), seqs);
+
+        List<Long> limited = store.findChanged(0, 10, 3).stream().map(Appointment::getChangeSeq).collect(Collectors.toList());
+        assertEquals(List.of(1L, 2L, 3L), limited);
+    }
+
+    static Set<String> ids(List<Appointment> list) {
+        return new HashSet<>(list.stream().map(Appointment::getAppointmentId).collect(Collectors.toList()));
+    }
+
+    static List<LocalDate> dates(List<Appointment> list) {
+        return list.stream().map(Appointment::getAppointmentDate).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,63 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class EmbeddedAppointmentStoreTest extends AppointmentStoreContractTest {
+
+    @TempDir
+    Path dir;
+
+    private EmbeddedAppointmentStore open() {
+        // 1 MB memtable and a low compaction trigger so tests cross flushes
+        return new EmbeddedAppointmentStore(dir.toString(), 1, 2, 16);
+    }
+
+    @Override
+    protected AppointmentStore createStore() {
+        return open();
+    }
+
+    @AfterEach
+    void close() {
+        ((EmbeddedAppointmentStore) store).close();
+    }
+
+    @Test
+    void survivesReopen() {
+        add("a1", TODAY.minusDays(1));
+        add("a2", TODAY.plusDays(1));
+        store.deleteById("a1");
+        ((EmbeddedAppointmentStore) store).close();
+
+        store = open();
+
+        assertFalse(store.existsById("a1"));
+        assertEquals(List.of("a2"), store.findAllSorted().stream().map(Appointment::getAppointmentId).toList());
+    }
+
+    @Test
+    void queriesSpanFlushedTablesAndMemtable() {
+        // ~20k entries x 3 keys comfortably exceeds the 1 MB memtable several times
+        for (int i = 0; i < 20_000; i++) {
+            add("id" + i, TODAY.plusDays(i % 200 - 100));
+        }
+        for (int i = 0; i < 20_000; i += 2) {
+            store.deleteById("id" + i);
+        }
+
+        assertEquals(10_000, store.findAll().size());
+        assertEquals(5_000, store.findUpcoming(TODAY).size());
+        assertEquals(5_000, store.findPrevious(TODAY).size());
+        assertFalse(store.existsById("id0"));
+        assertEquals("Visit id1", store.findById("id1").orElseThrow().getDescription());
+    }
+}
@@ -0,0 +1,96 @@
+package com.appointment.backend.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local TCP proxy in front of a MongoDB server that holds back every reply
+ * for a configurable delay, to reproduce a stalled database in tests.
+ * Requests pass straight through; only server-to-client bytes are delayed.
+ */
+final class LatencyProxy implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final String upstreamHost;
+    private final int upstreamPort;
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private volatile long delayMs;
+
+    LatencyProxy(String upstreamHost, int upstreamPort) throws IOException {
+        this.upstreamHost = upstreamHost;
+        this.upstreamPort = upstreamPort;
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        daemon("latency-proxy-accept", this::acceptLoop);
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket client = server.accept();
+                Socket upstream = new Socket(upstreamHost, upstreamPort);
+                sockets.add(client);
+                sockets.add(upstream);
+                daemon("latency-proxy-up", () -> pump(client, upstream, false));
+                daemon("latency-proxy-down", () -> pump(upstream, client, true));
+            } catch (IOException ex) {
+                return; // closed
+            }
+        }
+    }
+
+    private void pump(Socket from, Socket to, boolean delayed) {
+        byte[] buf = new byte[16 * 1024];
+        try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                long d = delayMs;
+                if (delayed && d > 0) {
+                    Thread.sleep(d);
+                }
+                out.write(buf, 0, n);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException ex) {
+            // Either side went away; closing both ends below
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void daemon(String name, Runnable r) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void closeQuietly(Socket s) {
+        try {
+            s.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket s : sockets) {
+            closeQuietly(s);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.appointment.backend.store;
+
+class LinearScanAppointmentStoreTest extends AppointmentStoreContractTest {
+
+    @Override
+    protected AppointmentStore createStore() {
+        return new LinearScanAppointmentStore();
+    }
+}
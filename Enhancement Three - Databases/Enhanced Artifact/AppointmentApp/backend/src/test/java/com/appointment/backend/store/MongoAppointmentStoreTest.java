@@ -0,0 +1,60 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the contract against a real MongoDB (skipped if none is reachable).
+ * Override the server with -Dtest.mongodb.uri=...; the database is wiped per test.
+ */
+class MongoAppointmentStoreTest extends AppointmentStoreContractTest {
+
+    static final String URI = System.getProperty("test.mongodb.uri",
+            "mongodb://localhost:27017/appointmentapp_test?serverSelectionTimeoutMS=1000");
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(URI);
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            client.close();
+            client = null;
+        }
+        assumeTrue(client != null, "MongoDB not reachable at " + URI);
+        mongo = new MongoTemplate(client, "appointmentapp_test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Override
+    protected AppointmentStore createStore() {
+        mongo.getDb().drop();
+        AppointmentRepository repo = new MongoRepositoryFactory(mongo).getRepository(AppointmentRepository.class);
+        AppointmentQueries queries = new AppointmentQueries(mongo, new AppointmentSchema(false), 0,
+                MongoRouting.disabled());
+        MongoAppointmentStore store = new MongoAppointmentStore(repo, new AppointmentArchive(mongo, queries), queries);
+        store.loadIdFilter(); // run the contract with the ID filter in front of existsById
+        return store;
+    }
+}
@@ -0,0 +1,107 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.breaker.CircuitBreaker;
+import com.appointment.backend.breaker.CircuitOpenException;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The store behind the circuit breaker while MongoDB stalls, reproduced with
+ * a {@link LatencyProxy} between driver and server (skipped if no MongoDB is
+ * reachable; override with -Dtest.mongodb.host / -Dtest.mongodb.port).
+ */
+class MongoDegradationTest {
+
+    private static final String HOST = System.getProperty("test.mongodb.host", "localhost");
+    private static final int PORT = Integer.getInteger("test.mongodb.port", 27017);
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+
+    private LatencyProxy proxy;
+    private MongoClient client;
+    private CircuitBreaker breaker;
+    private AppointmentStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (MongoClient direct = MongoClients.create(
+                "mongodb://" + HOST + ":" + PORT + "/?serverSelectionTimeoutMS=1000")) {
+            direct.getDatabase("admin").runCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            assumeTrue(false, "MongoDB not reachable at " + HOST + ":" + PORT);
+        }
+        proxy = new LatencyProxy(HOST, PORT);
+        // A reply later than socketTimeoutMS fails the operation, as in production
+        client = MongoClients.create("mongodb://127.0.0.1:" + proxy.port() + "/?directConnection=true"
+                + "&connectTimeoutMS=1000&serverSelectionTimeoutMS=1000&socketTimeoutMS=300"
+                + "&heartbeatFrequencyMS=500");
+        MongoTemplate mongo = new MongoTemplate(client, "appointmentapp_degradation_test");
+        mongo.getDb().drop();
+        AppointmentRepository repo = new MongoRepositoryFactory(mongo).getRepository(AppointmentRepository.class);
+        AppointmentQueries queries = new AppointmentQueries(mongo, new AppointmentSchema(false), 0,
+                MongoRouting.disabled());
+        breaker = new CircuitBreaker(true, 2, 200, 500);
+        store = new CircuitBreakingAppointmentStore(
+                new MongoAppointmentStore(repo, new AppointmentArchive(mongo, queries), queries), breaker);
+        Appointment a = new Appointment("a1", TODAY.plusDays(1), "Visit a1");
+        a.setChangeSeq(1);
+        store.insert(a);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        if (proxy != null) {
+            proxy.close();
+        }
+    }
+
+    @Test
+    void stalledServerOpensTheBreakerAndRecoveryClosesIt() throws Exception {
+        assertEquals(1, store.findUpcoming(TODAY).size());
+
+        proxy.setDelayMs(1000);
+        assertThrows(DataAccessException.class, () -> store.findUpcoming(TODAY));
+        assertThrows(DataAccessException.class, () -> store.findUpcoming(TODAY));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Refused without touching the driver: no waiting out the socket timeout
+        long start = System.nanoTime();
+        assertThrows(CircuitOpenException.class, () -> store.findUpcoming(TODAY));
+        assertTrue(System.nanoTime() - start < 100_000_000L);
+
+        proxy.setDelayMs(0);
+        Thread.sleep(1500); // past open-ms, and time for the driver's monitor to see the server again
+        assertEquals(1, store.findUpcoming(TODAY).size()); // the trial call
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void slowButSuccessfulRepliesAlsoOpenTheBreaker() {
+        proxy.setDelayMs(250); // under the socket timeout, over slow-call-ms
+        store.findUpcoming(TODAY);
+        store.findUpcoming(TODAY);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
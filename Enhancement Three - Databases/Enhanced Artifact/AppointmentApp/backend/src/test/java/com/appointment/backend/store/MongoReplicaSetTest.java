@@ -0,0 +1,129 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Read-your-writes through secondary reads, against a real replica set
+ * (one node or three). Skipped unless -Dtest.mongodb.replset.uri is given,
+ * e.g. mongodb://localhost:27017/?replicaSet=rs0 after
+ * {@code mongod --replSet rs0} and {@code rs.initiate()}.
+ */
+class MongoReplicaSetTest {
+
+    private static final String URI = System.getProperty("test.mongodb.replset.uri");
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+
+    private MongoClient client;
+    private MongoTemplate mongo;
+    private MongoRouting routing;
+    private AppointmentStore store;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(URI != null, "No replica set given (-Dtest.mongodb.replset.uri)");
+        client = MongoClients.create(URI);
+        mongo = new MongoTemplate(client, "appointmentapp_replset_test");
+        mongo.getDb().drop();
+        routing = new MongoRouting(true, "secondaryPreferred", 90, true, 100, "majority", "1", 5000, "test-secret");
+        store = store(routing);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice@example.com", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    private AppointmentStore store(MongoRouting routing) {
+        AppointmentRepository repo = new MongoRepositoryFactory(mongo).getRepository(AppointmentRepository.class);
+        AppointmentQueries queries = new AppointmentQueries(mongo, new AppointmentSchema(false), 0, routing);
+        return new MongoAppointmentStore(repo, new AppointmentArchive(mongo, queries), queries);
+    }
+
+    private AppointmentStore publicReads() {
+        return new RoutedAppointmentStore(store, routing.publicRead());
+    }
+
+    @Test
+    void aWriterReadsTheirOwnWritesFromASecondary() {
+        for (int i = 0; i < 20; i++) {
+            Appointment a = new Appointment("rs" + i, TODAY.plusDays(1 + i), "Visit " + i);
+            a.setChangeSeq(i + 1);
+            store.insert(a);
+            assertEquals(i + 1, publicReads().findUpcoming(TODAY).size());
+        }
+        store.deleteById("rs0");
+        assertEquals(19, publicReads().findUpcoming(TODAY).size());
+
+        Map<String, Object> m = routing.metrics();
+        assertEquals(21L, m.get("trackedWrites"));
+        assertEquals(21L, m.get("causalReads"));
+    }
+
+    @Test
+    void theTokenCarriesReadYourWritesToAnotherInstance() {
+        MongoRouting other = new MongoRouting(true, "secondaryPreferred", 90, true, 100, "majority", "1", 5000,
+                "test-secret");
+        AppointmentStore otherStore = store(other);
+        for (int i = 0; i < 20; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            RequestContextHolder.setRequestAttributes(
+                    new ServletRequestAttributes(new MockHttpServletRequest(), response));
+            Appointment a = new Appointment("rs" + i, TODAY.plusDays(1 + i), "Visit " + i);
+            a.setChangeSeq(i + 1);
+            store.insert(a);
+
+            MockHttpServletRequest next = new MockHttpServletRequest();
+            next.addHeader(MongoRouting.READ_AFTER_HEADER, response.getHeader(MongoRouting.READ_AFTER_HEADER));
+            RequestContextHolder.setRequestAttributes(
+                    new ServletRequestAttributes(next, new MockHttpServletResponse()));
+            assertEquals(i + 1, new RoutedAppointmentStore(otherStore, other.publicRead()).findUpcoming(TODAY).size());
+        }
+        assertEquals(0, other.metrics().get("trackedWriters"));
+        assertEquals(20L, other.metrics().get("causalReads"));
+    }
+
+    @Test
+    void anotherCallerGetsTheSharedRoute() {
+        Appointment a = new Appointment("rs-a", TODAY.plusDays(1), "Visit");
+        a.setChangeSeq(1);
+        store.insert(a);
+        String writerKey = routing.publicRead().key();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bob@example.com", null, List.of()));
+        assertNotEquals(writerKey, routing.publicRead().key());
+        assertEquals("public", routing.publicRead().key());
+    }
+}
@@ -0,0 +1,43 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.model.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OffHeapAppointmentStoreTest extends AppointmentStoreContractTest {
+
+    @Override
+    protected AppointmentStore createStore() {
+        return new OffHeapAppointmentStore();
+    }
+
+    @Test
+    void nonLatin1TextRoundTrips() {
+        store.insert(new Appointment("ü1", TODAY, "Zahnarzt – Kontrolle 歯医者"));
+
+        Appointment found = store.findById("ü1").orElseThrow();
+        assertEquals("Zahnarzt – Kontrolle 歯医者", found.getDescription());
+    }
+
+    @Test
+    void freedSlotsAreReusedWithoutLeakingLinks() {
+        for (int i = 0; i < 1_000; i++) {
+            add("id" + i, TODAY.plusDays(i % 10));
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            store.deleteById("id" + i);
+        }
+        for (int i = 0; i < 500; i++) {
+            add("new" + i, TODAY.minusDays(1 + i % 5));
+        }
+
+        assertEquals(1_000, store.findAllSorted().size());
+        assertEquals(500, store.findUpcoming(TODAY).size());
+        assertEquals(500, store.findPrevious(TODAY).size());
+        assertEquals(List.of("id1", "id11"), store.findBetween(TODAY, TODAY.plusDays(2)).stream()
+                .limit(2).map(Appointment::getAppointmentId).toList());
+    }
+}
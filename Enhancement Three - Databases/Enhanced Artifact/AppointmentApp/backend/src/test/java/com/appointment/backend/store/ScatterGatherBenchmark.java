@@ -0,0 +1,131 @@
+package com.appointment.backend.store;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.service.ScatterGather;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Times wide reads (a 3-year range and the full sorted read) at several
+ * scatter-gather fan-outs, to show where splitting pays off. Skipped unless
+ * enabled:
+ *   mvn test -Dtest=ScatterGatherBenchmark -Dscatter.benchmark=true [-Dscatter.benchmark.size=200000]
+ * MongoDB is included when reachable at -Dtest.mongodb.uri (see MongoAppointmentStoreTest).
+ */
+class ScatterGatherBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2028, 1, 1);
+    private static final int DAYS = 4 * 365;
+    private static final int[] FAN_OUTS = { 1, 2, 4, 8 };
+
+    @Test
+    void compareFanOuts() {
+        assumeTrue(Boolean.getBoolean("scatter.benchmark"), "set -Dscatter.benchmark=true to run");
+        int size = Integer.getInteger("scatter.benchmark.size", 200_000);
+
+        Map<String, Supplier<AppointmentStore>> stores = new LinkedHashMap<>();
+        stores.put("memory", InMemoryAppointmentStore::new);
+        MongoClient client = connectMongo();
+        if (client != null) {
+            MongoTemplate mongo = new MongoTemplate(client, "appointmentapp_bench");
+            stores.put("mongo", () -> {
+                mongo.getDb().drop();
+                AppointmentRepository repo = new MongoRepositoryFactory(mongo).getRepository(AppointmentRepository.class);
+                AppointmentQueries queries = new AppointmentQueries(mongo, new AppointmentSchema(false), 0,
+                        MongoRouting.disabled());
+                mongo.getCollection("appointments").createIndex(new Document("appointmentDate", 1));
+                return new MongoAppointmentStore(repo, new AppointmentArchive(mongo, queries), queries);
+            });
+        }
+
+        System.out.printf("%nScatter-gather benchmark, %d appointments over %d days (ms per read)%n", size, DAYS);
+        System.out.printf("%-7s %-8s", "store", "read");
+        for (int f : FAN_OUTS) {
+            System.out.printf(" %9s", "fanOut=" + f);
+        }
+        System.out.println();
+        for (Map.Entry<String, Supplier<AppointmentStore>> e : stores.entrySet()) {
+            AppointmentStore store = e.getValue().get();
+            fill(store, size);
+            double[] range = new double[FAN_OUTS.length];
+            double[] all = new double[FAN_OUTS.length];
+            for (int i = 0; i < FAN_OUTS.length; i++) {
+                // 90-day minimum: the 3-year range can use every fan-out tried
+                ScatterGather scatter = new ScatterGather(FAN_OUTS[i], 90, 8);
+                LocalDate from = START.plusDays(180);
+                LocalDate to = from.plusDays(3 * 365);
+                time(() -> scatter.findBetween(store, from, to), 3); // warm-up
+                range[i] = time(() -> scatter.findBetween(store, from, to), 10);
+                all[i] = time(() -> scatter.findAllSorted(store), 10);
+                scatter.stop();
+            }
+            print(e.getKey(), "range3y", range);
+            print(e.getKey(), "all", all);
+        }
+        if (client != null) {
+            client.getDatabase("appointmentapp_bench").drop();
+            client.close();
+        }
+    }
+
+    private static void fill(AppointmentStore store, int size) {
+        Random random = new Random(42);
+        List<Appointment> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Appointment a = new Appointment("g" + i, START.plusDays(random.nextInt(DAYS)), "Visit " + i);
+            a.setChangeSeq(i + 1);
+            batch.add(a);
+            if (batch.size() == 1_000) {
+                store.insertAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        store.insertAll(batch);
+    }
+
+    private static double time(Supplier<List<Appointment>> read, int runs) {
+        long t = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            read.get();
+        }
+        return (System.nanoTime() - t) / 1e6 / runs;
+    }
+
+    private static void print(String store, String read, double[] ms) {
+        System.out.printf("%-7s %-8s", store, read);
+        for (double m : ms) {
+            System.out.printf(" %9.1f", m);
+        }
+        System.out.println();
+    }
+
+    private static MongoClient connectMongo() {
+        MongoClient client = MongoClients.create(MongoAppointmentStoreTest.URI);
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+            return client;
+        } catch (RuntimeException e) {
+            client.close();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.appointment.backend.store.lsm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LsmStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private LsmStore store;
+
+    @AfterEach
+    void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private LsmStore open(int compactionTrigger) {
+        // 64 KB memtable so a few thousand entries cross several flushes
+        return LsmStore.open(dir, 64 * 1024, compactionTrigger, 16);
+    }
+
+    private static byte[] key(int i) {
+        return String.format("k%06d", i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] value(int i) {
+        return ("value-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void put(int i) {
+        store.write(new WriteBatch().put(key(i), value(i)));
+    }
+
+    @Test
+    void flushedTablesAndTheLogSurviveReopen() {
+        store = open(100);
+        for (int i = 0; i < 5_000; i++) {
+            put(i);
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            store.write(new WriteBatch().delete(key(i)));
+        }
+        assertTrue(store.tables().size() > 1);
+        store.close();
+
+        store = open(100);
+        assertNull(store.get(key(0)));
+        assertArrayEquals(value(1), store.get(key(1)));
+        List<byte[]> all = store.scan(key(0), key(5_000), Integer.MAX_VALUE);
+        assertEquals(2_500, all.size());
+        assertArrayEquals(value(4_999), all.get(all.size() - 1));
+    }
+
+    @Test
+    void compactionUnmapsAndDeletesTheTablesItReplaced() throws Exception {
+        store = open(3);
+        List<SsTable> before = null;
+        for (int i = 0; before == null && i < 100_000; i++) {
+            put(i);
+            if (store.tables().size() >= 3) {
+                before = store.tables();
+            }
+        }
+        assertTrue(before != null, "expected enough flushes to trigger a compaction");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (store.tables().containsAll(before) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(store.tables().containsAll(before), "compaction did not finish");
+        for (SsTable t : before) {
+            assertFalse(t.isOpen());
+            assertFalse(Files.exists(t.path));
+        }
+        assertArrayEquals(value(0), store.get(key(0)));
+    }
+
+    @Test
+    void aTableStaysMappedWhileAReaderHoldsIt() {
+        store = open(100);
+        for (int i = 0; store.tables().isEmpty(); i++) {
+            put(i);
+        }
+        SsTable table = store.tables().get(0);
+
+        assertTrue(table.retain());  // a reader
+        table.release();             // the store lets go (as after a compaction)
+        assertTrue(table.isOpen());
+        assertArrayEquals(value(0), table.get(key(0)));
+
+        table.release();             // the reader finishes
+        assertFalse(table.isOpen());
+        assertFalse(table.retain()); // later readers move on to a newer version
+    }
+
+    @Test
+    void readsKeepWorkingWhileWritesFlushAndCompact() throws Exception {
+        store = open(3);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            put(0);
+            Future<Integer> reader = pool.submit(() -> {
+                int reads = 0;
+                while (!done.get()) {
+                    if (store.get(key(0)) == null || store.scan(key(0), key(1), 10).size() != 1) {
+                        throw new AssertionError("key 0 went missing");
+                    }
+                    reads++;
+                }
+                return reads;
+            });
+            Future<?> writer = pool.submit(() -> {
+                for (int i = 1; i < 20_000; i++) {
+                    put(i);
+                }
+            });
+            writer.get(60, TimeUnit.SECONDS);
+            done.set(true);
+            assertTrue(reader.get(10, TimeUnit.SECONDS) > 0);
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+        assertEquals(20_000, store.scan(key(0), key(20_000), Integer.MAX_VALUE).size());
+    }
+}
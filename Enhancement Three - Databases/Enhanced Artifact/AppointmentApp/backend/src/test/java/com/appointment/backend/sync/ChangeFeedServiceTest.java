@@ -0,0 +1,162 @@
+package com.appointment.backend.sync;
+
+import com.appointment.backend.archive.AppointmentArchive;
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentQueries;
+import com.appointment.backend.repo.AppointmentRepository;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.store.AppointmentStore;
+import com.appointment.backend.store.MongoAppointmentStore;
+import com.appointment.backend.sync.dto.ChangeEntry;
+import com.appointment.backend.sync.dto.ChangeFeedResponse;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The change feed against a real MongoDB (skipped if none is reachable;
+ * override with -Dtest.mongodb.uri=...).
+ */
+class ChangeFeedServiceTest {
+
+    private static final String URI = System.getProperty("test.mongodb.uri",
+            "mongodb://localhost:27017/appointmentapp_test?serverSelectionTimeoutMS=1000");
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 15);
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+    private AppointmentStore store;
+    private AppointmentTombstoneRepository tombstones;
+    private ChangeSequence sequence;
+    private ChangeFeedService feed;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(URI);
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            client.close();
+            client = null;
+        }
+        assumeTrue(client != null, "MongoDB not reachable at " + URI);
+        mongo = new MongoTemplate(client, "appointmentapp_changefeed_test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongo.getDb().drop();
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongo);
+        AppointmentSchema schema = new AppointmentSchema(false);
+        AppointmentQueries queries = new AppointmentQueries(mongo, schema, 0, MongoRouting.disabled());
+        store = new MongoAppointmentStore(factory.getRepository(AppointmentRepository.class),
+                new AppointmentArchive(mongo, queries), queries);
+        tombstones = factory.getRepository(AppointmentTombstoneRepository.class);
+        sequence = new ChangeSequence(mongo);
+        IndexManager indexes = new IndexManager(mongo, schema, "warn", 30, 10_000, "mongo", 24);
+        feed = new ChangeFeedService(store, tombstones, sequence, mongo, schema, indexes, 30, "mongo");
+    }
+
+    private void add(String id) {
+        long seq = feed.begin();
+        try {
+            Appointment a = new Appointment(id, DAY, "Visit " + id);
+            a.setChangeSeq(seq);
+            store.insert(a);
+        } finally {
+            feed.end(seq);
+        }
+    }
+
+    private void delete(String id) {
+        long seq = feed.begin();
+        try {
+            feed.recordDeletion(id, seq);
+            store.deleteById(id);
+        } finally {
+            feed.end(seq);
+        }
+    }
+
+    @Test
+    void mergesUpsertsAndTombstonesInSequenceOrderAcrossPages() {
+        add("a");
+        add("b");
+        delete("a");
+        add("c");
+
+        ChangeFeedResponse first = feed.changesSince(0, 2);
+        assertEquals(List.of("b", "a"), first.getChanges().stream().map(ChangeEntry::getAppointmentId).toList());
+        assertEquals(ChangeEntry.DELETE, first.getChanges().get(1).getType());
+        assertTrue(first.isHasMore());
+
+        ChangeFeedResponse second = feed.changesSince(first.getNextSince(), 2);
+        assertEquals(List.of("c"), second.getChanges().stream().map(ChangeEntry::getAppointmentId).toList());
+        assertFalse(second.isHasMore());
+        assertEquals(second.getNextSince(), feed.changesSince(second.getNextSince(), 2).getNextSince());
+    }
+
+    @Test
+    void stopsBelowAWriteStillInFlight() {
+        add("a");
+        long pending = feed.begin();
+        add("b");
+        ChangeFeedResponse page = feed.changesSince(0, 10);
+        assertEquals(List.of("a"), page.getChanges().stream().map(ChangeEntry::getAppointmentId).toList());
+
+        feed.end(pending);
+        assertEquals(2, feed.changesSince(0, 10).getChanges().size());
+    }
+
+    @Test
+    void aDiscardedTombstoneIsOnlyRemovedIfNotReplaced() {
+        add("a");
+        long seq = feed.begin();
+        feed.recordDeletion("a", seq);
+        feed.end(seq);
+        feed.discardDeletion("a", seq - 1); // a stale discard leaves the newer tombstone
+        assertTrue(tombstones.existsById("a"));
+        feed.discardDeletion("a", seq);
+        assertFalse(tombstones.existsById("a"));
+    }
+
+    @Test
+    void cursorsOlderThanThePurgedTombstonesMustResync() {
+        add("a");
+        add("b");
+        delete("a");
+        mongo.save(new AppointmentTombstone("a", tombstones.findById("a").orElseThrow().getChangeSeq(),
+                Instant.now().minus(60, ChronoUnit.DAYS)));
+        feed.purgeExpiredTombstones();
+
+        assertThrows(ResyncRequiredException.class, () -> feed.changesSince(1, 10));
+        assertEquals(1, feed.changesSince(0, 10).getChanges().size()); // a full sync still works
+    }
+}
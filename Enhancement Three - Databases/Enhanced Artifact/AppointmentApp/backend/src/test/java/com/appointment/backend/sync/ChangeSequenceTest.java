@@ -0,0 +1,135 @@
+package com.appointment.backend.sync;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeSequenceTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** In-memory counter; increments wait on {@code gate} while it is armed. */
+    private static final class FakeCounter implements ChangeSequence.Counter {
+        final AtomicLong seq = new AtomicLong();
+        volatile CountDownLatch gate;
+        volatile CountDownLatch entered;
+        volatile RuntimeException failure;
+
+        @Override
+        public long increment() {
+            CountDownLatch e = entered;
+            if (e != null) {
+                e.countDown();
+            }
+            CountDownLatch g = gate;
+            if (g != null) {
+                try {
+                    g.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return seq.incrementAndGet();
+        }
+
+        @Override
+        public long current() {
+            return seq.get();
+        }
+    }
+
+    @Test
+    void watermarkStopsBelowTheOldestUnfinishedNumber() {
+        ChangeSequence sequence = new ChangeSequence(new FakeCounter());
+        long a = sequence.next();
+        long b = sequence.next();
+        long c = sequence.next();
+        assertEquals(0, sequence.stableWatermark());
+
+        sequence.complete(b);
+        sequence.complete(c);
+        assertEquals(a - 1, sequence.stableWatermark()); // b and c done, but a is not
+
+        sequence.complete(a);
+        assertEquals(c, sequence.stableWatermark());
+    }
+
+    @Test
+    void anAllocationWaitingOnTheCounterDoesNotBlockOthers() throws Exception {
+        FakeCounter counter = new FakeCounter();
+        ChangeSequence sequence = new ChangeSequence(counter);
+        long first = sequence.next();
+        sequence.complete(first);
+
+        counter.gate = new CountDownLatch(1);
+        counter.entered = new CountDownLatch(1);
+        Future<Long> slow = pool.submit(sequence::next);
+        assertTrue(counter.entered.await(5, TimeUnit.SECONDS));
+
+        // Readers and finishing writers get through while the round trip is outstanding
+        Future<Long> watermark = pool.submit(sequence::stableWatermark);
+        assertEquals(first, watermark.get(5, TimeUnit.SECONDS));
+        pool.submit(() -> sequence.complete(first)).get(5, TimeUnit.SECONDS);
+
+        counter.gate.countDown();
+        long second = slow.get(5, TimeUnit.SECONDS);
+        assertEquals(first, sequence.stableWatermark());
+        sequence.complete(second);
+        assertEquals(second, sequence.stableWatermark());
+    }
+
+    @Test
+    void watermarkNeverPassesANumberStillBeingAllocated() throws Exception {
+        FakeCounter counter = new FakeCounter();
+        ChangeSequence sequence = new ChangeSequence(counter);
+        counter.gate = new CountDownLatch(1);
+        counter.entered = new CountDownLatch(1);
+        Future<Long> slow = pool.submit(sequence::next);
+        assertTrue(counter.entered.await(5, TimeUnit.SECONDS));
+
+        // Another process (or a racing read) moves the counter past the pending allocation
+        counter.seq.set(5);
+        assertEquals(0, sequence.stableWatermark());
+
+        counter.gate.countDown();
+        long seq = slow.get(5, TimeUnit.SECONDS);
+        assertEquals(6, seq);
+        assertEquals(5, sequence.stableWatermark());
+        sequence.complete(seq);
+        assertEquals(6, sequence.stableWatermark());
+    }
+
+    @Test
+    void aFailedAllocationReleasesItsPlaceholder() {
+        FakeCounter counter = new FakeCounter();
+        ChangeSequence sequence = new ChangeSequence(counter);
+        sequence.complete(sequence.next());
+
+        counter.failure = new IllegalStateException("counter unavailable");
+        assertThrows(IllegalStateException.class, sequence::next);
+        counter.failure = null;
+
+        assertEquals(1, sequence.stableWatermark());
+        long seq = sequence.next();
+        assertFalse(sequence.stableWatermark() >= seq);
+    }
+}
@@ -0,0 +1,43 @@
+package com.appointment.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DescriptionDictionaryTest {
+
+    @Test
+    void returnsOneInstancePerValue() {
+        String first = DescriptionDictionary.canonical(new String("Annual checkup"));
+        String copy = new String("Annual checkup");
+        assertNotSame(first, copy);
+        assertSame(first, DescriptionDictionary.canonical(copy));
+    }
+
+    @Test
+    void oldValuesAgeOutSoNewOnesAreStillShared() {
+        // Flood it with more one-off values than it can hold
+        for (int i = 0; i < DescriptionDictionary.MAX_ENTRIES * 2; i++) {
+            DescriptionDictionary.canonical("one-off " + i);
+        }
+        assertTrue(DescriptionDictionary.size() <= DescriptionDictionary.MAX_ENTRIES);
+
+        String fresh = DescriptionDictionary.canonical(new String("Dentist after the flood"));
+        assertSame(fresh, DescriptionDictionary.canonical(new String("Dentist after the flood")));
+    }
+
+    @Test
+    void valuesStillInUseSurviveAFlood() {
+        String hot = DescriptionDictionary.canonical(new String("Hot checkup"));
+        for (int i = 0; i < DescriptionDictionary.MAX_ENTRIES * 4; i++) {
+            DescriptionDictionary.canonical("flood " + i);
+            if (i % 100 == 0) {
+                assertSame(hot, DescriptionDictionary.canonical(new String("Hot checkup")));
+            }
+        }
+        assertSame(hot, DescriptionDictionary.canonical(new String("Hot checkup")));
+        assertTrue(DescriptionDictionary.size() <= DescriptionDictionary.MAX_ENTRIES + 1);
+    }
+}
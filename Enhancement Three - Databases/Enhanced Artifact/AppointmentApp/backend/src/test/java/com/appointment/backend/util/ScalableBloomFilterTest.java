@@ -0,0 +1,80 @@
+package com.appointment.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void growsWithoutFalseNegativesAndKeepsTheRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 200_000; i++) {
+            filter.add("A" + i);
+        }
+        assertTrue(filter.stageCount() > 1);
+        for (int i = 0; i < 200_000; i++) {
+            assertTrue(filter.mightContain("A" + i));
+        }
+
+        int positives = 0;
+        for (int i = 0; i < 200_000; i++) {
+            if (filter.mightContain("B" + i)) {
+                positives++;
+            }
+        }
+        double rate = positives / 200_000.0;
+        assertTrue(rate < 0.015, "false-positive rate " + rate);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.01);
+    }
+
+    @Test
+    void concurrentAddsAreAllVisible() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            done.add(pool.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    filter.add(thread + ":" + i);
+                }
+            }));
+        }
+        for (Future<?> f : done) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 20_000; i++) {
+                assertTrue(filter.mightContain(t + ":" + i));
+            }
+        }
+    }
+
+    @Test
+    void existenceFilterOnlyTrustsMissesOnceLoaded() {
+        ExistenceFilter ids = new ExistenceFilter(100, 0.01);
+        int[] queries = { 0 };
+
+        assertFalse(ids.exists("A1", k -> ++queries[0] < 0));
+        assertEquals(1, queries[0]);
+
+        ids.add("A2");
+        ids.markLoaded();
+        assertFalse(ids.exists("A1", k -> ++queries[0] < 0));
+        assertEquals(1, queries[0]);
+        assertTrue(ids.exists("A2", k -> ++queries[0] > 0));
+        assertEquals(2, queries[0]);
+        assertEquals(1L, ids.metrics().get("queriesSkipped"));
+    }
+}
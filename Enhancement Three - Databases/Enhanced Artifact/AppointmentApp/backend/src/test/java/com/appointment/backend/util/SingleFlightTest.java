@@ -0,0 +1,126 @@
+package com.appointment.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight flight = new SingleFlight(true, 5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<String> result = List.of("A1");
+
+        Future<List<String>> leader = pool.submit(() -> flight.run("upcoming", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return result;
+        }));
+        waitForInFlight(flight);
+
+        List<Future<List<String>>> followers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            followers.add(pool.submit(() -> flight.run("upcoming", () -> {
+                loads.incrementAndGet();
+                return List.of("other");
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        assertSame(result, leader.get(5, TimeUnit.SECONDS));
+        for (Future<List<String>> f : followers) {
+            assertSame(result, f.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(10L, flight.metrics().get("shared"));
+    }
+
+    @Test
+    void differentKeysDoNotShare() {
+        SingleFlight flight = new SingleFlight(true, 5_000);
+        assertEquals("a", flight.run(List.of("range", 1, 2), () -> "a"));
+        assertEquals("b", flight.run(List.of("range", 1, 3), () -> "b"));
+        assertEquals(2L, flight.metrics().get("loads"));
+    }
+
+    @Test
+    void waitersGiveUpAfterMaxWaitAndLoadThemselves() throws Exception {
+        SingleFlight flight = new SingleFlight(true, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> flight.run("all", () -> {
+            await(release);
+            return "slow";
+        }));
+        waitForInFlight(flight);
+
+        assertEquals("own", flight.run("all", () -> "own"));
+        assertEquals(1L, flight.metrics().get("timeouts"));
+        release.countDown();
+    }
+
+    @Test
+    void leaderFailureIsSharedAndNotCached() throws Exception {
+        SingleFlight flight = new SingleFlight(true, 5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = pool.submit(() -> flight.run("all", () -> {
+            await(release);
+            throw new IllegalStateException("db down");
+        }));
+        waitForInFlight(flight);
+        Future<Object> follower = pool.submit(() -> flight.run("all", () -> "unused"));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<Object> f : List.of(leader, follower)) {
+            Exception ex = assertThrows(Exception.class, () -> f.get(5, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("fresh", flight.run("all", () -> "fresh"));
+    }
+
+    @Test
+    void readsAfterAWriteStartFresh() throws Exception {
+        SingleFlight flight = new SingleFlight(true, 5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> flight.run("all", () -> {
+            await(release);
+            return "before write";
+        }));
+        waitForInFlight(flight);
+
+        flight.forgetInFlight();
+        assertEquals("after write", flight.run("all", () -> "after write"));
+        release.countDown();
+    }
+
+    private static void waitForInFlight(SingleFlight flight) throws InterruptedException {
+        for (int i = 0; i < 500 && (int) flight.metrics().get("inFlight") == 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
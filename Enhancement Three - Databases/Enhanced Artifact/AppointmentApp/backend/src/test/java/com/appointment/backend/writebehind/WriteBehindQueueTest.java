@@ -0,0 +1,156 @@
+package com.appointment.backend.writebehind;
+
+import com.appointment.backend.breaker.CircuitBreaker;
+import com.appointment.backend.index.IndexManager;
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.repo.AppointmentSchema;
+import com.appointment.backend.repo.MongoRouting;
+import com.appointment.backend.service.AppointmentService;
+import com.appointment.backend.service.LastKnownGood;
+import com.appointment.backend.service.ScatterGather;
+import com.appointment.backend.store.InMemoryAppointmentStore;
+import com.appointment.backend.sync.ChangeFeedService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(30);
+
+    @TempDir
+    Path dir;
+
+    private final InMemoryAppointmentStore store = new InMemoryAppointmentStore();
+    private WriteBehindQueue queue;
+
+    @AfterEach
+    void stop() {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    private static Appointment appt(String id, String description, long seq) {
+        Appointment a = new Appointment(id, DAY, description);
+        a.setChangeSeq(seq);
+        return a;
+    }
+
+    private WriteBehindQueue open() {
+        return open(new CircuitBreaker(false, 5, 3000, 10_000));
+    }
+
+    private WriteBehindQueue open(CircuitBreaker breaker) {
+        AtomicLong seq = new AtomicLong(1000);
+        ChangeFeedService changes = new ChangeFeedService(null, null, null, null, null, null, 30, "memory") {
+            @Override
+            public long begin() {
+                return seq.incrementAndGet();
+            }
+
+            @Override
+            public void end(long s) {
+            }
+        };
+        AppointmentService service = new AppointmentService(store, changes,
+                new IndexManager(null, new AppointmentSchema(false), "warn", 30, 10_000, "memory", 24),
+                new ScatterGather(1, 365, 1), breaker, new LastKnownGood(),
+                MongoRouting.disabled(), "", true, false, 0);
+        return new WriteBehindQueue(service, store, true, 100, 10, 1,
+                dir.resolve("wb.journal").toString(), false, 1);
+    }
+
+    private void awaitWritten() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Integer.valueOf(0).equals(queue.metrics().get("outstanding")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, queue.metrics().get("outstanding"));
+    }
+
+    @Test
+    void aDuplicateOnReplayCountsAsWrittenOnlyIfItIsTheEarlierAttempt() throws Exception {
+        // A previous run accepted three appointments and sent two of them before it crashed
+        try (WriteJournal journal = WriteJournal.open(dir.resolve("wb.journal"), false, new LinkedHashMap<>())) {
+            journal.accepted(appt("ours", "Checkup", 0));
+            journal.accepted(appt("taken", "Checkup", 0));
+            journal.accepted(appt("same", "Checkup", 0));
+            journal.stamped(List.of(appt("ours", "Checkup", 7), appt("taken", "Checkup", 8)));
+        }
+        store.insert(appt("ours", "Checkup", 7));      // the earlier attempt landed
+        store.insert(appt("taken", "Dentist", 8));     // someone else's, even with a matching seq
+        store.insert(appt("same", "Checkup", 9));      // identical content, but never sent by us
+
+        queue = open();
+        queue.start();
+        awaitWritten();
+
+        assertEquals(WriteBehindQueue.Status.WRITTEN, queue.status("ours"));
+        assertEquals(WriteBehindQueue.Status.FAILED, queue.status("taken"));
+        assertEquals("Appointment ID already exists", queue.failureReason("taken"));
+        assertEquals(WriteBehindQueue.Status.FAILED, queue.status("same"));
+        assertEquals(1L, queue.metrics().get("written"));
+        assertEquals(2L, queue.metrics().get("failed"));
+    }
+
+    @Test
+    void aBatchRefusedByAnOpenBreakerIsRetriedNotFailed() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(true, 1, 3000, 300);
+        assertThrows(DataAccessResourceFailureException.class, () -> breaker.call(() -> {
+            throw new DataAccessResourceFailureException("connection refused");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        queue = open(breaker);
+        queue.submit(appt("a1", "Checkup", 0));
+        queue.submit(appt("a2", "Checkup", 0));
+        queue.start();
+        awaitWritten(); // refused until open-ms has passed, then the retry is the trial call
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(WriteBehindQueue.Status.WRITTEN, queue.status("a1"));
+        assertEquals(WriteBehindQueue.Status.WRITTEN, queue.status("a2"));
+        assertTrue(store.existsById("a1"));
+        assertEquals(2L, queue.metrics().get("written"));
+        assertEquals(0L, queue.metrics().get("failed"));
+        assertTrue((Long) queue.metrics().get("retries") >= 1);
+    }
+
+    @Test
+    void deleteWithdrawsAnAppointmentStillInTheQueue() throws Exception {
+        queue = open(); // writer not started, so submissions stay queued
+        queue.submit(appt("a1", "Checkup", 0));
+        queue.submit(appt("a2", "Checkup", 0));
+
+        assertTrue(queue.cancel("a1"));
+        assertFalse(queue.cancel("a1"));
+        assertFalse(queue.cancel("never-queued"));
+        assertEquals(WriteBehindQueue.Status.UNKNOWN, queue.status("a1"));
+
+        queue.start();
+        awaitWritten();
+        assertFalse(store.existsById("a1"));
+        assertTrue(store.existsById("a2"));
+        queue.stop();
+
+        // Withdrawn appointments are not replayed after a restart either
+        Map<String, Appointment> pending = new LinkedHashMap<>();
+        WriteJournal.open(dir.resolve("wb.journal"), false, pending).close();
+        assertTrue(pending.isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+package com.appointment.backend.writebehind;
+
+import com.appointment.backend.model.Appointment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static Appointment appt(String id) {
+        return new Appointment(id, LocalDate.of(2030, 1, 15), "Checkup " + id);
+    }
+
+    private Map<String, Appointment> reopen(Path file) throws Exception {
+        Map<String, Appointment> pending = new LinkedHashMap<>();
+        WriteJournal.open(file, false, pending).close();
+        return pending;
+    }
+
+    @Test
+    void replayReturnsAcceptedButNotWritten() throws Exception {
+        Path file = dir.resolve("wb.journal");
+        try (WriteJournal journal = WriteJournal.open(file, true, new LinkedHashMap<>())) {
+            journal.accepted(appt("A1"));
+            journal.accepted(appt("A2"));
+            journal.accepted(appt("A3"));
+            journal.written(List.of("A2"));
+        }
+
+        Map<String, Appointment> pending = reopen(file);
+        assertEquals(List.of("A1", "A3"), List.copyOf(pending.keySet()));
+        Appointment a3 = pending.get("A3");
+        assertEquals(LocalDate.of(2030, 1, 15), a3.getAppointmentDate());
+        assertEquals("Checkup A3", a3.getDescription());
+    }
+
+    @Test
+    void tornTailIsCutOff() throws Exception {
+        Path file = dir.resolve("wb.journal");
+        try (WriteJournal journal = WriteJournal.open(file, false, new LinkedHashMap<>())) {
+            journal.accepted(appt("A1"));
+            journal.accepted(appt("A2"));
+        }
+        long full = Files.size(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(full - 3); // crash in the middle of the second record
+        }
+
+        assertEquals(List.of("A1"), List.copyOf(reopen(file).keySet()));
+        assertTrue(Files.size(file) < full - 3);
+
+        // Appends after the cut replay normally
+        Map<String, Appointment> pending = new LinkedHashMap<>();
+        try (WriteJournal journal = WriteJournal.open(file, false, pending)) {
+            journal.accepted(appt("A4"));
+        }
+        assertEquals(List.of("A1", "A4"), List.copyOf(reopen(file).keySet()));
+    }
+
+    @Test
+    void truncatesOnceEverythingIsWritten() throws Exception {
+        Path file = dir.resolve("wb.journal");
+        try (WriteJournal journal = WriteJournal.open(file, false, new LinkedHashMap<>())) {
+            journal.accepted(appt("A1"));
+            journal.accepted(appt("A2"));
+            journal.written(List.of("A1"));
+            assertTrue(journal.sizeBytes() > 0);
+            journal.written(List.of("A2"));
+            assertEquals(0, journal.sizeBytes());
+            journal.accepted(appt("A3"));
+        }
+        assertEquals(List.of("A3"), List.copyOf(reopen(file).keySet()));
+    }
+
+    @Test
+    void replayedRecordsStillCountAsOutstanding() throws Exception {
+        Path file = dir.resolve("wb.journal");
+        try (WriteJournal journal = WriteJournal.open(file, false, new LinkedHashMap<>())) {
+            journal.accepted(appt("A1"));
+        }
+        Map<String, Appointment> pending = new LinkedHashMap<>();
+        try (WriteJournal journal = WriteJournal.open(file, false, pending)) {
+            journal.accepted(appt("A2"));
+            journal.written(List.of("A2"));
+            assertTrue(journal.sizeBytes() > 0); // A1 is still pending
+            journal.written(List.of("A1"));
+            assertEquals(0, journal.sizeBytes());
+        }
+        assertTrue(reopen(file).isEmpty());
+    }
+}
@@ -10,6 +10,19 @@ import "./App.css";
 const AuthContext = createContext();
 const API = "http://localhost:8080";
 
+// Read-your-writes: writes return an X-Read-After token; sending the latest one on reads makes a lagging
+// replica wait until it has our writes, whichever backend instance answers
+let readAfter = null;
+axios.interceptors.response.use((res) => {
+  const token = res.headers["x-read-after"];
+  if (token) readAfter = token;
+  return res;
+});
+axios.interceptors.request.use((config) => {
+  if (readAfter && (config.method || "get") === "get") config.headers["X-Read-After"] = readAfter;
+  return config;
+});
+
 export default function App() {
   // Keep token in localStorage so auth persists across refreshes
   const [token, setTokenState] = useState(() => localStorage.getItem("token"));
@@ -0,0 +1,36 @@
+package com.appointment.backend.config;
+
+import com.appointment.backend.persistence.AppointmentJournal;
+import com.appointment.backend.service.AppointmentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * Builds the single AppointmentService shared by the controllers.
+ * - app.schedule.zone: what "today" means (blank = server default zone)
+ * - app.store.data-dir: enables the write-ahead log + snapshots (blank = memory only)
+ */
+@Configuration
+public class AppointmentServiceConfig {
+
+    @Bean(destroyMethod = "close")
+    public AppointmentService appointmentService(
+            @Value("${app.schedule.zone:}") String zone,
+            @Value("${app.store.data-dir:}") String dataDir,
+            @Value("${app.store.wal.flush-interval-ms:2}") long flushIntervalMs,
+            @Value("${app.store.wal.flush-bytes:262144}") int flushBytes,
+            @Value("${app.store.snapshot-every-ops:1000000}") long snapshotEveryOps) {
+        Clock clock = zone.isBlank() ? Clock.systemDefaultZone() : Clock.system(ZoneId.of(zone));
+        AppointmentJournal journal = dataDir.isBlank()
+                ? null
+                : AppointmentJournal.open(Path.of(dataDir), Duration.ofMillis(flushIntervalMs), flushBytes,
+                        snapshotEveryOps);
+        return new AppointmentService(clock, journal);
+    }
+}
@@ -25,9 +25,12 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class AppointmentController {
 
-    // For this project we instantiate the service directly.
-    // In a larger app, prefer @Service + constructor injection.
-    private final AppointmentService appointmentService = new AppointmentService();
+    // Built in AppointmentServiceConfig (time zone and optional durability)
+    private final AppointmentService appointmentService;
+
+    public AppointmentController(AppointmentService appointmentService) {
+        this.appointmentService = appointmentService;
+    }
 
     /** Return all appointments (unsorted; kept for backward compatibility). */
     @GetMapping
@@ -0,0 +1,530 @@
+package com.appointment.backend.persistence;
+
+import com.appointment.backend.model.Appointment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durability for the in-memory AppointmentService:
+ * - an append-only write-ahead log (WAL) of add/delete operations, and
+ * - periodic compact binary snapshots of every appointment.
+ *
+ * Writes use group commit: callers append under their own lock, then wait in
+ * {@link #awaitDurable(long)} while a single flusher thread writes and fsyncs
+ * everything pending once the batch is big enough or old enough. Many
+ * concurrent writers therefore share one fsync.
+ *
+ * On disk (all in one directory):
+ * - wal-{firstLsn}.log: frames of [int length][payload][int crc32c]
+ * - snapshot-{lsn}.bin: state as of that LSN; WAL segments it covers are deleted
+ *
+ * Recovery memory-maps the newest snapshot and replays the WAL tail after it.
+ * A torn frame at the end of the last segment (crash mid-write) is cut off.
+ */
+public class AppointmentJournal implements Closeable {
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int SNAPSHOT_MAGIC = 0x41505054; // "APPT"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER = 4 + 4 + 8 + 8;
+    // id <= 10 chars, description <= 50 chars, UTF-8 worst case 3 bytes/char
+    private static final int MAX_SNAPSHOT_RECORD = 1 + 30 + 4 + 2 + 150;
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private final Path dir;
+    private final long flushIntervalNanos;
+    private final int flushBytes;
+    private final long snapshotEveryOps;
+
+    // Guards the pending buffer and LSN counters
+    private final Object lock = new Object();
+    // Guards the current segment channel (flusher writes vs. segment roll)
+    private final Object channelLock = new Object();
+
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long pendingSince;
+    private int frameStart;
+    private long lastLsn;
+    private long durableLsn;
+    private long opsSinceSnapshot;
+    private IOException failure;
+    private boolean closed;
+
+    private FileChannel segment;
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final Thread flusher;
+
+    private AppointmentJournal(Path dir, Duration flushInterval, int flushBytes, long snapshotEveryOps) {
+        this.dir = dir;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flushBytes = flushBytes;
+        this.snapshotEveryOps = snapshotEveryOps;
+        this.flusher = new Thread(this::flushLoop, "appointments-wal");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Open (or create) a journal directory.
+     * Call {@link #recover} before appending.
+     *
+     * @param flushInterval    max time a write waits for its group fsync
+     * @param flushBytes       fsync early once this many bytes are pending
+     * @param snapshotEveryOps suggest a snapshot after this many operations
+     */
+    public static AppointmentJournal open(Path dir, Duration flushInterval, int flushBytes, long snapshotEveryOps) {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal directory " + dir, e);
+        }
+        return new AppointmentJournal(dir, flushInterval, flushBytes, snapshotEveryOps);
+    }
+
+    // ----- recovery -----
+
+    /**
+     * Load the newest snapshot and replay the WAL after it, then start
+     * accepting appends.
+     * Returns the number of WAL operations replayed.
+     */
+    public long recover(Consumer<Appointment> onAdd, Consumer<String> onDelete) {
+        try {
+            long snapshotLsn = 0;
+            Path snapshot = latest("snapshot-", ".bin");
+            if (snapshot != null) {
+                snapshotLsn = loadSnapshot(snapshot, onAdd);
+            }
+            lastLsn = snapshotLsn;
+
+            long replayed = 0;
+            List<Path> segments = list("wal-", ".log");
+            for (int i = 0; i < segments.size(); i++) {
+                replayed += replaySegment(segments.get(i), snapshotLsn, i == segments.size() - 1, onAdd, onDelete);
+            }
+            durableLsn = lastLsn;
+            opsSinceSnapshot = replayed;
+
+            openSegment(lastLsn + 1);
+            flusher.start();
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal recovery failed in " + dir, e);
+        }
+    }
+
+    private long loadSnapshot(Path file, Consumer<Appointment> onAdd) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, SNAPSHOT_HEADER);
+            if (header.getInt() != SNAPSHOT_MAGIC || header.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            long lsn = header.getLong();
+            long count = header.getLong();
+
+            // Map in windows so snapshots larger than 2 GB still load
+            long pos = SNAPSHOT_HEADER;
+            long read = 0;
+            while (read < count) {
+                long window = Math.min(MAP_WINDOW, size - pos);
+                ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, window);
+                boolean lastWindow = pos + window == size;
+                while (read < count && (lastWindow || buf.remaining() >= MAX_SNAPSHOT_RECORD)) {
+                    String id = readString(buf, buf.get() & 0xFF);
+                    LocalDate date = LocalDate.ofEpochDay(buf.getInt());
+                    String description = readString(buf, buf.getShort() & 0xFFFF);
+                    onAdd.accept(new Appointment(id, date, description));
+                    read++;
+                }
+                pos += buf.position();
+            }
+            return lsn;
+        }
+    }
+
+    private long replaySegment(Path file, long afterLsn, boolean last,
+            Consumer<Appointment> onAdd, Consumer<String> onDelete) throws IOException {
+        long replayed = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            CRC32C crc = new CRC32C();
+            int validEnd = 0;
+            while (buf.remaining() >= 4) {
+                int len = buf.getInt(buf.position());
+                if (len <= 0 || buf.remaining() < 4 + len + 4) {
+                    break; // torn frame
+                }
+                ByteBuffer payload = buf.slice(buf.position() + 4, len);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if (crc.getValue() != (buf.getInt(buf.position() + 4 + len) & 0xFFFFFFFFL)) {
+                    break; // corrupt frame
+                }
+                buf.position(buf.position() + 4 + len + 4);
+                validEnd = buf.position();
+
+                byte op = payload.get();
+                long lsn = payload.getLong();
+                lastLsn = Math.max(lastLsn, lsn);
+                if (lsn <= afterLsn) {
+                    continue; // already in the snapshot
+                }
+                String id = readString(payload, payload.get() & 0xFF);
+                if (op == OP_ADD) {
+                    LocalDate date = LocalDate.ofEpochDay(payload.getInt());
+                    String description = readString(payload, payload.getShort() & 0xFFFF);
+                    onAdd.accept(new Appointment(id, date, description));
+                } else {
+                    onDelete.accept(id);
+                }
+                replayed++;
+            }
+            if (validEnd < ch.size()) {
+                if (!last) {
+                    throw new IOException("Corrupt WAL segment before the tail: " + file);
+                }
+                ch.truncate(validEnd);
+                ch.force(true);
+            }
+        }
+        return replayed;
+    }
+
+    // ----- appends (group commit) -----
+
+    /**
+     * Log an add. Call while holding the lock that orders the in-memory
+     * mutation, so log order matches memory order, and before changing
+     * memory: once the log has failed or is closed this throws and takes no
+     * LSN. Returns its LSN.
+     */
+    public long appendAdd(Appointment a) {
+        byte[] id = a.getAppointmentId().getBytes(StandardCharsets.UTF_8);
+        byte[] desc = a.getDescription().getBytes(StandardCharsets.UTF_8);
+        synchronized (lock) {
+            ensureWritable();
+            ByteBuffer p = frameStart(1 + 8 + 1 + id.length + 4 + 2 + desc.length);
+            p.put(OP_ADD).putLong(++lastLsn)
+                    .put((byte) id.length).put(id)
+                    .putInt((int) a.getAppointmentDate().toEpochDay())
+                    .putShort((short) desc.length).put(desc);
+            return frameEnd(p);
+        }
+    }
+
+    /** Log a delete (same locking rule as {@link #appendAdd}). Returns its LSN. */
+    public long appendDelete(String appointmentId) {
+        byte[] id = appointmentId.getBytes(StandardCharsets.UTF_8);
+        synchronized (lock) {
+            ensureWritable();
+            ByteBuffer p = frameStart(1 + 8 + 1 + id.length);
+            p.put(OP_DELETE).putLong(++lastLsn).put((byte) id.length).put(id);
+            return frameEnd(p);
+        }
+    }
+
+    /** Block until the operation with this LSN is fsynced. */
+    public void awaitDurable(long lsn) {
+        synchronized (lock) {
+            while (durableLsn < lsn) {
+                ensureWritable();
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        }
+    }
+
+    /** Refuse new work after an I/O failure (nothing more can become durable) or close. Caller holds lock. */
+    private void ensureWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log is unavailable", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    private ByteBuffer frameStart(int payloadLen) {
+        ensureCapacity(4 + payloadLen + 4);
+        if (pending.position() == 0) {
+            pendingSince = System.nanoTime();
+        }
+        frameStart = pending.position();
+        pending.putInt(payloadLen);
+        return pending;
+    }
+
+    private long frameEnd(ByteBuffer p) {
+        int payloadStart = frameStart + 4;
+        CRC32C crc = new CRC32C();
+        crc.update(p.array(), payloadStart, p.position() - payloadStart);
+        p.putInt((int) crc.getValue());
+        opsSinceSnapshot++;
+        // First frame of a batch starts the linger timer; a full batch flushes now
+        if (frameStart == 0 || p.position() >= flushBytes) {
+            lock.notifyAll();
+        }
+        return lastLsn;
+    }
+
+    private void ensureCapacity(int frame) {
+        if (pending.remaining() < frame) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + frame));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                // Wait for a full batch or until the oldest pending write has lingered enough
+                while (!closed && failure == null) {
+                    if (pending.position() > 0) {
+                        long waited = System.nanoTime() - pendingSince;
+                        if (pending.position() >= flushBytes || waited >= flushIntervalNanos) {
+                            break;
+                        }
+                        waitNanos(flushIntervalNanos - waited);
+                    } else {
+                        waitNanos(0);
+                    }
+                }
+                if (failure != null || (closed && pending.position() == 0)) {
+                    return;
+                }
+            }
+
+            synchronized (channelLock) {
+                ByteBuffer toWrite;
+                long upTo;
+                synchronized (lock) {
+                    if (pending.position() == 0) {
+                        continue; // a segment roll already drained it
+                    }
+                    toWrite = pending;
+                    pending = spare;
+                    upTo = lastLsn;
+                }
+                try {
+                    toWrite.flip();
+                    while (toWrite.hasRemaining()) {
+                        segment.write(toWrite);
+                    }
+                    segment.force(false);
+                } catch (IOException e) {
+                    synchronized (lock) {
+                        failure = e;
+                        lock.notifyAll();
+                    }
+                    return;
+                }
+                synchronized (lock) {
+                    durableLsn = Math.max(durableLsn, upTo);
+                    spare = toWrite.clear();
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void waitNanos(long nanos) {
+        try {
+            if (nanos <= 0) {
+                lock.wait();
+            } else {
+                lock.wait(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ----- snapshots -----
+
+    /** True once enough operations were logged since the last snapshot. */
+    public boolean snapshotDue() {
+        synchronized (lock) {
+            return opsSinceSnapshot >= snapshotEveryOps && !snapshotting.get();
+        }
+    }
+
+    /**
+     * Start a snapshot: switch the WAL to a fresh segment and return the LSN
+     * the snapshot must reflect. Call while holding the same lock as appends,
+     * then capture the state before releasing it.
+     * Returns -1 if another snapshot is already running.
+     */
+    public long beginSnapshot() {
+        if (!snapshotting.compareAndSet(false, true)) {
+            return -1;
+        }
+        synchronized (channelLock) {
+            synchronized (lock) {
+                if (failure != null || closed) {
+                    snapshotting.set(false);
+                    return -1;
+                }
+                try {
+                    // Drain what is pending into the old segment first
+                    pending.flip();
+                    while (pending.hasRemaining()) {
+                        segment.write(pending);
+                    }
+                    pending.clear();
+                    segment.force(false);
+                    durableLsn = lastLsn;
+                    lock.notifyAll();
+
+                    segment.close();
+                    openSegment(lastLsn + 1);
+                    opsSinceSnapshot = 0;
+                    return lastLsn;
+                } catch (IOException e) {
+                    failure = e;
+                    lock.notifyAll();
+                    snapshotting.set(false);
+                    throw new UncheckedIOException("Cannot roll the write-ahead log", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the snapshot captured at {@code lsn} (can run without any lock),
+     * then drop the WAL segments and older snapshots it makes redundant.
+     */
+    public void writeSnapshot(long lsn, Collection<Appointment> state) {
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+            buf.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(lsn).putLong(state.size());
+            for (Appointment a : state) {
+                if (buf.remaining() < MAX_SNAPSHOT_RECORD) {
+                    drain(ch, buf);
+                }
+                byte[] id = a.getAppointmentId().getBytes(StandardCharsets.UTF_8);
+                byte[] desc = a.getDescription().getBytes(StandardCharsets.UTF_8);
+                buf.put((byte) id.length).put(id)
+                        .putInt((int) a.getAppointmentDate().toEpochDay())
+                        .putShort((short) desc.length).put(desc);
+            }
+            drain(ch, buf);
+            ch.force(true);
+        } catch (IOException e) {
+            snapshotting.set(false);
+            throw new UncheckedIOException("Snapshot failed", e);
+        }
+
+        try {
+            Path target = dir.resolve(String.format("snapshot-%020d.bin", lsn));
+            Files.move(tmp, target, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            for (Path old : list("snapshot-", ".bin")) {
+                if (!old.equals(target)) {
+                    Files.deleteIfExists(old);
+                }
+            }
+            // Segments are named by their first LSN; everything before the
+            // current segment is covered by this snapshot
+            for (Path seg : list("wal-", ".log")) {
+                if (firstLsn(seg) <= lsn) {
+                    Files.deleteIfExists(seg);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot cleanup failed", e);
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join(5_000);
+            synchronized (channelLock) {
+                if (segment != null) {
+                    segment.close();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ----- files -----
+
+    private void openSegment(long firstLsn) throws IOException {
+        Path file = dir.resolve(String.format("wal-%020d.log", firstLsn));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+
+    private static String readString(ByteBuffer buf, int len) {
+        byte[] b = new byte[len];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static long firstLsn(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> out = new ArrayList<>(files
+                    .filter(p -> {
+                        String n = p.getFileName().toString();
+                        return n.startsWith(prefix) && n.endsWith(suffix);
+                    })
+                    .toList());
+            out.sort((a, b) -> Long.compare(firstLsn(a), firstLsn(b)));
+            return out;
+        }
+    }
+
+    private Path latest(String prefix, String suffix) throws IOException {
+        List<Path> all = list(prefix, suffix);
+        return all.isEmpty() ? null : all.get(all.size() - 1);
+    }
+}
@@ -1,9 +1,17 @@
 package com.appointment.backend.service;
 
 import com.appointment.backend.model.Appointment;
+import com.appointment.backend.persistence.AppointmentJournal;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * In-memory data store with two complementary indexes:
@@ -11,27 +19,96 @@ import java.util.*;
  * - byDate: TreeMap (sorted) for efficient date-based queries and ordering
  *
  * Keeping both in sync gives fast ID operations and fast sorted/range reads.
+ *
+ * Upcoming/previous are additionally kept as precomputed immutable views that
+ * are patched on every write and re-partitioned at midnight in the configured
+ * zone, so those reads are a reference return with no copying.
+ *
+ * With an {@link AppointmentJournal} attached, every add/delete is written to
+ * a write-ahead log before it is acknowledged, and state is rebuilt from the
+ * latest snapshot plus the log on startup. Without one, data lives in memory
+ * only. A write is logged before memory changes; once the log has failed,
+ * writes are refused, and one whose fsync fails is undone in memory before
+ * the error reaches the caller.
  */
-public class AppointmentService {
+public class AppointmentService implements AutoCloseable {
 
     private final Map<String, Appointment> byId = new HashMap<>();
     private final NavigableMap<LocalDate, List<Appointment>> byDate = new TreeMap<>();
 
+    private final Clock clock;
+    private final UpcomingPreviousViews views;
+    private final ScheduledThreadPoolExecutor maintenance;
+    private final AppointmentJournal journal;
+
+    /** Uses the system default time zone for "today"; memory only. */
+    public AppointmentService() {
+        this(Clock.systemDefaultZone(), null);
+    }
+
+    /** "Today" (and its midnight rollover) is taken from the given clock's zone; memory only. */
+    public AppointmentService(Clock clock) {
+        this(clock, null);
+    }
+
+    /**
+     * Durable variant: recovers state from the journal before serving.
+     * Pass null for a memory-only service.
+     */
+    public AppointmentService(Clock clock, AppointmentJournal journal) {
+        this.clock = clock;
+        this.journal = journal;
+        if (journal != null) {
+            journal.recover(this::index, this::unindex);
+        }
+        this.views = new UpcomingPreviousViews(LocalDate.now(clock));
+        this.views.reset(LocalDate.now(clock), getAllSortedByDate());
+        this.maintenance = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "appointments-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        // On close, drop the pending rollover but let a running snapshot finish
+        this.maintenance.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduleRollover();
+    }
+
+    /** Convenience for a configured zone ID such as "America/New_York". */
+    public static AppointmentService forZone(ZoneId zone) {
+        return new AppointmentService(Clock.system(zone));
+    }
+
     /**
      * Create a new appointment.
      * - Rejects duplicate IDs.
      * - Adds to the appropriate date bucket.
-     * Synchronized to avoid index drift if called concurrently.
+     * The index update is synchronized to avoid drift if called concurrently;
+     * waiting for the log fsync happens outside the lock so writers share it.
      */
-    public synchronized void addAppointment(Appointment appointment) {
-        String id = appointment.getAppointmentId();
-        if (byId.containsKey(id)) {
-            throw new IllegalArgumentException("Appointment ID already exists");
+    public void addAppointment(Appointment appointment) {
+        long lsn = 0;
+        synchronized (this) {
+            if (byId.containsKey(appointment.getAppointmentId())) {
+                throw new IllegalArgumentException("Appointment ID already exists");
+            }
+            if (journal != null) {
+                lsn = journal.appendAdd(appointment);
+            }
+            index(appointment);
+            views.add(appointment);
+        }
+        try {
+            commit(lsn);
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                // Not durable: take it back out, unless a later write already replaced it
+                if (byId.get(appointment.getAppointmentId()) == appointment) {
+                    unindex(appointment.getAppointmentId());
+                    views.remove(appointment.getAppointmentId(), appointment.getAppointmentDate());
+                }
+            }
+            throw ex;
         }
-        byId.put(id, appointment);
-
-        byDate.computeIfAbsent(appointment.getAppointmentDate(), d -> new ArrayList<>())
-                .add(appointment);
     }
 
     /**
@@ -39,16 +116,57 @@ public class AppointmentService {
      * - Removes from byId
      * - Also removes from the associated date bucket (and drops the empty bucket)
      */
-    public synchronized void deleteAppointment(String appointmentId) {
+    public void deleteAppointment(String appointmentId) {
+        long lsn = 0;
+        Appointment removed;
+        synchronized (this) {
+            if (!byId.containsKey(appointmentId)) {
+                throw new IllegalArgumentException("Appointment ID does not exist");
+            }
+            if (journal != null) {
+                lsn = journal.appendDelete(appointmentId);
+            }
+            removed = unindex(appointmentId);
+            views.remove(appointmentId, removed.getAppointmentDate());
+        }
+        try {
+            commit(lsn);
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                // Not durable: put it back, unless the ID was re-added meanwhile
+                if (!byId.containsKey(appointmentId)) {
+                    index(removed);
+                    views.add(removed);
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /** Add to both indexes (replaces an existing entry with the same ID). */
+    private void index(Appointment appointment) {
+        Appointment previous = byId.put(appointment.getAppointmentId(), appointment);
+        if (previous != null) {
+            removeFromBucket(previous);
+        }
+        byDate.computeIfAbsent(appointment.getAppointmentDate(), d -> new ArrayList<>())
+                .add(appointment);
+    }
+
+    /** Remove from both indexes; returns the removed appointment or null. */
+    private Appointment unindex(String appointmentId) {
         Appointment removed = byId.remove(appointmentId);
-        if (removed == null) {
-            throw new IllegalArgumentException("Appointment ID does not exist");
+        if (removed != null) {
+            removeFromBucket(removed);
         }
+        return removed;
+    }
 
-        LocalDate date = removed.getAppointmentDate();
+    private void removeFromBucket(Appointment a) {
+        LocalDate date = a.getAppointmentDate();
         List<Appointment> bucket = byDate.get(date);
         if (bucket != null) {
-            bucket.removeIf(a -> a.getAppointmentId().equals(appointmentId));
+            bucket.removeIf(x -> x.getAppointmentId().equals(a.getAppointmentId()));
             if (bucket.isEmpty()) {
                 byDate.remove(date);
             }
@@ -77,24 +195,14 @@ public class AppointmentService {
         return out;
     }
 
-    /** Today and future, ascending by date. */
+    /** Today and future, ascending by date (precomputed; do not modify). */
     public List<Appointment> getUpcomingAppointments() {
-        LocalDate today = LocalDate.now();
-        List<Appointment> out = new ArrayList<>();
-        for (Map.Entry<LocalDate, List<Appointment>> e : byDate.tailMap(today, true).entrySet()) {
-            out.addAll(e.getValue());
-        }
-        return out;
+        return views.upcoming();
     }
 
-    /** Strictly before today, returned newest → oldest. */
+    /** Strictly before today, returned newest → oldest (precomputed; do not modify). */
     public List<Appointment> getPreviousAppointments() {
-        LocalDate today = LocalDate.now();
-        List<Appointment> out = new ArrayList<>();
-        for (Map.Entry<LocalDate, List<Appointment>> e : byDate.headMap(today, false).descendingMap().entrySet()) {
-            out.addAll(e.getValue());
-        }
-        return out;
+        return views.previous();
     }
 
     /**
@@ -115,4 +223,88 @@ public class AppointmentService {
         }
         return out;
     }
+
+    /**
+     * Flush and close the journal (if any) and stop background work.
+     * A snapshot being written is allowed to finish first; interrupting it
+     * would leave only a partial temp file behind.
+     */
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(60, TimeUnit.SECONDS)) {
+                maintenance.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            maintenance.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Wait until the logged operation is durable, then start a snapshot in
+     * the background if enough operations have piled up since the last one.
+     */
+    private void commit(long lsn) {
+        if (journal == null) {
+            return;
+        }
+        journal.awaitDurable(lsn);
+        if (journal.snapshotDue()) {
+            try {
+                maintenance.execute(this::snapshot);
+            } catch (RejectedExecutionException ignored) {
+                // Closing; the log alone is enough to recover
+            }
+        }
+    }
+
+    /**
+     * Capture a consistent copy in date order under the lock (the WAL is
+     * rolled at the same point), then write it out without blocking writers.
+     * Bucket order is kept, so same-day ordering survives a restart.
+     */
+    void snapshot() {
+        long lsn;
+        List<Appointment> state;
+        synchronized (this) {
+            lsn = journal.beginSnapshot();
+            if (lsn < 0) {
+                return;
+            }
+            state = getAllSortedByDate();
+        }
+        journal.writeSnapshot(lsn, state);
+    }
+
+    /** Move the upcoming/previous boundary to the current date. */
+    synchronized void rollover() {
+        LocalDate today = LocalDate.now(clock);
+        views.rollTo(today);
+    }
+
+    /**
+     * Schedule the next rollover for the start of tomorrow in the clock's zone.
+     * Recomputed every time so DST changes don't drift the schedule.
+     */
+    private void scheduleRollover() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime next = now.toLocalDate().plusDays(1).atStartOfDay(now.getZone());
+        long delayMs = Math.max(0, Duration.between(now, next).toMillis());
+        try {
+            maintenance.schedule(() -> {
+                try {
+                    rollover();
+                } finally {
+                    scheduleRollover();
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Closing
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package com.appointment.backend.persistence;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the journal the way the WAL/snapshot change describes it and
+ * prints one line per figure: group-committed adds, raw appends, log and
+ * snapshot size, log decode time and full service recovery.
+ * Skipped unless enabled:
+ *   mvn test -Dtest=AppointmentJournalBenchmark -Djournal.benchmark=true
+ *       [-Djournal.benchmark.size=10000000] [-Djournal.benchmark.commits=200000]
+ *       [-Djournal.benchmark.writers=64]
+ * The 10M-entry recovery step builds a ~3 GB heap, so give it room, e.g.
+ * -DargLine=-Xmx4g.
+ */
+class AppointmentJournalBenchmark {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+    private static final String[] DESCRIPTIONS =
+            {"Annual checkup", "Dental cleaning", "Follow-up visit", "Vaccination booster"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void measureJournal() throws Exception {
+        assumeTrue(Boolean.getBoolean("journal.benchmark"), "set -Djournal.benchmark=true to run");
+        int size = Integer.getInteger("journal.benchmark.size", 1_000_000);
+        int commits = Integer.getInteger("journal.benchmark.commits", 200_000);
+        int writers = Integer.getInteger("journal.benchmark.writers", 64);
+
+        System.out.printf("%nAppointmentJournal benchmark, %d entries, %d CPUs%n",
+                size, Runtime.getRuntime().availableProcessors());
+        groupCommit(dir.resolve("commit"), commits, writers);
+
+        Path log = dir.resolve("log");
+        rawAppends(log, size);
+        decode(log, size);
+        snapshot(log, size);
+        recoverService(log, size);
+    }
+
+    /** e.g. "a000000042": 10-character IDs, as the API allows. */
+    private static Appointment appt(int i) {
+        char[] id = {'a', '0', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int p = id.length - 1, n = i; n > 0; p--, n /= 10) {
+            id[p] = (char) ('0' + n % 10);
+        }
+        return new Appointment(new String(id), DAY.plusDays(i % 3650), DESCRIPTIONS[i % DESCRIPTIONS.length]);
+    }
+
+    private static AppointmentJournal open(Path dir) {
+        return AppointmentJournal.open(dir, Duration.ofMillis(2), 256 * 1024, Long.MAX_VALUE);
+    }
+
+    /** Adds through the service, each waiting for its (shared) fsync. */
+    private static void groupCommit(Path dir, int commits, int writers) throws InterruptedException {
+        try (AppointmentService service = new AppointmentService(Clock.systemDefaultZone(), open(dir))) {
+            AtomicInteger next = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int w = 0; w < writers; w++) {
+                Thread t = new Thread(() -> {
+                    for (int i = next.getAndIncrement(); i < commits; i = next.getAndIncrement()) {
+                        service.addAppointment(appt(i));
+                    }
+                });
+                t.start();
+                threads.add(t);
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            System.out.printf("group-committed adds, %d writers: %,.0f ops/s%n", writers, rate(commits, start));
+        }
+    }
+
+    /** Appends straight into the log, one fsync wait at the end. */
+    private static void rawAppends(Path dir, int size) throws IOException {
+        try (AppointmentJournal journal = open(dir)) {
+            journal.recover(a -> { }, id -> { });
+            long start = System.nanoTime();
+            long lsn = 0;
+            for (int i = 0; i < size; i++) {
+                lsn = journal.appendAdd(appt(i));
+            }
+            double appendRate = rate(size, start);
+            journal.awaitDurable(lsn);
+            System.out.printf("raw appends: %,.0f ops/s%n", appendRate);
+        }
+        System.out.printf("WAL size: %.0f MB%n", megabytes(dir, "wal-"));
+    }
+
+    /** Replays the whole log (no snapshot yet) into a counter, so only decoding is timed. */
+    private static void decode(Path dir, int size) {
+        AtomicInteger adds = new AtomicInteger();
+        try (AppointmentJournal journal = open(dir)) {
+            long start = System.nanoTime();
+            journal.recover(a -> adds.incrementAndGet(), id -> { });
+            System.out.printf("decode %d-entry log: %.1f s%n", size, seconds(start));
+        }
+        assertEquals(size, adds.get());
+    }
+
+    /** Snapshots the same appointments, generated as they are written rather than held. */
+    private static void snapshot(Path dir, int size) throws IOException {
+        List<Appointment> state = new AbstractList<>() {
+            @Override
+            public Appointment get(int index) {
+                return appt(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+        try (AppointmentJournal journal = open(dir)) {
+            journal.recover(a -> { }, id -> { });
+            long start = System.nanoTime();
+            journal.writeSnapshot(journal.beginSnapshot(), state);
+            System.out.printf("snapshot: %.0f MB written in %.1f s%n", megabytes(dir, "snapshot-"), seconds(start));
+        }
+    }
+
+    /** Snapshot plus (empty) WAL tail into a fresh service, indexes and views included. */
+    private static void recoverService(Path dir, int size) {
+        long start = System.nanoTime();
+        try (AppointmentService service = new AppointmentService(Clock.systemDefaultZone(), open(dir))) {
+            System.out.printf("full service recovery: %.1f s%n", seconds(start));
+            assertEquals(size, service.getAllAppointments().size());
+        }
+    }
+
+    private static double rate(long ops, long startNanos) {
+        return ops / seconds(startNanos);
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    private static double megabytes(Path dir, String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            long bytes = 0;
+            for (Path p : files.filter(f -> f.getFileName().toString().startsWith(prefix)).toList()) {
+                bytes += Files.size(p);
+            }
+            return bytes / 1e6;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.appointment.backend.persistence;
+
+import com.appointment.backend.model.Appointment;
+import com.appointment.backend.service.AppointmentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AppointmentJournalTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 15);
+
+    @TempDir
+    Path dir;
+
+    private final List<AppointmentJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() {
+        for (AppointmentJournal journal : opened) {
+            try {
+                journal.close();
+            } catch (UncheckedIOException ignored) {
+                // already failed
+            }
+        }
+    }
+
+    private AppointmentJournal open() {
+        AppointmentJournal journal = AppointmentJournal.open(dir, Duration.ofMillis(1), 64 * 1024, 1_000_000);
+        opened.add(journal);
+        return journal;
+    }
+
+    /** Recover into an ordered map, as the service's index would see it. */
+    private Map<String, Appointment> recover(AppointmentJournal journal) {
+        Map<String, Appointment> state = new LinkedHashMap<>();
+        journal.recover(a -> state.put(a.getAppointmentId(), a), state::remove);
+        return state;
+    }
+
+    private static Appointment appt(String id) {
+        return new Appointment(id, DAY, "Visit " + id);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    @Test
+    void replaysDurableAppendsAfterReopen() {
+        AppointmentJournal journal = open();
+        recover(journal);
+        journal.appendAdd(appt("a"));
+        journal.appendAdd(appt("b"));
+        journal.awaitDurable(journal.appendDelete("a"));
+        journal.close();
+
+        Map<String, Appointment> state = recover(open());
+        assertEquals(List.of("b"), List.copyOf(state.keySet()));
+        assertEquals(DAY, state.get("b").getAppointmentDate());
+        assertEquals("Visit b", state.get("b").getDescription());
+    }
+
+    @Test
+    void cutsATornFrameOffTheLastSegment() throws IOException {
+        AppointmentJournal journal = open();
+        recover(journal);
+        journal.appendAdd(appt("a"));
+        journal.awaitDurable(journal.appendAdd(appt("b")));
+        journal.close();
+
+        // A crash mid-write leaves a length prefix with only part of its frame
+        Path segment = files("wal-").get(0);
+        long validSize = Files.size(segment);
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        AppointmentJournal reopened = open();
+        assertEquals(List.of("a", "b"), List.copyOf(recover(reopened).keySet()));
+        assertEquals(validSize, Files.size(segment));
+
+        // The log stays usable after the cut
+        reopened.awaitDurable(reopened.appendAdd(appt("c")));
+        reopened.close();
+        assertEquals(List.of("a", "b", "c"), List.copyOf(recover(open()).keySet()));
+    }
+
+    @Test
+    void recoversFromASnapshotPlusTheTailAfterIt() throws IOException {
+        AppointmentJournal journal = open();
+        recover(journal);
+        journal.appendAdd(appt("a"));
+        journal.appendAdd(appt("b"));
+        long lsn = journal.beginSnapshot();
+        journal.writeSnapshot(lsn, List.of(appt("a"), appt("b")));
+        journal.awaitDurable(journal.appendDelete("a"));
+        journal.close();
+
+        // Only the segment started by the snapshot is left
+        assertEquals(1, files("snapshot-").size());
+        assertEquals(1, files("wal-").size());
+        assertEquals(List.of("b"), List.copyOf(recover(open()).keySet()));
+    }
+
+    @Test
+    void refusesAppendsOnceTheLogHasFailed() throws IOException {
+        AppointmentJournal journal = open();
+        AppointmentService service = new AppointmentService(Clock.systemDefaultZone(), journal);
+        service.addAppointment(appt("a"));
+
+        // Rolling to a new segment fails once the directory is gone
+        for (Path p : files("")) {
+            Files.delete(p);
+        }
+        Files.delete(dir);
+        assertThrows(UncheckedIOException.class, journal::beginSnapshot);
+
+        assertThrows(UncheckedIOException.class, () -> journal.appendAdd(appt("b")));
+        assertThrows(UncheckedIOException.class, () -> journal.appendDelete("a"));
+
+        // The service refuses before touching memory, so a retry is not a duplicate
+        assertThrows(UncheckedIOException.class, () -> service.addAppointment(appt("b")));
+        assertNull(service.getAppointment("b"));
+        assertThrows(UncheckedIOException.class, () -> service.deleteAppointment("a"));
+        assertEquals("Visit a", service.getAppointment("a").getDescription());
+        assertEquals(List.of("a"), service.getUpcomingAppointments().stream()
+                .map(Appointment::getAppointmentId).toList());
+        Files.createDirectories(dir); // for @TempDir cleanup
+    }
+
+    @Test
+    void refusesAppendsAfterClose() {
+        AppointmentJournal journal = open();
+        recover(journal);
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.appendAdd(appt("a")));
+    }
+}
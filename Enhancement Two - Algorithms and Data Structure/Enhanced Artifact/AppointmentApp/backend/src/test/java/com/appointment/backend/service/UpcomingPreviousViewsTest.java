@@ -0,0 +1,126 @@
+package com.appointment.backend.service;
+
+import com.appointment.backend.model.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UpcomingPreviousViewsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+
+    private static Appointment appt(String id, LocalDate date) {
+        return new Appointment(id, date, "Visit " + id);
+    }
+
+    private static List<String> ids(List<Appointment> list) {
+        return list.stream().map(Appointment::getAppointmentId).toList();
+    }
+
+    @Test
+    void resetSplitsAtTodayAndKeepsSameDayOrder() {
+        UpcomingPreviousViews views = new UpcomingPreviousViews(TODAY);
+        views.reset(TODAY, List.of(
+                appt("p2a", TODAY.minusDays(2)), appt("p2b", TODAY.minusDays(2)),
+                appt("p1", TODAY.minusDays(1)),
+                appt("t1", TODAY), appt("t2", TODAY),
+                appt("u1", TODAY.plusDays(1))));
+
+        assertEquals(List.of("t1", "t2", "u1"), ids(views.upcoming()));
+        assertEquals(List.of("p1", "p2a", "p2b"), ids(views.previous()));
+    }
+
+    @Test
+    void addsAndRemovesAtTheBoundary() {
+        UpcomingPreviousViews views = new UpcomingPreviousViews(TODAY);
+        views.add(appt("today", TODAY));
+        views.add(appt("yesterday", TODAY.minusDays(1)));
+        views.add(appt("older", TODAY.minusDays(3)));
+        views.add(appt("today2", TODAY));
+        views.add(appt("today", TODAY)); // already there: no-op
+
+        assertEquals(List.of("today", "today2"), ids(views.upcoming()));
+        assertEquals(List.of("yesterday", "older"), ids(views.previous()));
+
+        views.remove("today", TODAY);
+        views.remove("yesterday", TODAY.minusDays(1));
+        views.remove("missing", TODAY); // not there: no-op
+        views.remove("older", TODAY); // wrong date: not found, no-op
+        assertEquals(List.of("today2"), ids(views.upcoming()));
+        assertEquals(List.of("older"), ids(views.previous()));
+    }
+
+    @Test
+    void rolloverMovesYesterdayIntoPrevious() {
+        UpcomingPreviousViews views = new UpcomingPreviousViews(TODAY);
+        views.add(appt("p1", TODAY.minusDays(1)));
+        views.add(appt("t1", TODAY));
+        views.add(appt("t2", TODAY));
+        views.add(appt("u1", TODAY.plusDays(1)));
+
+        views.rollTo(TODAY.plusDays(1));
+        assertEquals(TODAY.plusDays(1), views.today());
+        assertEquals(List.of("u1"), ids(views.upcoming()));
+        assertEquals(List.of("t1", "t2", "p1"), ids(views.previous()));
+
+        List<Appointment> before = views.upcoming();
+        views.rollTo(TODAY.plusDays(1)); // same day: nothing moves
+        assertSame(before, views.upcoming());
+    }
+
+    @Test
+    void writesLeaveEarlierSnapshotsUntouched() {
+        UpcomingPreviousViews views = new UpcomingPreviousViews(TODAY);
+        views.add(appt("a", TODAY));
+        List<Appointment> snapshot = views.upcoming();
+        views.add(appt("b", TODAY));
+        views.remove("a", TODAY);
+
+        assertEquals(List.of("a"), ids(snapshot));
+        assertEquals(List.of("b"), ids(views.upcoming()));
+    }
+
+    @Test
+    void matchesASortedReferenceAcrossChunkSplitsAndRemovals() {
+        UpcomingPreviousViews views = new UpcomingPreviousViews(TODAY);
+        List<Appointment> all = new ArrayList<>();
+        Random random = new Random(42);
+        int n = ChunkedList.CHUNK * 6;
+        for (int i = 0; i < n; i++) {
+            Appointment a = appt("a" + i, TODAY.plusDays(random.nextInt(200) - 100));
+            all.add(a);
+            views.add(a);
+        }
+        for (int i = 0; i < n; i += 3) {
+            views.remove("a" + i, all.get(i).getAppointmentDate());
+        }
+        List<Appointment> kept = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (i % 3 != 0) {
+                kept.add(all.get(i));
+            }
+        }
+
+        // Stable sorts keep insertion order within each date, as the views do
+        List<Appointment> upcoming = kept.stream().filter(a -> !a.getAppointmentDate().isBefore(TODAY))
+                .sorted(Comparator.comparing(Appointment::getAppointmentDate)).toList();
+        List<Appointment> previous = kept.stream().filter(a -> a.getAppointmentDate().isBefore(TODAY))
+                .sorted(Comparator.comparing(Appointment::getAppointmentDate).reversed()).toList();
+        assertEquals(ids(upcoming), ids(views.upcoming()));
+        assertEquals(ids(previous), ids(views.previous()));
+
+        // Removing everything drops every chunk
+        for (Appointment a : kept) {
+            views.remove(a.getAppointmentId(), a.getAppointmentDate());
+        }
+        assertEquals(0, views.upcoming().size());
+        assertEquals(0, views.previous().size());
+    }
+}